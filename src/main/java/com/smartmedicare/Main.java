@@ -4,8 +4,22 @@ import java.io.IOException;
 
 import com.mongodb.MongoException;
 import com.mongodb.client.MongoDatabase;
+import com.smartmedicare.services.AppointmentDateMigration;
+import com.smartmedicare.services.AppointmentSlotMigration;
+import com.smartmedicare.services.BookingService;
 import com.smartmedicare.services.DataInitializationService;
 import com.smartmedicare.services.DatabaseService;
+import com.smartmedicare.services.DoctorDAO;
+import com.smartmedicare.services.DoctorScheduleMigration;
+import com.smartmedicare.services.IndexManager;
+import com.smartmedicare.services.PatientDAO;
+import com.smartmedicare.services.PatientSearchTokenMigration;
+import com.smartmedicare.services.PrescriptionSchemaMigration;
+import com.smartmedicare.services.diagnosis.DiagnosisModelRegistry;
+import com.smartmedicare.services.diagnosis.KnowledgeBaseLoader;
+import com.smartmedicare.services.storage.FailoverDocumentStore;
+import com.smartmedicare.services.storage.JournalReplayer;
+import com.smartmedicare.utils.DatabaseConfig;
 import com.smartmedicare.utils.DialogUtils;
 
 import javafx.application.Application;
@@ -24,6 +38,11 @@ public class Main extends Application {
             // Initialize database connection
             initializeDatabase();
 
+            // Read the saved diagnosis model in the background so the first analysis does not wait on Weka
+            DiagnosisModelRegistry.getInstance();
+            // Likewise the knowledge base file; analyses use the built-in table until it is live
+            KnowledgeBaseLoader.getInstance();
+
             // Load and show main window
             Parent root = FXMLLoader.load(getClass().getResource("/fxml/landing.fxml"));
             primaryStage.setTitle("Smart Medicare");
@@ -49,16 +68,47 @@ public class Main extends Application {
     private void initializeDatabase() {
         try {
             dbService = DatabaseService.getInstance();
-            MongoDatabase database = dbService.getDatabase();
-            
-            // Test connection by running a simple command with timeout
-            database.runCommand(new org.bson.Document("ping", 1)
-                .append("maxTimeMS", 5000));  // 5 second timeout
-            System.out.println("Successfully connected to MongoDB");
+            if (dbService.isEmbedded()) {
+                System.out.println("Running on the " + dbService.getStore().describe());
+            } else {
+                try {
+                    prepareMongoDatabase(dbService.getDatabase());
+                    showReplayOutcome(dbService.replayPendingJournal());
+                    dbService.startOfflineCopy();
+                } catch (MongoException e) {
+                    if (!dbService.switchToEmbedded()) {
+                        if (dbService.getFallbackRefusal() != null) {
+                            System.err.println("MongoDB is unreachable (" + e.getMessage() + ") and offline mode is unavailable");
+                            DialogUtils.showError("Database Connection Error", "Could not connect to MongoDB",
+                                dbService.getFallbackRefusal());
+                            return;
+                        }
+                        throw e;
+                    }
+                    System.err.println("MongoDB is unreachable (" + e.getMessage() + "), continuing on the "
+                        + dbService.getStore().describe());
+                    boolean journaled = dbService.getStore() instanceof FailoverDocumentStore;
+                    if (journaled) {
+                        dbService.setReconnectListener(report -> Platform.runLater(() -> showReplayOutcome(report)));
+                    }
+                    DialogUtils.showInfo(
+                        "Local Data Mode",
+                        "Could not connect to MongoDB",
+                        "The application is running on local data stored in "
+                            + DatabaseConfig.getEmbeddedStoragePath() + ".\n\n"
+                            + (journaled
+                                ? "Changes are saved on this computer and sent to MongoDB as soon as it is reachable again."
+                                : "Changes are kept on this computer only.")
+                            + " Live schedule updates are unavailable."
+                    );
+                }
+            }
 
-            // Initialize sample data
-            DataInitializationService dataInit = new DataInitializationService();
-            dataInit.initializeSampleData();
+            // Initialize sample data; an offline session would journal it into the real database
+            if (!(dbService.getStore() instanceof FailoverDocumentStore)) {
+                DataInitializationService dataInit = new DataInitializationService();
+                dataInit.initializeSampleData();
+            }
 
         } catch (MongoException e) {
             String errorMessage = "Failed to connect to database. Please ensure MongoDB is running on localhost:27017";
@@ -82,6 +132,72 @@ public class Main extends Application {
         }
     }
 
+    private void prepareMongoDatabase(MongoDatabase database) {
+        if (database == null) {
+            throw new MongoException("The MongoDB client could not be created");
+        }
+
+        // Test connection by running a simple command with timeout
+        database.runCommand(new org.bson.Document("ping", 1)
+            .append("maxTimeMS", 5000));  // 5 second timeout
+        System.out.println("Successfully connected to MongoDB");
+
+        // Bring legacy string timestamps up to the current schema
+        new AppointmentDateMigration(database).run();
+        new AppointmentSlotMigration(database).run();
+        new PatientSearchTokenMigration(database).run();
+        new PrescriptionSchemaMigration(database).run();
+        new DoctorScheduleMigration(database).run();
+
+        // Double bookings are only prevented by this index, so it is not left to the background build
+        IndexManager indexManager = new IndexManager(database);
+        if (!indexManager.ensureIndex(IndexManager.bookingSlotIndex())) {
+            BookingService.disableWithoutSlotIndex("MongoDB");
+            DialogUtils.showError("Booking Disabled", "Appointments cannot be booked",
+                BookingService.getUnavailableReason());
+        }
+
+        // Create the other missing indexes and check hot query plans off the startup path
+        indexManager.ensureIndexesAsync();
+    }
+
+    // Only worth a dialog when something did not make it to the server as recorded
+    private void showReplayOutcome(JournalReplayer.Report report) {
+        if (report == null || (report.conflicts().isEmpty() && report.unmatched() == 0)) {
+            return;
+        }
+        StringBuilder details = new StringBuilder();
+        details.append(report.replayed()).append(" offline change(s) were sent to MongoDB.\n");
+        if (report.unmatched() > 0) {
+            details.append(report.unmatched()).append(" update(s) referred to records that no longer exist.\n");
+        }
+        for (JournalReplayer.Conflict conflict : report.conflicts()) {
+            details.append("\n- ").append(conflict.collection()).append(" ").append(conflict.op())
+                .append(" from ").append(conflict.recordedAt()).append(": ").append(conflict.reason());
+        }
+        details.append("\n\nSee journal-conflicts.log in ").append(DatabaseConfig.getEmbeddedStoragePath());
+        DialogUtils.showInfo("Offline Changes Synced", "Some offline changes could not be applied", details.toString());
+    }
+
+    @Override
+    public void stop() {
+        if (dbService != null) {
+            if (!dbService.isEmbedded()) {
+                System.out.println("MongoDB " + dbService.getPoolStats());
+                System.out.print("MongoDB " + dbService.getCommandStats().dump());
+                if (dbService.getCircuitBreaker() != null) {
+                    System.out.println("MongoDB " + dbService.getCircuitBreaker());
+                }
+            }
+            System.out.println(DoctorDAO.cache());
+            System.out.println(PatientDAO.cache());
+            System.out.println(DiagnosisModelRegistry.getInstance());
+            DiagnosisModelRegistry.getInstance().close();
+            KnowledgeBaseLoader.getInstance().close();
+            dbService.close();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,15 +1,24 @@
 package com.smartmedicare.controllers.doctor;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
+import org.bson.types.ObjectId;
+
 import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.AppointmentChange;
+import com.smartmedicare.models.AppointmentRow;
 import com.smartmedicare.models.Doctor;
-import com.smartmedicare.models.Patient;
 import com.smartmedicare.services.AppointmentDAO;
+import com.smartmedicare.services.AppointmentFeed;
+import com.smartmedicare.services.AppointmentRowLoader;
 import com.smartmedicare.services.AuthenticationService;
-import com.smartmedicare.services.PatientDAO;
+import com.smartmedicare.services.Page;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -23,28 +32,42 @@ import javafx.scene.control.cell.PropertyValueFactory;
 
 public class AppointmentManagementController {
     @FXML private ComboBox<String> statusFilterComboBox;
-    @FXML private TableView<Appointment> appointmentsTable;
-    @FXML private TableColumn<Appointment, String> dateColumn;
-    @FXML private TableColumn<Appointment, String> patientColumn;
-    @FXML private TableColumn<Appointment, String> reasonColumn;
-    @FXML private TableColumn<Appointment, String> statusColumn;
+    @FXML private TableView<AppointmentRow> appointmentsTable;
+    @FXML private TableColumn<AppointmentRow, String> dateColumn;
+    @FXML private TableColumn<AppointmentRow, String> patientColumn;
+    @FXML private TableColumn<AppointmentRow, String> reasonColumn;
+    @FXML private TableColumn<AppointmentRow, String> statusColumn;
     
     @FXML private Button acceptButton;
     @FXML private Button cancelButton;
+    @FXML private Button loadMoreButton;
     @FXML private Label messageLabel;
 
     private final AppointmentDAO appointmentDAO = new AppointmentDAO();
-    private final PatientDAO patientDAO = new PatientDAO();
+    private final AppointmentRowLoader rowLoader = new AppointmentRowLoader();
+    private static final int PAGE_SIZE = 50;
+    // Same order as findPageByDoctorId: newest first, _id breaking ties
+    private static final Comparator<Appointment> NEWEST_FIRST = Comparator
+        .comparing(Appointment::getDateTime, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+        .thenComparing(Appointment::getId)
+        .reversed();
     private Doctor currentDoctor;
-    private ObservableList<Appointment> allAppointments = FXCollections.observableArrayList();
+    private ObservableList<AppointmentRow> allAppointments = FXCollections.observableArrayList();
+    private String nextPageToken;
+    private AppointmentFeed.Subscription feedSubscription;
+    private boolean viewClosed;
+    // While a load runs, feed changes wait here and are applied on top of its result
+    private final List<AppointmentRowLoader.ResolvedChange> pendingChanges = new ArrayList<>();
+    private boolean loading;
+    private int loadGeneration;
 
     public void initialize() {
         try {
-            currentDoctor = (Doctor) AuthenticationService.getInstance().getCurrentUser();
-            
-            // Initialize status filter
+            // Initialize status filter (before the doctor is known, so setValue doesn't trigger a load)
             statusFilterComboBox.getItems().addAll("All", "PENDING", "SCHEDULED", "COMPLETED", "CANCELLED");
             statusFilterComboBox.setValue("All");
+
+            currentDoctor = (Doctor) AuthenticationService.getInstance().getCurrentUser();
             
             // Setup table columns
             setupTableColumns();
@@ -59,8 +82,8 @@ public class AppointmentManagementController {
                 }
             );
             
-            // Load appointments
-            loadAppointments();
+            // Follow changes row by row from before the first load, so none made during it are lost
+            subscribeThenLoad();
         } catch (Exception e) {
             showMessage("Error initializing appointments view: " + e.getMessage(), true);
         }
@@ -73,16 +96,9 @@ public class AppointmentManagementController {
             return new SimpleStringProperty(cellData.getValue().getDateTime().format(formatter));
         });
 
-        // Patient column
-        patientColumn.setCellValueFactory(cellData -> {
-            try {
-                Patient patient = patientDAO.findById(cellData.getValue().getPatientId());
-                String patientName = patient != null ? patient.getName() : "Unknown Patient";
-                return new SimpleStringProperty(patientName);
-            } catch (Exception e) {
-                return new SimpleStringProperty("Error loading patient");
-            }
-        });
+        // Patient column (names are resolved in bulk when the rows are loaded)
+        patientColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().getPatientName()));
 
         // Reason column
         reasonColumn.setCellValueFactory(new PropertyValueFactory<>("reason"));
@@ -91,28 +107,140 @@ public class AppointmentManagementController {
         statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
     }
 
+    // Loads the first page off the FX thread; a newer load (filter change, resync) supersedes it
     private void loadAppointments() {
-        try {
-            List<Appointment> appointments = appointmentDAO.findByDoctorId(currentDoctor.getId());
-            allAppointments.setAll(appointments);
-            filterAppointments();
-            showMessage("Loaded " + appointments.size() + " appointments", false);
-            
-            // Auto-hide message after 3 seconds
-            new javafx.animation.Timeline(
-                new javafx.animation.KeyFrame(
-                    javafx.util.Duration.seconds(3),
-                    e -> messageLabel.setVisible(false)
-                )
-            ).play();
-        } catch (Exception e) {
-            showMessage("Error loading appointments: " + e.getMessage(), true);
+        int generation = ++loadGeneration;
+        loading = true;
+        String status = statusFilterComboBox.getValue();
+        ObjectId doctorId = currentDoctor.getId();
+        Thread loader = new Thread(() -> {
+            try {
+                Page<Appointment> page = appointmentDAO.findPageByDoctorId(
+                    doctorId, "All".equals(status) ? null : status, PAGE_SIZE, null);
+                List<AppointmentRow> rows = rowLoader.load(page.getItems());
+                Platform.runLater(() -> showFirstPage(generation, page, rows));
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    if (generation == loadGeneration) {
+                        applyPendingChanges();
+                        showMessage("Error loading appointments: " + e.getMessage(), true);
+                    }
+                });
+            }
+        }, "appointments-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void showFirstPage(int generation, Page<Appointment> page, List<AppointmentRow> rows) {
+        if (generation != loadGeneration) {
+            return;
+        }
+        allAppointments.setAll(rows);
+        nextPageToken = page.getNextToken();
+        if (loadMoreButton != null) {
+            loadMoreButton.setDisable(!page.hasNext());
+        }
+        appointmentsTable.setItems(allAppointments);
+        applyPendingChanges();
+        showMessage("Loaded " + allAppointments.size() + " appointments", false);
+
+        // Auto-hide message after 3 seconds
+        new javafx.animation.Timeline(
+            new javafx.animation.KeyFrame(
+                javafx.util.Duration.seconds(3),
+                e -> messageLabel.setVisible(false)
+            )
+        ).play();
+    }
+
+    // Subscribing waits for the feed to open, so it happens off the FX thread and the first load follows it
+    private void subscribeThenLoad() {
+        loading = true;
+        // Stop listening once the dashboard swaps this view out
+        appointmentsTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                viewClosed = true;
+                if (feedSubscription != null) {
+                    feedSubscription.close();
+                }
+            }
+        });
+        ObjectId doctorId = currentDoctor.getId();
+        Thread subscriber = new Thread(() -> {
+            AppointmentFeed.Subscription subscription;
+            try {
+                subscription = AppointmentFeed.getInstance()
+                    .subscribe(doctorId, Runnable::run, rowLoader.resolving(Platform::runLater, this::applyChange));
+            } catch (RuntimeException e) {
+                System.err.println("Live appointment updates unavailable: " + e.getMessage());
+                subscription = () -> { };
+            }
+            AppointmentFeed.Subscription subscribed = subscription;
+            Platform.runLater(() -> {
+                if (viewClosed) {
+                    subscribed.close();
+                    return;
+                }
+                feedSubscription = subscribed;
+                loadAppointments();
+            });
+        }, "appointments-subscribe");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    private void applyChange(AppointmentRowLoader.ResolvedChange change) {
+        if (change.change().getType() == AppointmentChange.Type.RESYNC) {
+            loadAppointments();
+            return;
+        }
+        if (loading) {
+            pendingChanges.add(change);
+            return;
+        }
+        String status = statusFilterComboBox.getValue();
+        rowLoader.apply(allAppointments, change,
+            apt -> "All".equals(status) || status == null || status.equals(apt.getStatus()),
+            NEWEST_FIRST, nextPageToken == null);
+    }
+
+    private void applyPendingChanges() {
+        loading = false;
+        List<AppointmentRowLoader.ResolvedChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        changes.forEach(this::applyChange);
+    }
+
+    // Appends the next keyset page of the doctor's appointments (newest first)
+    private void loadNextPage() {
+        String status = statusFilterComboBox.getValue();
+        Page<Appointment> page = appointmentDAO.findPageByDoctorId(
+            currentDoctor.getId(), "All".equals(status) ? null : status, PAGE_SIZE, nextPageToken);
+        allAppointments.addAll(rowLoader.load(page.getItems()));
+        nextPageToken = page.getNextToken();
+        if (loadMoreButton != null) {
+            loadMoreButton.setDisable(!page.hasNext());
         }
     }
 
     @FXML
     private void handleStatusFilter() {
-        filterAppointments();
+        if (currentDoctor != null) {
+            loadAppointments();
+        }
+    }
+
+    @FXML
+    private void handleLoadMore() {
+        if (loading) {
+            return;
+        }
+        try {
+            loadNextPage();
+        } catch (Exception e) {
+            showMessage("Error loading more appointments: " + e.getMessage(), true);
+        }
     }
 
     @FXML
@@ -122,29 +250,17 @@ public class AppointmentManagementController {
 
     @FXML
     private void acceptAppointment() {
-        Appointment selectedAppointment = appointmentsTable.getSelectionModel().getSelectedItem();
-        if (selectedAppointment != null && "PENDING".equals(selectedAppointment.getStatus())) {
-            acceptSelectedAppointment(selectedAppointment);
+        AppointmentRow selectedRow = appointmentsTable.getSelectionModel().getSelectedItem();
+        if (selectedRow != null && "PENDING".equals(selectedRow.getStatus())) {
+            acceptSelectedAppointment(selectedRow.getAppointment());
         }
     }
 
     @FXML
     private void cancelAppointment() {
-        Appointment selectedAppointment = appointmentsTable.getSelectionModel().getSelectedItem();
-        if (selectedAppointment != null) {
-            cancelSelectedAppointment(selectedAppointment);
-        }
-    }
-
-    private void filterAppointments() {
-        String selectedStatus = statusFilterComboBox.getValue();
-        if ("All".equals(selectedStatus)) {
-            appointmentsTable.setItems(allAppointments);
-        } else {
-            ObservableList<Appointment> filteredAppointments = allAppointments.filtered(
-                appointment -> selectedStatus.equals(appointment.getStatus())
-            );
-            appointmentsTable.setItems(filteredAppointments);
+        AppointmentRow selectedRow = appointmentsTable.getSelectionModel().getSelectedItem();
+        if (selectedRow != null) {
+            cancelSelectedAppointment(selectedRow.getAppointment());
         }
     }
 
@@ -155,6 +271,7 @@ public class AppointmentManagementController {
             
             // Update local data
             allAppointments.stream()
+                .map(AppointmentRow::getAppointment)
                 .filter(apt -> apt.getId().equals(appointment.getId()))
                 .findFirst()
                 .ifPresent(apt -> apt.setStatus("SCHEDULED"));
@@ -168,11 +285,12 @@ public class AppointmentManagementController {
 
     private void cancelSelectedAppointment(Appointment appointment) {
         try {
+            appointmentDAO.cancel(appointment.getId());
             appointment.setStatus("CANCELLED");
-            appointmentDAO.update(appointment.getId(), appointmentDAO.entityToDocument(appointment));
             
             // Update local data
             allAppointments.stream()
+                .map(AppointmentRow::getAppointment)
                 .filter(apt -> apt.getId().equals(appointment.getId()))
                 .findFirst()
                 .ifPresent(apt -> apt.setStatus("CANCELLED"));
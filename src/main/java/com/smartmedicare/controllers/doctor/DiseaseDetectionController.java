@@ -4,13 +4,15 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.smartmedicare.models.DiseaseResult;
 import com.smartmedicare.models.MedicalRecord;
 import com.smartmedicare.models.Patient;
 import com.smartmedicare.models.Symptom;
-import com.smartmedicare.services.AIDiseaseDetectionService;
+import com.smartmedicare.services.DiagnosisPredictionService;
 import com.smartmedicare.services.MedicalRecordDAO;
 
 import javafx.beans.property.SimpleDoubleProperty;
@@ -52,15 +54,16 @@ public class DiseaseDetectionController implements PatientAwareController {
     @FXML private TableColumn<DiseaseResult, String> diseaseColumn;
     @FXML private TableColumn<DiseaseResult, Double> probabilityColumn;
     @FXML private TextArea recommendationArea;
+    @FXML private ComboBox<String> confirmedDiagnosisComboBox;
 
     private Patient currentPatient;
-    private final AIDiseaseDetectionService aiService;
+    private final DiagnosisPredictionService aiService;
     private final MedicalRecordDAO medicalRecordDAO;
     private final ObservableList<Symptom> symptoms;
     private final DateTimeFormatter dateFormatter;
 
     public DiseaseDetectionController() {
-        aiService = new AIDiseaseDetectionService();
+        aiService = new DiagnosisPredictionService();
         medicalRecordDAO = new MedicalRecordDAO();
         symptoms = FXCollections.observableArrayList();
         dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
@@ -187,19 +190,34 @@ public class DiseaseDetectionController implements PatientAwareController {
         progressIndicator.setVisible(true);
         resultsBox.setVisible(false);
 
-        // Run analysis in background
-        new Thread(() -> {
-            List<DiseaseResult> results = aiService.analyzeSymptoms(new ArrayList<>(symptoms));
-            String recommendation = aiService.getAIRecommendation(results, new ArrayList<>(symptoms));
-
-            // Update UI on JavaFX thread
-            javafx.application.Platform.runLater(() -> {
-                resultsTable.getItems().setAll(results);
-                recommendationArea.setText(recommendation);
-                resultsBox.setVisible(true);
-                progressIndicator.setVisible(false);
-            });
-        }).start();
+        // Run analysis in background; model scoring must never run on the JavaFX thread
+        List<Symptom> snapshot = new ArrayList<>(symptoms);
+        Thread analysis = new Thread(() -> {
+            try {
+                List<DiseaseResult> results = aiService.analyzeSymptoms(snapshot);
+                String recommendation = aiService.getAIRecommendation(results, snapshot);
+
+                // Update UI on JavaFX thread
+                javafx.application.Platform.runLater(() -> {
+                    resultsTable.getItems().setAll(results);
+                    recommendationArea.setText(recommendation);
+                    // Suggestions only; the doctor has to pick or type the diagnosis
+                    confirmedDiagnosisComboBox.getItems().setAll(
+                        results.stream().map(DiseaseResult::getDisease).toList());
+                    confirmedDiagnosisComboBox.setValue(null);
+                    resultsBox.setVisible(true);
+                    progressIndicator.setVisible(false);
+                });
+            } catch (RuntimeException e) {
+                javafx.application.Platform.runLater(() -> {
+                    progressIndicator.setVisible(false);
+                    showAlert("Analysis Failed", "Could not analyze symptoms: " + e.getMessage(),
+                        Alert.AlertType.ERROR);
+                });
+            }
+        }, "symptom-analysis");
+        analysis.setDaemon(true);
+        analysis.start();
     }
 
     @FXML
@@ -208,6 +226,11 @@ public class DiseaseDetectionController implements PatientAwareController {
         if (resultsTable.getItems().isEmpty()) {
             return;
         }
+        String confirmedDiagnosis = confirmedDiagnosisComboBox.getEditor().getText();
+        if (confirmedDiagnosis == null || confirmedDiagnosis.isBlank()) {
+            showAlert("Diagnosis Required", "Please choose or enter the confirmed diagnosis before saving.");
+            return;
+        }
 
         MedicalRecord record = new MedicalRecord();
         record.setPatientId(currentPatient.getId());
@@ -223,8 +246,13 @@ public class DiseaseDetectionController implements PatientAwareController {
         // Get the top disease result
         DiseaseResult topResult = resultsTable.getItems().get(0);
         
-        record.setDiagnosis(topResult.getDisease());
-        record.setAiPrediction(String.format("%.1f%%", topResult.getProbability() * 100));
+        // Symptom names with severities; with the confirmed diagnosis they train the diagnosis model
+        Map<String, String> symptomSeverities = new LinkedHashMap<>();
+        symptoms.forEach(s -> symptomSeverities.put(s.getName(), s.getSeverity()));
+        record.setSymptoms(symptomSeverities);
+        record.setDiagnosis(confirmedDiagnosis.trim());
+        record.setConfirmedDiagnosis(confirmedDiagnosis.trim());
+        record.setAiPrediction(String.format("%s (%.1f%%)", topResult.getDisease(), topResult.getProbability() * 100));
         record.setSeverity(calculateOverallSeverity());
         record.setTreatmentPlan(recommendationArea.getText());
         record.setNotes(String.format(
@@ -234,7 +262,7 @@ public class DiseaseDetectionController implements PatientAwareController {
         ));
 
         try {
-            medicalRecordDAO.insert(medicalRecordDAO.entityToDocument(record));
+            medicalRecordDAO.insertEntity(record);
             showAlert(
                 "Success", 
                 "AI analysis results have been saved to the patient's medical record.",
@@ -4,11 +4,15 @@ import java.io.IOException;
 
 import com.smartmedicare.controllers.DoctorAwareController;
 import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.AppointmentChange;
 import com.smartmedicare.services.AppointmentDAO;
+import com.smartmedicare.services.AppointmentFeed;
 import com.smartmedicare.services.AuthenticationService;
 import com.smartmedicare.services.PatientDAO;
 import com.smartmedicare.services.PrescriptionDAO;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -19,6 +23,7 @@ import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 @SuppressWarnings("unused")
 public class DoctorDashboardController {
@@ -33,6 +38,10 @@ public class DoctorDashboardController {
     private AppointmentDAO appointmentDAO;
     private PatientDAO patientDAO;
     private PrescriptionDAO prescriptionDAO;
+    private AppointmentFeed.Subscription feedSubscription;
+    private boolean loggedOut;
+    // Coalesces bursts of appointment changes into one recount
+    private final PauseTransition statsRefresh = new PauseTransition(Duration.millis(500));
 
     @FXML
     public void initialize() {
@@ -45,31 +54,83 @@ public class DoctorDashboardController {
         patientDAO = new PatientDAO();
         prescriptionDAO = new PrescriptionDAO();
         
-        // Load dashboard statistics
-        loadDashboardStats();
+        // Load dashboard statistics, then recount whenever this doctor's appointments change.
+        // Subscribing waits for the feed to open, so both run off the FX thread.
+        statsRefresh.setOnFinished(e -> refreshAppointmentStats());
+        Thread loader = new Thread(() -> {
+            try {
+                AppointmentFeed.Subscription subscription = AppointmentFeed.getInstance()
+                    .subscribe(doctor.getId(), Platform::runLater, this::onAppointmentChange);
+                Platform.runLater(() -> {
+                    if (loggedOut) {
+                        subscription.close();
+                    } else {
+                        feedSubscription = subscription;
+                    }
+                });
+            } catch (RuntimeException e) {
+                System.err.println("Live appointment updates unavailable: " + e.getMessage());
+            }
+            loadDashboardStats();
+        }, "dashboard-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void onAppointmentChange(AppointmentChange change) {
+        statsRefresh.playFromStart();
+    }
+
+    // Only the appointment-derived counts; prescriptions do not move with appointments
+    private void refreshAppointmentStats() {
+        Thread recount = new Thread(() -> {
+            try {
+                long todayAppts = appointmentDAO.countTodayAppointments(doctor.getId());
+                long totalPatients = patientDAO.countPatientsByDoctor(doctor.getId());
+                Platform.runLater(() -> {
+                    todayAppointmentsCount.setText(String.valueOf(todayAppts));
+                    totalPatientsCount.setText(String.valueOf(totalPatients));
+                });
+            } catch (Exception e) {
+                System.err.println("Error refreshing dashboard stats: " + e.getMessage());
+            }
+        }, "dashboard-recount");
+        recount.setDaemon(true);
+        recount.start();
     }
 
+    // Runs on a background thread and posts the counts to the FX thread
     private void loadDashboardStats() {
         try {
             // Count today's appointments
             long todayAppts = appointmentDAO.countTodayAppointments(doctor.getId());
-            todayAppointmentsCount.setText(String.valueOf(todayAppts));
 
             // Count total patients
             long totalPatients = patientDAO.countPatientsByDoctor(doctor.getId());
-            totalPatientsCount.setText(String.valueOf(totalPatients));
 
             // Count pending prescriptions
             long pendingPrescriptions = prescriptionDAO.countPendingPrescriptions(doctor.getId());
-            pendingPrescriptionsCount.setText(String.valueOf(pendingPrescriptions));
+
+            Platform.runLater(() -> {
+                todayAppointmentsCount.setText(String.valueOf(todayAppts));
+                totalPatientsCount.setText(String.valueOf(totalPatients));
+                pendingPrescriptionsCount.setText(String.valueOf(pendingPrescriptions));
+            });
         } catch (Exception e) {
             System.err.println("Error loading dashboard stats: " + e.getMessage());
-            showError("Dashboard Error", "Failed to load dashboard statistics", "There was a problem loading your dashboard information. Please try again later.");
+            Platform.runLater(() -> showError("Dashboard Error", "Failed to load dashboard statistics",
+                "There was a problem loading your dashboard information. Please try again later."));
         }
     }
 
     @FXML
     private void handleLogout() {
+        statsRefresh.stop();
+        loggedOut = true;
+        if (feedSubscription != null) {
+            feedSubscription.close();
+        }
+        AppointmentFeed.getInstance().closeAll();
         AuthenticationService.getInstance().logout();
         navigateToLogin();
     }
@@ -2,8 +2,10 @@ package com.smartmedicare.controllers.doctor;
 
 import com.smartmedicare.controllers.DoctorAwareController;
 import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.WeeklySchedule;
 import com.smartmedicare.services.AuthenticationService;
 import com.smartmedicare.services.DoctorDAO;
+import com.smartmedicare.services.ScheduleParser;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.ButtonBar;
@@ -100,11 +102,17 @@ public class DoctorProfileController implements DoctorAwareController {
             doctor.setContact(contactField.getText().trim());
             doctor.setSpecialization(specializationComboBox.getValue());
             doctor.setSchedule(scheduleArea.getText().trim());
+            WeeklySchedule weeklySchedule = ScheduleParser.parse(doctor.getSchedule());
+            if (weeklySchedule != null) {
+                doctor.setWeeklySchedule(weeklySchedule);
+            }
 
             // Save to database
             doctorDAO.update(doctor.getId(), doctorDAO.entityToDocument(doctor));
             
-            showMessage("Profile updated successfully!", false);
+            showMessage(weeklySchedule != null
+                ? "Profile updated successfully!"
+                : "Profile updated, but the schedule could not be understood (e.g. \"Mon-Fri 9:00-17:00\")", weeklySchedule == null);
         } catch (Exception e) {
             showMessage("Error updating profile: " + e.getMessage(), true);
         }
@@ -3,17 +3,15 @@ package com.smartmedicare.controllers.doctor;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-
 import com.smartmedicare.models.Doctor;
 import com.smartmedicare.models.Patient;
-import com.smartmedicare.services.AppointmentDAO;
+import com.smartmedicare.models.PatientRosterEntry;
+import com.smartmedicare.models.RosterPage;
 import com.smartmedicare.services.PatientDAO;
 
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -33,28 +31,24 @@ import javafx.stage.Stage;
 public class PatientListController implements DoctorAwareController {
     @FXML private TextField searchField;
     @FXML private ComboBox<String> filterComboBox;
-    @FXML private TableView<Patient> patientsTable;
-    @FXML private TableColumn<Patient, String> nameColumn;
-    @FXML private TableColumn<Patient, Integer> ageColumn;
-    @FXML private TableColumn<Patient, String> genderColumn;
-    @FXML private TableColumn<Patient, String> lastVisitColumn;
-    @FXML private TableColumn<Patient, String> statusColumn;
-    @FXML private TableColumn<Patient, Void> actionsColumn;
+    @FXML private TableView<PatientRosterEntry> patientsTable;
+    @FXML private TableColumn<PatientRosterEntry, String> nameColumn;
+    @FXML private TableColumn<PatientRosterEntry, Integer> ageColumn;
+    @FXML private TableColumn<PatientRosterEntry, String> genderColumn;
+    @FXML private TableColumn<PatientRosterEntry, String> lastVisitColumn;
+    @FXML private TableColumn<PatientRosterEntry, String> statusColumn;
+    @FXML private TableColumn<PatientRosterEntry, Void> actionsColumn;
     @FXML private Pagination pagination;
     @FXML private Label statusLabel;
 
     private Doctor currentDoctor;
     private PatientDAO patientDAO;
-    private AppointmentDAO appointmentDAO;
-    private ObservableList<Patient> patients;
     private static final int ITEMS_PER_PAGE = 10;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
     @FXML
     private void initialize() {
         patientDAO = new PatientDAO();
-        appointmentDAO = new AppointmentDAO();
-        patients = FXCollections.observableArrayList();
 
         // Initialize filter options
         filterComboBox.setItems(FXCollections.observableArrayList(
@@ -77,29 +71,29 @@ public class PatientListController implements DoctorAwareController {
         // Configure pagination
         pagination.setPageCount(1);
         pagination.currentPageIndexProperty().addListener(
-            (obs, oldIndex, newIndex) -> updateTableContent()
+            (obs, oldIndex, newIndex) -> loadPage(newIndex.intValue())
         );
     }
 
     private void setupTableColumns() {
         // Name column
         nameColumn.setCellValueFactory(data -> 
-            new SimpleStringProperty(data.getValue().getName())
+            new SimpleStringProperty(data.getValue().getPatient().getName())
         );
 
         // Age column
         ageColumn.setCellValueFactory(data ->
-            new SimpleObjectProperty<>(data.getValue().getAge())
+            new SimpleObjectProperty<>(data.getValue().getPatient().getAge())
         );
 
         // Gender column
         genderColumn.setCellValueFactory(data ->
-            new SimpleStringProperty(data.getValue().getGender())
+            new SimpleStringProperty(data.getValue().getPatient().getGender())
         );
 
         // Last Visit column
         lastVisitColumn.setCellValueFactory(data -> {
-            LocalDateTime lastVisit = getLastVisit(data.getValue());
+            LocalDateTime lastVisit = data.getValue().getLastVisit();
             return new SimpleStringProperty(
                 lastVisit != null ? lastVisit.format(dateFormatter) : "No visits"
             );
@@ -107,7 +101,7 @@ public class PatientListController implements DoctorAwareController {
 
         // Status column
         statusColumn.setCellValueFactory(data ->
-            new SimpleStringProperty(getPatientStatus(data.getValue()))
+            new SimpleStringProperty(data.getValue().getStatus())
         );
 
         // Actions column
@@ -117,10 +111,10 @@ public class PatientListController implements DoctorAwareController {
             
             {
                 viewButton.setOnAction(event -> handleViewPatient(
-                    getTableView().getItems().get(getIndex())
+                    getTableView().getItems().get(getIndex()).getPatient()
                 ));
                 historyButton.setOnAction(event -> handleViewHistory(
-                    getTableView().getItems().get(getIndex())
+                    getTableView().getItems().get(getIndex()).getPatient()
                 ));
             }
 
@@ -140,45 +134,32 @@ public class PatientListController implements DoctorAwareController {
 
     @FXML
     private void handleSearch() {
-        String searchTerm = searchField.getText().toLowerCase();
-        String filter = filterComboBox.getValue();
-
-        List<Patient> filteredPatients = patientDAO.searchPatients(
-            searchTerm, filter, currentDoctor.getId()
-        );
-        
-        patients.setAll(filteredPatients);
-        updatePagination();
-        updateTableContent();
+        // Restart from the first page; the page listener reloads when the index changes
+        if (pagination.getCurrentPageIndex() != 0) {
+            pagination.setCurrentPageIndex(0);
+        } else {
+            loadPage(0);
+        }
     }
 
     private void loadAllPatients() {
-        List<Patient> allPatients = patientDAO.findByDoctor(currentDoctor.getId());
-        patients.setAll(allPatients);
-        updatePagination();
-        updateTableContent();
-    }
-
-    private void updatePagination() {
-        int pageCount = (patients.size() + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE;
-        pagination.setPageCount(Math.max(1, pageCount));
+        handleSearch();
     }
 
-    private void updateTableContent() {
-        int startIndex = pagination.getCurrentPageIndex() * ITEMS_PER_PAGE;
-        int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, patients.size());
-
-        patientsTable.setItems(FXCollections.observableArrayList(
-            patients.subList(startIndex, endIndex)
-        ));
-    }
+    private void loadPage(int pageIndex) {
+        if (currentDoctor == null) {
+            return;
+        }
+        String searchTerm = searchField.getText() != null ? searchField.getText().toLowerCase() : "";
+        String filter = filterComboBox.getValue();
 
-    private LocalDateTime getLastVisit(Patient patient) {
-        return appointmentDAO.findLastVisit(patient.getId());
-    }
+        // Only the rows of the visible page are fetched from the server
+        RosterPage page = patientDAO.searchRoster(
+            searchTerm, filter, currentDoctor.getId(), pageIndex, ITEMS_PER_PAGE
+        );
 
-    private String getPatientStatus(Patient patient) {
-        return appointmentDAO.getPatientStatus(patient.getId());
+        pagination.setPageCount(page.getPageCount());
+        patientsTable.setItems(FXCollections.observableArrayList(page.getEntries()));
     }
 
     private void handleViewPatient(Patient patient) {
@@ -4,8 +4,6 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
-import org.bson.Document;
-
 import com.smartmedicare.models.Appointment;
 import com.smartmedicare.models.Doctor;
 import com.smartmedicare.models.MedicalRecord;
@@ -209,7 +207,7 @@ public class PatientProfileController implements DoctorAwareController {
     private void handleSaveNotes() {
         if (currentPatient != null && currentDoctor != null && doctorNotesArea != null) {
             currentPatient.setDoctorNotes(doctorNotesArea.getText());
-            patientDAO.update(currentPatient.getId(), entityToDocument(currentPatient));
+            patientDAO.update(currentPatient.getId(), patientDAO.entityToDocument(currentPatient));
             doctorNotesArea.setEditable(false);
             saveNotesButton.setVisible(false);
         }
@@ -237,24 +235,6 @@ public class PatientProfileController implements DoctorAwareController {
         }
     }
 
-    private Document entityToDocument(Patient patient) {
-        org.bson.Document doc = new org.bson.Document();
-        doc.put("_id", patient.getId());
-        doc.put("name", patient.getName());
-        doc.put("email", patient.getEmail());
-        doc.put("contact", patient.getContact());
-        doc.put("age", patient.getAge());
-        doc.put("gender", patient.getGender());
-        doc.put("bloodGroup", patient.getBloodGroup());
-        doc.put("doctorNotes", patient.getDoctorNotes());
-        doc.put("attendingDoctorId", patient.getAttendingDoctorId());
-        doc.put("medicalHistory", patient.getMedicalHistory());
-        doc.put("appointments", patient.getAppointments());
-        doc.put("prescriptions", patient.getPrescriptions());
-        doc.put("userType", patient.getUserType().name());
-        return doc;
-    }
-
     @Override
     public void setDoctor(Doctor doctor) {
         this.currentDoctor = doctor;
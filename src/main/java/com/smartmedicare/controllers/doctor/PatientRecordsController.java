@@ -138,17 +138,9 @@ public class PatientRecordsController implements DoctorAwareController {
         try {
             // Get all patients who have had appointments with this doctor
             List<Appointment> doctorAppointments = appointmentDAO.findByDoctorId(doctor.getId());
-            List<Patient> patients = doctorAppointments.stream()
-                .map(apt -> {
-                    try {
-                        return patientDAO.findById(apt.getPatientId());
-                    } catch (Exception e) {
-                        return null;
-                    }
-                })
-                .filter(patient -> patient != null)
-                .distinct()
-                .collect(Collectors.toList());
+            List<Patient> patients = patientDAO.findByIds(doctorAppointments.stream()
+                .map(Appointment::getPatientId)
+                .collect(Collectors.toSet()));
 
             allPatients.setAll(patients);
             recordsTable.setItems(allPatients);
@@ -2,14 +2,20 @@ package com.smartmedicare.controllers.doctor;
 
 import com.smartmedicare.controllers.DoctorAwareController;
 import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.AppointmentChange;
+import com.smartmedicare.models.AppointmentRow;
 import com.smartmedicare.models.Doctor;
-import com.smartmedicare.models.Patient;
+import com.smartmedicare.models.WeeklySchedule;
 import com.smartmedicare.services.AppointmentDAO;
+import com.smartmedicare.services.AppointmentFeed;
+import com.smartmedicare.services.AppointmentRowLoader;
 import com.smartmedicare.services.AuthenticationService;
 import com.smartmedicare.services.DoctorDAO;
-import com.smartmedicare.services.PatientDAO;
+import com.smartmedicare.services.ScheduleParser;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -17,37 +23,110 @@ import javafx.scene.layout.VBox;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
 
 public class ScheduleController implements DoctorAwareController {
     @FXML private TextArea scheduleDisplay;
-    @FXML private TableView<Appointment> appointmentsTable;
-    @FXML private TableColumn<Appointment, String> timeColumn;
-    @FXML private TableColumn<Appointment, String> patientColumn;
-    @FXML private TableColumn<Appointment, String> reasonColumn;
-    @FXML private TableColumn<Appointment, String> statusColumn;
+    @FXML private TableView<AppointmentRow> appointmentsTable;
+    @FXML private TableColumn<AppointmentRow, String> timeColumn;
+    @FXML private TableColumn<AppointmentRow, String> patientColumn;
+    @FXML private TableColumn<AppointmentRow, String> reasonColumn;
+    @FXML private TableColumn<AppointmentRow, String> statusColumn;
     @FXML private Label messageLabel;
 
     private Doctor doctor;
     private final DoctorDAO doctorDAO = new DoctorDAO();
     private final AppointmentDAO appointmentDAO = new AppointmentDAO();
-    private final PatientDAO patientDAO = new PatientDAO();
+    private final AppointmentRowLoader rowLoader = new AppointmentRowLoader();
+    private final ObservableList<AppointmentRow> todayRows = FXCollections.observableArrayList();
+    private AppointmentFeed.Subscription feedSubscription;
+    private boolean viewClosed;
+    // While a load runs, feed changes wait here and are applied on top of its result
+    private final List<AppointmentRowLoader.ResolvedChange> pendingChanges = new ArrayList<>();
+    private boolean loading;
+    private int loadGeneration;
 
     public void initialize() {
         doctor = (Doctor) AuthenticationService.getInstance().getCurrentUser();
         if (doctor != null) {
             loadScheduleData();
             setupTableColumns();
-            loadTodayAppointments();
+            subscribeThenLoad();
         }
     }
 
     @Override
     public void setDoctor(Doctor doctor) {
+        boolean doctorChanged = this.doctor == null || !this.doctor.getId().equals(doctor.getId());
         this.doctor = doctor;
         loadScheduleData();
-        loadTodayAppointments();
+        if (doctorChanged) {
+            subscribeThenLoad();
+        } else {
+            loadTodayAppointments();
+        }
+    }
+
+    // Subscribing waits for the feed to open, so it happens off the FX thread and the first load follows it
+    private void subscribeThenLoad() {
+        loading = true;
+        pendingChanges.clear();
+        if (feedSubscription != null) {
+            feedSubscription.close();
+            feedSubscription = null;
+        } else {
+            // Stop listening once the dashboard swaps this view out
+            appointmentsTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+                if (oldScene != null && newScene == null) {
+                    viewClosed = true;
+                    if (feedSubscription != null) {
+                        feedSubscription.close();
+                    }
+                }
+            });
+        }
+        ObjectId doctorId = doctor.getId();
+        Thread subscriber = new Thread(() -> {
+            AppointmentFeed.Subscription subscription;
+            try {
+                subscription = AppointmentFeed.getInstance()
+                    .subscribe(doctorId, Runnable::run, rowLoader.resolving(Platform::runLater, this::applyChange));
+            } catch (RuntimeException e) {
+                System.err.println("Live appointment updates unavailable: " + e.getMessage());
+                subscription = () -> { };
+            }
+            AppointmentFeed.Subscription subscribed = subscription;
+            Platform.runLater(() -> {
+                // The view was closed or switched to another doctor while subscribing
+                if (viewClosed || !doctorId.equals(doctor.getId())) {
+                    subscribed.close();
+                    return;
+                }
+                feedSubscription = subscribed;
+                loadTodayAppointments();
+            });
+        }, "schedule-subscribe");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    private void applyChange(AppointmentRowLoader.ResolvedChange change) {
+        if (change.change().getType() == AppointmentChange.Type.RESYNC) {
+            loadTodayAppointments();
+            return;
+        }
+        if (loading) {
+            pendingChanges.add(change);
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        rowLoader.apply(todayRows, change,
+            apt -> apt.getDateTime() != null && apt.getDateTime().toLocalDate().equals(today),
+            Comparator.comparing(Appointment::getDateTime), true);
     }
 
     private void loadScheduleData() {
@@ -68,16 +147,9 @@ public class ScheduleController implements DoctorAwareController {
             return new SimpleStringProperty(cellData.getValue().getDateTime().format(timeFormatter));
         });
 
-        // Patient column
-        patientColumn.setCellValueFactory(cellData -> {
-            try {
-                Patient patient = patientDAO.findById(cellData.getValue().getPatientId());
-                String patientName = patient != null ? patient.getName() : "Unknown Patient";
-                return new SimpleStringProperty(patientName);
-            } catch (Exception e) {
-                return new SimpleStringProperty("Error loading patient");
-            }
-        });
+        // Patient column (names are resolved in bulk when the rows are loaded)
+        patientColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().getPatientName()));
 
         // Reason column
         reasonColumn.setCellValueFactory(new PropertyValueFactory<>("reason"));
@@ -86,19 +158,42 @@ public class ScheduleController implements DoctorAwareController {
         statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
     }
 
+    // Loads off the FX thread; a newer load (refresh, resync, other doctor) supersedes it
     private void loadTodayAppointments() {
-        try {
-            List<Appointment> allAppointments = appointmentDAO.findByDoctorId(doctor.getId());
-            List<Appointment> todayAppointments = allAppointments.stream()
-                .filter(apt -> apt.getDateTime().toLocalDate().equals(LocalDate.now()))
-                .sorted((a1, a2) -> a1.getDateTime().compareTo(a2.getDateTime()))
-                .collect(Collectors.toList());
-
-            appointmentsTable.setItems(FXCollections.observableArrayList(todayAppointments));
-            showMessage("Loaded " + todayAppointments.size() + " appointments for today", false);
-        } catch (Exception e) {
-            showMessage("Error loading today's appointments: " + e.getMessage(), true);
-        }
+        int generation = ++loadGeneration;
+        loading = true;
+        ObjectId doctorId = doctor.getId();
+        Thread loader = new Thread(() -> {
+            try {
+                List<Appointment> todayAppointments = appointmentDAO.findByDoctorIdOn(doctorId, LocalDate.now());
+                List<AppointmentRow> rows = rowLoader.load(todayAppointments);
+                Platform.runLater(() -> {
+                    if (generation != loadGeneration) {
+                        return;
+                    }
+                    todayRows.setAll(rows);
+                    appointmentsTable.setItems(todayRows);
+                    applyPendingChanges();
+                    showMessage("Loaded " + todayAppointments.size() + " appointments for today", false);
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    if (generation == loadGeneration) {
+                        applyPendingChanges();
+                        showMessage("Error loading today's appointments: " + e.getMessage(), true);
+                    }
+                });
+            }
+        }, "schedule-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void applyPendingChanges() {
+        loading = false;
+        List<AppointmentRowLoader.ResolvedChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        changes.forEach(this::applyChange);
     }
 
     /**
@@ -123,7 +218,7 @@ public class ScheduleController implements DoctorAwareController {
         scheduleEditArea.setPrefRowCount(8);
         scheduleEditArea.setPrefColumnCount(50);
         scheduleEditArea.setWrapText(true);
-        scheduleEditArea.setPromptText("Enter your working schedule...\nExample:\nMonday: 9:00 AM - 5:00 PM\nTuesday: 9:00 AM - 5:00 PM\n...");
+        scheduleEditArea.setPromptText("Enter your working schedule...\nExample:\nMon-Fri 9:00-17:00\nSat 9:00-12:00\nLeave: 2025-01-02..2025-01-05\nSlot: 30 min");
 
         VBox content = new VBox(10);
         content.getChildren().addAll(
@@ -144,7 +239,13 @@ public class ScheduleController implements DoctorAwareController {
 
         dialog.showAndWait().ifPresent(newSchedule -> {
             try {
+                WeeklySchedule weeklySchedule = ScheduleParser.parse(newSchedule);
+                if (weeklySchedule == null) {
+                    showMessage("Schedule not understood. Use lines like \"Mon-Fri 9:00-17:00\" or \"Leave: 2025-01-02\"", true);
+                    return;
+                }
                 doctor.setSchedule(newSchedule.trim());
+                doctor.setWeeklySchedule(weeklySchedule);
                 doctorDAO.update(doctor.getId(), doctorDAO.entityToDocument(doctor));
                 
                 // Refresh display
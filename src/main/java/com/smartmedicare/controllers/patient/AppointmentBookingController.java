@@ -7,14 +7,16 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import org.bson.types.ObjectId;
-
-import com.smartmedicare.models.Appointment;
 import com.smartmedicare.models.Doctor;
 import com.smartmedicare.models.Patient;
+import com.smartmedicare.models.SlotOffer;
 import com.smartmedicare.services.AppointmentDAO;
 import com.smartmedicare.services.AuthenticationService;
+import com.smartmedicare.services.AvailabilityEngine;
+import com.smartmedicare.services.BookingResult;
+import com.smartmedicare.services.BookingService;
 import com.smartmedicare.services.DoctorDAO;
+import com.smartmedicare.services.EarliestSlotService;
 import com.smartmedicare.utils.SceneNavigator;
 
 import javafx.fxml.FXML;
@@ -37,6 +39,9 @@ public class AppointmentBookingController {
 
     private final DoctorDAO doctorDAO = new DoctorDAO();
     private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final BookingService bookingService = new BookingService(appointmentDAO);
+    private final AvailabilityEngine availabilityEngine = new AvailabilityEngine(appointmentDAO);
+    private final EarliestSlotService earliestSlotService = new EarliestSlotService(doctorDAO, availabilityEngine);
     private Patient patient;
 
     public void initialize() {
@@ -107,6 +112,10 @@ public class AppointmentBookingController {
 
         // Disable doctor selection until specialization is chosen
         doctorComboBox.setDisable(true);
+
+        if (BookingService.getUnavailableReason() != null) {
+            showMessage(BookingService.getUnavailableReason(), true);
+        }
     }
 
     @FXML
@@ -138,21 +147,37 @@ public class AppointmentBookingController {
         LocalDate selectedDate = datePicker.getValue();
         
         if (selectedDoctor != null && selectedDate != null) {
-            List<Appointment> existingAppointments = appointmentDAO.findByDoctorId(selectedDoctor.getId())
-                .stream()
-                .filter(apt -> apt.getDateTime().toLocalDate().equals(selectedDate))
-                .collect(Collectors.toList());
-
-            // Remove booked time slots
-            timeSlotComboBox.getItems().clear();
-            timeSlotComboBox.getItems().addAll(
-                IntStream.range(9, 17)
-                        .mapToObj(hour -> LocalTime.of(hour, 0))
-                        .filter(time -> existingAppointments.stream()
-                            .noneMatch(apt -> apt.getDateTime().toLocalTime().equals(time)))
-                        .collect(Collectors.toList())
-            );
+            // Working hours for that date minus booked slots
+            timeSlotComboBox.getItems().setAll(availabilityEngine.freeSlotsOn(selectedDoctor, selectedDate));
+        }
+    }
+
+    @FXML
+    @SuppressWarnings("unused")
+    private void handleFindEarliest() {
+        String specialization = specializationComboBox.getValue();
+        if (specialization == null) {
+            showMessage("Please choose a specialization first", true);
+            return;
         }
+
+        List<SlotOffer> offers = earliestSlotService.findEarliest(specialization, 1);
+        if (offers.isEmpty()) {
+            showMessage("No free slots in the next " + EarliestSlotService.DEFAULT_HORIZON_DAYS + " days", true);
+            return;
+        }
+
+        SlotOffer earliest = offers.get(0);
+        Doctor doctor = doctorComboBox.getItems().stream()
+            .filter(d -> d.getId().equals(earliest.getDoctor().getId()))
+            .findFirst()
+            .orElse(earliest.getDoctor());
+        doctorComboBox.setValue(doctor);
+        datePicker.setValue(earliest.getStart().toLocalDate());
+        checkAvailableSlots();
+        timeSlotComboBox.setValue(earliest.getStart().toLocalTime());
+        showMessage("Earliest available: " + getDoctorDisplayName(doctor) + " on "
+            + earliest.getStart().toLocalDate() + " at " + earliest.getStart().toLocalTime(), false);
     }
 
     @FXML
@@ -168,23 +193,20 @@ public class AppointmentBookingController {
             timeSlotComboBox.getValue()
         );
 
-        Appointment appointment = new Appointment();
-        appointment.setId(new ObjectId());
-        appointment.setPatientId(patient.getId());
-        appointment.setDoctorId(selectedDoctor.getId());
-        appointment.setDateTime(appointmentDateTime);
-        appointment.setReason(reasonTextArea.getText());
-        appointment.setStatus("SCHEDULED");
-
-        try {
-            appointmentDAO.insert(appointmentDAO.entityToDocument(appointment));
-            String doctorLabel = doctorComboBox.getValue() != null ?
-                getDoctorDisplayName(doctorComboBox.getValue()) :
-                "Doctor";
-            showMessage("Appointment with " + doctorLabel + " booked successfully!", false);
-            clearFields();
-        } catch (Exception e) {
-            showMessage("Error booking appointment: " + e.getMessage(), true);
+        BookingResult result = bookingService.book(
+            patient.getId(), selectedDoctor.getId(), appointmentDateTime, reasonTextArea.getText());
+
+        switch (result.getStatus()) {
+            case BOOKED -> {
+                showMessage("Appointment with " + getDoctorDisplayName(selectedDoctor) + " booked successfully!", false);
+                clearFields();
+            }
+            case SLOT_TAKEN -> {
+                showMessage(result.getMessage() + ". Please pick another time.", true);
+                checkAvailableSlots();
+            }
+            case REJECTED -> showMessage(result.getMessage(), true);
+            default -> showMessage("Error booking appointment: " + result.getMessage(), true);
         }
     }
 
@@ -8,11 +8,11 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.smartmedicare.models.Appointment;
-import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.AppointmentRow;
 import com.smartmedicare.models.Patient;
 import com.smartmedicare.services.AppointmentDAO;
+import com.smartmedicare.services.AppointmentRowLoader;
 import com.smartmedicare.services.AuthenticationService;
-import com.smartmedicare.services.DoctorDAO;
 import com.smartmedicare.utils.SceneNavigator;
 
 import javafx.beans.property.SimpleStringProperty;
@@ -36,21 +36,21 @@ import javafx.scene.layout.HBox;
 @SuppressWarnings("unused")
 public class AppointmentsController {
     @FXML private ComboBox<String> statusFilter;
-    @FXML private TableView<Appointment> appointmentsTable;
-    @FXML private TableColumn<Appointment, String> dateColumn;
-    @FXML private TableColumn<Appointment, String> timeColumn;
-    @FXML private TableColumn<Appointment, String> doctorColumn;
-    @FXML private TableColumn<Appointment, String> specializationColumn;
-    @FXML private TableColumn<Appointment, String> reasonColumn;
-    @FXML private TableColumn<Appointment, String> statusColumn;
-    @FXML private TableColumn<Appointment, Void> actionsColumn;
+    @FXML private TableView<AppointmentRow> appointmentsTable;
+    @FXML private TableColumn<AppointmentRow, String> dateColumn;
+    @FXML private TableColumn<AppointmentRow, String> timeColumn;
+    @FXML private TableColumn<AppointmentRow, String> doctorColumn;
+    @FXML private TableColumn<AppointmentRow, String> specializationColumn;
+    @FXML private TableColumn<AppointmentRow, String> reasonColumn;
+    @FXML private TableColumn<AppointmentRow, String> statusColumn;
+    @FXML private TableColumn<AppointmentRow, Void> actionsColumn;
     @FXML private Label messageLabel;
     @FXML private Button refreshButton;
     @FXML private ProgressIndicator loadingIndicator;
     @FXML private TextField searchField;
 
     private final AppointmentDAO appointmentDAO = new AppointmentDAO();
-    private final DoctorDAO doctorDAO = new DoctorDAO();
+    private final AppointmentRowLoader rowLoader = new AppointmentRowLoader();
     private Patient patient;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("hh:mm a");
@@ -89,17 +89,12 @@ public class AppointmentsController {
             return new SimpleStringProperty(dateTime.format(timeFormatter));
         });
 
-        // Use safe display with fallback to username when name is missing
-        doctorColumn.setCellValueFactory(data -> {
-            Doctor doctor = doctorDAO.findById(data.getValue().getDoctorId());
-            return new SimpleStringProperty(getDoctorDisplayName(doctor));
-        });
+        // Doctor names are resolved in bulk when the rows are loaded
+        doctorColumn.setCellValueFactory(data ->
+            new SimpleStringProperty(data.getValue().getDoctorName()));
 
-        specializationColumn.setCellValueFactory(data -> {
-            Doctor doctor = doctorDAO.findById(data.getValue().getDoctorId());
-            String spec = (doctor != null && doctor.getSpecialization() != null) ? doctor.getSpecialization() : "";
-            return new SimpleStringProperty(spec);
-        });
+        specializationColumn.setCellValueFactory(data ->
+            new SimpleStringProperty(data.getValue().getDoctorSpecialization()));
 
         reasonColumn.setCellValueFactory(new PropertyValueFactory<>("reason"));
         statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
@@ -110,7 +105,7 @@ public class AppointmentsController {
             private final HBox actions = new HBox(10, cancelButton);
 
             {
-                cancelButton.setOnAction(e -> handleCancelAppointment(getTableView().getItems().get(getIndex())));
+                cancelButton.setOnAction(e -> handleCancelAppointment(getTableView().getItems().get(getIndex()).getAppointment()));
                 cancelButton.getStyleClass().add("secondary-button");
             }
 
@@ -120,7 +115,7 @@ public class AppointmentsController {
                 if (empty) {
                     setGraphic(null);
                 } else {
-                    Appointment appointment = getTableView().getItems().get(getIndex());
+                    AppointmentRow appointment = getTableView().getItems().get(getIndex());
                     cancelButton.setVisible(appointment.getStatus().equals("SCHEDULED") &&
                                          appointment.getDateTime().isAfter(LocalDateTime.now()));
                     setGraphic(actions);
@@ -159,8 +154,8 @@ public class AppointmentsController {
 
         if (alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             try {
+                appointmentDAO.cancel(appointment.getId());
                 appointment.setStatus("CANCELLED");
-                appointmentDAO.update(appointment.getId(), appointmentDAO.entityToDocument(appointment));
                 loadAppointments();
                 showMessage("Appointment cancelled successfully", false);
             } catch (Exception e) {
@@ -169,7 +164,7 @@ public class AppointmentsController {
         }
     }
 
-    private List<Appointment> allAppointments = new ArrayList<>();
+    private List<AppointmentRow> allAppointments = new ArrayList<>();
 
     private void loadAppointments() {
         loadingIndicator.setVisible(true);
@@ -187,7 +182,7 @@ public class AppointmentsController {
 
                 // Sort appointments by date in descending order
                 appointments.sort((a1, a2) -> a2.getDateTime().compareTo(a1.getDateTime()));
-                allAppointments = appointments;
+                allAppointments = rowLoader.load(appointments);
 
                 // Update UI on JavaFX thread
                 javafx.application.Platform.runLater(() -> {
@@ -205,13 +200,12 @@ public class AppointmentsController {
 
     private void filterAppointments() {
         String searchText = searchField.getText() != null ? searchField.getText().toLowerCase() : "";
-        List<Appointment> filteredList = allAppointments.stream()
+        List<AppointmentRow> filteredList = allAppointments.stream()
             .filter(appointment -> {
                 if (searchText == null || searchText.isEmpty()) {
                     return true;
                 }
-                Doctor doctor = doctorDAO.findById(appointment.getDoctorId());
-                String doctorName = getDoctorDisplayName(doctor).toLowerCase();
+                String doctorName = appointment.getDoctorName().toLowerCase();
                 String reason = appointment.getReason() != null ? appointment.getReason().toLowerCase() : "";
                 return doctorName.contains(searchText) || reason.contains(searchText);
             })
@@ -223,7 +217,7 @@ public class AppointmentsController {
 
     private void setupTableRowFactory() {
         appointmentsTable.setRowFactory(tv -> {
-            TableRow<Appointment> row = new TableRow<>();
+            TableRow<AppointmentRow> row = new TableRow<>();
             
             // Add style class based on appointment status
             row.getStyleClass().add("appointment-row");
@@ -237,12 +231,12 @@ public class AppointmentsController {
             // Add tooltip
             row.setOnMouseEntered(event -> {
                 if (!row.isEmpty()) {
-                    Appointment appointment = row.getItem();
-                    Doctor doctor = doctorDAO.findById(appointment.getDoctorId());
+                    AppointmentRow appointment = row.getItem();
+                    String specialty = appointment.getDoctorSpecialization();
                     String tooltipText = String.format(
                         "Doctor: %s\nSpecialty: %s\nDate: %s\nTime: %s\nStatus: %s\nReason: %s",
-                        getDoctorDisplayName(doctor),
-                        (doctor != null && doctor.getSpecialization() != null) ? doctor.getSpecialization() : "N/A",
+                        appointment.getDoctorName(),
+                        !specialty.isEmpty() ? specialty : "N/A",
                         appointment.getDateTime().format(dateFormatter),
                         appointment.getDateTime().format(timeFormatter),
                         appointment.getStatus(),
@@ -261,13 +255,4 @@ public class AppointmentsController {
         messageLabel.getStyleClass().add(isError ? "error-message" : "success-message");
         messageLabel.setVisible(true);
     }
-
-    // Helper to display doctor's name with fallback to username when name is missing
-    private String getDoctorDisplayName(Doctor doctor) {
-        if (doctor == null) return "";
-        String name = doctor.getName();
-        if (name != null && !name.isBlank()) return "Dr. " + name.trim();
-        String username = doctor.getUsername();
-        return username != null ? ("Dr. " + username.trim()) : "";
-    }
 }
\ No newline at end of file
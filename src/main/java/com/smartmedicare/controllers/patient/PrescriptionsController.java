@@ -1,6 +1,6 @@
 package com.smartmedicare.controllers.patient;
 
-import com.smartmedicare.dao.PrescriptionDAO;
+import com.smartmedicare.services.PrescriptionDAO;
 import com.smartmedicare.models.Prescription;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
@@ -26,7 +26,7 @@ public class PrescriptionsController {
     @FXML private Label followUpLabel;
     @FXML private Label messageLabel;
 
-    private PrescriptionDAO prescriptionDAO;
+    private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
     private String currentPatientId;
 
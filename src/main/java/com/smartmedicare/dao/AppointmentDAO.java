@@ -6,17 +6,17 @@ import java.util.List;
 
 import org.bson.types.ObjectId;
 
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
 import com.smartmedicare.models.Appointment;
-import com.smartmedicare.utils.DatabaseConnection;
+import com.smartmedicare.services.DatabaseService;
+import com.smartmedicare.services.storage.StoreCollection;
 
 public class AppointmentDAO {
-    private final MongoCollection<Appointment> appointments;
+    private final StoreCollection<Appointment> appointments;
 
     public AppointmentDAO() {
-        this.appointments = DatabaseConnection.getInstance().getDatabase()
+        this.appointments = DatabaseService.getInstance().getStore()
             .getCollection("appointments", Appointment.class);
     }
 
@@ -1,11 +1,10 @@
 package com.smartmedicare.dao;
 
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.result.DeleteResult;
 import com.smartmedicare.models.User;
-import com.smartmedicare.utils.DatabaseConnection;
+import com.smartmedicare.services.DatabaseService;
+import com.smartmedicare.services.storage.StoreCollection;
 import com.smartmedicare.utils.DatabaseConfig;
 import org.bson.types.ObjectId;
 
@@ -14,11 +13,11 @@ import java.util.List;
 import java.util.Optional;
 
 public class UserDAO implements BaseDAO<User> {
-    private final MongoCollection<User> collection;
+    private final StoreCollection<User> collection;
 
     public UserDAO() {
-        this.collection = DatabaseConnection.getInstance()
-            .getDatabase()
+        this.collection = DatabaseService.getInstance()
+            .getStore()
             .getCollection(DatabaseConfig.USERS_COLLECTION, User.class);
     }
 
@@ -51,7 +50,7 @@ public class UserDAO implements BaseDAO<User> {
         collection.replaceOne(
             Filters.eq("_id", user.getId()),
             user,
-            new ReplaceOptions().upsert(true)
+            true
         );
     }
 
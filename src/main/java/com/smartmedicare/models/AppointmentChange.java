@@ -0,0 +1,43 @@
+package com.smartmedicare.models;
+
+import org.bson.types.ObjectId;
+
+/**
+ * One row-level change from the live appointment feed. {@link Type#UPSERT}
+ * carries the appointment as it is now; {@link Type#REMOVED} only its id;
+ * {@link Type#RESYNC} means changes may have been missed and the view should
+ * reload once.
+ */
+public class AppointmentChange {
+    public enum Type {
+        UPSERT,
+        REMOVED,
+        RESYNC
+    }
+
+    private final Type type;
+    private final ObjectId appointmentId;
+    private final Appointment appointment;
+
+    private AppointmentChange(Type type, ObjectId appointmentId, Appointment appointment) {
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.appointment = appointment;
+    }
+
+    public static AppointmentChange upsert(Appointment appointment) {
+        return new AppointmentChange(Type.UPSERT, appointment.getId(), appointment);
+    }
+
+    public static AppointmentChange removed(ObjectId appointmentId) {
+        return new AppointmentChange(Type.REMOVED, appointmentId, null);
+    }
+
+    public static AppointmentChange resync() {
+        return new AppointmentChange(Type.RESYNC, null, null);
+    }
+
+    public Type getType() { return type; }
+    public ObjectId getAppointmentId() { return appointmentId; }
+    public Appointment getAppointment() { return appointment; }
+}
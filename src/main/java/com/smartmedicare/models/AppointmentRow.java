@@ -0,0 +1,37 @@
+package com.smartmedicare.models;
+
+import java.time.LocalDateTime;
+
+import javafx.beans.property.StringProperty;
+
+/**
+ * Table row for an appointment with the patient and doctor names already
+ * resolved, so cell factories never have to query the database.
+ */
+public class AppointmentRow {
+    private final Appointment appointment;
+    private final String patientName;
+    private final String doctorName;
+    private final String doctorSpecialization;
+
+    public AppointmentRow(Appointment appointment, String patientName, String doctorName, String doctorSpecialization) {
+        this.appointment = appointment;
+        this.patientName = patientName;
+        this.doctorName = doctorName;
+        this.doctorSpecialization = doctorSpecialization;
+    }
+
+    public Appointment getAppointment() { return appointment; }
+
+    public String getPatientName() { return patientName; }
+    public String getDoctorName() { return doctorName; }
+    public String getDoctorSpecialization() { return doctorSpecialization; }
+
+    public LocalDateTime getDateTime() { return appointment.getDateTime(); }
+
+    public String getStatus() { return appointment.getStatus(); }
+    public StringProperty statusProperty() { return appointment.statusProperty(); }
+
+    public String getReason() { return appointment.getReason(); }
+    public StringProperty reasonProperty() { return appointment.reasonProperty(); }
+}
@@ -9,12 +9,25 @@ public class Doctor extends User {
     private String specialization;
     private List<ObjectId> assignedPatients = new ArrayList<>();
     private String schedule;
+    private WeeklySchedule weeklySchedule;
     private List<ObjectId> appointments = new ArrayList<>();
 
     public Doctor() {
         super.setUserType(UserType.DOCTOR);
     }
 
+    /** A copy that can be edited without touching this doctor. */
+    public Doctor copy() {
+        Doctor copy = new Doctor();
+        copyInto(copy);
+        copy.specialization = specialization;
+        copy.assignedPatients = assignedPatients != null ? new ArrayList<>(assignedPatients) : null;
+        copy.schedule = schedule;
+        copy.weeklySchedule = weeklySchedule != null ? weeklySchedule.copy() : null;
+        copy.appointments = appointments != null ? new ArrayList<>(appointments) : null;
+        return copy;
+    }
+
     // Getters and Setters
     public String getSpecialization() { return specialization; }
     public void setSpecialization(String specialization) { this.specialization = specialization; }
@@ -24,6 +37,9 @@ public class Doctor extends User {
 
     public String getSchedule() { return schedule; }
     public void setSchedule(String schedule) { this.schedule = schedule; }
+    
+    public WeeklySchedule getWeeklySchedule() { return weeklySchedule; }
+    public void setWeeklySchedule(WeeklySchedule weeklySchedule) { this.weeklySchedule = weeklySchedule; }
 
     public List<ObjectId> getAppointments() { return appointments; }
     public void setAppointments(List<ObjectId> appointments) { this.appointments = appointments; }
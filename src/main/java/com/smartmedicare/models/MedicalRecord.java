@@ -16,6 +16,8 @@ public class MedicalRecord {
     private Map<String, String> symptoms;
     private Map<String, Double> vitalSigns;
     private final StringProperty diagnosis = new SimpleStringProperty();
+    // Set only when the doctor confirms a diagnosis; the model trains on nothing else
+    private final StringProperty confirmedDiagnosis = new SimpleStringProperty();
     private final StringProperty aiPrediction = new SimpleStringProperty();
     private final StringProperty severity = new SimpleStringProperty();
     private final StringProperty treatmentPlan = new SimpleStringProperty();
@@ -43,6 +45,10 @@ public class MedicalRecord {
     public void setDiagnosis(String diagnosis) { this.diagnosis.set(diagnosis); }
     public StringProperty diagnosisProperty() { return diagnosis; }
 
+    public String getConfirmedDiagnosis() { return confirmedDiagnosis.get(); }
+    public void setConfirmedDiagnosis(String confirmedDiagnosis) { this.confirmedDiagnosis.set(confirmedDiagnosis); }
+    public StringProperty confirmedDiagnosisProperty() { return confirmedDiagnosis; }
+
     public String getAiPrediction() { return aiPrediction.get(); }
     public void setAiPrediction(String aiPrediction) { this.aiPrediction.set(aiPrediction); }
     public StringProperty aiPredictionProperty() { return aiPrediction; }
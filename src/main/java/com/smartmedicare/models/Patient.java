@@ -1,6 +1,7 @@
 package com.smartmedicare.models;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.types.ObjectId;
@@ -27,6 +28,29 @@ public class Patient extends User {
         super.setUserType(UserType.PATIENT);
     }
 
+    /** A copy that can be edited without touching this patient. */
+    public Patient copy() {
+        Patient copy = new Patient();
+        copyInto(copy);
+        copy.medicalHistory = medicalHistory != null ? new ArrayList<>(medicalHistory) : null;
+        copy.appointments = appointments != null ? new ArrayList<>(appointments) : null;
+        copy.prescriptions = prescriptions != null ? new ArrayList<>(prescriptions) : null;
+        copy.dateOfBirth = dateOfBirth;
+        copy.gender = gender;
+        copy.bloodGroup = bloodGroup;
+        copy.doctorNotes = doctorNotes;
+        copy.attendingDoctorId = attendingDoctorId;
+        copy.phone = phone;
+        copy.address = address;
+        copy.emergencyContactName = emergencyContactName;
+        copy.emergencyContactRelation = emergencyContactRelation;
+        copy.emergencyContactPhone = emergencyContactPhone;
+        copy.allergies = allergies;
+        copy.currentMedications = currentMedications;
+        copy.medicalConditions = medicalConditions;
+        return copy;
+    }
+
     // Getters and Setters
     public List<ObjectId> getMedicalHistory() { return medicalHistory; }
     public void setMedicalHistory(List<ObjectId> medicalHistory) { this.medicalHistory = medicalHistory; }
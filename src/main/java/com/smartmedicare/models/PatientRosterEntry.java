@@ -0,0 +1,28 @@
+package com.smartmedicare.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * A patient on a doctor's roster together with their visit summary for that doctor.
+ */
+public class PatientRosterEntry {
+    private final Patient patient;
+    private final LocalDateTime lastVisit;
+    private final LocalDateTime nextAppointment;
+
+    public PatientRosterEntry(Patient patient, LocalDateTime lastVisit, LocalDateTime nextAppointment) {
+        this.patient = patient;
+        this.lastVisit = lastVisit;
+        this.nextAppointment = nextAppointment;
+    }
+
+    public Patient getPatient() { return patient; }
+    public LocalDateTime getLastVisit() { return lastVisit; }
+    public LocalDateTime getNextAppointment() { return nextAppointment; }
+
+    public String getStatus() {
+        if (nextAppointment != null) return "Scheduled";
+        if (lastVisit == null) return "New";
+        return "Follow-up Required";
+    }
+}
@@ -0,0 +1,29 @@
+package com.smartmedicare.models;
+
+import java.util.List;
+
+/**
+ * One page of a doctor's roster search plus the total number of matches.
+ */
+public class RosterPage {
+    private final List<PatientRosterEntry> entries;
+    private final long totalCount;
+    private final int pageIndex;
+    private final int pageSize;
+
+    public RosterPage(List<PatientRosterEntry> entries, long totalCount, int pageIndex, int pageSize) {
+        this.entries = entries;
+        this.totalCount = totalCount;
+        this.pageIndex = pageIndex;
+        this.pageSize = pageSize;
+    }
+
+    public List<PatientRosterEntry> getEntries() { return entries; }
+    public long getTotalCount() { return totalCount; }
+    public int getPageIndex() { return pageIndex; }
+    public int getPageSize() { return pageSize; }
+
+    public int getPageCount() {
+        return (int) Math.max(1, (totalCount + pageSize - 1) / pageSize);
+    }
+}
@@ -0,0 +1,30 @@
+package com.smartmedicare.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces a doctor's weekly hours on one date. Empty {@code hours} means the
+ * doctor is on leave that day.
+ */
+public class ScheduleException {
+    private final LocalDate date;
+    private final List<TimeRange> hours;
+    private final String note;
+
+    public ScheduleException(LocalDate date, List<TimeRange> hours, String note) {
+        this.date = date;
+        this.hours = hours != null ? new ArrayList<>(hours) : new ArrayList<>();
+        this.note = note;
+    }
+
+    public static ScheduleException leave(LocalDate date, String note) {
+        return new ScheduleException(date, null, note);
+    }
+
+    public LocalDate getDate() { return date; }
+    public List<TimeRange> getHours() { return hours; }
+    public String getNote() { return note; }
+    public boolean isLeave() { return hours.isEmpty(); }
+}
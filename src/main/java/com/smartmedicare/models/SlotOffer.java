@@ -0,0 +1,24 @@
+package com.smartmedicare.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * A free appointment slot offered by a particular doctor.
+ */
+public class SlotOffer {
+    private final Doctor doctor;
+    private final LocalDateTime start;
+
+    public SlotOffer(Doctor doctor, LocalDateTime start) {
+        this.doctor = doctor;
+        this.start = start;
+    }
+
+    public Doctor getDoctor() { return doctor; }
+    public LocalDateTime getStart() { return start; }
+
+    @Override
+    public String toString() {
+        return start + " " + (doctor != null ? doctor.getName() : "");
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartmedicare.models;
+
+import java.time.LocalTime;
+
+/**
+ * A half-open span of the working day, {@code [start, end)}.
+ */
+public class TimeRange implements Comparable<TimeRange> {
+    private final LocalTime start;
+    private final LocalTime end;
+
+    public TimeRange(LocalTime start, LocalTime end) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Time range must end after it starts: " + start + "-" + end);
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    public LocalTime getStart() { return start; }
+    public LocalTime getEnd() { return end; }
+
+    public boolean contains(LocalTime time) {
+        return !time.isBefore(start) && time.isBefore(end);
+    }
+
+    @Override
+    public int compareTo(TimeRange other) {
+        int byStart = start.compareTo(other.start);
+        return byStart != 0 ? byStart : end.compareTo(other.end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TimeRange other && start.equals(other.start) && end.equals(other.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start.hashCode() + end.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
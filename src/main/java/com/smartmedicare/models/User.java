@@ -37,4 +37,14 @@ public class User {
     
     public UserType getUserType() { return userType; }
     public void setUserType(UserType userType) { this.userType = userType; }
+
+    protected void copyInto(User target) {
+        target.id = id;
+        target.username = username;
+        target.password = password;
+        target.name = name;
+        target.email = email;
+        target.contact = contact;
+        target.userType = userType;
+    }
 }
\ No newline at end of file
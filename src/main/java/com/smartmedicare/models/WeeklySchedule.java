@@ -0,0 +1,84 @@
+package com.smartmedicare.models;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A doctor's structured working hours: recurring hours per weekday, dated
+ * exceptions (leave or changed hours) and the appointment slot length.
+ */
+public class WeeklySchedule {
+    public static final int DEFAULT_SLOT_MINUTES = 60;
+
+    private final Map<DayOfWeek, List<TimeRange>> weeklyHours = new EnumMap<>(DayOfWeek.class);
+    private final Map<LocalDate, ScheduleException> exceptions = new TreeMap<>();
+    private int slotMinutes = DEFAULT_SLOT_MINUTES;
+
+    /** The hours booking offered before schedules were structured: every day, 9:00-17:00. */
+    public static WeeklySchedule defaultSchedule() {
+        WeeklySchedule schedule = new WeeklySchedule();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            schedule.addHours(day, new TimeRange(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        }
+        return schedule;
+    }
+
+    public void addHours(DayOfWeek day, TimeRange range) {
+        List<TimeRange> ranges = weeklyHours.computeIfAbsent(day, d -> new ArrayList<>());
+        ranges.add(range);
+        Collections.sort(ranges);
+    }
+
+    public List<TimeRange> getHours(DayOfWeek day) {
+        return weeklyHours.getOrDefault(day, List.of());
+    }
+
+    public Map<DayOfWeek, List<TimeRange>> getWeeklyHours() { return weeklyHours; }
+
+    public void addException(ScheduleException exception) {
+        exceptions.put(exception.getDate(), exception);
+    }
+
+    public void addLeave(LocalDate from, LocalDate to, String note) {
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            addException(ScheduleException.leave(date, note));
+        }
+    }
+
+    public Map<LocalDate, ScheduleException> getExceptions() { return exceptions; }
+
+    /** Working hours on {@code date}, after applying any exception for that date. */
+    public List<TimeRange> hoursOn(LocalDate date) {
+        ScheduleException exception = exceptions.get(date);
+        return exception != null ? exception.getHours() : getHours(date.getDayOfWeek());
+    }
+
+    public int getSlotMinutes() { return slotMinutes; }
+
+    public void setSlotMinutes(int slotMinutes) {
+        if (slotMinutes <= 0 || slotMinutes % 15 != 0) {
+            throw new IllegalArgumentException("Slot length must be a positive multiple of 15 minutes");
+        }
+        this.slotMinutes = slotMinutes;
+    }
+
+    /** A copy whose hours and exceptions can be changed without touching this one. */
+    public WeeklySchedule copy() {
+        WeeklySchedule copy = new WeeklySchedule();
+        weeklyHours.forEach((day, ranges) -> copy.weeklyHours.put(day, new ArrayList<>(ranges)));
+        copy.exceptions.putAll(exceptions);
+        copy.slotMinutes = slotMinutes;
+        return copy;
+    }
+
+    public boolean isEmpty() {
+        return weeklyHours.isEmpty();
+    }
+}
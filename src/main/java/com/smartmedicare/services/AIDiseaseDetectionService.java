@@ -1,118 +1,91 @@
 package com.smartmedicare.services;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 import com.smartmedicare.models.DiseaseResult;
 import com.smartmedicare.models.Symptom;
+import com.smartmedicare.services.diagnosis.KnowledgeBaseLoader;
+import com.smartmedicare.services.diagnosis.SymptomIndex;
+import com.smartmedicare.services.diagnosis.SymptomKnowledgeBase;
 
 public class AIDiseaseDetectionService {
-    private static final Map<String, Double> DISEASE_WEIGHTS = new HashMap<>();
-    private static final Map<String, List<String>> DISEASE_SYMPTOMS = new HashMap<>();
-    
-    static {
-        // Initialize disease weights and symptom mappings
-        initializeDiseaseData();
+    /**
+     * Results returned by {@link #analyzeSymptoms(List)}. Earlier versions returned
+     * every matching disease; callers that need them all pass a limit instead.
+     */
+    public static final int DEFAULT_RESULT_LIMIT = 10;
+
+    // Used until a knowledge base file is configured and loaded
+    private static final SymptomKnowledgeBase BUILT_IN = buildKnowledgeBase();
+    private static final SymptomIndex BUILT_IN_INDEX = SymptomIndex.of(BUILT_IN);
+
+    private static SymptomKnowledgeBase buildKnowledgeBase() {
+        // Common diseases, their weights, severities and associated symptoms
+        return SymptomKnowledgeBase.builder()
+            .addDisease("Common Cold", 0.3, "Mild", Arrays.asList(
+                "Runny nose", "Sore throat", "Cough", "Sneezing", "Fatigue"))
+            .addDisease("Influenza", 0.4, "Moderate", Arrays.asList(
+                "High fever", "Body aches", "Fatigue", "Cough", "Headache"))
+            .addDisease("COVID-19", 0.5, "Moderate", Arrays.asList(
+                "Fever", "Dry cough", "Fatigue", "Loss of taste/smell", "Shortness of breath"))
+            .addDisease("Pneumonia", 0.6, "Severe", Arrays.asList(
+                "High fever", "Severe cough", "Shortness of breath", "Chest pain", "Fatigue"))
+            .addDisease("Bronchitis", 0.5, "Moderate", Arrays.asList(
+                "Persistent cough", "Wheezing", "Chest discomfort", "Fatigue", "Mucus production"))
+            .addDisease("Asthma", 0.4, "Moderate", Arrays.asList(
+                "Wheezing", "Shortness of breath", "Chest tightness", "Coughing", "Difficulty breathing"))
+            .addDisease("Diabetes", 0.7, "Severe", Arrays.asList(
+                "Frequent urination", "Excessive thirst", "Unexplained weight loss", "Fatigue", "Blurred vision"))
+            .addDisease("Hypertension", 0.6, "Severe", Arrays.asList(
+                "Headache", "Shortness of breath", "Chest pain", "Dizziness", "Vision problems"))
+            .addDisease("Migraine", 0.4, "Moderate", Arrays.asList(
+                "Severe headache", "Nausea", "Light sensitivity", "Sound sensitivity", "Visual disturbances"))
+            .addDisease("Gastritis", 0.5, "Mild", Arrays.asList(
+                "Abdominal pain", "Nausea", "Bloating", "Loss of appetite", "Indigestion"))
+            .build();
     }
 
-    private static void initializeDiseaseData() {
-        // Common diseases and their associated symptoms with weights
-        DISEASE_WEIGHTS.put("Common Cold", 0.3);
-        DISEASE_WEIGHTS.put("Influenza", 0.4);
-        DISEASE_WEIGHTS.put("COVID-19", 0.5);
-        DISEASE_WEIGHTS.put("Pneumonia", 0.6);
-        DISEASE_WEIGHTS.put("Bronchitis", 0.5);
-        DISEASE_WEIGHTS.put("Asthma", 0.4);
-        DISEASE_WEIGHTS.put("Diabetes", 0.7);
-        DISEASE_WEIGHTS.put("Hypertension", 0.6);
-        DISEASE_WEIGHTS.put("Migraine", 0.4);
-        DISEASE_WEIGHTS.put("Gastritis", 0.5);
+    /** The knowledge base analyses run against right now; may change between calls. */
+    public SymptomKnowledgeBase getKnowledgeBase() {
+        SymptomKnowledgeBase loaded = KnowledgeBaseLoader.getInstance().current();
+        return loaded != null ? loaded : BUILT_IN;
+    }
 
-        // Map symptoms to diseases
-        DISEASE_SYMPTOMS.put("Common Cold", Arrays.asList(
-            "Runny nose", "Sore throat", "Cough", "Sneezing", "Fatigue"
-        ));
-        DISEASE_SYMPTOMS.put("Influenza", Arrays.asList(
-            "High fever", "Body aches", "Fatigue", "Cough", "Headache"
-        ));
-        DISEASE_SYMPTOMS.put("COVID-19", Arrays.asList(
-            "Fever", "Dry cough", "Fatigue", "Loss of taste/smell", "Shortness of breath"
-        ));
-        DISEASE_SYMPTOMS.put("Pneumonia", Arrays.asList(
-            "High fever", "Severe cough", "Shortness of breath", "Chest pain", "Fatigue"
-        ));
-        DISEASE_SYMPTOMS.put("Bronchitis", Arrays.asList(
-            "Persistent cough", "Wheezing", "Chest discomfort", "Fatigue", "Mucus production"
-        ));
-        DISEASE_SYMPTOMS.put("Asthma", Arrays.asList(
-            "Wheezing", "Shortness of breath", "Chest tightness", "Coughing", "Difficulty breathing"
-        ));
-        DISEASE_SYMPTOMS.put("Diabetes", Arrays.asList(
-            "Frequent urination", "Excessive thirst", "Unexplained weight loss", "Fatigue", "Blurred vision"
-        ));
-        DISEASE_SYMPTOMS.put("Hypertension", Arrays.asList(
-            "Headache", "Shortness of breath", "Chest pain", "Dizziness", "Vision problems"
-        ));
-        DISEASE_SYMPTOMS.put("Migraine", Arrays.asList(
-            "Severe headache", "Nausea", "Light sensitivity", "Sound sensitivity", "Visual disturbances"
-        ));
-        DISEASE_SYMPTOMS.put("Gastritis", Arrays.asList(
-            "Abdominal pain", "Nausea", "Bloating", "Loss of appetite", "Indigestion"
-        ));
+    /** Inverted index over the knowledge base analyses run against right now. */
+    public SymptomIndex getSymptomIndex() {
+        SymptomIndex loaded = KnowledgeBaseLoader.getInstance().currentIndex();
+        return loaded != null ? loaded : BUILT_IN_INDEX;
     }
 
     public List<DiseaseResult> analyzeSymptoms(List<Symptom> symptoms) {
-        Map<String, Double> diseaseProbabilities = new HashMap<>();
-
-        // Convert symptoms to string list
-        List<String> symptomNames = symptoms.stream()
-            .map(Symptom::getName)
-            .collect(Collectors.toList());
+        return analyzeSymptoms(symptoms, DEFAULT_RESULT_LIMIT);
+    }
 
-        // Calculate probability for each disease
-        for (Map.Entry<String, List<String>> entry : DISEASE_SYMPTOMS.entrySet()) {
-            String disease = entry.getKey();
-            List<String> diseaseSymptoms = entry.getValue();
-            
-            // Count matching symptoms
-            long matchingSymptoms = symptomNames.stream()
-                .filter(diseaseSymptoms::contains)
-                .count();
-            
-            // Calculate probability based on matching symptoms and disease weight
-            if (matchingSymptoms > 0) {
-                double probability = calculateProbability(
-                    matchingSymptoms, 
-                    diseaseSymptoms.size(), 
-                    DISEASE_WEIGHTS.get(disease)
-                );
-                diseaseProbabilities.put(disease, probability);
-            }
+    /**
+     * The {@code limit} most probable diseases sharing a symptom with {@code symptoms},
+     * most probable first; {@link Integer#MAX_VALUE} returns every match.
+     */
+    public List<DiseaseResult> analyzeSymptoms(List<Symptom> symptoms, int limit) {
+        List<String> symptomNames = new ArrayList<>(symptoms.size());
+        for (Symptom symptom : symptoms) {
+            symptomNames.add(symptom.getName());
         }
-
-        // Convert to sorted list of results
-        return diseaseProbabilities.entrySet().stream()
-            .map(e -> new DiseaseResult(e.getKey(), e.getValue()))
-            .sorted((r1, r2) -> Double.compare(r2.getProbability(), r1.getProbability()))
-            .collect(Collectors.toList());
+        // One instance for the whole analysis, even if a reload lands meanwhile
+        SymptomKnowledgeBase knowledgeBase = getKnowledgeBase();
+        long[] query = knowledgeBase.encode(symptomNames);
+        return knowledgeBase.topMatches(query, limit, AIDiseaseDetectionService::calculateProbability);
     }
 
-    private double calculateProbability(long matchingSymptoms, int totalSymptoms, double diseaseWeight) {
+    private static double calculateProbability(int matchingSymptoms, int totalSymptoms, double diseaseWeight) {
         // Base probability from matching symptoms ratio
         double baseProbability = (double) matchingSymptoms / totalSymptoms;
         
         // Apply disease weight and normalize
         double weightedProbability = baseProbability * diseaseWeight;
         
-        // Add some randomness to simulate AI uncertainty
-        Random random = new Random();
-        double uncertainty = (random.nextDouble() * 0.1) - 0.05; // ±5% uncertainty
-        
-        return Math.min(1.0, Math.max(0.0, weightedProbability + uncertainty));
+        return Math.min(1.0, Math.max(0.0, weightedProbability));
     }
 
     public String getAIRecommendation(List<DiseaseResult> results, List<Symptom> symptoms) {
@@ -1,69 +1,58 @@
 package com.smartmedicare.services;
 
 import com.smartmedicare.models.DiseaseAnalysis;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoDatabase;
-import org.bson.Document;
+import com.smartmedicare.services.diagnosis.SymptomIndex;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
+/**
+ * Matches patient-reported symptoms against the disease knowledge base the rule
+ * engine uses ({@link AIDiseaseDetectionService#getKnowledgeBase()}: the
+ * {@code .smkb} file once loaded, the built-in table until then) through its
+ * {@link SymptomIndex}. The index is built with the knowledge base, on the
+ * loader's background thread, so a query never builds one. Severities are the
+ * ones the knowledge base records; a disease it does not rate has none.
+ */
 public class AnalysisService {
-    private final MongoDatabase database;
     private static final double THRESHOLD = 0.2; // 20% minimum probability threshold
-    
+
+    private final AIDiseaseDetectionService rules;
+
     public AnalysisService() {
-        this.database = DatabaseService.getInstance().getDatabase();
+        this(new AIDiseaseDetectionService());
+    }
+
+    public AnalysisService(AIDiseaseDetectionService rules) {
+        this.rules = rules;
     }
-    
+
     public List<DiseaseAnalysis> analyzeSymptoms(List<String> symptoms) {
+        SymptomIndex index = rules.getSymptomIndex();
         List<DiseaseAnalysis> results = new ArrayList<>();
-        Map<String, Integer> diseaseMatches = new HashMap<>();
-        Map<String, String> diseaseSeverity = new HashMap<>();
-        
-        MongoCollection<Document> symptomsCollection = database.getCollection("disease_symptoms");
-        try (MongoCursor<Document> cursor = symptomsCollection.find().iterator()) {
-            while (cursor.hasNext()) {
-                Document doc = cursor.next();
-                String disease = doc.getString("disease");
-                List<String> diseaseSymptoms = doc.getList("symptoms", String.class);
-                String severity = doc.getString("severity");
-                
-                int matches = 0;
-                for (String symptom : symptoms) {
-                    if (diseaseSymptoms.contains(symptom.toLowerCase())) {
-                        matches++;
-                    }
-                }
-                
-                if (matches > 0) {
-                    double probability = (double) matches / diseaseSymptoms.size();
-                    if (probability >= THRESHOLD) {
-                        diseaseMatches.put(disease, matches);
-                        diseaseSeverity.put(disease, severity);
-                    }
-                }
+
+        // Matches are converted to probabilities over the kept diseases below
+        int[] totalMatches = new int[1];
+        List<int[]> kept = new ArrayList<>();
+        index.match(symptoms, (disease, matches) -> {
+            double probability = (double) matches / index.symptomCountOf(disease);
+            if (probability >= THRESHOLD) {
+                kept.add(new int[] {disease, matches});
+                totalMatches[0] += matches;
             }
-        }
-        
-        // Convert matches to probabilities
-        int totalMatches = diseaseMatches.values().stream().mapToInt(Integer::intValue).sum();
-        
-        diseaseMatches.forEach((disease, matches) -> {
-            double probability = (double) matches / totalMatches;
+        });
+
+        for (int[] match : kept) {
             results.add(new DiseaseAnalysis(
-                disease,
-                probability,
-                diseaseSeverity.get(disease)
+                index.disease(match[0]),
+                (double) match[1] / totalMatches[0],
+                index.severity(match[0])
             ));
-        });
-        
+        }
+
         // Sort by probability in descending order
         results.sort((a, b) -> Double.compare(b.getProbability(), a.getProbability()));
-        
+
         return results;
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,36 @@
 package com.smartmedicare.services;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.result.DeleteResult;
 import com.smartmedicare.models.Appointment;
+import com.smartmedicare.utils.BsonDates;
 
 public class AppointmentDAO extends BaseDAO<Appointment> {
     
     public AppointmentDAO() {
-        super("appointments");
+        super("appointments", Appointment.class);
     }
 
     @Override
@@ -23,7 +39,7 @@ public class AppointmentDAO extends BaseDAO<Appointment> {
         appointment.setId(doc.getObjectId("_id"));
         appointment.setPatientId(doc.getObjectId("patientId"));
         appointment.setDoctorId(doc.getObjectId("doctorId"));
-        appointment.setDateTime(LocalDateTime.parse(doc.getString("dateTime")));
+        appointment.setDateTime(BsonDates.toLocalDateTime(doc.get("dateTime")));
         appointment.setStatus(doc.getString("status"));
         appointment.setReason(doc.getString("reason"));
         appointment.setNotes(doc.getString("notes"));
@@ -35,52 +51,185 @@ public class AppointmentDAO extends BaseDAO<Appointment> {
         return new Document("_id", appointment.getId())
                 .append("patientId", appointment.getPatientId())
                 .append("doctorId", appointment.getDoctorId())
-                .append("dateTime", appointment.getDateTime().toString())
+                .append("dateTime", BsonDates.toDate(appointment.getDateTime()))
                 .append("status", appointment.getStatus())
                 .append("reason", appointment.getReason())
                 .append("notes", appointment.getNotes());
     }
 
+    /**
+     * Inserts {@code appointment} and claims its slot in the same write. The unique
+     * {@code (doctorId, slotStart)} index rejects the insert with a duplicate-key
+     * {@link MongoWriteException} when the slot is already taken.
+     */
+    public void insertClaimingSlot(Appointment appointment) {
+        if (appointment.getId() == null) {
+            appointment.setId(new ObjectId());
+        }
+        try {
+            collection.insertOne(entityToDocument(appointment)
+                .append("slotStart", BsonDates.toDate(appointment.getDateTime())));
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                // Booked by another client since the cached day was loaded
+                SlotAvailabilityCache.getInstance().markBooked(appointment.getDoctorId(), appointment.getDateTime());
+            }
+            throw e;
+        }
+        SlotAvailabilityCache.getInstance().markBooked(appointment.getDoctorId(), appointment.getDateTime());
+    }
+
+    /** Marks the appointment cancelled and releases its slot for new bookings. */
+    public boolean cancel(ObjectId appointmentId) {
+        Document before = collection.findOneAndUpdate(
+            Filters.and(Filters.eq("_id", appointmentId), Filters.ne("status", "CANCELLED")),
+            Updates.combine(Updates.set("status", "CANCELLED"), Updates.unset("slotStart")),
+            Projections.include("doctorId", "dateTime"));
+        if (before == null) {
+            return false;
+        }
+        releaseSlot(before);
+        return true;
+    }
+
+    @Override
+    public DeleteResult delete(ObjectId id) {
+        Document deleted = collection.findOneAndDelete(Filters.eq("_id", id),
+            Projections.include("doctorId", "dateTime", "status"));
+        if (deleted == null) {
+            return DeleteResult.acknowledged(0);
+        }
+        if (!"CANCELLED".equals(deleted.getString("status"))) {
+            releaseSlot(deleted);
+        }
+        return DeleteResult.acknowledged(1);
+    }
+
+    private void releaseSlot(Document appointment) {
+        SlotAvailabilityCache.getInstance().markFree(
+            appointment.getObjectId("doctorId"), BsonDates.toLocalDateTime(appointment.get("dateTime")));
+    }
+
+    /** Start times of the doctor's non-cancelled appointments on {@code day}, for {@link SlotAvailabilityCache}. */
+    public List<LocalDateTime> findBookedTimesOn(ObjectId doctorId, LocalDate day) {
+        List<LocalDateTime> times = new ArrayList<>();
+        collection.find(Filters.and(
+            Filters.eq("doctorId", doctorId),
+            Filters.gte("dateTime", BsonDates.startOfDay(day)),
+            Filters.lt("dateTime", BsonDates.startOfNextDay(day)),
+            Filters.ne("status", "CANCELLED")
+        )).projection(Projections.include("dateTime"))
+          .forEach(doc -> times.add(BsonDates.toLocalDateTime(doc.get("dateTime"))));
+        return times;
+    }
+
+    /**
+     * Start times of the non-cancelled appointments of all {@code doctorIds} in
+     * {@code [from, to)}, grouped by doctor, fetched with one range query.
+     */
+    public Map<ObjectId, List<LocalDateTime>> findBookedTimes(Collection<ObjectId> doctorIds,
+                                                             LocalDateTime from, LocalDateTime to) {
+        Map<ObjectId, List<LocalDateTime>> times = new HashMap<>();
+        if (doctorIds.isEmpty()) {
+            return times;
+        }
+        collection.find(Filters.and(
+            doctorIds.size() == 1 ? Filters.eq("doctorId", doctorIds.iterator().next()) : Filters.in("doctorId", doctorIds),
+            Filters.gte("dateTime", BsonDates.toDate(from)),
+            Filters.lt("dateTime", BsonDates.toDate(to)),
+            Filters.ne("status", "CANCELLED")
+        )).projection(Projections.include("doctorId", "dateTime"))
+          .forEach(doc -> times.computeIfAbsent(doc.getObjectId("doctorId"), id -> new ArrayList<>())
+              .add(BsonDates.toLocalDateTime(doc.get("dateTime"))));
+        return times;
+    }
+
     public List<Appointment> findByPatientId(ObjectId patientId) {
         List<Appointment> appointments = new ArrayList<>();
-        collection.find(Filters.eq("patientId", patientId)).forEach(
-            doc -> appointments.add(documentToEntity(doc))
-        );
+        entities.find(Filters.eq("patientId", patientId)).into(appointments);
         return appointments;
     }
 
+    /**
+     * Change stream over this doctor's appointments. Inserts and updates carry the
+     * current document; deletes cannot be attributed to a doctor without
+     * pre-images, so every delete is passed through with just its key. MongoDB
+     * only; callers check {@link com.smartmedicare.services.storage.DocumentStore#supportsChangeStreams()}.
+     */
+    public ChangeStreamIterable<Appointment> watchDoctor(ObjectId doctorId) {
+        MongoDatabase database = DatabaseService.getInstance().getDatabase();
+        if (database == null) {
+            throw new UnsupportedOperationException("Change streams need a MongoDB connection");
+        }
+        return database.getCollection(entities.getName(), Appointment.class).watch(List.of(Aggregates.match(Filters.or(
+                Filters.eq("fullDocument.doctorId", doctorId),
+                Filters.in("operationType", "delete", "drop", "rename", "dropDatabase", "invalidate")))))
+            .fullDocument(FullDocument.UPDATE_LOOKUP);
+    }
+
     public List<Appointment> findByDoctorId(ObjectId doctorId) {
         List<Appointment> appointments = new ArrayList<>();
-        collection.find(Filters.eq("doctorId", doctorId)).forEach(
-            doc -> appointments.add(documentToEntity(doc))
-        );
+        entities.find(Filters.eq("doctorId", doctorId)).into(appointments);
         return appointments;
     }
 
+    /** Doctor's appointments, newest first, one keyset page at a time; {@code status} may be null for all. */
+    public Page<Appointment> findPageByDoctorId(ObjectId doctorId, String status, int pageSize, String continuationToken) {
+        Bson filter = status != null
+            ? Filters.and(Filters.eq("doctorId", doctorId), Filters.eq("status", status))
+            : Filters.eq("doctorId", doctorId);
+        return findPage(filter, "-dateTime,-_id", pageSize, continuationToken);
+    }
+
+    public Page<Appointment> findPageByPatientId(ObjectId patientId, int pageSize, String continuationToken) {
+        return findPage(Filters.eq("patientId", patientId), "-dateTime,-_id", pageSize, continuationToken);
+    }
+
+    public Stream<Appointment> streamByDoctorId(ObjectId doctorId, int batchSize) {
+        return stream(Filters.eq("doctorId", doctorId), batchSize);
+    }
+
+    public Stream<Appointment> streamAll(int batchSize) {
+        return stream(null, batchSize);
+    }
+
     public List<Appointment> findByDate(LocalDateTime date) {
         List<Appointment> appointments = new ArrayList<>();
-        collection.find(Filters.eq("dateTime", date.toString())).forEach(
-            doc -> appointments.add(documentToEntity(doc))
-        );
+        entities.find(Filters.eq("dateTime", BsonDates.toDate(date))).into(appointments);
         return appointments;
     }
 
     public long countTodayAppointments(ObjectId doctorId) {
-        String today = LocalDateTime.now().toLocalDate().toString();
+        return countAppointmentsOn(doctorId, LocalDate.now());
+    }
+
+    public long countAppointmentsOn(ObjectId doctorId, LocalDate day) {
         return collection.countDocuments(
             Filters.and(
                 Filters.eq("doctorId", doctorId),
-                Filters.regex("dateTime", "^" + today)
+                Filters.gte("dateTime", BsonDates.startOfDay(day)),
+                Filters.lt("dateTime", BsonDates.startOfNextDay(day))
             )
         );
     }
 
+    public List<Appointment> findByDoctorIdOn(ObjectId doctorId, LocalDate day) {
+        List<Appointment> appointments = new ArrayList<>();
+        entities.find(Filters.and(
+            Filters.eq("doctorId", doctorId),
+            Filters.gte("dateTime", BsonDates.startOfDay(day)),
+            Filters.lt("dateTime", BsonDates.startOfNextDay(day))
+        )).sort(Sorts.ascending("dateTime"))
+          .into(appointments);
+        return appointments;
+    }
+
     public List<Appointment> findByPatientIdAndStatus(ObjectId patientId, String status) {
         List<Appointment> appointments = new ArrayList<>();
-        collection.find(Filters.and(
+        entities.find(Filters.and(
             Filters.eq("patientId", patientId),
             Filters.eq("status", status)
-        )).forEach(doc -> appointments.add(documentToEntity(doc)));
+        )).into(appointments);
         return appointments;
     }
 
@@ -91,38 +240,40 @@ public class AppointmentDAO extends BaseDAO<Appointment> {
 
     public LocalDateTime findLastVisit(ObjectId patientId) {
         Document last = collection
-            .find(Filters.eq("patientId", patientId))
+            .find(Filters.and(
+                Filters.eq("patientId", patientId),
+                Filters.lt("dateTime", BsonDates.toDate(LocalDateTime.now()))))
+            .projection(Projections.include("dateTime"))
             .sort(Sorts.descending("dateTime"))
             .limit(1)
             .first();
-        if (last == null) return null;
-        return LocalDateTime.parse(last.getString("dateTime"));
+        return last != null ? BsonDates.toLocalDateTime(last.get("dateTime")) : null;
     }
 
-    public String getPatientStatus(ObjectId patientId) {
-        // Upcoming appointment?
-        Document upcoming = collection
+    public LocalDateTime findNextAppointment(ObjectId patientId) {
+        Document next = collection
             .find(Filters.and(
                 Filters.eq("patientId", patientId),
-                Filters.regex("dateTime", ".*"))) // placeholder filter; sort ascending and check >= now in-memory
+                Filters.gte("dateTime", BsonDates.toDate(LocalDateTime.now()))))
+            .projection(Projections.include("dateTime"))
             .sort(Sorts.ascending("dateTime"))
+            .limit(1)
             .first();
+        return next != null ? BsonDates.toLocalDateTime(next.get("dateTime")) : null;
+    }
 
-        if (upcoming != null) {
-            try {
-                LocalDateTime dt = LocalDateTime.parse(upcoming.getString("dateTime"));
-                if (!dt.isBefore(LocalDateTime.now())) {
-                    return "Scheduled";
-                }
-            } catch (Exception ignored) {}
+    public String getPatientStatus(ObjectId patientId) {
+        if (findNextAppointment(patientId) != null) {
+            return "Scheduled";
         }
 
-        Document last = collection
+        Document any = collection
             .find(Filters.eq("patientId", patientId))
-            .sort(Sorts.descending("dateTime"))
+            .projection(Projections.include("_id"))
+            .limit(1)
             .first();
 
-        if (last == null) return "New";
+        if (any == null) return "New";
         return "Follow-up Required";
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.smartmedicare.services;
+
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.smartmedicare.utils.BsonDates;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * One-off migration that rewrites appointments whose {@code dateTime} is still an
+ * ISO-8601 string into a native BSON date. Safe to run on every startup: once all
+ * documents are converted the type filter matches nothing.
+ */
+public class AppointmentDateMigration {
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoCollection<Document> appointments;
+
+    public AppointmentDateMigration() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public AppointmentDateMigration(MongoDatabase database) {
+        this.appointments = database.getCollection(DatabaseConfig.APPOINTMENTS_COLLECTION);
+    }
+
+    /** Converts all string timestamps and returns the number of documents updated. */
+    public long run() {
+        Bson legacy = Filters.type("dateTime", "string");
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        long skipped = 0;
+
+        for (Document doc : appointments.find(legacy)
+                .projection(Projections.include("dateTime"))
+                .batchSize(BATCH_SIZE)) {
+            try {
+                batch.add(new UpdateOneModel<>(
+                    // Re-check the type so a concurrent writer's Date is never overwritten
+                    Filters.and(Filters.eq("_id", doc.get("_id")), legacy),
+                    Updates.set("dateTime", BsonDates.toDate(BsonDates.toLocalDateTime(doc.get("dateTime"))))
+                ));
+            } catch (DateTimeParseException e) {
+                skipped++;
+                System.err.println("Skipping appointment " + doc.get("_id") + " with unparseable dateTime: "
+                    + doc.get("dateTime"));
+            }
+            if (batch.size() == BATCH_SIZE) {
+                migrated += flush(batch);
+            }
+        }
+        migrated += flush(batch);
+
+        if (migrated > 0 || skipped > 0) {
+            System.out.println("Migrated " + migrated + " appointment timestamps to BSON dates"
+                + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
+        }
+        return migrated;
+    }
+
+    private long flush(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long modified = appointments.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+}
@@ -0,0 +1,386 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.AppointmentChange;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Live appointment changes per doctor, pushed from a MongoDB change stream.
+ *
+ * <p>Each doctor with at least one subscriber gets one daemon thread holding a
+ * change stream cursor on {@code appointments}. Events are turned into
+ * {@link AppointmentChange} diffs and handed to every subscriber on the executor
+ * it chose (controllers pass {@code Platform::runLater}). After a network error
+ * the stream resumes from the last resume token; if that is no longer possible
+ * subscribers get a {@link AppointmentChange.Type#RESYNC}. {@link #subscribe}
+ * returns once the doctor's stream is open, so a screen that subscribes before
+ * its first load sees every change made after that load started; if opening
+ * takes longer than {@value #OPEN_WAIT_MS} ms the late subscribers get a
+ * resync when it opens instead. Because of that wait, screens subscribe from a
+ * background thread.
+ *
+ * <p>Change streams need a replica set and a live MongoDB connection. Against a
+ * standalone server, or while the embedded engine stands in, the watcher polls
+ * the doctor's appointments every {@code mongodb.changeStreams.pollIntervalMs}
+ * and publishes the differences instead, and goes back to the stream once one
+ * can be opened.
+ */
+public class AppointmentFeed {
+    private static final int CHANGE_STREAM_UNSUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long MAX_AWAIT_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long OPEN_WAIT_MS = 2000;
+
+    private static AppointmentFeed instance;
+
+    /** Handle returned by {@link #subscribe}; closing it stops delivery to that listener. */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final AppointmentDAO appointmentDAO;
+    private final Map<ObjectId, Watcher> watchers = new HashMap<>();
+    private volatile boolean unsupported;
+
+    public AppointmentFeed(AppointmentDAO appointmentDAO) {
+        this.appointmentDAO = appointmentDAO;
+    }
+
+    public static synchronized AppointmentFeed getInstance() {
+        if (instance == null) {
+            instance = new AppointmentFeed(new AppointmentDAO());
+        }
+        return instance;
+    }
+
+    /**
+     * Delivers every change to {@code doctorId}'s appointments to {@code listener}
+     * on {@code deliverOn} until the returned subscription is closed. Subscribe
+     * before loading what the listener keeps up to date. Blocks for up to
+     * {@value #OPEN_WAIT_MS} ms, so never call it on the FX thread.
+     */
+    public Subscription subscribe(ObjectId doctorId, Executor deliverOn, Consumer<AppointmentChange> listener) {
+        Watcher watcher;
+        Listener entry = new Listener(deliverOn, listener);
+        synchronized (this) {
+            if (doctorId == null || !DatabaseConfig.isChangeStreamsEnabled()) {
+                return () -> { };
+            }
+            watcher = watchers.get(doctorId);
+            if (watcher == null) {
+                watcher = new Watcher(doctorId);
+                watchers.put(doctorId, watcher);
+                watcher.start();
+            }
+            watcher.listeners.add(entry);
+        }
+        watcher.awaitOpen();
+        Watcher owner = watcher;
+        return () -> unsubscribe(owner, entry);
+    }
+
+    private synchronized void unsubscribe(Watcher watcher, Listener listener) {
+        watcher.listeners.remove(listener);
+        if (watcher.listeners.isEmpty() && watchers.get(watcher.doctorId) == watcher) {
+            watchers.remove(watcher.doctorId);
+            watcher.shutdown();
+        }
+    }
+
+    /** Stops every watcher, e.g. on logout. */
+    public synchronized void closeAll() {
+        for (Watcher watcher : watchers.values()) {
+            watcher.shutdown();
+        }
+        watchers.clear();
+    }
+
+    // Watchers see the flag on their next pass and poll from then on
+    private synchronized void markUnsupported(String reason) {
+        if (!unsupported) {
+            unsupported = true;
+            System.err.println("Live appointment updates fall back to polling: " + reason
+                + ". Change streams need a replica set; for a local server start mongod with --replSet rs0,"
+                + " run rs.initiate() once and connect with ?replicaSet=rs0 or ?directConnection=true.");
+        }
+    }
+
+    private boolean streamsAvailable() {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        return !unsupported && databaseService.getStore().supportsChangeStreams()
+            && databaseService.getDatabase() != null;
+    }
+
+    private static final class Listener {
+        final Executor executor;
+        final Consumer<AppointmentChange> consumer;
+
+        Listener(Executor executor, Consumer<AppointmentChange> consumer) {
+            this.executor = executor;
+            this.consumer = consumer;
+        }
+    }
+
+    /** What polling compares; the doctor is fixed by the query. */
+    private record Version(ObjectId patientId, LocalDateTime dateTime, String status, String reason, String notes) {
+        static Version of(Appointment appointment) {
+            return new Version(appointment.getPatientId(), appointment.getDateTime(), appointment.getStatus(),
+                appointment.getReason(), appointment.getNotes());
+        }
+    }
+
+    private final class Watcher implements Runnable {
+        final ObjectId doctorId;
+        final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private BsonDocument resumeToken;
+        private boolean opened;
+        private boolean lateSubscribers;
+        // Last polled state; null while the change stream is open
+        private Map<ObjectId, Version> snapshot;
+
+        Watcher(ObjectId doctorId) {
+            this.doctorId = doctorId;
+            this.thread = new Thread(this, "appointment-feed-" + doctorId);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void shutdown() {
+            running = false;
+            thread.interrupt();
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitOpen() {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OPEN_WAIT_MS);
+            try {
+                long left;
+                while (!opened && running && (left = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!opened) {
+                lateSubscribers = true;
+            }
+        }
+
+        // Changes made before the first open were never seen, so whoever stopped waiting must reload
+        private void markOpened() {
+            boolean resync;
+            synchronized (this) {
+                if (opened) {
+                    return;
+                }
+                opened = true;
+                notifyAll();
+                resync = lateSubscribers;
+            }
+            if (resync) {
+                publish(AppointmentChange.resync());
+            }
+        }
+
+        @Override
+        public void run() {
+            int failures = 0;
+            while (running) {
+                if (!streamsAvailable()) {
+                    poll();
+                    continue;
+                }
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Appointment>> cursor = open().cursor()) {
+                    failures = 0;
+                    if (snapshot != null) {
+                        // Whatever changed between the last poll and the open
+                        refresh();
+                        snapshot = null;
+                    }
+                    markOpened();
+                    while (running) {
+                        ChangeStreamDocument<Appointment> event = cursor.tryNext();
+                        if (event == null) {
+                            // Post-batch token keeps the resume point current on a quiet collection
+                            BsonDocument token = cursor.getResumeToken();
+                            if (token != null) {
+                                resumeToken = token;
+                            }
+                            continue;
+                        }
+                        resumeToken = event.getResumeToken();
+                        if (!dispatch(event)) {
+                            resumeToken = null;
+                            break;
+                        }
+                    }
+                } catch (MongoInterruptedException e) {
+                    return;
+                } catch (MongoCommandException e) {
+                    if (e.getErrorCode() == CHANGE_STREAM_UNSUPPORTED) {
+                        markUnsupported(e.getErrorMessage());
+                        continue;
+                    }
+                    if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                        resumeToken = null;
+                        publish(AppointmentChange.resync());
+                        continue;
+                    }
+                    failures = backOff(failures, e);
+                } catch (MongoException e) {
+                    failures = backOff(failures, e);
+                } catch (UnsupportedOperationException e) {
+                    // The store failed over between the check and the open; poll on the next pass
+                }
+            }
+        }
+
+        private void poll() {
+            try {
+                refresh();
+                markOpened();
+            } catch (RuntimeException e) {
+                System.err.println("Appointment feed for doctor " + doctorId + " could not poll: " + e.getMessage());
+            }
+            pause(DatabaseConfig.getChangePollIntervalMs());
+        }
+
+        // Publishes what changed since the last poll. The first poll only takes a
+        // baseline, and one that follows a stream cannot tell what it missed.
+        private void refresh() {
+            Map<ObjectId, Version> current = new HashMap<>();
+            Map<ObjectId, Appointment> appointments = new HashMap<>();
+            for (Appointment appointment : appointmentDAO.findByDoctorId(doctorId)) {
+                current.put(appointment.getId(), Version.of(appointment));
+                appointments.put(appointment.getId(), appointment);
+            }
+            if (snapshot == null) {
+                resumeToken = null;
+                boolean streamed;
+                synchronized (this) {
+                    streamed = opened;
+                }
+                if (streamed) {
+                    publish(AppointmentChange.resync());
+                }
+            } else {
+                for (Map.Entry<ObjectId, Version> entry : current.entrySet()) {
+                    if (!entry.getValue().equals(snapshot.get(entry.getKey()))) {
+                        publish(AppointmentChange.upsert(appointments.get(entry.getKey())));
+                    }
+                }
+                for (ObjectId id : snapshot.keySet()) {
+                    if (!current.containsKey(id)) {
+                        publish(AppointmentChange.removed(id));
+                    }
+                }
+            }
+            snapshot = current;
+        }
+
+        private ChangeStreamIterable<Appointment> open() {
+            ChangeStreamIterable<Appointment> stream = appointmentDAO.watchDoctor(doctorId)
+                .maxAwaitTime(MAX_AWAIT_MS, TimeUnit.MILLISECONDS);
+            return resumeToken != null ? stream.startAfter(resumeToken) : stream;
+        }
+
+        // Returns false when the stream was invalidated and must be reopened from now
+        private boolean dispatch(ChangeStreamDocument<Appointment> event) {
+            switch (event.getOperationType()) {
+                case INSERT, UPDATE, REPLACE -> {
+                    Appointment appointment = event.getFullDocument();
+                    if (appointment != null) {
+                        publish(AppointmentChange.upsert(appointment));
+                    } else {
+                        // Deleted before the update lookup ran
+                        ObjectId id = documentKeyId(event);
+                        if (id != null) {
+                            publish(AppointmentChange.removed(id));
+                        }
+                    }
+                    return true;
+                }
+                case DELETE -> {
+                    ObjectId id = documentKeyId(event);
+                    if (id != null) {
+                        publish(AppointmentChange.removed(id));
+                    }
+                    return true;
+                }
+                case DROP, RENAME, DROP_DATABASE, INVALIDATE -> {
+                    publish(AppointmentChange.resync());
+                    return false;
+                }
+                default -> {
+                    return true;
+                }
+            }
+        }
+
+        private ObjectId documentKeyId(ChangeStreamDocument<Appointment> event) {
+            BsonDocument key = event.getDocumentKey();
+            BsonValue id = key != null ? key.get("_id") : null;
+            return id != null && id.isObjectId() ? id.asObjectId().getValue() : null;
+        }
+
+        private void publish(AppointmentChange change) {
+            for (Listener listener : listeners) {
+                listener.executor.execute(() -> {
+                    try {
+                        listener.consumer.accept(change);
+                    } catch (RuntimeException e) {
+                        System.err.println("Appointment feed listener failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+
+        private int backOff(int failures, MongoException e) {
+            if (!running) {
+                return failures;
+            }
+            long delay = Math.min(MAX_BACKOFF_MS, 1000L << Math.min(failures, 5));
+            System.err.println("Appointment feed for doctor " + doctorId + " lost its stream ("
+                + e.getMessage() + "), retrying in " + delay + " ms");
+            pause(delay);
+            return failures + 1;
+        }
+
+        private void pause(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+}
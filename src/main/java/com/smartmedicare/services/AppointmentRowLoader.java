@@ -0,0 +1,163 @@
+package com.smartmedicare.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.AppointmentChange;
+import com.smartmedicare.models.AppointmentRow;
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.Patient;
+
+/**
+ * Turns a page of appointments into table rows, resolving every patient and
+ * doctor name with one {@code $in} query per collection.
+ */
+public class AppointmentRowLoader {
+    private final PatientDAO patientDAO;
+    private final DoctorDAO doctorDAO;
+
+    public AppointmentRowLoader() {
+        this(new PatientDAO(), new DoctorDAO());
+    }
+
+    public AppointmentRowLoader(PatientDAO patientDAO, DoctorDAO doctorDAO) {
+        this.patientDAO = patientDAO;
+        this.doctorDAO = doctorDAO;
+    }
+
+    /** A feed change together with the row for its appointment, if it carries one. */
+    public record ResolvedChange(AppointmentChange change, AppointmentRow row) {
+    }
+
+    public List<AppointmentRow> load(List<Appointment> appointments) {
+        Set<ObjectId> patientIds = new HashSet<>();
+        Set<ObjectId> doctorIds = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            patientIds.add(appointment.getPatientId());
+            doctorIds.add(appointment.getDoctorId());
+        }
+
+        Map<ObjectId, Patient> patients = new HashMap<>();
+        for (Patient patient : patientDAO.findByIds(patientIds)) {
+            patients.put(patient.getId(), patient);
+        }
+        Map<ObjectId, Doctor> doctors = new HashMap<>();
+        for (Doctor doctor : doctorDAO.findByIds(doctorIds)) {
+            doctors.put(doctor.getId(), doctor);
+        }
+
+        List<AppointmentRow> rows = new ArrayList<>(appointments.size());
+        for (Appointment appointment : appointments) {
+            Patient patient = patients.get(appointment.getPatientId());
+            Doctor doctor = doctors.get(appointment.getDoctorId());
+            rows.add(new AppointmentRow(
+                appointment,
+                patient != null ? patient.getName() : "Unknown Patient",
+                getDoctorDisplayName(doctor),
+                doctor != null && doctor.getSpecialization() != null ? doctor.getSpecialization() : ""
+            ));
+        }
+        return rows;
+    }
+
+    /**
+     * Wraps {@code listener} for {@link AppointmentFeed#subscribe} with a direct
+     * executor: names are looked up on the feed thread and only the finished
+     * change is handed to {@code deliverOn}, so the UI thread never queries for
+     * them. A change whose names cannot be looked up is delivered as a resync.
+     */
+    public Consumer<AppointmentChange> resolving(Executor deliverOn, Consumer<ResolvedChange> listener) {
+        return change -> {
+            ResolvedChange resolved;
+            try {
+                resolved = resolve(change);
+            } catch (RuntimeException e) {
+                System.err.println("Could not resolve names for appointment change: " + e.getMessage());
+                resolved = new ResolvedChange(AppointmentChange.resync(), null);
+            }
+            ResolvedChange ready = resolved;
+            deliverOn.execute(() -> listener.accept(ready));
+        };
+    }
+
+    public ResolvedChange resolve(AppointmentChange change) {
+        Appointment appointment = change.getAppointment();
+        return new ResolvedChange(change, appointment != null ? load(List.of(appointment)).get(0) : null);
+    }
+
+    /**
+     * Applies one resolved feed change to {@code rows}, which are kept sorted by
+     * {@code order}, as a single-row insert, in-place update or removal.
+     * {@code belongs} decides whether an appointment is listed at all. When
+     * {@code complete} is false the list is a partial page, and new rows that
+     * would land after its last row are left for the next page.
+     */
+    public void apply(List<AppointmentRow> rows, ResolvedChange resolved,
+                      Predicate<Appointment> belongs, Comparator<Appointment> order, boolean complete) {
+        AppointmentChange change = resolved.change();
+        int index = indexOf(rows, change.getAppointmentId());
+        Appointment appointment = change.getAppointment();
+        if (appointment == null || resolved.row() == null || !belongs.test(appointment)) {
+            if (index >= 0) {
+                rows.remove(index);
+            }
+            return;
+        }
+
+        if (index >= 0) {
+            Appointment current = rows.get(index).getAppointment();
+            if (Objects.equals(current.getDateTime(), appointment.getDateTime())
+                    && Objects.equals(current.getPatientId(), appointment.getPatientId())
+                    && Objects.equals(current.getDoctorId(), appointment.getDoctorId())) {
+                // Same row in the same place: update the bound properties so selection survives
+                current.setStatus(appointment.getStatus());
+                current.setReason(appointment.getReason());
+                current.setNotes(appointment.getNotes());
+                return;
+            }
+            rows.remove(index);
+        }
+
+        int position = 0;
+        while (position < rows.size() && order.compare(rows.get(position).getAppointment(), appointment) <= 0) {
+            position++;
+        }
+        if (position == rows.size() && !complete) {
+            return;
+        }
+        rows.add(position, resolved.row());
+    }
+
+    private static int indexOf(List<AppointmentRow> rows, ObjectId appointmentId) {
+        if (appointmentId == null) {
+            return -1;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (appointmentId.equals(rows.get(i).getAppointment().getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Doctor's name with fallback to username when name is missing
+    private static String getDoctorDisplayName(Doctor doctor) {
+        if (doctor == null) return "";
+        String name = doctor.getName();
+        if (name != null && !name.isBlank()) return "Dr. " + name.trim();
+        String username = doctor.getUsername();
+        return username != null ? ("Dr. " + username.trim()) : "";
+    }
+}
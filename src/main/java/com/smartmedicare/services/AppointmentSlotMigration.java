@@ -0,0 +1,102 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.smartmedicare.utils.BsonDates;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Claims {@code slotStart} for upcoming active appointments booked before
+ * {@link BookingService} existed, so the unique slot index also guards them.
+ * When legacy data already double-books a slot the earliest booking keeps it and
+ * the others are logged and left unclaimed. Safe to run on every startup.
+ */
+public class AppointmentSlotMigration {
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoCollection<Document> appointments;
+
+    public AppointmentSlotMigration() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public AppointmentSlotMigration(MongoDatabase database) {
+        this.appointments = database.getCollection(DatabaseConfig.APPOINTMENTS_COLLECTION);
+    }
+
+    /** Claims slots for unclaimed upcoming appointments and returns the number updated. */
+    public long run() {
+        Bson unclaimed = Filters.and(
+            Filters.exists("slotStart", false),
+            Filters.ne("status", "CANCELLED"),
+            Filters.gte("dateTime", BsonDates.startOfDay(LocalDate.now()))
+        );
+        Set<String> claimed = new HashSet<>();
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        long conflicts = 0;
+
+        for (Document doc : appointments.find(unclaimed)
+                .projection(Projections.include("doctorId", "dateTime"))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(BATCH_SIZE)) {
+            Object dateTime = doc.get("dateTime");
+            if (!(dateTime instanceof Date slot)) {
+                continue;
+            }
+            if (!claimed.add(doc.get("doctorId") + "@" + slot.getTime())) {
+                conflicts++;
+                System.err.println("Appointment " + doc.get("_id") + " double-books doctor "
+                    + doc.get("doctorId") + " at " + BsonDates.toLocalDateTime(slot) + "; slot left unclaimed");
+                continue;
+            }
+            batch.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), unclaimed),
+                Updates.set("slotStart", slot)
+            ));
+            if (batch.size() == BATCH_SIZE) {
+                migrated += flush(batch);
+            }
+        }
+        migrated += flush(batch);
+
+        if (migrated > 0 || conflicts > 0) {
+            System.out.println("Claimed booking slots for " + migrated + " appointments"
+                + (conflicts > 0 ? " (" + conflicts + " conflicting)" : ""));
+        }
+        return migrated;
+    }
+
+    private long flush(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            return appointments.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        } catch (MongoBulkWriteException e) {
+            // Slots already claimed by a new booking stay with that booking
+            System.err.println(e.getWriteErrors().size() + " appointments conflict with existing bookings");
+            return e.getWriteResult().getModifiedCount();
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -58,7 +58,7 @@ public class AuthenticationService {
                                     doctor.setName(foundUser.getName());
                                     doctor.setEmail(foundUser.getEmail());
                                     doctor.setContact(foundUser.getContact());
-                                    try { doctorDAO.insert(doctorDAO.entityToDocument(doctor)); } catch (Exception ignored) {}
+                                    try { doctorDAO.insertEntity(doctor); } catch (Exception ignored) {}
                                 }
                                 currentUser = doctor;
                             }
@@ -74,7 +74,7 @@ public class AuthenticationService {
                                     patient.setName(foundUser.getName());
                                     patient.setEmail(foundUser.getEmail());
                                     patient.setContact(foundUser.getContact());
-                                    try { patientDAO.insert(patientDAO.entityToDocument(patient)); } catch (Exception ignored) {}
+                                    try { patientDAO.insertEntity(patient); } catch (Exception ignored) {}
                                 }
                                 currentUser = patient;
                             }
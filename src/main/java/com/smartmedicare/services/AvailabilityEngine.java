@@ -0,0 +1,219 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.TimeRange;
+import com.smartmedicare.models.WeeklySchedule;
+
+/**
+ * Intersects doctors' working hours with their booked appointments to list
+ * bookable slots. Bookings for the whole window are fetched with one range
+ * query and bucketed into per-day bitmaps ({@link SlotAvailabilityCache#SLOT_MINUTES}
+ * granularity), then every day is walked once.
+ * <p>
+ * An appointment occupies one slot of the doctor's slot length from its start,
+ * so a candidate slot is free when no booking starts less than one slot length
+ * before it or inside it.
+ */
+public class AvailabilityEngine {
+    private final AppointmentDAO appointmentDAO;
+
+    public AvailabilityEngine() {
+        this(new AppointmentDAO());
+    }
+
+    public AvailabilityEngine(AppointmentDAO appointmentDAO) {
+        this.appointmentDAO = appointmentDAO;
+    }
+
+    /** The doctor's structured schedule, parsed from the legacy text when it was never migrated. */
+    public static WeeklySchedule scheduleOf(Doctor doctor) {
+        return doctor.getWeeklySchedule() != null
+            ? doctor.getWeeklySchedule()
+            : ScheduleParser.parseOrDefault(doctor.getSchedule());
+    }
+
+    /** Free slot start times for {@code doctor} over {@code days} days starting at {@code from}. */
+    public List<LocalDateTime> freeSlots(Doctor doctor, LocalDate from, int days) {
+        return freeSlots(List.of(doctor), from.atStartOfDay(), from.plusDays(days).atStartOfDay())
+            .getOrDefault(doctor.getId(), List.of());
+    }
+
+    /**
+     * Free slot start times in {@code [from, to)} for every doctor, in ascending
+     * order per doctor. Slots that have already started are never returned.
+     */
+    public Map<ObjectId, List<LocalDateTime>> freeSlots(Collection<Doctor> doctors, LocalDateTime from, LocalDateTime to) {
+        Map<ObjectId, List<LocalDateTime>> free = new HashMap<>();
+        for (Map.Entry<ObjectId, Iterator<LocalDateTime>> doctor : freeSlotIterators(doctors, from, to).entrySet()) {
+            List<LocalDateTime> slots = new ArrayList<>();
+            doctor.getValue().forEachRemaining(slots::add);
+            free.put(doctor.getKey(), slots);
+        }
+        return free;
+    }
+
+    /**
+     * Like {@link #freeSlots(Collection, LocalDateTime, LocalDateTime)} but each
+     * doctor's slots are produced lazily in ascending order, so callers that only
+     * need the first few never expand the rest of the window.
+     */
+    public Map<ObjectId, Iterator<LocalDateTime>> freeSlotIterators(Collection<Doctor> doctors,
+                                                                   LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from.isBefore(now) ? now : from;
+        Map<ObjectId, Iterator<LocalDateTime>> free = new HashMap<>();
+        if (doctors.isEmpty() || !start.isBefore(to)) {
+            return free;
+        }
+
+        List<ObjectId> ids = new ArrayList<>(doctors.size());
+        for (Doctor doctor : doctors) {
+            ids.add(doctor.getId());
+        }
+        // Whole days, so a slot near either edge still sees bookings just outside the window
+        Map<ObjectId, List<LocalDateTime>> booked = appointmentDAO.findBookedTimes(ids,
+            start.toLocalDate().atStartOfDay(), to.toLocalDate().plusDays(1).atStartOfDay());
+
+        for (Doctor doctor : doctors) {
+            free.put(doctor.getId(), new FreeSlotIterator(scheduleOf(doctor),
+                bucketByDay(booked.getOrDefault(doctor.getId(), List.of())), start, to));
+        }
+        return free;
+    }
+
+    /** Free slot times on one day, answered from {@link SlotAvailabilityCache}. */
+    public List<LocalTime> freeSlotsOn(Doctor doctor, LocalDate day) {
+        BitSet booked = SlotAvailabilityCache.getInstance().bookedSlots(doctor.getId(), day);
+        List<LocalDateTime> slots = new ArrayList<>();
+        collectFreeSlots(scheduleOf(doctor), day, booked, LocalDateTime.now(), day.plusDays(1).atStartOfDay(), slots);
+        List<LocalTime> times = new ArrayList<>(slots.size());
+        for (LocalDateTime slot : slots) {
+            times.add(slot.toLocalTime());
+        }
+        return times;
+    }
+
+    private static Map<LocalDate, BitSet> bucketByDay(List<LocalDateTime> bookings) {
+        Map<LocalDate, BitSet> days = new HashMap<>();
+        for (LocalDateTime booking : bookings) {
+            days.computeIfAbsent(booking.toLocalDate(), d -> new BitSet(SlotAvailabilityCache.SLOTS_PER_DAY))
+                .set(SlotAvailabilityCache.slotIndex(booking.toLocalTime()));
+        }
+        return days;
+    }
+
+    private static void collectFreeSlots(WeeklySchedule schedule, LocalDate day, BitSet booked,
+                                         LocalDateTime notBefore, LocalDateTime before, List<LocalDateTime> out) {
+        new FreeSlotIterator(schedule, booked != null ? Map.of(day, booked) : Map.of(), notBefore, before, day, day)
+            .forEachRemaining(out::add);
+    }
+
+    /** Walks the working hours day by day, yielding slots whose bitmap range is clear. */
+    private static final class FreeSlotIterator implements Iterator<LocalDateTime> {
+        private final WeeklySchedule schedule;
+        private final Map<LocalDate, BitSet> bookedByDay;
+        private final LocalDateTime notBefore;
+        private final LocalDateTime before;
+        private final LocalDate lastDay;
+        private final int slotMinutes;
+        private final int slotBits;
+
+        private LocalDate day;
+        private List<TimeRange> ranges;
+        private int rangeIndex;
+        private LocalDateTime cursor;
+        private LocalDateTime next;
+
+        FreeSlotIterator(WeeklySchedule schedule, Map<LocalDate, BitSet> bookedByDay,
+                         LocalDateTime notBefore, LocalDateTime before) {
+            this(schedule, bookedByDay, notBefore, before, notBefore.toLocalDate(), before.toLocalDate());
+        }
+
+        FreeSlotIterator(WeeklySchedule schedule, Map<LocalDate, BitSet> bookedByDay,
+                         LocalDateTime notBefore, LocalDateTime before, LocalDate firstDay, LocalDate lastDay) {
+            this.schedule = schedule;
+            this.bookedByDay = bookedByDay;
+            this.notBefore = notBefore;
+            this.before = before;
+            this.lastDay = lastDay;
+            this.slotMinutes = schedule.getSlotMinutes();
+            this.slotBits = slotMinutes / SlotAvailabilityCache.SLOT_MINUTES;
+            startDay(firstDay);
+            next = advance();
+        }
+
+        private void startDay(LocalDate date) {
+            day = date;
+            ranges = schedule.hoursOn(date);
+            rangeIndex = 0;
+            cursor = ranges.isEmpty() ? null : day.atTime(ranges.get(0).getStart());
+        }
+
+        private LocalDateTime advance() {
+            while (true) {
+                if (cursor == null || rangeIndex >= ranges.size()) {
+                    if (!day.isBefore(lastDay)) {
+                        return null;
+                    }
+                    startDay(day.plusDays(1));
+                    continue;
+                }
+                TimeRange range = ranges.get(rangeIndex);
+                LocalDateTime rangeEnd = range.getEnd().equals(LocalTime.MAX)
+                    ? day.plusDays(1).atStartOfDay()
+                    : day.atTime(range.getEnd());
+                LocalDateTime slot = cursor;
+                if (slot.plusMinutes(slotMinutes).isAfter(rangeEnd)) {
+                    rangeIndex++;
+                    cursor = rangeIndex < ranges.size() ? day.atTime(ranges.get(rangeIndex).getStart()) : null;
+                    continue;
+                }
+                if (!slot.isBefore(before)) {
+                    return null;
+                }
+                cursor = slot.plusMinutes(slotMinutes);
+                if (slot.isBefore(notBefore)) {
+                    continue;
+                }
+                BitSet booked = bookedByDay.get(day);
+                if (booked == null || isFree(booked, SlotAvailabilityCache.slotIndex(slot.toLocalTime()), slotBits)) {
+                    return slot;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LocalDateTime next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            LocalDateTime current = next;
+            next = advance();
+            return current;
+        }
+    }
+
+    private static boolean isFree(BitSet booked, int slotIndex, int slotBits) {
+        int next = booked.nextSetBit(Math.max(0, slotIndex - slotBits + 1));
+        return next < 0 || next >= slotIndex + slotBits;
+    }
+}
@@ -1,33 +1,254 @@
 package com.smartmedicare.services;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
+import com.smartmedicare.services.storage.FindQuery;
+import com.smartmedicare.services.storage.StoreCollection;
 
 public abstract class BaseDAO<T> {
-    protected final MongoCollection<Document> collection;
+    protected final StoreCollection<Document> collection;
+    /**
+     * Same collection decoded straight into {@code T} by the codecs in
+     * {@link com.smartmedicare.services.codecs}; {@code null} for DAOs that only
+     * map through {@link #documentToEntity(Document)}.
+     */
+    protected final StoreCollection<T> entities;
 
     protected BaseDAO(String collectionName) {
-        this.collection = DatabaseService.getInstance().getDatabase().getCollection(collectionName);
+        this.collection = DatabaseService.getInstance().getStore().getCollection(collectionName);
+        this.entities = null;
+    }
+
+    protected BaseDAO(String collectionName, Class<T> entityClass) {
+        this.collection = DatabaseService.getInstance().getStore().getCollection(collectionName);
+        this.entities = collection.withDocumentClass(entityClass);
     }
 
     public InsertOneResult insert(Document document) {
         return collection.insertOne(document);
     }
 
+    /** Inserts {@code entity} through its codec; a missing id is generated and set on the entity. */
+    public InsertOneResult insertEntity(T entity) {
+        if (entities == null) {
+            return insert(entityToDocument(entity));
+        }
+        return entities.insertOne(entity);
+    }
+
     public UpdateResult update(ObjectId id, Document update) {
-        return collection.updateOne(Filters.eq("_id", id), new Document("$set", update));
+        UpdateResult result = collection.updateOne(Filters.eq("_id", id), new Document("$set", update));
+        invalidate(id);
+        return result;
     }
 
     public DeleteResult delete(ObjectId id) {
-        return collection.deleteOne(Filters.eq("_id", id));
+        DeleteResult result = collection.deleteOne(Filters.eq("_id", id));
+        invalidate(id);
+        return result;
+    }
+
+    /** Called after {@code id} was updated or deleted; DAOs with a cache drop the entry here. */
+    protected void invalidate(ObjectId id) {
+    }
+
+    /**
+     * Streams the entities matching {@code filter} straight off a driver cursor.
+     * Documents are fetched {@code batchSize} at a time and mapped only as the
+     * stream consumes them, so whole collections can be walked in bounded memory.
+     * The returned stream may hold a server cursor and must be closed
+     * (try-with-resources).
+     */
+    public Stream<T> stream(Bson filter, int batchSize) {
+        if (entities == null) {
+            return streamDocuments(filter, null, batchSize).map(this::documentToEntity);
+        }
+        return entities.find(filter).batchSize(batchSize).stream();
+    }
+
+    /**
+     * Like {@link #stream(Bson, int)} but returns the raw documents restricted to
+     * {@code projection}, for jobs that only need a few fields.
+     */
+    public Stream<Document> streamDocuments(Bson filter, Bson projection, int batchSize) {
+        FindQuery<Document> find = collection.find(filter);
+        if (projection != null) {
+            find = find.projection(projection);
+        }
+        return find.batchSize(batchSize).stream();
+    }
+
+    /**
+     * Keyset pagination over {@code filter}. {@code sortKeys} is a comma separated
+     * list such as {@code "-dateTime,_id"} (a leading {@code -} sorts descending);
+     * {@code _id} is appended as a tiebreaker when missing. Pass a {@code null}
+     * token for the first page and the returned {@link Page#getNextToken()} for the
+     * following ones. Each page seeks directly past the previous page's last key,
+     * so its cost does not grow with depth when an index matches the sort.
+     */
+    public Page<T> findPage(Bson filter, String sortKeys, int pageSize, String continuationToken) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        List<SortKey> keys = parseSortKeys(sortKeys);
+        String sortSpec = toSortSpec(keys);
+
+        Bson query = filter != null ? filter : new Document();
+        if (continuationToken != null && !continuationToken.isEmpty()) {
+            query = Filters.and(query, seekFilter(keys, decodeToken(continuationToken, sortSpec)));
+        }
+
+        List<Bson> sorts = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            sorts.add(key.descending ? Sorts.descending(key.field) : Sorts.ascending(key.field));
+        }
+
+        List<RawBsonDocument> docs = new ArrayList<>(pageSize + 1);
+        collection.withDocumentClass(RawBsonDocument.class)
+                 .find(query)
+                 .sort(Sorts.orderBy(sorts))
+                 .limit(pageSize + 1)
+                 .into(docs);
+
+        boolean hasNext = docs.size() > pageSize;
+        if (hasNext) {
+            docs.remove(pageSize);
+        }
+
+        List<T> items = new ArrayList<>(docs.size());
+        for (RawBsonDocument doc : docs) {
+            items.add(decode(doc));
+        }
+        String nextToken = hasNext ? encodeToken(keys, sortSpec, docs.get(docs.size() - 1)) : null;
+        return new Page<>(items, nextToken);
+    }
+
+    // A binary reader over the raw bytes; RawBsonDocument.asBsonReader() would parse into a tree first
+    private T decode(RawBsonDocument raw) {
+        if (entities == null) {
+            try (BsonReader reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                return documentToEntity(collection.getCodecRegistry().get(Document.class)
+                    .decode(reader, DecoderContext.builder().build()));
+            }
+        }
+        try (BsonReader reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+            return entities.getCodecRegistry().get(entities.getDocumentClass())
+                .decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    private static final class SortKey {
+        final String field;
+        final boolean descending;
+
+        SortKey(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+    }
+
+    private static List<SortKey> parseSortKeys(String sortKeys) {
+        List<SortKey> keys = new ArrayList<>();
+        boolean hasId = false;
+        if (sortKeys != null) {
+            for (String part : sortKeys.split(",")) {
+                String field = part.trim();
+                if (field.isEmpty()) {
+                    continue;
+                }
+                boolean descending = field.startsWith("-");
+                if (descending || field.startsWith("+")) {
+                    field = field.substring(1);
+                }
+                hasId |= "_id".equals(field);
+                keys.add(new SortKey(field, descending));
+            }
+        }
+        if (!hasId) {
+            // Unique tiebreaker keeps the order total so no row is skipped or repeated
+            boolean descending = !keys.isEmpty() && keys.get(keys.size() - 1).descending;
+            keys.add(new SortKey("_id", descending));
+        }
+        return keys;
+    }
+
+    private static String toSortSpec(List<SortKey> keys) {
+        StringBuilder spec = new StringBuilder();
+        for (SortKey key : keys) {
+            if (spec.length() > 0) spec.append(',');
+            spec.append(key.descending ? "-" : "").append(key.field);
+        }
+        return spec.toString();
+    }
+
+    // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... with > / < following each key's direction
+    private static Bson seekFilter(List<SortKey> keys, BsonDocument last) {
+        List<Bson> branches = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            List<Bson> terms = new ArrayList<>(i + 1);
+            for (int j = 0; j < i; j++) {
+                terms.add(Filters.eq(keys.get(j).field, last.get(keys.get(j).field)));
+            }
+            SortKey key = keys.get(i);
+            BsonValue value = last.get(key.field);
+            terms.add(key.descending ? Filters.lt(key.field, value) : Filters.gt(key.field, value));
+            branches.add(terms.size() == 1 ? terms.get(0) : Filters.and(terms));
+        }
+        return branches.size() == 1 ? branches.get(0) : Filters.or(branches);
+    }
+
+    private static String encodeToken(List<SortKey> keys, String sortSpec, RawBsonDocument lastDoc) {
+        BsonDocument values = new BsonDocument();
+        for (SortKey key : keys) {
+            BsonValue value = lastDoc.get(key.field);
+            values.append(key.field, value != null ? value : BsonNull.VALUE);
+        }
+        BsonDocument token = new BsonDocument("s", new BsonString(sortSpec))
+            .append("v", values);
+        ByteBuffer buffer = new RawBsonDocument(token, new BsonDocumentCodec()).getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static BsonDocument decodeToken(String continuationToken, String sortSpec) {
+        String tokenSpec;
+        BsonDocument values;
+        try {
+            BsonDocument token = new RawBsonDocument(Base64.getUrlDecoder().decode(continuationToken));
+            tokenSpec = token.getString("s").getValue();
+            values = token.getDocument("v");
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+        if (!sortSpec.equals(tokenSpec)) {
+            throw new IllegalArgumentException("Continuation token was issued for a different sort order");
+        }
+        return values;
     }
 
     protected abstract T documentToEntity(Document doc);
     public abstract Document entityToDocument(T entity);
-}
\ No newline at end of file
+}
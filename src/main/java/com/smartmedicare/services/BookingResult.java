@@ -0,0 +1,47 @@
+package com.smartmedicare.services;
+
+import com.smartmedicare.models.Appointment;
+
+/**
+ * Outcome of {@link BookingService#book}. {@link Status#SLOT_TAKEN} means another
+ * booking won the slot; callers should refresh that day's free slots.
+ */
+public class BookingResult {
+    public enum Status {
+        BOOKED,
+        SLOT_TAKEN,
+        REJECTED,
+        FAILED
+    }
+
+    private final Status status;
+    private final Appointment appointment;
+    private final String message;
+
+    private BookingResult(Status status, Appointment appointment, String message) {
+        this.status = status;
+        this.appointment = appointment;
+        this.message = message;
+    }
+
+    public static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Status.BOOKED, appointment, "Appointment booked");
+    }
+
+    public static BookingResult slotTaken(Appointment attempted) {
+        return new BookingResult(Status.SLOT_TAKEN, attempted, "That time slot has just been booked");
+    }
+
+    public static BookingResult rejected(String message) {
+        return new BookingResult(Status.REJECTED, null, message);
+    }
+
+    public static BookingResult failed(String message) {
+        return new BookingResult(Status.FAILED, null, message);
+    }
+
+    public Status getStatus() { return status; }
+    public Appointment getAppointment() { return appointment; }
+    public String getMessage() { return message; }
+    public boolean isBooked() { return status == Status.BOOKED; }
+}
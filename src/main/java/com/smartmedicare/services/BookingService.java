@@ -0,0 +1,79 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.smartmedicare.models.Appointment;
+
+/**
+ * Books appointment slots with a single insert-or-fail write. Correctness under
+ * concurrent bookings comes from the unique {@code (doctorId, slotStart)} index
+ * declared in {@link IndexManager}, not from reading the schedule first, so
+ * booking is switched off when startup finds that index missing.
+ */
+public class BookingService {
+    private static volatile String unavailableReason;
+
+    private final AppointmentDAO appointmentDAO;
+
+    public BookingService() {
+        this(new AppointmentDAO());
+    }
+
+    public BookingService(AppointmentDAO appointmentDAO) {
+        this.appointmentDAO = appointmentDAO;
+    }
+
+    /** Refuses every booking from now on because {@code store} lacks the unique slot index. */
+    public static void disableWithoutSlotIndex(String store) {
+        unavailableReason = "Booking is unavailable: the unique slot index " + IndexManager.BOOKING_SLOT_INDEX
+            + " could not be created on " + store + ". Ask an administrator to remove duplicate bookings.";
+        System.err.println("ERROR: " + unavailableReason);
+    }
+
+    /** Why booking is switched off, or null while it works. */
+    public static String getUnavailableReason() {
+        return unavailableReason;
+    }
+
+    public BookingResult book(ObjectId patientId, ObjectId doctorId, LocalDateTime slotStart, String reason) {
+        String unavailable = unavailableReason;
+        if (unavailable != null) {
+            return BookingResult.failed(unavailable);
+        }
+        if (patientId == null || doctorId == null || slotStart == null) {
+            return BookingResult.rejected("Patient, doctor and time slot are required");
+        }
+        if (slotStart.isBefore(LocalDateTime.now())) {
+            return BookingResult.rejected("That time slot is in the past");
+        }
+
+        Appointment appointment = new Appointment();
+        appointment.setId(new ObjectId());
+        appointment.setPatientId(patientId);
+        appointment.setDoctorId(doctorId);
+        appointment.setDateTime(slotStart);
+        appointment.setReason(reason);
+        appointment.setStatus("SCHEDULED");
+
+        try {
+            appointmentDAO.insertClaimingSlot(appointment);
+            return BookingResult.booked(appointment);
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                return BookingResult.slotTaken(appointment);
+            }
+            return BookingResult.failed(e.getMessage());
+        } catch (MongoException e) {
+            return BookingResult.failed(e.getMessage());
+        }
+    }
+
+    public boolean cancel(ObjectId appointmentId) {
+        return appointmentDAO.cancel(appointmentId);
+    }
+}
@@ -0,0 +1,403 @@
+package com.smartmedicare.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Command listener registered on the shared client. Keeps latency histograms,
+ * documents returned and BSON bytes per {@code command collection} and per DAO
+ * method, and logs commands slower than a configurable threshold together with
+ * the shape of their filter (field names and operators, values replaced by
+ * {@code ?}).
+ *
+ * <p>The sync driver fires these events on the calling thread, so the issuing
+ * DAO method is found with a short stack walk when the command starts. Key
+ * counts are capped; anything past the cap is folded into {@value #OTHER}.
+ */
+public class CommandStats implements CommandListener, CommandStatsMBean {
+    public static final String OBJECT_NAME = "com.smartmedicare:type=MongoCommands";
+
+    private static final int MAX_COMMAND_KEYS = 128;
+    private static final int MAX_METHOD_KEYS = 256;
+    private static final int MAX_SHAPE_LENGTH = 300;
+    private static final String OTHER = "(other)";
+    private static final String UNKNOWN_CALLER = "(driver)";
+    private static final String APP_PACKAGE = "com.smartmedicare.";
+
+    // Handshakes, heartbeats and auth would only drown out the DAO traffic
+    private static final Set<String> IGNORED_COMMANDS = Set.of(
+        "hello", "ismaster", "isMaster", "ping", "buildInfo", "saslStart", "saslContinue",
+        "getnonce", "authenticate", "endSessions", "killCursors");
+
+    /** Counters for one key. */
+    static final class Metric {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+        final LongAdder documents = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        void record(long nanos, long docs, long transferred, boolean failure) {
+            latency.record(nanos);
+            documents.add(docs);
+            bytes.add(transferred);
+            if (failure) {
+                failures.increment();
+            }
+        }
+    }
+
+    private record Pending(String commandKey, String caller, String shape, long requestBytes) {
+    }
+
+    private final Map<String, Metric> byCommand = new ConcurrentHashMap<>();
+    private final Map<String, Metric> byMethod = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final boolean callerTracking;
+    private volatile long slowQueryNanos;
+
+    public CommandStats(long slowQueryThresholdMs, boolean callerTracking) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowQueryThresholdMs));
+        this.callerTracking = callerTracking;
+    }
+
+    /** Registers this instance with the platform MBean server; failures are logged, not thrown. */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Could not register MongoDB command stats MBean: " + e.getMessage());
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not unregister MongoDB command stats MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        if (IGNORED_COMMANDS.contains(commandName)) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        String collection = collectionOf(command);
+        String key = collection != null ? commandName + " " + collection : commandName;
+        String caller = callerTracking ? findCaller() : UNKNOWN_CALLER;
+        String shape = slowQueryNanos > 0 ? filterShape(commandName, command) : null;
+        pending.put(event.getRequestId(), new Pending(key, caller, shape, sizeOf(command)));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Pending started = pending.remove(event.getRequestId());
+        if (started == null) {
+            return;
+        }
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        BsonDocument response = event.getResponse();
+        long docs = documentsIn(response);
+        long transferred = started.requestBytes + sizeOf(response);
+        record(started, nanos, docs, transferred, false);
+
+        if (slowQueryNanos > 0 && nanos >= slowQueryNanos) {
+            slow.increment();
+            System.err.println(String.format("Slow MongoDB command: %s from %s took %.1f ms, %d docs, %d bytes, filter %s",
+                started.commandKey, started.caller, nanos / 1_000_000.0, docs, transferred,
+                started.shape != null ? started.shape : "-"));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Pending started = pending.remove(event.getRequestId());
+        if (started == null) {
+            return;
+        }
+        record(started, event.getElapsedTime(TimeUnit.NANOSECONDS), 0, started.requestBytes, true);
+    }
+
+    private void record(Pending started, long nanos, long docs, long transferred, boolean failure) {
+        commands.increment();
+        documents.add(docs);
+        bytes.add(transferred);
+        if (failure) {
+            failed.increment();
+        }
+        metric(byCommand, started.commandKey, MAX_COMMAND_KEYS).record(nanos, docs, transferred, failure);
+        metric(byMethod, started.caller, MAX_METHOD_KEYS).record(nanos, docs, transferred, failure);
+    }
+
+    private static Metric metric(Map<String, Metric> metrics, String key, int maxKeys) {
+        Metric metric = metrics.get(key);
+        if (metric != null) {
+            return metric;
+        }
+        if (metrics.size() >= maxKeys) {
+            key = OTHER;
+        }
+        return metrics.computeIfAbsent(key, k -> new Metric());
+    }
+
+    // First application frame below the driver, skipping shared DAO plumbing so findPage is charged to its caller
+    private static String findCaller() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> {
+                String className = frame.getClassName();
+                return className.startsWith(APP_PACKAGE)
+                    && !className.equals(CommandStats.class.getName())
+                    && !className.equals(BaseDAO.class.getName())
+                    && !className.startsWith(APP_PACKAGE + "services.codecs.");
+            })
+            .findFirst()
+            .map(frame -> {
+                String className = frame.getClassName();
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            })
+            .orElse(UNKNOWN_CALLER));
+    }
+
+    private static String collectionOf(BsonDocument command) {
+        try {
+            BsonValue first = command.get(command.getFirstKey());
+            return first != null && first.isString() ? first.asString().getValue() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // The documents the driver hands us are views over the wire buffer; their first four bytes are the BSON length
+    private static long sizeOf(BsonDocument document) {
+        if (document == null) {
+            return 0;
+        }
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        try (BsonReader reader = document.asBsonReader()) {
+            if (reader instanceof BsonBinaryReader binary) {
+                return binary.getBsonInput().readInt32();
+            }
+        } catch (RuntimeException e) {
+            // Not buffer-backed; size unknown
+        }
+        return 0;
+    }
+
+    private static long documentsIn(BsonDocument response) {
+        try {
+            BsonValue cursor = response.get("cursor");
+            if (cursor != null && cursor.isDocument()) {
+                BsonDocument cursorDoc = cursor.asDocument();
+                BsonValue batch = cursorDoc.containsKey("firstBatch") ? cursorDoc.get("firstBatch") : cursorDoc.get("nextBatch");
+                return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+            }
+            BsonValue n = response.get("n");
+            return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static String filterShape(String commandName, BsonDocument command) {
+        try {
+            BsonValue filter = switch (commandName) {
+                case "find", "findAndModify" -> command.get(commandName.equals("find") ? "filter" : "query");
+                case "count", "distinct" -> command.get("query");
+                case "update", "delete" -> firstStatementFilter(command.get(commandName + "s"));
+                case "aggregate" -> firstMatch(command.get("pipeline"));
+                default -> null;
+            };
+            if (filter == null || !filter.isDocument()) {
+                return null;
+            }
+            StringBuilder shape = new StringBuilder();
+            appendShape(shape, filter);
+            return shape.length() > MAX_SHAPE_LENGTH ? shape.substring(0, MAX_SHAPE_LENGTH) + "..." : shape.toString();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BsonValue firstStatementFilter(BsonValue statements) {
+        if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) {
+            return null;
+        }
+        BsonValue first = statements.asArray().get(0);
+        return first.isDocument() ? first.asDocument().get("q") : null;
+    }
+
+    private static BsonValue firstMatch(BsonValue pipeline) {
+        if (pipeline == null || !pipeline.isArray() || pipeline.asArray().isEmpty()) {
+            return null;
+        }
+        BsonValue first = pipeline.asArray().get(0);
+        return first.isDocument() ? first.asDocument().get("$match") : null;
+    }
+
+    private static void appendShape(StringBuilder out, BsonValue value) {
+        if (out.length() > MAX_SHAPE_LENGTH) {
+            return;
+        }
+        if (value.isDocument()) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (!first) out.append(", ");
+                first = false;
+                out.append(entry.getKey()).append(": ");
+                appendShape(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value.isArray()) {
+            // Operator arrays ($and/$or/$in) keep their structure; literal lists collapse to one "?"
+            BsonArray array = value.asArray();
+            if (!array.isEmpty() && array.get(0).isDocument()) {
+                out.append('[');
+                for (int i = 0; i < array.size(); i++) {
+                    if (i > 0) out.append(", ");
+                    appendShape(out, array.get(i));
+                }
+                out.append(']');
+            } else {
+                out.append("[?]");
+            }
+        } else {
+            out.append('?');
+        }
+    }
+
+    @Override
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getSlowCount() {
+        return slow.sum();
+    }
+
+    @Override
+    public long getDocumentsReturned() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getBytesTransferred() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMs(long thresholdMs) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMs));
+    }
+
+    @Override
+    public String[] getCommandSummaries() {
+        return summaries(byCommand);
+    }
+
+    @Override
+    public String[] getDaoMethodSummaries() {
+        return summaries(byMethod);
+    }
+
+    // Busiest keys first, by total time spent
+    private static String[] summaries(Map<String, Metric> metrics) {
+        List<Map.Entry<String, Metric>> entries = new ArrayList<>(metrics.entrySet());
+        entries.sort(Comparator.comparingDouble((Map.Entry<String, Metric> e) -> e.getValue().latency.getTotalMillis()).reversed());
+        String[] lines = new String[entries.size()];
+        for (int i = 0; i < lines.length; i++) {
+            Map.Entry<String, Metric> entry = entries.get(i);
+            Metric metric = entry.getValue();
+            LatencyHistogram latency = metric.latency;
+            lines[i] = String.format("%-45s n=%d err=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms docs=%d bytes=%d",
+                entry.getKey(), latency.getCount(), metric.failures.sum(),
+                latency.percentileMillis(0.50), latency.percentileMillis(0.95), latency.percentileMillis(0.99),
+                latency.getMaxMillis(), metric.documents.sum(), metric.bytes.sum());
+        }
+        return lines;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(toString()).append('\n');
+        out.append("  by command:\n");
+        for (String line : getCommandSummaries()) {
+            out.append("    ").append(line).append('\n');
+        }
+        out.append("  by DAO method:\n");
+        for (String line : getDaoMethodSummaries()) {
+            out.append("    ").append(line).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        byCommand.clear();
+        byMethod.clear();
+        commands.reset();
+        failed.reset();
+        slow.reset();
+        documents.reset();
+        bytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("commands[n=%d, failed=%d, slow=%d, docs=%d, bytes=%d]",
+            getCommandCount(), getFailedCount(), getSlowCount(), getDocumentsReturned(), getBytesTransferred());
+    }
+}
@@ -0,0 +1,31 @@
+package com.smartmedicare.services;
+
+/**
+ * JMX view of {@link CommandStats}, registered as
+ * {@value CommandStats#OBJECT_NAME}.
+ */
+public interface CommandStatsMBean {
+    long getCommandCount();
+
+    long getFailedCount();
+
+    long getSlowCount();
+
+    long getDocumentsReturned();
+
+    long getBytesTransferred();
+
+    long getSlowQueryThresholdMs();
+
+    void setSlowQueryThresholdMs(long thresholdMs);
+
+    /** One line per {@code command collection} key: count, failures, p50/p95/p99/max, docs, bytes. */
+    String[] getCommandSummaries();
+
+    /** Same, keyed by the DAO method that issued the command. */
+    String[] getDaoMethodSummaries();
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,123 @@
+package com.smartmedicare.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+/**
+ * Pool listener registered on the shared client. Tracks how many connections
+ * are open and checked out, and how long callers wait for a connection, so the
+ * pool can be sized for peak clinic hours.
+ */
+public class ConnectionPoolStats implements ConnectionPoolListener {
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger peakCheckedOut = new AtomicInteger();
+    private final AtomicLong checkOuts = new AtomicLong();
+    private final AtomicLong checkOutFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong poolClears = new AtomicLong();
+    private final Map<Long, Long> pendingCheckOuts = new ConcurrentHashMap<>();
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        pendingCheckOuts.put(event.getOperationId(), System.nanoTime());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        recordWait(event.getOperationId());
+        checkOuts.incrementAndGet();
+        int inUse = checkedOut.incrementAndGet();
+        peakCheckedOut.accumulateAndGet(inUse, Math::max);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        recordWait(event.getOperationId());
+        checkOutFailures.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolClears.incrementAndGet();
+    }
+
+    private void recordWait(long operationId) {
+        Long started = pendingCheckOuts.remove(operationId);
+        if (started != null) {
+            long waited = System.nanoTime() - started;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulate(waited);
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getCheckedOutConnections() {
+        return checkedOut.get();
+    }
+
+    public int getPeakCheckedOutConnections() {
+        return peakCheckedOut.get();
+    }
+
+    public long getCheckOutCount() {
+        return checkOuts.get();
+    }
+
+    public long getCheckOutFailureCount() {
+        return checkOutFailures.get();
+    }
+
+    public long getPoolClearCount() {
+        return poolClears.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = checkOuts.get() + checkOutFailures.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "pool[open=%d, checkedOut=%d, peak=%d, checkOuts=%d, failures=%d, clears=%d, avgWait=%.2fms, maxWait=%.2fms]",
+            getOpenConnections(), getCheckedOutConnections(), getPeakCheckedOutConnections(),
+            getCheckOutCount(), getCheckOutFailureCount(), getPoolClearCount(),
+            getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
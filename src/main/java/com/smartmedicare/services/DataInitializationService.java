@@ -68,11 +68,12 @@ public class DataInitializationService {
         doctor.setContact(contact);
         doctor.setSpecialization(specialization);
         doctor.setSchedule(schedule);
+        doctor.setWeeklySchedule(ScheduleParser.parse(schedule));
         doctor.setAssignedPatients(new ArrayList<>());
         doctor.setAppointments(new ArrayList<>());
         
         try {
-            doctorDAO.insert(doctorDAO.entityToDocument(doctor));
+            doctorDAO.insertEntity(doctor);
             System.out.println("Created doctor: " + name + " (" + specialization + ")");
         } catch (Exception e) {
             System.err.println("Error creating doctor " + name + ": " + e.getMessage());
@@ -1,32 +1,91 @@
 package com.smartmedicare.services;
 
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import com.smartmedicare.services.codecs.DomainCodecProvider;
+import com.smartmedicare.services.storage.CircuitBreaker;
+import com.smartmedicare.services.storage.DocumentStore;
+import com.smartmedicare.services.storage.EmbeddedDocumentStore;
+import com.smartmedicare.services.storage.FailoverDocumentStore;
+import com.smartmedicare.services.storage.JournalReplayer;
+import com.smartmedicare.services.storage.MongoDocumentStore;
+import com.smartmedicare.services.storage.OfflineCopy;
+import com.smartmedicare.services.storage.WriteJournal;
+import com.smartmedicare.utils.DatabaseConfig;
 
+/**
+ * Owns the single {@link MongoClient} (and therefore the single connection pool)
+ * used by every DAO in the application. Settings come from {@link DatabaseConfig}.
+ * DAOs reach their collections through {@link #getStore()}, which is either the
+ * MongoDB database or, with {@code storage.engine=embedded} or after
+ * {@link #switchToEmbedded()}, an {@link EmbeddedDocumentStore} in local files.
+ * With the offline journal enabled the fallback is a {@link FailoverDocumentStore}
+ * that journals writes and hands back to MongoDB once a background probe reaches
+ * it and the journal has been replayed. It starts from the {@link OfflineCopy}
+ * that online sessions keep refreshing, and is refused when there is none.
+ * While MongoDB is in use, a
+ * {@link CircuitBreaker} makes DAO calls fail fast when it stops answering; an
+ * offline-capable session goes back offline instead.
+ */
 public class DatabaseService {
     private static DatabaseService instance;
+    private final ConnectionPoolStats poolStats = new ConnectionPoolStats();
+    private final CommandStats commandStats = new CommandStats(
+        DatabaseConfig.getSlowQueryThresholdMs(), DatabaseConfig.isCommandCallerTrackingEnabled());
+    private final CodecRegistry codecRegistry = buildCodecRegistry();
+    private final CircuitBreaker circuitBreaker = DatabaseConfig.isCircuitBreakerEnabled()
+        ? new CircuitBreaker(DatabaseConfig.getCircuitBreakerFailureThreshold()) : null;
+    private MongoDocumentStore mongoStore;
     private MongoClient mongoClient;
     private MongoDatabase database;
+    private DocumentStore store;
+    private ScheduledExecutorService statsLogger;
+    private ScheduledExecutorService reconnectProbe;
+    private ScheduledExecutorService offlineCopyRefresher;
+    // Local store an online session refreshes the offline copy into
+    private EmbeddedDocumentStore offlineCopyStore;
+    private volatile String fallbackRefusal;
+    private volatile Consumer<JournalReplayer.Report> reconnectListener;
 
     private DatabaseService() {
+        if ("embedded".equals(DatabaseConfig.getStorageEngine())) {
+            EmbeddedDocumentStore embedded = openEmbeddedStore();
+            if (embedded != null) {
+                store = embedded;
+                System.out.println("Using " + store.describe());
+            }
+            return;
+        }
         try {
-            // Configure MongoDB client settings
-            com.mongodb.ConnectionString connectionString = 
-                new com.mongodb.ConnectionString("mongodb://localhost:27017");
-            
-            com.mongodb.MongoClientSettings settings = com.mongodb.MongoClientSettings.builder()
-                .applyConnectionString(connectionString)
-                .applyToSocketSettings(builder -> 
-                    builder.connectTimeout(5000, java.util.concurrent.TimeUnit.MILLISECONDS))
-                .applyToServerSettings(builder ->
-                    builder.heartbeatFrequency(10000, java.util.concurrent.TimeUnit.MILLISECONDS))
-                .retryWrites(true)
-                .build();
-
-            // Initialize MongoDB connection
-            mongoClient = MongoClients.create(settings);
-            database = mongoClient.getDatabase("smart_medicare");
+            mongoClient = MongoClients.create(buildSettings());
+            database = mongoClient.getDatabase(DatabaseConfig.getDatabaseName());
+            mongoStore = new MongoDocumentStore(database, circuitBreaker,
+                DatabaseConfig.getReadDeadlineMs(), DatabaseConfig.getWriteDeadlineMs());
+            store = mongoStore;
+            startCircuitBreaker();
+            startStatsLogger();
         } catch (Exception e) {
             System.err.println("Error initializing database service: " + e.getMessage());
             // Don't throw exception - allow null database for offline mode
@@ -35,20 +94,387 @@ public class DatabaseService {
         }
     }
 
-    public static DatabaseService getInstance() {
+    // Domain models use hand-written codecs; dao.UserDAO still maps POJOs reflectively
+    private static CodecRegistry buildCodecRegistry() {
+        return fromRegistries(
+            fromProviders(new DomainCodecProvider()),
+            MongoClientSettings.getDefaultCodecRegistry(),
+            fromProviders(PojoCodecProvider.builder().automatic(true).build())
+        );
+    }
+
+    private MongoClientSettings buildSettings() {
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(DatabaseConfig.getConnectionString()))
+            .codecRegistry(codecRegistry)
+            .readPreference(ReadPreference.valueOf(DatabaseConfig.getReadPreference()))
+            .compressorList(buildCompressors())
+            .applyToConnectionPoolSettings(builder -> builder
+                .maxSize(DatabaseConfig.getMaxPoolSize())
+                .minSize(DatabaseConfig.getMinPoolSize())
+                .maxWaitTime(DatabaseConfig.getMaxWaitTimeMs(), TimeUnit.MILLISECONDS)
+                .maxConnectionIdleTime(DatabaseConfig.getMaxConnectionIdleTimeMs(), TimeUnit.MILLISECONDS)
+                .addConnectionPoolListener(poolStats))
+            .applyToSocketSettings(builder -> builder
+                .connectTimeout(DatabaseConfig.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(DatabaseConfig.getSocketReadTimeoutMs(), TimeUnit.MILLISECONDS))
+            .applyToClusterSettings(builder -> {
+                builder.serverSelectionTimeout(DatabaseConfig.getServerSelectionTimeoutMs(), TimeUnit.MILLISECONDS);
+                if (circuitBreaker != null) {
+                    builder.addClusterListener(circuitBreaker);
+                }
+            })
+            .applyToServerSettings(builder -> builder
+                .heartbeatFrequency(DatabaseConfig.getHeartbeatFrequencyMs(), TimeUnit.MILLISECONDS))
+            .retryWrites(true);
+        if (DatabaseConfig.isCommandMetricsEnabled()) {
+            settings.addCommandListener(commandStats);
+            commandStats.registerMBean();
+        }
+        return settings.build();
+    }
+
+    private List<MongoCompressor> buildCompressors() {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : DatabaseConfig.getCompressors()) {
+            switch (name) {
+                case "zlib" -> compressors.add(MongoCompressor.createZlibCompressor());
+                case "snappy" -> compressors.add(MongoCompressor.createSnappyCompressor());
+                case "zstd" -> compressors.add(MongoCompressor.createZstdCompressor());
+                case "none" -> { }
+                default -> System.err.println("Ignoring unknown MongoDB compressor: " + name);
+            }
+        }
+        return compressors;
+    }
+
+    private void startCircuitBreaker() {
+        if (circuitBreaker == null) {
+            return;
+        }
+        circuitBreaker.registerMBean();
+        circuitBreaker.addStateListener(state -> {
+            if (state == CircuitBreaker.State.OPEN && store instanceof FailoverDocumentStore failover
+                    && !failover.isOffline()) {
+                failover.goOffline();
+                System.err.println("MongoDB stopped answering, continuing on the " + failover.describe());
+                startReconnectProbe();
+            }
+        });
+        circuitBreaker.startProbe(() -> {
+            try {
+                database.runCommand(new Document("ping", 1));
+                return true;
+            } catch (MongoException e) {
+                return false;
+            }
+        }, DatabaseConfig.getCircuitBreakerProbeIntervalMs());
+    }
+
+    private void startStatsLogger() {
+        int poolInterval = DatabaseConfig.getPoolStatsLogIntervalSeconds();
+        int commandInterval = DatabaseConfig.isCommandMetricsEnabled()
+            ? DatabaseConfig.getCommandStatsDumpIntervalSeconds() : 0;
+        if (poolInterval <= 0 && commandInterval <= 0) {
+            return;
+        }
+        statsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mongo-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (poolInterval > 0) {
+            statsLogger.scheduleAtFixedRate(
+                () -> System.out.println("MongoDB " + poolStats), poolInterval, poolInterval, TimeUnit.SECONDS);
+        }
+        if (commandInterval > 0) {
+            statsLogger.scheduleAtFixedRate(
+                () -> System.out.print("MongoDB " + commandStats.dump()), commandInterval, commandInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    public static synchronized DatabaseService getInstance() {
         if (instance == null) {
             instance = new DatabaseService();
         }
         return instance;
     }
 
+    /**
+     * Replaces an unreachable MongoDB with the embedded engine. Only valid during
+     * startup, before any DAO has picked up its collections. Returns false when
+     * the fallback is disabled, the local store cannot be opened or, for an
+     * offline session, holds no copy of the server yet ({@link #getFallbackRefusal()}).
+     */
+    public synchronized boolean switchToEmbedded() {
+        if (isEmbedded()) {
+            return true;
+        }
+        if (!DatabaseConfig.isEmbeddedFallbackEnabled()) {
+            return false;
+        }
+        if (DatabaseConfig.isWriteJournalEnabled() && database != null) {
+            EmbeddedDocumentStore local = openEmbeddedStore();
+            if (local == null) {
+                return false;
+            }
+            if (OfflineCopy.completedAt(local) == null) {
+                // Nobody could sign in, and writes to server-only documents would find nothing
+                fallbackRefusal = "This computer has no local copy of the data yet. Connect to MongoDB once"
+                    + " so one can be made; after that the application also works offline.";
+                System.err.println("Not starting offline: no offline copy in " + DatabaseConfig.getEmbeddedStoragePath());
+                local.close();
+                return false;
+            }
+            try {
+                WriteJournal journal = new WriteJournal(
+                    DatabaseConfig.getEmbeddedStoragePath(), DatabaseConfig.getJournalSyncIntervalMs());
+                store = new FailoverDocumentStore(mongoStore, local, journal, true);
+            } catch (IOException e) {
+                System.err.println("Could not open the offline journal: " + e.getMessage());
+                local.close();
+                return false;
+            }
+            System.out.println("Using " + store.describe() + ", copy from " + OfflineCopy.completedAt(local));
+            startReconnectProbe();
+            return true;
+        }
+        closeMongo();
+        EmbeddedDocumentStore embedded = openEmbeddedStore();
+        if (embedded == null) {
+            return false;
+        }
+        store = embedded;
+        System.out.println("Using " + store.describe());
+        return true;
+    }
+
+    /** Why {@link #switchToEmbedded()} refused to start offline, or null. */
+    public String getFallbackRefusal() {
+        return fallbackRefusal;
+    }
+
+    /**
+     * Starts refreshing the offline copy in the background: now, and then every
+     * {@code storage.journal.offlineCopyRefreshMinutes}. Call once MongoDB is
+     * known reachable and any pending journal has been replayed.
+     */
+    public synchronized void startOfflineCopy() {
+        if (!DatabaseConfig.isWriteJournalEnabled() || database == null || offlineCopyRefresher != null) {
+            return;
+        }
+        int interval = Math.max(1, DatabaseConfig.getOfflineCopyRefreshMinutes());
+        offlineCopyRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "offline-copy");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        offlineCopyRefresher.scheduleWithFixedDelay(this::refreshOfflineCopy, 0, interval, TimeUnit.MINUTES);
+    }
+
+    private void refreshOfflineCopy() {
+        try {
+            OfflineCopy.Report report;
+            if (store instanceof FailoverDocumentStore failover) {
+                if (failover.isOffline()) {
+                    return;
+                }
+                report = failover.refreshLocalCopy();
+            } else {
+                if (offlineCopyStore == null) {
+                    offlineCopyStore = openEmbeddedStore();
+                    if (offlineCopyStore == null) {
+                        return;
+                    }
+                }
+                report = OfflineCopy.refresh(mongoStore, offlineCopyStore, write -> {
+                    write.run();
+                    return true;
+                });
+            }
+            System.out.println("Offline copy refreshed: " + report);
+        } catch (RuntimeException e) {
+            System.err.println("Could not refresh the offline copy: " + e.getMessage());
+        }
+    }
+
+    private synchronized void startReconnectProbe() {
+        if (reconnectProbe != null) {
+            return;
+        }
+        int interval = Math.max(1, DatabaseConfig.getReconnectIntervalSeconds());
+        reconnectProbe = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mongo-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconnectProbe.scheduleWithFixedDelay(this::tryReconnect, interval, interval, TimeUnit.SECONDS);
+    }
+
+    // Runs on the probe thread, so the server selection timeout never blocks a screen
+    private void tryReconnect() {
+        if (!(store instanceof FailoverDocumentStore failover) || !failover.isOffline()) {
+            return;
+        }
+        try {
+            database.runCommand(new Document("ping", 1));
+        } catch (MongoException e) {
+            return;
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.probeSucceeded("offline session reached the server");
+        }
+        try {
+            JournalReplayer.Report report = failover.reconnect(newReplayer());
+            System.out.println("Offline journal replay: " + report);
+            if (!failover.isOffline()) {
+                System.out.println("Reconnected to MongoDB");
+                // Other clients kept writing while this one was offline
+                SlotAvailabilityCache.getInstance().clear();
+                DoctorDAO.cache().clear();
+                PatientDAO.cache().clear();
+                // The first run catches the local copy up with those writes
+                startOfflineCopy();
+            }
+            Consumer<JournalReplayer.Report> listener = reconnectListener;
+            if (listener != null) {
+                listener.accept(report);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Offline journal replay failed: " + e.getMessage());
+        }
+    }
+
+    private JournalReplayer newReplayer() {
+        return new JournalReplayer(mongoClient, database,
+            DatabaseConfig.getEmbeddedStoragePath().resolve("journal-conflicts.log"));
+    }
+
+    /** Called on the probe thread after each replay attempt of an offline session. */
+    public void setReconnectListener(Consumer<JournalReplayer.Report> listener) {
+        this.reconnectListener = listener;
+    }
+
+    /**
+     * Replays writes journaled by an earlier session that closed while offline.
+     * Call once MongoDB is known reachable and before the DAOs are used; returns
+     * null when there was nothing to replay.
+     */
+    public JournalReplayer.Report replayPendingJournal() {
+        Path directory = DatabaseConfig.getEmbeddedStoragePath();
+        if (database == null || !WriteJournal.hasEntries(directory)) {
+            return null;
+        }
+        try (WriteJournal journal = new WriteJournal(directory, 0)) {
+            if (journal.pendingCount() == 0) {
+                return null;
+            }
+            JournalReplayer.Report report = newReplayer().replay(journal);
+            System.out.println("Offline journal replay: " + report);
+            return report;
+        } catch (IOException e) {
+            System.err.println("Could not open the offline journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private EmbeddedDocumentStore openEmbeddedStore() {
+        try {
+            EmbeddedDocumentStore embedded = new EmbeddedDocumentStore(
+                DatabaseConfig.getEmbeddedStoragePath(), codecRegistry, DatabaseConfig.isEmbeddedSyncWrites());
+            // Indexes live in memory only, so they are rebuilt on every start
+            for (IndexManager.IndexSpec spec : IndexManager.requiredIndexes()) {
+                try {
+                    embedded.getCollection(spec.collection())
+                        .createIndex(spec.name(), spec.keys(), spec.unique(), spec.partialFilter());
+                } catch (MongoException e) {
+                    System.err.println("Could not create index " + spec.collection() + "." + spec.name()
+                        + ": " + e.getMessage());
+                    if (IndexManager.BOOKING_SLOT_INDEX.equals(spec.name())) {
+                        BookingService.disableWithoutSlotIndex("the embedded store");
+                    }
+                }
+            }
+            return embedded;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not open the embedded store: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** The MongoDB database, or null when running on the embedded engine alone. */
     public MongoDatabase getDatabase() {
         return database;
     }
 
+    public DocumentStore getStore() {
+        return store;
+    }
+
+    /** Whether reads are currently served by the embedded engine, including an offline session. */
+    public boolean isEmbedded() {
+        return store instanceof EmbeddedDocumentStore
+            || (store instanceof FailoverDocumentStore failover && failover.isOffline());
+    }
+
+    public MongoClient getClient() {
+        return mongoClient;
+    }
+
+    public ConnectionPoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    public CommandStats getCommandStats() {
+        return commandStats;
+    }
+
+    /** Null when disabled with {@code mongodb.breaker.enabled=false}. */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     public void close() {
+        if (reconnectProbe != null) {
+            reconnectProbe.shutdownNow();
+        }
+        if (offlineCopyRefresher != null) {
+            offlineCopyRefresher.shutdownNow();
+            try {
+                offlineCopyRefresher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (offlineCopyStore != null) {
+            offlineCopyStore.close();
+        }
+        if (store instanceof EmbeddedDocumentStore || store instanceof FailoverDocumentStore) {
+            store.close();
+            System.out.println("Embedded store closed");
+        }
+        closeMongo();
+    }
+
+    private void closeMongo() {
+        if (statsLogger != null) {
+            statsLogger.shutdownNow();
+            statsLogger = null;
+        }
+        commandStats.unregisterMBean();
+        if (circuitBreaker != null) {
+            circuitBreaker.close();
+        }
         if (mongoClient != null) {
-            mongoClient.close();
+            try {
+                mongoClient.close();
+                System.out.println("MongoDB connection closed");
+            } catch (Exception e) {
+                System.err.println("Error closing MongoDB connection: " + e.getMessage());
+            }
+            mongoClient = null;
+            database = null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.smartmedicare.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.smartmedicare.models.DiseaseResult;
+import com.smartmedicare.models.Symptom;
+import com.smartmedicare.services.diagnosis.DiagnosisModel;
+import com.smartmedicare.services.diagnosis.DiagnosisModelRegistry;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Diagnoses symptoms with the live model from {@link DiagnosisModelRegistry}.
+ * Any patient the model cannot answer for within the latency budget, or at all
+ * (no model loaded yet, none of the symptoms seen in training, a prediction
+ * error), gets the rule engine's answer instead, so callers always receive
+ * results.
+ */
+public class DiagnosisPredictionService {
+    // Diagnoses below this are noise from smoothing, not candidates
+    private static final double MIN_PROBABILITY = 0.01;
+
+    private static final ExecutorService PREDICTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "diagnosis-predict");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AIDiseaseDetectionService rules;
+    private final DiagnosisModelRegistry registry;
+    private final long latencyBudgetMs;
+
+    public DiagnosisPredictionService() {
+        this(new AIDiseaseDetectionService(), DiagnosisModelRegistry.getInstance(),
+            DatabaseConfig.getDiagnosisLatencyBudgetMs());
+    }
+
+    public DiagnosisPredictionService(AIDiseaseDetectionService rules, DiagnosisModelRegistry registry,
+                                      long latencyBudgetMs) {
+        this.rules = rules;
+        this.registry = registry;
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    // Distributions per patient, null where the model has nothing to go on
+    private record Prediction(DiagnosisModel model, double[][] distributions) {
+    }
+
+    public List<DiseaseResult> analyzeSymptoms(List<Symptom> symptoms) {
+        return analyzeSymptoms(symptoms, AIDiseaseDetectionService.DEFAULT_RESULT_LIMIT);
+    }
+
+    public List<DiseaseResult> analyzeSymptoms(List<Symptom> symptoms, int limit) {
+        return analyzeBatch(List.of(symptoms), limit).get(0);
+    }
+
+    public List<List<DiseaseResult>> analyzeBatch(List<? extends List<Symptom>> patients) {
+        return analyzeBatch(patients, AIDiseaseDetectionService.DEFAULT_RESULT_LIMIT);
+    }
+
+    /**
+     * Results for several patients, scored by the model in one batch. Each list
+     * holds at most {@code limit} diagnoses, most probable first; pass
+     * {@link Integer#MAX_VALUE} for all of them.
+     */
+    public List<List<DiseaseResult>> analyzeBatch(List<? extends List<Symptom>> patients, int limit) {
+        List<List<String>> symptomNames = new ArrayList<>(patients.size());
+        for (List<Symptom> symptoms : patients) {
+            List<String> names = new ArrayList<>(symptoms.size());
+            for (Symptom symptom : symptoms) {
+                names.add(symptom.getName());
+            }
+            symptomNames.add(names);
+        }
+
+        Prediction prediction = null;
+        // Pinned for the whole call, so a swap mid-batch cannot mix two models' answers
+        DiagnosisModel model = registry.current();
+        if (model != null) {
+            long start = System.nanoTime();
+            Future<Prediction> pending = PREDICTOR.submit(() -> predict(model, symptomNames));
+            try {
+                prediction = pending.get(latencyBudgetMs, TimeUnit.MILLISECONDS);
+                registry.recordPrediction(System.nanoTime() - start);
+            } catch (TimeoutException e) {
+                // Not interrupted: Weka does not check for interrupts
+                pending.cancel(false);
+                System.err.println("Diagnosis model missed its " + latencyBudgetMs + " ms budget for "
+                    + patients.size() + " patient(s); using rule engine");
+            } catch (ExecutionException e) {
+                System.err.println("Diagnosis model failed; using rule engine: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<List<DiseaseResult>> results = new ArrayList<>(patients.size());
+        int fallbacks = 0;
+        for (int i = 0; i < patients.size(); i++) {
+            if (prediction != null && prediction.distributions()[i] != null) {
+                results.add(toResults(prediction.model(), prediction.distributions()[i], limit));
+            } else {
+                results.add(rules.analyzeSymptoms(patients.get(i), limit));
+                fallbacks++;
+            }
+        }
+        registry.recordFallback(fallbacks);
+        return results;
+    }
+
+    public String getAIRecommendation(List<DiseaseResult> results, List<Symptom> symptoms) {
+        return rules.getAIRecommendation(results, symptoms);
+    }
+
+    private static Prediction predict(DiagnosisModel model, List<List<String>> symptomNames) throws Exception {
+        double[][] distributions = new double[symptomNames.size()][];
+        List<List<String>> known = new ArrayList<>(symptomNames.size());
+        List<Integer> positions = new ArrayList<>(symptomNames.size());
+        for (int i = 0; i < symptomNames.size(); i++) {
+            if (model.knownSymptoms(symptomNames.get(i)) > 0) {
+                known.add(symptomNames.get(i));
+                positions.add(i);
+            }
+        }
+        if (!known.isEmpty()) {
+            double[][] scored = model.distributions(known);
+            for (int i = 0; i < scored.length; i++) {
+                distributions[positions.get(i)] = scored[i];
+            }
+        }
+        return new Prediction(model, distributions);
+    }
+
+    private static List<DiseaseResult> toResults(DiagnosisModel model, double[] distribution, int limit) {
+        List<DiseaseResult> results = new ArrayList<>();
+        for (int i = 0; i < distribution.length; i++) {
+            if (distribution[i] >= MIN_PROBABILITY) {
+                results.add(new DiseaseResult(model.diagnosis(i), distribution[i]));
+            }
+        }
+        results.sort((a, b) -> Double.compare(b.getProbability(), a.getProbability()));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, Math.max(0, limit))) : results;
+    }
+}
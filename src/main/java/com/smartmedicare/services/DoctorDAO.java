@@ -1,18 +1,47 @@
 package com.smartmedicare.services;
 
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import com.mongodb.client.model.Filters;
 import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.ScheduleException;
+import com.smartmedicare.models.TimeRange;
+import com.smartmedicare.models.WeeklySchedule;
+import com.smartmedicare.utils.BsonDates;
 
 public class DoctorDAO extends BaseDAO<Doctor> {
     
+    private static final EntityCache<Doctor> CACHE = new EntityCache<>("doctors", Doctor::getId, Doctor::getUsername,
+        Doctor::copy);
+
     public DoctorDAO() {
-        super("doctors");
+        super("doctors", Doctor.class);
+    }
+
+    @Override
+    protected void invalidate(ObjectId id) {
+        CACHE.invalidate(id);
+    }
+
+    /** Drops {@code id} from the shared cache, for writes that bypass this DAO. */
+    public static void evictCached(ObjectId id) {
+        CACHE.invalidate(id);
+    }
+
+    public static EntityCache<Doctor> cache() {
+        return CACHE;
     }
 
     @Override
@@ -26,6 +55,7 @@ public class DoctorDAO extends BaseDAO<Doctor> {
         doctor.setContact(doc.getString("contact"));
         doctor.setSpecialization(doc.getString("specialization"));
         doctor.setSchedule(doc.getString("schedule"));
+        doctor.setWeeklySchedule(documentToSchedule(doc.get("weeklySchedule", Document.class)));
         
         @SuppressWarnings("unchecked")
         List<ObjectId> assignedPatients = (List<ObjectId>) doc.get("assignedPatients", List.class);
@@ -40,7 +70,7 @@ public class DoctorDAO extends BaseDAO<Doctor> {
 
     @Override
     public Document entityToDocument(Doctor doctor) {
-        return new Document("_id", doctor.getId())
+        Document doc = new Document("_id", doctor.getId())
                 .append("username", doctor.getUsername())
                 .append("password", doctor.getPassword())
                 .append("name", doctor.getName())
@@ -51,23 +81,134 @@ public class DoctorDAO extends BaseDAO<Doctor> {
                 .append("assignedPatients", doctor.getAssignedPatients())
                 .append("appointments", doctor.getAppointments())
                 .append("userType", "DOCTOR");
+        if (doctor.getWeeklySchedule() != null) {
+            doc.append("weeklySchedule", scheduleToDocument(doctor.getWeeklySchedule()));
+        }
+        return doc;
+    }
+
+    /** Stores times as minutes of the day; an end of 1440 means midnight at the end of the day. */
+    public static Document scheduleToDocument(WeeklySchedule schedule) {
+        Document hours = new Document();
+        for (Map.Entry<DayOfWeek, List<TimeRange>> day : schedule.getWeeklyHours().entrySet()) {
+            hours.append(day.getKey().name(), rangesToDocuments(day.getValue()));
+        }
+        List<Document> exceptions = new ArrayList<>();
+        for (ScheduleException exception : schedule.getExceptions().values()) {
+            Document doc = new Document("date", BsonDates.toDate(exception.getDate()))
+                .append("hours", rangesToDocuments(exception.getHours()));
+            if (exception.getNote() != null) {
+                doc.append("note", exception.getNote());
+            }
+            exceptions.add(doc);
+        }
+        return new Document("slotMinutes", schedule.getSlotMinutes())
+            .append("hours", hours)
+            .append("exceptions", exceptions);
+    }
+
+    public static WeeklySchedule documentToSchedule(Document doc) {
+        if (doc == null) {
+            return null;
+        }
+        WeeklySchedule schedule = new WeeklySchedule();
+        schedule.setSlotMinutes(doc.getInteger("slotMinutes", WeeklySchedule.DEFAULT_SLOT_MINUTES));
+        Document hours = doc.get("hours", Document.class);
+        if (hours != null) {
+            for (String day : hours.keySet()) {
+                for (TimeRange range : documentsToRanges(hours.getList(day, Document.class))) {
+                    schedule.addHours(DayOfWeek.valueOf(day), range);
+                }
+            }
+        }
+        List<Document> exceptions = doc.getList("exceptions", Document.class);
+        if (exceptions != null) {
+            for (Document exception : exceptions) {
+                LocalDateTime date = BsonDates.toLocalDateTime(exception.get("date"));
+                if (date != null) {
+                    schedule.addException(new ScheduleException(date.toLocalDate(),
+                        documentsToRanges(exception.getList("hours", Document.class)), exception.getString("note")));
+                }
+            }
+        }
+        return schedule;
+    }
+
+    private static List<Document> rangesToDocuments(List<TimeRange> ranges) {
+        List<Document> docs = new ArrayList<>(ranges.size());
+        for (TimeRange range : ranges) {
+            docs.add(new Document("start", minuteOfDay(range.getStart())).append("end", minuteOfDay(range.getEnd())));
+        }
+        return docs;
+    }
+
+    private static List<TimeRange> documentsToRanges(List<Document> docs) {
+        List<TimeRange> ranges = new ArrayList<>();
+        if (docs != null) {
+            for (Document doc : docs) {
+                ranges.add(new TimeRange(timeOfDay(doc.getInteger("start")), timeOfDay(doc.getInteger("end"))));
+            }
+        }
+        return ranges;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.equals(LocalTime.MAX) ? 24 * 60 : time.toSecondOfDay() / 60;
+    }
+
+    private static LocalTime timeOfDay(int minute) {
+        return minute >= 24 * 60 ? LocalTime.MAX : LocalTime.ofSecondOfDay(minute * 60L);
     }
 
     public Doctor findByUsername(String username) {
-        Document doc = collection.find(Filters.eq("username", username)).first();
-        return doc != null ? documentToEntity(doc) : null;
+        Doctor cached = CACHE.getByUsername(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CACHE.generation();
+        Doctor doctor = entities.find(Filters.eq("username", username)).first();
+        CACHE.put(doctor, generation);
+        return doctor;
     }
 
     public List<Doctor> findBySpecialization(String specialization) {
         List<Doctor> doctors = new ArrayList<>();
-        collection.find(Filters.eq("specialization", specialization)).forEach(
-            doc -> doctors.add(documentToEntity(doc))
-        );
+        entities.find(Filters.eq("specialization", specialization)).into(doctors);
         return doctors;
     }
 
     public Doctor findById(ObjectId id) {
-        Document doc = collection.find(Filters.eq("_id", id)).first();
-        return doc != null ? documentToEntity(doc) : null;
+        Doctor cached = CACHE.getById(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CACHE.generation();
+        Doctor doctor = entities.find(Filters.eq("_id", id)).first();
+        CACHE.put(doctor, generation);
+        return doctor;
+    }
+
+    /** Loads every doctor whose id is in {@code ids} with a single {@code $in} query. */
+    public List<Doctor> findByIds(Collection<ObjectId> ids) {
+        Set<ObjectId> distinctIds = new HashSet<>(ids);
+        distinctIds.remove(null);
+        List<Doctor> doctors = new ArrayList<>(distinctIds.size());
+        for (Iterator<ObjectId> it = distinctIds.iterator(); it.hasNext(); ) {
+            Doctor cached = CACHE.getById(it.next());
+            if (cached != null) {
+                doctors.add(cached);
+                it.remove();
+            }
+        }
+        if (!distinctIds.isEmpty()) {
+            long generation = CACHE.generation();
+            int from = doctors.size();
+            entities.find(Filters.in("_id", distinctIds))
+                     .into(doctors);
+            for (int i = from; i < doctors.size(); i++) {
+                CACHE.put(doctors.get(i), generation);
+            }
+        }
+        return doctors;
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.smartmedicare.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.smartmedicare.models.WeeklySchedule;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Parses the free-text {@code schedule} of doctors that have no structured
+ * {@code weeklySchedule} yet. Text that {@link ScheduleParser} cannot read is
+ * logged and left for the doctor to correct; booking then falls back to the
+ * default hours. Safe to run on every startup.
+ */
+public class DoctorScheduleMigration {
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoCollection<Document> doctors;
+
+    public DoctorScheduleMigration() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public DoctorScheduleMigration(MongoDatabase database) {
+        this.doctors = database.getCollection(DatabaseConfig.DOCTORS_COLLECTION);
+    }
+
+    /** Adds a structured schedule to every doctor whose text can be parsed and returns the number updated. */
+    public long run() {
+        Bson missing = Filters.and(Filters.exists("weeklySchedule", false), Filters.type("schedule", "string"));
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        long unparsed = 0;
+
+        for (Document doc : doctors.find(missing)
+                .projection(Projections.include("schedule"))
+                .batchSize(BATCH_SIZE)) {
+            WeeklySchedule schedule = ScheduleParser.parse(doc.getString("schedule"));
+            if (schedule == null) {
+                unparsed++;
+                System.err.println("Could not parse schedule of doctor " + doc.get("_id") + ": "
+                    + doc.getString("schedule"));
+                continue;
+            }
+            batch.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), missing),
+                Updates.set("weeklySchedule", DoctorDAO.scheduleToDocument(schedule))
+            ));
+            if (batch.size() == BATCH_SIZE) {
+                migrated += flush(batch);
+            }
+        }
+        migrated += flush(batch);
+
+        if (migrated > 0 || unparsed > 0) {
+            System.out.println("Structured the schedules of " + migrated + " doctors"
+                + (unparsed > 0 ? " (" + unparsed + " not understood)" : ""));
+        }
+        return migrated;
+    }
+
+    private long flush(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long modified = doctors.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+}
@@ -0,0 +1,88 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.SlotOffer;
+
+/**
+ * Finds the earliest free slots across every doctor of a specialization.
+ *
+ * <p>The search window is walked in chunks that double in length (1, 2, 4, ... days),
+ * each answered by a single booked-times query for all doctors. Within a chunk the
+ * per-doctor slot iterators are merged through a priority queue, so the cost is
+ * {@code O(k log d)} slots after the query rather than expanding every doctor's
+ * full calendar.
+ */
+public class EarliestSlotService {
+    public static final int DEFAULT_HORIZON_DAYS = 60;
+
+    private final DoctorDAO doctorDAO;
+    private final AvailabilityEngine availabilityEngine;
+
+    public EarliestSlotService(DoctorDAO doctorDAO, AvailabilityEngine availabilityEngine) {
+        this.doctorDAO = doctorDAO;
+        this.availabilityEngine = availabilityEngine;
+    }
+
+    /** Up to {@code k} earliest free slots from now within the default horizon. */
+    public List<SlotOffer> findEarliest(String specialization, int k) {
+        LocalDateTime now = LocalDateTime.now();
+        return findEarliest(specialization, now, now.plusDays(DEFAULT_HORIZON_DAYS), k);
+    }
+
+    /** Up to {@code k} earliest free slots in {@code [from, to)}, ordered by start then doctor. */
+    public List<SlotOffer> findEarliest(String specialization, LocalDateTime from, LocalDateTime to, int k) {
+        List<SlotOffer> offers = new ArrayList<>();
+        if (specialization == null || k <= 0) {
+            return offers;
+        }
+        List<Doctor> doctors = doctorDAO.findBySpecialization(specialization);
+        if (doctors.isEmpty()) {
+            return offers;
+        }
+
+        LocalDateTime chunkStart = from;
+        int chunkDays = 1;
+        while (offers.size() < k && chunkStart.isBefore(to)) {
+            LocalDateTime chunkEnd = chunkStart.toLocalDate().plusDays(chunkDays).atStartOfDay();
+            if (chunkEnd.isAfter(to)) {
+                chunkEnd = to;
+            }
+            merge(doctors, availabilityEngine.freeSlotIterators(doctors, chunkStart, chunkEnd), k, offers);
+            chunkStart = chunkEnd;
+            chunkDays *= 2;
+        }
+        return offers;
+    }
+
+    private static void merge(List<Doctor> doctors, Map<ObjectId, Iterator<LocalDateTime>> slots,
+                              int k, List<SlotOffer> out) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, doctors.size()), Head.ORDER);
+        for (int i = 0; i < doctors.size(); i++) {
+            Iterator<LocalDateTime> it = slots.get(doctors.get(i).getId());
+            if (it != null && it.hasNext()) {
+                heads.add(new Head(it.next(), i, it));
+            }
+        }
+        while (out.size() < k && !heads.isEmpty()) {
+            Head head = heads.poll();
+            out.add(new SlotOffer(doctors.get(head.doctorIndex), head.slot));
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.doctorIndex, head.rest));
+            }
+        }
+    }
+
+    private record Head(LocalDateTime slot, int doctorIndex, Iterator<LocalDateTime> rest) {
+        static final Comparator<Head> ORDER = Comparator.comparing(Head::slot).thenComparingInt(Head::doctorIndex);
+    }
+}
@@ -0,0 +1,175 @@
+package com.smartmedicare.services;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Bounded LRU cache of entities by id with a secondary username index, used by
+ * {@link DoctorDAO} and {@link PatientDAO} in front of their single-entity finders.
+ * Entries expire after a fixed age; {@link BaseDAO#update} and
+ * {@link BaseDAO#delete} invalidate the written id. A hit is two map lookups and
+ * copies one entity.
+ *
+ * <p>The cache keeps its own copy of every entity put in and hands out a fresh
+ * copy on every hit, so an edit that is never saved (a failed parse, the
+ * server going away) cannot reach other readers.
+ */
+public class EntityCache<T> {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final class Entry<T> {
+        final T value;
+        final String username;
+        final long loadedAt;
+
+        Entry(T value, String username, long loadedAt) {
+            this.value = value;
+            this.username = username;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final Function<T, ObjectId> idOf;
+    private final Function<T, String> usernameOf;
+    private final UnaryOperator<T> copyOf;
+
+    private final Map<ObjectId, Entry<T>> byId;
+    private final Map<String, Entry<T>> byUsername = new HashMap<>();
+    // Bumped by every invalidation so a load that raced with a write is not cached
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EntityCache(String name, Function<T, ObjectId> idOf, Function<T, String> usernameOf,
+                       UnaryOperator<T> copyOf) {
+        this(name, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE_NANOS, idOf, usernameOf, copyOf);
+    }
+
+    public EntityCache(String name, int maxEntries, long maxAgeNanos,
+                       Function<T, ObjectId> idOf, Function<T, String> usernameOf, UnaryOperator<T> copyOf) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = maxAgeNanos;
+        this.idOf = idOf;
+        this.usernameOf = usernameOf;
+        this.copyOf = copyOf;
+        this.byId = new LinkedHashMap<>(Math.min(maxEntries, 256), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, Entry<T>> eldest) {
+                if (size() <= EntityCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getValue());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** A copy of the cached entity, or {@code null} on a miss (absent or expired). */
+    public synchronized T getById(ObjectId id) {
+        return hitOrMiss(id != null ? byId.get(id) : null);
+    }
+
+    public synchronized T getByUsername(String username) {
+        Entry<T> entry = username != null ? byUsername.get(username) : null;
+        if (entry != null) {
+            // Refresh LRU order on the primary map as well
+            byId.get(idOf.apply(entry.value));
+        }
+        return hitOrMiss(entry);
+    }
+
+    private T hitOrMiss(Entry<T> entry) {
+        if (entry != null) {
+            if (System.nanoTime() - entry.loadedAt < maxAgeNanos) {
+                hits.incrementAndGet();
+                return copyOf.apply(entry.value);
+            }
+            remove(idOf.apply(entry.value));
+            evictions.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Token to take before loading; pass it to {@link #put} so stale loads are dropped. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(T value, long loadedAtGeneration) {
+        if (value == null || loadedAtGeneration != generation) {
+            return;
+        }
+        ObjectId id = idOf.apply(value);
+        if (id == null) {
+            return;
+        }
+        Entry<T> entry = new Entry<>(copyOf.apply(value), usernameOf.apply(value), System.nanoTime());
+        Entry<T> previous = byId.put(id, entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (entry.username != null) {
+            Entry<T> displaced = byUsername.put(entry.username, entry);
+            if (displaced != null && displaced != previous) {
+                // Username moved to another id; drop the stale holder
+                byId.remove(idOf.apply(displaced.value));
+            }
+        }
+    }
+
+    public synchronized void invalidate(ObjectId id) {
+        generation++;
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        byId.clear();
+        byUsername.clear();
+    }
+
+    private void remove(ObjectId id) {
+        Entry<T> entry = byId.remove(id);
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    private void unindex(Entry<T> entry) {
+        if (entry.username != null && byUsername.get(entry.username) == entry) {
+            byUsername.remove(entry.username);
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    @Override
+    public String toString() {
+        return name + " cache: entries=" + size() + ", hits=" + hits.get() + ", misses=" + misses.get()
+            + ", evictions=" + evictions.get();
+    }
+}
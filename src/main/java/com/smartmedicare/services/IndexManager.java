@@ -0,0 +1,225 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.smartmedicare.utils.BsonDates;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Declares the indexes every collection needs, creates the missing ones and
+ * checks with {@code explain} that the hot DAO queries are served by an index.
+ * Any query that falls back to a collection scan is logged as a warning.
+ */
+public class IndexManager {
+    public static final String BOOKING_SLOT_INDEX = "doctorId_slotStart_unique";
+
+    /** An index the application relies on; {@code partialFilter} may be null. */
+    public record IndexSpec(String collection, String name, Bson keys, boolean unique, Bson partialFilter) {
+        public IndexSpec(String collection, String name, Bson keys, boolean unique) {
+            this(collection, name, keys, unique, null);
+        }
+    }
+
+    /** A representative DAO query used to verify index coverage. */
+    public record QueryProbe(String name, String collection, Bson filter, Bson sort) {
+    }
+
+    private final MongoDatabase database;
+
+    public IndexManager() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public IndexManager(MongoDatabase database) {
+        this.database = database;
+    }
+
+    public static List<IndexSpec> requiredIndexes() {
+        List<IndexSpec> specs = new ArrayList<>();
+        specs.add(new IndexSpec(DatabaseConfig.USERS_COLLECTION, "username_userType",
+            Indexes.ascending("username", "userType"), false));
+        specs.add(new IndexSpec(DatabaseConfig.PATIENTS_COLLECTION, "username",
+            Indexes.ascending("username"), false));
+        specs.add(new IndexSpec(DatabaseConfig.PATIENTS_COLLECTION, "searchTokens",
+            Indexes.ascending("searchTokens"), false));
+        specs.add(new IndexSpec(DatabaseConfig.DOCTORS_COLLECTION, "username",
+            Indexes.ascending("username"), false));
+        specs.add(new IndexSpec(DatabaseConfig.DOCTORS_COLLECTION, "specialization",
+            Indexes.ascending("specialization"), false));
+        // Trailing _id lets keyset pages (BaseDAO.findPage) seek and sort straight off the index
+        specs.add(new IndexSpec(DatabaseConfig.APPOINTMENTS_COLLECTION, "doctorId_dateTime_id",
+            Indexes.ascending("doctorId", "dateTime", "_id"), false));
+        specs.add(new IndexSpec(DatabaseConfig.APPOINTMENTS_COLLECTION, "patientId_dateTime_id",
+            Indexes.ascending("patientId", "dateTime", "_id"), false));
+        specs.add(bookingSlotIndex());
+        specs.add(new IndexSpec(DatabaseConfig.MEDICAL_RECORDS_COLLECTION, "patientId_recordDate_id",
+            Indexes.compoundIndex(Indexes.ascending("patientId"), Indexes.descending("recordDate", "_id")), false));
+        specs.add(new IndexSpec(DatabaseConfig.PRESCRIPTIONS_COLLECTION, "patientId_dateIssued_id",
+            Indexes.compoundIndex(Indexes.ascending("patientId"), Indexes.descending("dateIssued", "_id")), false));
+        specs.add(new IndexSpec(DatabaseConfig.PRESCRIPTIONS_COLLECTION, "doctorId_dateIssued",
+            Indexes.compoundIndex(Indexes.ascending("doctorId"), Indexes.descending("dateIssued")), false));
+        specs.add(new IndexSpec(DatabaseConfig.PRESCRIPTIONS_COLLECTION, "doctorId_followUpDate",
+            Indexes.ascending("doctorId", "followUpDate"), false));
+        specs.add(new IndexSpec(DatabaseConfig.PRESCRIPTIONS_COLLECTION, "patientId_followUpDate",
+            Indexes.ascending("patientId", "followUpDate"), false));
+        return specs;
+    }
+
+    /**
+     * One active booking per doctor and slot; cancelling unsets slotStart and
+     * frees the slot. {@link BookingService} is only correct with it in place.
+     */
+    public static IndexSpec bookingSlotIndex() {
+        return new IndexSpec(DatabaseConfig.APPOINTMENTS_COLLECTION, BOOKING_SLOT_INDEX,
+            Indexes.ascending("doctorId", "slotStart"), true, Filters.exists("slotStart"));
+    }
+
+    public static List<QueryProbe> hotQueries() {
+        ObjectId sampleId = new ObjectId();
+        LocalDate today = LocalDate.now();
+        List<QueryProbe> probes = new ArrayList<>();
+        probes.add(new QueryProbe("UserDAO.findByUsernameAndType", DatabaseConfig.USERS_COLLECTION,
+            Filters.and(Filters.eq("username", "probe"), Filters.eq("userType", "PATIENT")), null));
+        probes.add(new QueryProbe("DoctorDAO.findBySpecialization", DatabaseConfig.DOCTORS_COLLECTION,
+            Filters.eq("specialization", "probe"), null));
+        probes.add(new QueryProbe("AppointmentDAO.findByDoctorId", DatabaseConfig.APPOINTMENTS_COLLECTION,
+            Filters.eq("doctorId", sampleId), null));
+        probes.add(new QueryProbe("AppointmentDAO.findByPatientId", DatabaseConfig.APPOINTMENTS_COLLECTION,
+            Filters.eq("patientId", sampleId), null));
+        probes.add(new QueryProbe("AppointmentDAO.countAppointmentsOn", DatabaseConfig.APPOINTMENTS_COLLECTION,
+            Filters.and(Filters.eq("doctorId", sampleId),
+                Filters.gte("dateTime", BsonDates.startOfDay(today)),
+                Filters.lt("dateTime", BsonDates.startOfNextDay(today))), null));
+        probes.add(new QueryProbe("MedicalRecordDAO.findByPatientId", DatabaseConfig.MEDICAL_RECORDS_COLLECTION,
+            Filters.eq("patientId", sampleId), Sorts.descending("recordDate")));
+        probes.add(new QueryProbe("PrescriptionDAO.findByPatientId", DatabaseConfig.PRESCRIPTIONS_COLLECTION,
+            Filters.eq("patientId", sampleId), Sorts.descending("dateIssued")));
+        probes.add(new QueryProbe("PrescriptionDAO.countPendingPrescriptions", DatabaseConfig.PRESCRIPTIONS_COLLECTION,
+            Filters.and(Filters.eq("doctorId", sampleId),
+                Filters.gte("followUpDate", BsonDates.startOfNextDay(today))), null));
+        return probes;
+    }
+
+    /** Runs {@link #ensureIndexes()} and {@link #verifyQueryPlans()} on a daemon thread. */
+    public void ensureIndexesAsync() {
+        Thread thread = new Thread(() -> {
+            try {
+                ensureIndexes();
+                verifyQueryPlans();
+            } catch (MongoException e) {
+                System.err.println("Index bootstrap failed: " + e.getMessage());
+            }
+        }, "index-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Creates every declared index that is not present yet and returns how many were built. */
+    public int ensureIndexes() {
+        int created = 0;
+        for (IndexSpec spec : requiredIndexes()) {
+            MongoCollection<Document> collection = database.getCollection(spec.collection());
+            if (!hasIndex(collection, spec) && create(collection, spec)) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Creates {@code spec} on the calling thread unless it is there already and
+     * returns whether the server has it afterwards. Fails with
+     * {@link MongoException} only when the server cannot be reached.
+     */
+    public boolean ensureIndex(IndexSpec spec) {
+        MongoCollection<Document> collection = database.getCollection(spec.collection());
+        return hasIndex(collection, spec) || (create(collection, spec) && hasIndex(collection, spec));
+    }
+
+    private boolean create(MongoCollection<Document> collection, IndexSpec spec) {
+        IndexOptions options = new IndexOptions().name(spec.name()).unique(spec.unique()).background(true);
+        if (spec.partialFilter() != null) {
+            options.partialFilterExpression(spec.partialFilter());
+        }
+        try {
+            collection.createIndex(spec.keys(), options);
+            System.out.println("Created index " + spec.collection() + "." + spec.name());
+            return true;
+        } catch (MongoException e) {
+            System.err.println("Could not create index " + spec.collection() + "." + spec.name()
+                + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // A non-unique index on the same keys does not enforce what a unique spec promises
+    private boolean hasIndex(MongoCollection<Document> collection, IndexSpec spec) {
+        BsonDocument wanted = spec.keys().toBsonDocument();
+        for (Document index : collection.listIndexes()) {
+            Document key = index.get("key", Document.class);
+            if ((spec.name().equals(index.getString("name")) || (key != null && wanted.equals(key.toBsonDocument())))
+                    && (!spec.unique() || index.getBoolean("unique", false))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Explains each hot query and returns the names of those that still scan the whole collection. */
+    public List<String> verifyQueryPlans() {
+        List<String> collectionScans = new ArrayList<>();
+        for (QueryProbe probe : hotQueries()) {
+            FindIterable<Document> query = database.getCollection(probe.collection()).find(probe.filter());
+            if (probe.sort() != null) {
+                query = query.sort(probe.sort());
+            }
+            try {
+                Document plan = query.explain();
+                Set<String> stages = new HashSet<>();
+                Document planner = plan.get("queryPlanner", Document.class);
+                collectStages(planner != null ? planner.get("winningPlan") : null, stages);
+                if (stages.contains("COLLSCAN")) {
+                    collectionScans.add(probe.name());
+                    System.err.println("WARNING: " + probe.name() + " on '" + probe.collection()
+                        + "' uses a COLLSCAN; check the index declarations in IndexManager");
+                }
+            } catch (MongoException e) {
+                System.err.println("Could not explain " + probe.name() + ": " + e.getMessage());
+            }
+        }
+        return collectionScans;
+    }
+
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document doc) {
+            Object stage = doc.get("stage");
+            if (stage instanceof String name) {
+                stages.add(name);
+            }
+            for (Object value : doc.values()) {
+                collectStages(value, stages);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                collectStages(value, stages);
+            }
+        }
+    }
+}
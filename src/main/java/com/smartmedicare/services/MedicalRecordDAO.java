@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.bson.Document;
 import org.bson.types.ObjectId;
@@ -15,7 +16,7 @@ import com.smartmedicare.models.MedicalRecord;
 public class MedicalRecordDAO extends BaseDAO<MedicalRecord> {
     
     public MedicalRecordDAO() {
-        super("medical_records");
+        super("medical_records", MedicalRecord.class);
     }
 
     @Override
@@ -34,6 +35,7 @@ public class MedicalRecordDAO extends BaseDAO<MedicalRecord> {
         record.setVitalSigns(vitalSigns != null ? vitalSigns : new HashMap<>());
         
         record.setDiagnosis(doc.getString("diagnosis"));
+        record.setConfirmedDiagnosis(doc.getString("confirmedDiagnosis"));
         record.setAiPrediction(doc.getString("aiPrediction"));
         record.setSeverity(doc.getString("severity"));
         record.setTreatmentPlan(doc.getString("treatmentPlan"));
@@ -50,6 +52,7 @@ public class MedicalRecordDAO extends BaseDAO<MedicalRecord> {
                 .append("symptoms", record.getSymptoms())
                 .append("vitalSigns", record.getVitalSigns())
                 .append("diagnosis", record.getDiagnosis())
+                .append("confirmedDiagnosis", record.getConfirmedDiagnosis())
                 .append("aiPrediction", record.getAiPrediction())
                 .append("severity", record.getSeverity())
                 .append("treatmentPlan", record.getTreatmentPlan())
@@ -58,18 +61,36 @@ public class MedicalRecordDAO extends BaseDAO<MedicalRecord> {
 
     public List<MedicalRecord> findByPatientId(ObjectId patientId) {
         List<MedicalRecord> records = new ArrayList<>();
-        collection.find(Filters.eq("patientId", patientId))
+        entities.find(Filters.eq("patientId", patientId))
                  .sort(new Document("recordDate", -1))
-                 .forEach(doc -> records.add(documentToEntity(doc)));
+                 .into(records);
         return records;
     }
 
+    public Page<MedicalRecord> findPageByPatientId(ObjectId patientId, int pageSize, String continuationToken) {
+        return findPage(Filters.eq("patientId", patientId), "-recordDate,-_id", pageSize, continuationToken);
+    }
+
+    public Stream<MedicalRecord> streamByPatientId(ObjectId patientId, int batchSize) {
+        return stream(Filters.eq("patientId", patientId), batchSize);
+    }
+
+    public Stream<MedicalRecord> streamAll(int batchSize) {
+        return stream(null, batchSize);
+    }
+
+    /** Records whose diagnosis a doctor confirmed, the only ones fit to train on. */
+    public Stream<MedicalRecord> streamConfirmed(int batchSize) {
+        return stream(Filters.and(Filters.exists("confirmedDiagnosis"), Filters.ne("confirmedDiagnosis", null)),
+            batchSize);
+    }
+
     public List<MedicalRecord> findByPatientIdAndSeverity(ObjectId patientId, String severity) {
         List<MedicalRecord> records = new ArrayList<>();
-        collection.find(Filters.and(
+        entities.find(Filters.and(
             Filters.eq("patientId", patientId),
             Filters.eq("severity", severity)
-        )).forEach(doc -> records.add(documentToEntity(doc)));
+        )).into(records);
         return records;
     }
 }
\ No newline at end of file
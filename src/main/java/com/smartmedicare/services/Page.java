@@ -0,0 +1,21 @@
+package com.smartmedicare.services;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query. {@code nextToken} is an opaque
+ * continuation token for the following page, or {@code null} on the last page.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextToken() { return nextToken; }
+    public boolean hasNext() { return nextToken != null; }
+}
@@ -3,18 +3,55 @@ package com.smartmedicare.services;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.Facet;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Variable;
 import com.smartmedicare.models.Patient;
+import com.smartmedicare.models.PatientRosterEntry;
+import com.smartmedicare.models.RosterPage;
+import com.smartmedicare.utils.BsonDates;
 
 public class PatientDAO extends BaseDAO<Patient> {
     
+    private static final EntityCache<Patient> CACHE = new EntityCache<>("patients", Patient::getId, Patient::getUsername,
+        Patient::copy);
+
     public PatientDAO() {
-        super("patients");
+        super("patients", Patient.class);
+    }
+
+    @Override
+    protected void invalidate(ObjectId id) {
+        CACHE.invalidate(id);
+    }
+
+    /** Drops {@code id} from the shared cache, for writes that bypass this DAO. */
+    public static void evictCached(ObjectId id) {
+        CACHE.invalidate(id);
+    }
+
+    public static EntityCache<Patient> cache() {
+        return CACHE;
     }
 
     @Override
@@ -26,9 +63,12 @@ public class PatientDAO extends BaseDAO<Patient> {
         patient.setName(doc.getString("name"));
         patient.setEmail(doc.getString("email"));
         patient.setContact(doc.getString("contact"));
-        patient.setDateOfBirth(LocalDate.parse(doc.getString("dateOfBirth")));
+        String dateOfBirth = doc.getString("dateOfBirth");
+        patient.setDateOfBirth(dateOfBirth != null ? LocalDate.parse(dateOfBirth) : null);
         patient.setGender(doc.getString("gender"));
         patient.setBloodGroup(doc.getString("bloodGroup"));
+        patient.setDoctorNotes(doc.getString("doctorNotes"));
+        patient.setAttendingDoctorId(doc.getObjectId("attendingDoctorId"));
         
         @SuppressWarnings("unchecked")
         List<ObjectId> medicalHistory = (List<ObjectId>) doc.get("medicalHistory", List.class);
@@ -47,100 +87,360 @@ public class PatientDAO extends BaseDAO<Patient> {
 
     @Override
     public Document entityToDocument(Patient patient) {
-        return new Document("_id", patient.getId())
+        Document document = new Document("_id", patient.getId())
                 .append("username", patient.getUsername())
                 .append("password", patient.getPassword())
                 .append("name", patient.getName())
                 .append("email", patient.getEmail())
                 .append("contact", patient.getContact())
-                .append("dateOfBirth", patient.getDateOfBirth().toString())
                 .append("gender", patient.getGender())
                 .append("bloodGroup", patient.getBloodGroup())
+                .append("doctorNotes", patient.getDoctorNotes())
+                .append("attendingDoctorId", patient.getAttendingDoctorId())
                 .append("medicalHistory", patient.getMedicalHistory())
                 .append("appointments", patient.getAppointments())
                 .append("prescriptions", patient.getPrescriptions())
-                .append("userType", "PATIENT");
+                .append("userType", "PATIENT")
+                .append("searchTokens", searchTokens(patient));
+        // Patients created without one (e.g. by the sign-in fallback) have no date of birth, as in PatientCodec
+        if (patient.getDateOfBirth() != null) {
+            document.append("dateOfBirth", patient.getDateOfBirth().toString());
+        }
+        return document;
     }
 
     public Patient findByUsername(String username) {
-        Document doc = collection.find(Filters.eq("username", username)).first();
-        return doc != null ? documentToEntity(doc) : null;
+        Patient cached = CACHE.getByUsername(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CACHE.generation();
+        Patient patient = entities.find(Filters.eq("username", username)).first();
+        CACHE.put(patient, generation);
+        return patient;
     }
 
     public Patient findById(ObjectId id) {
-        Document doc = collection.find(Filters.eq("_id", id)).first();
-        return doc != null ? documentToEntity(doc) : null;
+        Patient cached = CACHE.getById(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CACHE.generation();
+        Patient patient = entities.find(Filters.eq("_id", id)).first();
+        CACHE.put(patient, generation);
+        return patient;
+    }
+
+    /** Loads every patient whose id is in {@code ids} with a single {@code $in} query. */
+    public List<Patient> findByIds(Collection<ObjectId> ids) {
+        Set<ObjectId> distinctIds = new HashSet<>(ids);
+        distinctIds.remove(null);
+        List<Patient> patients = new ArrayList<>(distinctIds.size());
+        for (Iterator<ObjectId> it = distinctIds.iterator(); it.hasNext(); ) {
+            Patient cached = CACHE.getById(it.next());
+            if (cached != null) {
+                patients.add(cached);
+                it.remove();
+            }
+        }
+        if (!distinctIds.isEmpty()) {
+            long generation = CACHE.generation();
+            int from = patients.size();
+            entities.find(Filters.in("_id", distinctIds))
+                     .into(patients);
+            for (int i = from; i < patients.size(); i++) {
+                CACHE.put(patients.get(i), generation);
+            }
+        }
+        return patients;
     }
 
     public List<Patient> findByDoctor(ObjectId doctorId) {
         // First get patient IDs from appointments
-        List<ObjectId> patientIds = DatabaseService.getInstance().getDatabase()
+        List<ObjectId> patientIds = DatabaseService.getInstance().getStore()
             .getCollection("appointments")
-            .distinct("patientId", Filters.eq("doctorId", doctorId), ObjectId.class)
-            .into(new ArrayList<>());
+            .distinct("patientId", Filters.eq("doctorId", doctorId), ObjectId.class);
         
         // Then get patient details
         List<Patient> patients = new ArrayList<>();
         if (!patientIds.isEmpty()) {
-            collection.find(Filters.in("_id", patientIds))
-                     .forEach(doc -> patients.add(documentToEntity(doc)));
+            entities.find(Filters.in("_id", patientIds))
+                     .into(patients);
         }
         return patients;
     }
 
+    /**
+     * Loads the doctor's full roster in one aggregation: appointments are grouped
+     * per patient into last visit and next upcoming appointment, then joined with
+     * the patient documents.
+     */
+    public List<PatientRosterEntry> findRosterByDoctor(ObjectId doctorId) {
+        return searchWholeRoster("", "All Patients", doctorId);
+    }
+
     public List<Patient> searchPatients(String searchTerm, String filter, ObjectId doctorId) {
-        List<Patient> patients = findByDoctor(doctorId);
-        return patients.stream()
-                      .filter(p -> matchesSearchCriteria(p, searchTerm, filter))
+        return searchWholeRoster(searchTerm, filter, doctorId).stream()
+                      .map(PatientRosterEntry::getPatient)
                       .toList();
     }
 
-    private boolean matchesSearchCriteria(Patient patient, String searchTerm, String filter) {
-        // First check the search term
-        boolean matchesSearch = searchTerm.isEmpty() ||
-            patient.getName().toLowerCase().contains(searchTerm) ||
-            patient.getEmail().toLowerCase().contains(searchTerm) ||
-            patient.getContact().toLowerCase().contains(searchTerm);
+    // Unpaged: rows stream back in cursor batches, since a $facet result is one document capped at 16 MB
+    private List<PatientRosterEntry> searchWholeRoster(String searchTerm, String filter, ObjectId doctorId) {
+        if (DatabaseService.getInstance().isEmbedded()) {
+            return searchRosterLocally(searchTerm, filter, doctorId, 0, Integer.MAX_VALUE).getEntries();
+        }
+        List<PatientRosterEntry> entries = new ArrayList<>();
+        DatabaseService.getInstance().getStore().getCollection(rosterSource(searchTerm))
+            .aggregate(rosterPipeline(searchTerm, filter, doctorId), Document.class,
+                doc -> entries.add(toRosterEntry(doc)));
+        return entries;
+    }
+
+    /**
+     * Runs the roster search on the server and returns only the requested page.
+     * The search term is matched as a word prefix against the normalized
+     * {@code searchTokens} field before anything is joined, so a search only
+     * looks at the appointments of matching patients; the filters are evaluated
+     * as joins inside the same pipeline, so a page costs one round trip.
+     * The embedded storage engine has no aggregation, so there the roster is
+     * assembled from indexed finds instead.
+     */
+    public RosterPage searchRoster(String searchTerm, String filter, ObjectId doctorId, int pageIndex, int pageSize) {
+        if (DatabaseService.getInstance().isEmbedded()) {
+            return searchRosterLocally(searchTerm, filter, doctorId, pageIndex, pageSize);
+        }
+        List<Bson> pipeline = rosterPipeline(searchTerm, filter, doctorId);
+        pipeline.add(Aggregates.facet(
+            new Facet("total", Aggregates.count("count")),
+            new Facet("rows", Aggregates.skip(pageIndex * pageSize), Aggregates.limit(pageSize))));
+
+        List<Document> results = new ArrayList<>(1);
+        DatabaseService.getInstance().getStore().getCollection(rosterSource(searchTerm))
+            .aggregate(pipeline, Document.class, results::add);
+        Document result = results.isEmpty() ? null : results.get(0);
 
-        if (!matchesSearch) return false;
+        List<PatientRosterEntry> entries = new ArrayList<>();
+        long total = 0;
+        if (result != null) {
+            List<Document> totals = result.getList("total", Document.class);
+            if (!totals.isEmpty()) {
+                total = ((Number) totals.get(0).get("count")).longValue();
+            }
+            for (Document doc : result.getList("rows", Document.class)) {
+                entries.add(toRosterEntry(doc));
+            }
+        }
+        return new RosterPage(entries, total, pageIndex, pageSize);
+    }
 
-        // Then apply the filter
-        return switch (filter) {
-            case "All Patients" -> true;
-            case "Recent Visits" -> hasRecentVisit(patient);
-            case "Pending Follow-ups" -> hasPendingFollowUp(patient);
-            default -> true;
-        };
+    // A search starts from the matching patients, the whole roster from the doctor's appointments
+    private static String rosterSource(String searchTerm) {
+        return searchTermFilter(searchTerm) != null ? "patients" : "appointments";
     }
 
-    private boolean hasRecentVisit(Patient patient) {
-        // Get the patient's latest appointment within the last 30 days
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        return DatabaseService.getInstance().getDatabase()
-            .getCollection("appointments")
-            .countDocuments(Filters.and(
-                Filters.eq("patientId", patient.getId()),
-                Filters.gte("dateTime", thirtyDaysAgo.toString())
-            )) > 0;
+    /**
+     * Roster rows matching the search, sorted by patient name, run against
+     * {@link #rosterSource}. Every row is shaped as
+     * {@code {_id: patientId, lastVisit, nextAppointment, patient}}.
+     */
+    private List<Bson> rosterPipeline(String searchTerm, String filter, ObjectId doctorId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Bson> pipeline = new ArrayList<>();
+        Bson termFilter = searchTermFilter(searchTerm);
+        if (termFilter != null) {
+            // The searchTokens index picks the patients; each joins only its own appointments with this doctor
+            pipeline.add(Aggregates.match(termFilter));
+            pipeline.add(Aggregates.lookup("appointments",
+                List.of(new Variable<>("patientId", "$_id")),
+                Arrays.asList(
+                    Aggregates.match(Filters.and(
+                        Filters.expr(new Document("$eq", Arrays.asList("$patientId", "$$patientId"))),
+                        Filters.eq("doctorId", doctorId))),
+                    Aggregates.group(null, visitAccumulators(now))),
+                "visits"));
+            pipeline.add(Aggregates.unwind("$visits"));
+            pipeline.add(Aggregates.project(new Document("lastVisit", "$visits.lastVisit")
+                .append("nextAppointment", "$visits.nextAppointment")
+                .append("patient", "$$ROOT")));
+            pipeline.add(Aggregates.project(Projections.exclude("patient.visits")));
+        } else {
+            pipeline.add(Aggregates.match(Filters.eq("doctorId", doctorId)));
+            pipeline.add(Aggregates.group("$patientId", visitAccumulators(now)));
+        }
+
+        if ("Recent Visits".equals(filter)) {
+            pipeline.add(Aggregates.match(Filters.gte("lastVisit", BsonDates.toDate(now.minusDays(30)))));
+        }
+
+        if (termFilter == null) {
+            pipeline.add(Aggregates.lookup("patients", "_id", "_id", "patient"));
+            pipeline.add(Aggregates.unwind("$patient"));
+        }
+
+        if ("Pending Follow-ups".equals(filter)) {
+            pipeline.add(Aggregates.lookup("prescriptions",
+                List.of(new Variable<>("patientId", "$_id")),
+                Arrays.asList(
+                    Aggregates.match(Filters.and(
+                        Filters.expr(new Document("$eq", Arrays.asList("$patientId", "$$patientId"))),
+                        Filters.gte("followUpDate", BsonDates.startOfNextDay(LocalDate.now())))),
+                    Aggregates.limit(1),
+                    Aggregates.project(Projections.include("_id"))),
+                "followUps"));
+            pipeline.add(Aggregates.match(Filters.ne("followUps", List.of())));
+        }
+
+        pipeline.add(Aggregates.sort(Sorts.ascending("patient.name", "_id")));
+        return pipeline;
+    }
+
+    // Last past and next upcoming appointment
+    private static List<BsonField> visitAccumulators(LocalDateTime now) {
+        return List.of(
+            Accumulators.max("lastVisit", new Document("$cond",
+                Arrays.asList(new Document("$lt", Arrays.asList("$dateTime", BsonDates.toDate(now))), "$dateTime", null))),
+            Accumulators.min("nextAppointment", new Document("$cond",
+                Arrays.asList(new Document("$gte", Arrays.asList("$dateTime", BsonDates.toDate(now))), "$dateTime", null))));
+    }
+
+    private PatientRosterEntry toRosterEntry(Document doc) {
+        return new PatientRosterEntry(
+            documentToEntity(doc.get("patient", Document.class)),
+            BsonDates.toLocalDateTime(doc.getDate("lastVisit")),
+            BsonDates.toLocalDateTime(doc.getDate("nextAppointment")));
+    }
+
+    // Same grouping, filters and order as the pipeline in searchRoster
+    private RosterPage searchRosterLocally(String searchTerm, String filter, ObjectId doctorId, int pageIndex, int pageSize) {
+        LocalDateTime now = LocalDateTime.now();
+        Bson termFilter = searchTermFilter(searchTerm);
+        Bson appointmentFilter = Filters.eq("doctorId", doctorId);
+        List<Patient> matching = null;
+        if (termFilter != null) {
+            // Match patients first so only their appointments are read
+            matching = entities.find(termFilter).into(new ArrayList<>());
+            if (matching.isEmpty()) {
+                return new RosterPage(new ArrayList<>(), 0, pageIndex, pageSize);
+            }
+            appointmentFilter = Filters.and(appointmentFilter,
+                Filters.in("patientId", matching.stream().map(Patient::getId).toList()));
+        }
+        Map<ObjectId, LocalDateTime[]> visits = new HashMap<>();
+        DatabaseService.getInstance().getStore().getCollection("appointments")
+            .find(appointmentFilter)
+            .projection(Projections.include("patientId", "dateTime"))
+            .forEach(doc -> {
+                LocalDateTime dateTime = BsonDates.toLocalDateTime(doc.get("dateTime"));
+                LocalDateTime[] range = visits.computeIfAbsent(doc.getObjectId("patientId"), id -> new LocalDateTime[2]);
+                if (dateTime == null) {
+                    return;
+                }
+                if (dateTime.isBefore(now)) {
+                    if (range[0] == null || dateTime.isAfter(range[0])) range[0] = dateTime;
+                } else if (range[1] == null || dateTime.isBefore(range[1])) {
+                    range[1] = dateTime;
+                }
+            });
+        if ("Recent Visits".equals(filter)) {
+            LocalDateTime cutoff = now.minusDays(30);
+            visits.values().removeIf(range -> range[0] == null || range[0].isBefore(cutoff));
+        }
+        if (visits.isEmpty()) {
+            return new RosterPage(new ArrayList<>(), 0, pageIndex, pageSize);
+        }
+
+        List<Patient> patients;
+        if (matching != null) {
+            patients = new ArrayList<>(matching);
+            patients.removeIf(patient -> !visits.containsKey(patient.getId()));
+        } else {
+            patients = entities.find(Filters.in("_id", visits.keySet())).into(new ArrayList<>());
+        }
+
+        if ("Pending Follow-ups".equals(filter)) {
+            Set<ObjectId> withFollowUp = new HashSet<>(DatabaseService.getInstance().getStore()
+                .getCollection("prescriptions")
+                .distinct("patientId", Filters.and(
+                    Filters.in("patientId", visits.keySet()),
+                    Filters.gte("followUpDate", BsonDates.startOfNextDay(LocalDate.now()))), ObjectId.class));
+            patients.removeIf(patient -> !withFollowUp.contains(patient.getId()));
+        }
+
+        patients.sort(Comparator.comparing(Patient::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Patient::getId));
+        int from = (int) Math.min(patients.size(), (long) pageIndex * pageSize);
+        int to = (int) Math.min(patients.size(), (long) from + pageSize);
+        List<PatientRosterEntry> entries = new ArrayList<>(to - from);
+        for (Patient patient : patients.subList(from, to)) {
+            LocalDateTime[] range = visits.get(patient.getId());
+            entries.add(new PatientRosterEntry(patient, range[0], range[1]));
+        }
+        return new RosterPage(entries, patients.size(), pageIndex, pageSize);
+    }
+
+    private static Bson searchTermFilter(String searchTerm) {
+        if (searchTerm == null || searchTerm.isBlank()) {
+            return null;
+        }
+        List<Bson> words = new ArrayList<>();
+        for (String word : searchTerm.trim().toLowerCase().split("\\s+")) {
+            words.add(Filters.regex("searchTokens", "^" + escapeRegex(word)));
+        }
+        return words.size() == 1 ? words.get(0) : Filters.and(words);
+    }
+
+    private static String escapeRegex(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Lowercased words of the patient's name, email and contact number, stored in
+     * {@code searchTokens} so searches are indexed prefix matches.
+     */
+    public static List<String> searchTokens(Patient patient) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addWords(tokens, patient.getName());
+        String email = patient.getEmail();
+        if (email != null && !email.isBlank()) {
+            String normalized = email.trim().toLowerCase();
+            tokens.add(normalized);
+            addWords(tokens, normalized.replaceAll("[@._-]", " "));
+        }
+        String contact = patient.getContact();
+        if (contact != null && !contact.isBlank()) {
+            tokens.add(contact.trim().toLowerCase());
+            String digits = contact.replaceAll("\\D", "");
+            if (!digits.isEmpty()) {
+                tokens.add(digits);
+            }
+        }
+        return new ArrayList<>(tokens);
     }
 
-    private boolean hasPendingFollowUp(Patient patient) {
-        // Check if patient has any prescription with future follow-up date
-        LocalDate today = LocalDate.now();
-        return DatabaseService.getInstance().getDatabase()
-            .getCollection("prescriptions")
-            .countDocuments(Filters.and(
-                Filters.eq("patientId", patient.getId()),
-                Filters.gt("followUpDate", today.toString())
-            )) > 0;
+    private static void addWords(Set<String> tokens, String text) {
+        if (text == null) {
+            return;
+        }
+        for (String word : text.trim().toLowerCase().split("\\s+")) {
+            if (!word.isEmpty()) {
+                tokens.add(word);
+            }
+        }
     }
 
     public long countPatientsByDoctor(ObjectId doctorId) {
         // First find unique patientIds from appointments collection for this doctor
-        List<ObjectId> patientIds = DatabaseService.getInstance().getDatabase()
+        List<ObjectId> patientIds = DatabaseService.getInstance().getStore()
             .getCollection("appointments")
-            .distinct("patientId", Filters.eq("doctorId", doctorId), ObjectId.class)
-            .into(new ArrayList<>());
+            .distinct("patientId", Filters.eq("doctorId", doctorId), ObjectId.class);
 
         // Then count those patients
         return !patientIds.isEmpty() ? 
@@ -0,0 +1,74 @@
+package com.smartmedicare.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.smartmedicare.models.Patient;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Backfills the normalized {@code searchTokens} field on patient documents
+ * written before server-side search existed. Safe to run on every startup.
+ */
+public class PatientSearchTokenMigration {
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoCollection<Document> patients;
+
+    public PatientSearchTokenMigration() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public PatientSearchTokenMigration(MongoDatabase database) {
+        this.patients = database.getCollection(DatabaseConfig.PATIENTS_COLLECTION);
+    }
+
+    /** Adds search tokens to every patient missing them and returns the number updated. */
+    public long run() {
+        Bson missing = Filters.exists("searchTokens", false);
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+
+        for (Document doc : patients.find(missing)
+                .projection(Projections.include("name", "email", "contact"))
+                .batchSize(BATCH_SIZE)) {
+            Patient patient = new Patient();
+            patient.setName(doc.getString("name"));
+            patient.setEmail(doc.getString("email"));
+            patient.setContact(doc.getString("contact"));
+            batch.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), missing),
+                Updates.set("searchTokens", PatientDAO.searchTokens(patient))
+            ));
+            if (batch.size() == BATCH_SIZE) {
+                migrated += flush(batch);
+            }
+        }
+        migrated += flush(batch);
+
+        if (migrated > 0) {
+            System.out.println("Added search tokens to " + migrated + " patients");
+        }
+        return migrated;
+    }
+
+    private long flush(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long modified = patients.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+}
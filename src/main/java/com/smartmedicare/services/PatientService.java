@@ -2,19 +2,15 @@ package com.smartmedicare.services;
 
 import org.bson.Document;
 
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.smartmedicare.models.Patient;
-import com.smartmedicare.utils.DatabaseConnection;
+import com.smartmedicare.services.storage.StoreCollection;
 
 public class PatientService {
-    private final MongoDatabase database;
-    private final MongoCollection<Document> collection;
+    private final StoreCollection<Document> collection;
     
     public PatientService() {
-        this.database = DatabaseConnection.getInstance().getDatabase();
-        this.collection = database.getCollection("patients");
+        this.collection = DatabaseService.getInstance().getStore().getCollection("patients");
     }
     
     public void updatePatient(Patient patient) {
@@ -34,12 +30,14 @@ public class PatientService {
                     .append("allergies", patient.getAllergies())
                     .append("currentMedications", patient.getCurrentMedications())
                     .append("medicalConditions", patient.getMedicalConditions())
+                    .append("searchTokens", PatientDAO.searchTokens(patient))
                 );
             
             collection.updateOne(
                 Filters.eq("_id", patient.getId()),
                 update
             );
+            PatientDAO.evictCached(patient.getId());
         } catch (Exception e) {
             throw new RuntimeException("Failed to update patient profile: " + e.getMessage());
         }
@@ -4,15 +4,19 @@ import com.mongodb.client.model.Filters;
 import com.smartmedicare.models.Prescription;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import com.smartmedicare.utils.BsonDates;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 public class PrescriptionDAO extends BaseDAO<Prescription> {
     
     public PrescriptionDAO() {
-        super("prescriptions");
+        super("prescriptions", Prescription.class);
     }
 
     @Override
@@ -21,60 +25,98 @@ public class PrescriptionDAO extends BaseDAO<Prescription> {
         prescription.setId(doc.getObjectId("_id").toString());
         prescription.setPatientId(doc.getObjectId("patientId").toString());
         prescription.setDoctorId(doc.getObjectId("doctorId").toString());
-        prescription.setDateIssued(LocalDate.parse(doc.getString("dateIssued")));
+        prescription.setDoctorName(doc.getString("doctorName"));
+        prescription.setDateIssued(toLocalDate(doc.getDate("dateIssued")));
         prescription.setDiagnosis(doc.getString("diagnosis"));
         prescription.setMedicines(doc.getString("medicines"));
         prescription.setNotes(doc.getString("notes"));
-        
-        String followUpDate = doc.getString("followUpDate");
-        if (followUpDate != null) {
-            prescription.setFollowUpDate(LocalDate.parse(followUpDate));
-        }
-        
+        prescription.setFollowUpDate(toLocalDate(doc.getDate("followUpDate")));
         return prescription;
     }
 
     @Override
     public Document entityToDocument(Prescription prescription) {
         Document doc = new Document();
-        if (prescription.getId() != null) {
+        if (prescription.getId() != null && !prescription.getId().isEmpty()) {
             doc.append("_id", new ObjectId(prescription.getId()));
         }
         doc.append("patientId", new ObjectId(prescription.getPatientId()))
            .append("doctorId", new ObjectId(prescription.getDoctorId()))
-           .append("dateIssued", prescription.getDateIssued().toString())
+           .append("dateIssued", BsonDates.toDate(prescription.getDateIssued()))
            .append("medicines", prescription.getMedicines())
            .append("diagnosis", prescription.getDiagnosis())
            .append("notes", prescription.getNotes());
 
+        if (prescription.getDoctorName() != null) {
+            doc.append("doctorName", prescription.getDoctorName());
+        }
         if (prescription.getFollowUpDate() != null) {
-            doc.append("followUpDate", prescription.getFollowUpDate().toString());
+            doc.append("followUpDate", BsonDates.toDate(prescription.getFollowUpDate()));
         }
 
         return doc;
     }
 
+    private static LocalDate toLocalDate(Date date) {
+        LocalDateTime dateTime = BsonDates.toLocalDateTime(date);
+        return dateTime != null ? dateTime.toLocalDate() : null;
+    }
+
+    /** Inserts a new prescription (setting its generated id) or replaces the fields of an existing one. */
+    public void save(Prescription prescription) {
+        if (prescription.getId() == null || prescription.getId().isEmpty()) {
+            insertEntity(prescription);
+        } else {
+            update(new ObjectId(prescription.getId()), entityToDocument(prescription));
+        }
+    }
+
+    public Prescription findById(String id) {
+        return ObjectId.isValid(id) ? entities.find(Filters.eq("_id", new ObjectId(id))).first() : null;
+    }
+
+    public void delete(String id) {
+        delete(new ObjectId(id));
+    }
+
+    public List<Prescription> findByPatientId(String patientId) {
+        return ObjectId.isValid(patientId) ? findByPatientId(new ObjectId(patientId)) : new ArrayList<>();
+    }
+
     public List<Prescription> findByPatientId(ObjectId patientId) {
         List<Prescription> prescriptions = new ArrayList<>();
-        collection.find(Filters.eq("patientId", patientId))
+        entities.find(Filters.eq("patientId", patientId))
                  .sort(new Document("dateIssued", -1))
-                 .forEach(doc -> prescriptions.add(documentToEntity(doc)));
+                 .into(prescriptions);
         return prescriptions;
     }
 
+    public Page<Prescription> findPageByPatientId(ObjectId patientId, int pageSize, String continuationToken) {
+        return findPage(Filters.eq("patientId", patientId), "-dateIssued,-_id", pageSize, continuationToken);
+    }
+
+    public Stream<Prescription> streamByDoctorId(ObjectId doctorId, int batchSize) {
+        return stream(Filters.eq("doctorId", doctorId), batchSize);
+    }
+
+    public Stream<Prescription> streamAll(int batchSize) {
+        return stream(null, batchSize);
+    }
+
     public List<Prescription> findByDoctorId(ObjectId doctorId) {
         List<Prescription> prescriptions = new ArrayList<>();
-        collection.find(Filters.eq("doctorId", doctorId))
+        entities.find(Filters.eq("doctorId", doctorId))
                  .sort(new Document("dateIssued", -1))
-                 .forEach(doc -> prescriptions.add(documentToEntity(doc)));
+                 .into(prescriptions);
         return prescriptions;
     }
     
+    /** Prescriptions by this doctor whose follow-up date is still ahead (after today). */
     public long countPendingPrescriptions(ObjectId doctorId) {
         return collection.countDocuments(
             Filters.and(
-                Filters.eq("doctorId", doctorId.toString()),
-                Filters.eq("status", "PENDING")
+                Filters.eq("doctorId", doctorId),
+                Filters.gte("followUpDate", BsonDates.startOfNextDay(LocalDate.now()))
             )
         );
     }
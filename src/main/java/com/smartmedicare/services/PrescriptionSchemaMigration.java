@@ -0,0 +1,115 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.smartmedicare.utils.BsonDates;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Rewrites prescriptions written by either legacy DAO into the single typed
+ * schema: ObjectId {@code patientId}/{@code doctorId} and BSON dates (UTC
+ * midnight, see {@link BsonDates}) for {@code dateIssued}/{@code followUpDate}.
+ * <p>
+ * The old {@code dao.PrescriptionDAO} stored string ids with dates at local
+ * midnight of the JVM's zone, so for those documents dates are re-based using
+ * the zone this migration runs in. Safe to run on every startup: converted
+ * documents no longer match the legacy filter.
+ */
+public class PrescriptionSchemaMigration {
+    private static final int BATCH_SIZE = 500;
+
+    private static final Bson LEGACY = Filters.or(
+        Filters.type("patientId", "string"),
+        Filters.type("doctorId", "string"),
+        Filters.type("dateIssued", "string"),
+        Filters.type("followUpDate", "string")
+    );
+
+    private final MongoCollection<Document> prescriptions;
+
+    public PrescriptionSchemaMigration() {
+        this(DatabaseService.getInstance().getDatabase());
+    }
+
+    public PrescriptionSchemaMigration(MongoDatabase database) {
+        this.prescriptions = database.getCollection(DatabaseConfig.PRESCRIPTIONS_COLLECTION);
+    }
+
+    /** Converts every legacy prescription and returns the number of documents updated. */
+    public long run() {
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        long skipped = 0;
+
+        for (Document doc : prescriptions.find(LEGACY)
+                .projection(Projections.include("patientId", "doctorId", "dateIssued", "followUpDate"))
+                .batchSize(BATCH_SIZE)) {
+            Document set;
+            try {
+                set = convert(doc);
+            } catch (RuntimeException e) {
+                skipped++;
+                System.err.println("Skipping prescription " + doc.get("_id") + ": " + e.getMessage());
+                continue;
+            }
+            batch.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), LEGACY),
+                new Document("$set", set)
+            ));
+            if (batch.size() == BATCH_SIZE) {
+                migrated += flush(batch);
+            }
+        }
+        migrated += flush(batch);
+
+        if (migrated > 0 || skipped > 0) {
+            System.out.println("Migrated " + migrated + " prescriptions to the typed schema"
+                + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
+        }
+        return migrated;
+    }
+
+    private static Document convert(Document doc) {
+        // String ids mean the document came from dao.PrescriptionDAO and its dates are zone-local
+        boolean zoneLocalDates = doc.get("patientId") instanceof String;
+        Document set = new Document();
+        for (String field : new String[] { "patientId", "doctorId" }) {
+            if (doc.get(field) instanceof String hex) {
+                set.append(field, new ObjectId(hex));
+            }
+        }
+        for (String field : new String[] { "dateIssued", "followUpDate" }) {
+            Object value = doc.get(field);
+            if (value instanceof String text) {
+                set.append(field, BsonDates.toDate(LocalDate.parse(text)));
+            } else if (value instanceof Date date && zoneLocalDates) {
+                set.append(field, BsonDates.toDate(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()));
+            }
+        }
+        return set;
+    }
+
+    private long flush(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long modified = prescriptions.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+}
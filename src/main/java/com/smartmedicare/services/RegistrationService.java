@@ -58,7 +58,7 @@ public class RegistrationService {
             // Also persist into role-specific patients collection for downstream DAOs/controllers
             try {
                 PatientDAO patientDAO = new PatientDAO();
-                patientDAO.insert(patientDAO.entityToDocument(patient));
+                patientDAO.insertEntity(patient);
             } catch (Exception ex) {
                 System.err.println("Warning: Failed to save patient into patients collection: " + ex.getMessage());
             }
@@ -103,6 +103,7 @@ public class RegistrationService {
             doctor.setUserType(User.UserType.DOCTOR);
             doctor.setSpecialization(specialization);
             doctor.setSchedule(schedule);
+            doctor.setWeeklySchedule(ScheduleParser.parse(schedule));
 
             // Save into unified users collection
             userDAO.save(doctor);
@@ -110,7 +111,7 @@ public class RegistrationService {
             // Also persist into role-specific doctors collection for downstream DAOs/controllers
             try {
                 DoctorDAO doctorDAO = new DoctorDAO();
-                doctorDAO.insert(doctorDAO.entityToDocument(doctor));
+                doctorDAO.insertEntity(doctor);
             } catch (Exception ex) {
                 System.err.println("Warning: Failed to save doctor into doctors collection: " + ex.getMessage());
             }
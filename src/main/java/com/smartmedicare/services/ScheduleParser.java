@@ -0,0 +1,198 @@
+package com.smartmedicare.services;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.smartmedicare.models.ScheduleException;
+import com.smartmedicare.models.TimeRange;
+import com.smartmedicare.models.WeeklySchedule;
+
+/**
+ * Parses the free-text {@code Doctor.schedule} strings into a {@link WeeklySchedule}.
+ * One entry per line (or separated by {@code ;}):
+ * <ul>
+ *   <li>{@code Mon-Fri 9:00-17:00}, {@code Monday: 9:00 AM - 5:00 PM},
+ *       {@code Mon, Wed 8-12, 13-17}, {@code Weekdays 9-5}, {@code Daily 10:00-14:00}</li>
+ *   <li>{@code Leave: 2024-12-24, 2024-12-30..2025-01-02} for days off</li>
+ *   <li>{@code 2024-12-31: 9:00-12:00} to change the hours of one date</li>
+ *   <li>{@code Slot: 30 min} for the appointment length</li>
+ * </ul>
+ * Two days joined by a dash are a range ({@code Mon-Fri}, {@code Mon - Fri},
+ * {@code Tue-Thu}); three or more are a list ({@code Mon-Wed-Fri}). Entries that
+ * cannot be read, including impossible times such as {@code Mon 9:75-10} or
+ * {@code Tue 25-26}, are logged and skipped. Returns {@code null} when no working
+ * hours can be recognised.
+ */
+public final class ScheduleParser {
+    private static final Pattern LEAVE = Pattern.compile("^(?:leave|off|closed|holidays?)\\s*:?\\s*(.+)$");
+    private static final Pattern DATED = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2})\\s*:?\\s*(.+)$");
+    private static final Pattern SLOT = Pattern.compile("^slots?(?: length)?\\s*:?\\s*(\\d+)\\s*(?:m|min|mins|minutes)?$");
+    private static final Pattern TIME_RANGE = Pattern.compile(
+        "(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?\\s*(?:-|\u2013|to)\\s*(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?");
+    private static final Pattern DATE_RANGE = Pattern.compile(
+        "(\\d{4}-\\d{2}-\\d{2})(?:\\s*(?:\\.\\.|to)\\s*(\\d{4}-\\d{2}-\\d{2}))?");
+
+    private ScheduleParser() {
+    }
+
+    public static WeeklySchedule parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        WeeklySchedule schedule = new WeeklySchedule();
+        for (String rawEntry : text.split("[\\r\\n;]+")) {
+            String entry = rawEntry.trim().toLowerCase(Locale.ROOT);
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                parseEntry(entry, schedule);
+            } catch (DateTimeException | IllegalArgumentException e) {
+                System.err.println("Ignoring schedule entry '" + rawEntry.trim() + "': " + e.getMessage());
+            }
+        }
+        return schedule.isEmpty() ? null : schedule;
+    }
+
+    /** Parses {@code text}, falling back to {@link WeeklySchedule#defaultSchedule()} when it is not understood. */
+    public static WeeklySchedule parseOrDefault(String text) {
+        WeeklySchedule schedule = parse(text);
+        return schedule != null ? schedule : WeeklySchedule.defaultSchedule();
+    }
+
+    private static void parseEntry(String entry, WeeklySchedule schedule) {
+        Matcher m;
+        if ((m = SLOT.matcher(entry)).matches()) {
+            schedule.setSlotMinutes(Integer.parseInt(m.group(1)));
+        } else if ((m = LEAVE.matcher(entry)).matches()) {
+            Matcher dates = DATE_RANGE.matcher(m.group(1));
+            while (dates.find()) {
+                LocalDate from = LocalDate.parse(dates.group(1));
+                LocalDate to = dates.group(2) != null ? LocalDate.parse(dates.group(2)) : from;
+                schedule.addLeave(from, to, "Leave");
+            }
+        } else if ((m = DATED.matcher(entry)).matches()) {
+            LocalDate date = LocalDate.parse(m.group(1));
+            List<TimeRange> hours = parseTimeRanges(m.group(2));
+            schedule.addException(new ScheduleException(date, hours, hours.isEmpty() ? "Leave" : null));
+        } else {
+            int firstDigit = firstDigit(entry);
+            if (firstDigit < 0) {
+                throw new IllegalArgumentException("no working hours");
+            }
+            Set<DayOfWeek> days = parseDays(entry.substring(0, firstDigit));
+            List<TimeRange> hours = parseTimeRanges(entry.substring(firstDigit));
+            if (days.isEmpty() || hours.isEmpty()) {
+                throw new IllegalArgumentException("no days or hours recognised");
+            }
+            for (DayOfWeek day : days) {
+                for (TimeRange range : hours) {
+                    schedule.addHours(day, range);
+                }
+            }
+        }
+    }
+
+    private static int firstDigit(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isDigit(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Set<DayOfWeek> parseDays(String text) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        // "Mon - Fri" is one range, not two days
+        String spec = text.replace(":", " ").trim().replaceAll("\\s*([-\u2013])\\s*", "$1");
+        if (spec.matches("(every ?day|daily|all days)")) {
+            return EnumSet.allOf(DayOfWeek.class);
+        }
+        for (String token : spec.split("\\s*(?:,|/|&|\\band\\b|\\s)\\s*")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            switch (token) {
+                case "weekdays" -> days.addAll(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+                case "weekends", "weekend" -> days.addAll(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+                default -> {
+                    String[] parts = token.split("\\s*(?:-|\u2013)\\s*");
+                    if (parts.length == 2) {
+                        DayOfWeek from = day(parts[0]);
+                        DayOfWeek to = day(parts[1]);
+                        for (DayOfWeek d = from; ; d = d.plus(1)) {
+                            days.add(d);
+                            if (d == to) {
+                                break;
+                            }
+                        }
+                    } else {
+                        for (String part : parts) {
+                            days.add(day(part));
+                        }
+                    }
+                }
+            }
+        }
+        return days;
+    }
+
+    private static DayOfWeek day(String name) {
+        if (name.length() >= 2) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day.name().toLowerCase(Locale.ROOT).startsWith(name.replace(".", ""))) {
+                    return day;
+                }
+            }
+        }
+        throw new IllegalArgumentException("unknown day '" + name + "'");
+    }
+
+    private static List<TimeRange> parseTimeRanges(String text) {
+        List<TimeRange> ranges = new ArrayList<>();
+        Matcher m = TIME_RANGE.matcher(text);
+        while (m.find()) {
+            String startMeridiem = m.group(3);
+            String endMeridiem = m.group(6);
+            LocalTime end = time(m.group(4), m.group(5), endMeridiem, true);
+            LocalTime start = time(m.group(1), m.group(2), startMeridiem, false);
+            // "1-5pm": an unmarked start shares the end's pm when that still precedes the end
+            if (startMeridiem == null && "pm".equals(endMeridiem)) {
+                LocalTime afternoon = time(m.group(1), m.group(2), "pm", false);
+                if (afternoon.isBefore(end)) {
+                    start = afternoon;
+                }
+            }
+            // "9-5" without am/pm means an afternoon end
+            if (endMeridiem == null && !end.isAfter(start) && end.getHour() < 12) {
+                end = end.plusHours(12);
+            }
+            ranges.add(new TimeRange(start, end));
+        }
+        return ranges;
+    }
+
+    private static LocalTime time(String hourText, String minuteText, String meridiem, boolean isEnd) {
+        int hour = Integer.parseInt(hourText);
+        int minute = minuteText != null ? Integer.parseInt(minuteText) : 0;
+        if ("pm".equals(meridiem) && hour < 12) {
+            hour += 12;
+        } else if ("am".equals(meridiem) && hour == 12) {
+            hour = 0;
+        }
+        if (isEnd && hour == 24 && minute == 0) {
+            return LocalTime.MAX;
+        }
+        return LocalTime.of(hour, minute);
+    }
+}
@@ -0,0 +1,194 @@
+package com.smartmedicare.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Bounded LRU cache of booked slots per doctor and day. Each day is a bitmap
+ * with one bit per {@value #SLOT_MINUTES}-minute slot, loaded with a single
+ * range query and then kept current in place by {@link AppointmentDAO} as
+ * bookings and cancellations go through it. Entries also expire after a short
+ * age so bookings made by other clients show up; the unique slot index stays
+ * the source of truth for conflicts.
+ */
+public class SlotAvailabilityCache {
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static final int MAX_ENTRIES = 2048;
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static SlotAvailabilityCache instance;
+
+    private record Key(ObjectId doctorId, LocalDate date) {
+    }
+
+    private static final class Entry {
+        final BitSet booked;
+        final long loadedAt;
+
+        Entry(BitSet booked, long loadedAt) {
+            this.booked = booked;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // Marks made while a day is loading; the load may or may not have seen them, so they are applied on top
+    private static final class Load {
+        final BitSet booked = new BitSet(SLOTS_PER_DAY);
+        final BitSet freed = new BitSet(SLOTS_PER_DAY);
+        int loaders;
+        boolean invalidated;
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Map<Key, Load> loads = new HashMap<>();
+    private final BiFunction<ObjectId, LocalDate, List<LocalDateTime>> loader;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SlotAvailabilityCache(BiFunction<ObjectId, LocalDate, List<LocalDateTime>> loader) {
+        this.loader = loader;
+    }
+
+    public static synchronized SlotAvailabilityCache getInstance() {
+        if (instance == null) {
+            AppointmentDAO appointmentDAO = new AppointmentDAO();
+            instance = new SlotAvailabilityCache(appointmentDAO::findBookedTimesOn);
+        }
+        return instance;
+    }
+
+    public static int slotIndex(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / SLOT_MINUTES;
+    }
+
+    /**
+     * Returns a copy of the day's booked-slot bitmap, loading it on a miss. The
+     * query runs outside the lock; bookings and cancellations marked meanwhile
+     * are applied to its result, and a day invalidated meanwhile is not cached.
+     */
+    public BitSet bookedSlots(ObjectId doctorId, LocalDate date) {
+        Key key = new Key(doctorId, date);
+        Load load;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < MAX_AGE_NANOS) {
+                hits.incrementAndGet();
+                return (BitSet) entry.booked.clone();
+            }
+            load = loads.computeIfAbsent(key, k -> new Load());
+            load.loaders++;
+        }
+        misses.incrementAndGet();
+        BitSet booked = new BitSet(SLOTS_PER_DAY);
+        try {
+            for (LocalDateTime time : loader.apply(doctorId, date)) {
+                booked.set(slotIndex(time.toLocalTime()));
+            }
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                finishLoad(key, load);
+            }
+            throw e;
+        }
+        // One critical section, so no mark can land between folding the load in and caching the result
+        synchronized (entries) {
+            booked.or(load.booked);
+            booked.andNot(load.freed);
+            if (!load.invalidated) {
+                entries.put(key, new Entry(booked, System.nanoTime()));
+            }
+            finishLoad(key, load);
+        }
+        return (BitSet) booked.clone();
+    }
+
+    // Caller holds the entries lock
+    private void finishLoad(Key key, Load load) {
+        if (--load.loaders == 0) {
+            loads.remove(key, load);
+        }
+    }
+
+    public boolean isBooked(ObjectId doctorId, LocalDateTime slotStart) {
+        return bookedSlots(doctorId, slotStart.toLocalDate()).get(slotIndex(slotStart.toLocalTime()));
+    }
+
+    public void markBooked(ObjectId doctorId, LocalDateTime slotStart) {
+        update(doctorId, slotStart, true);
+    }
+
+    public void markFree(ObjectId doctorId, LocalDateTime slotStart) {
+        update(doctorId, slotStart, false);
+    }
+
+    // Only days cached or loading are touched; others load fresh on their next lookup
+    private void update(ObjectId doctorId, LocalDateTime slotStart, boolean booked) {
+        if (doctorId == null || slotStart == null) {
+            return;
+        }
+        Key key = new Key(doctorId, slotStart.toLocalDate());
+        int slot = slotIndex(slotStart.toLocalTime());
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.booked.set(slot, booked);
+            }
+            Load load = loads.get(key);
+            if (load != null) {
+                load.booked.set(slot, booked);
+                load.freed.set(slot, !booked);
+            }
+        }
+    }
+
+    public void invalidate(ObjectId doctorId, LocalDate date) {
+        Key key = new Key(doctorId, date);
+        synchronized (entries) {
+            entries.remove(key);
+            Load load = loads.remove(key);
+            if (load != null) {
+                load.invalidated = true;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            for (Load load : loads.values()) {
+                load.invalidated = true;
+            }
+            loads.clear();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return "slot cache: entries=" + size + ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.smartmedicare.services.codecs;
+
+import static com.smartmedicare.services.codecs.CodecSupport.readLocalDateTime;
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.readString;
+import static com.smartmedicare.services.codecs.CodecSupport.writeDateTime;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.writeString;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Appointment;
+
+/**
+ * Reads and writes {@link Appointment} directly from BSON, matching the layout
+ * of {@code AppointmentDAO.entityToDocument}.
+ */
+public class AppointmentCodec implements CollectibleCodec<Appointment> {
+
+    @Override
+    public void encode(BsonWriter writer, Appointment appointment, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", appointment.getId());
+        writeObjectId(writer, "patientId", appointment.getPatientId());
+        writeObjectId(writer, "doctorId", appointment.getDoctorId());
+        writeDateTime(writer, "dateTime", appointment.getDateTime());
+        writeString(writer, "status", appointment.getStatus());
+        writeString(writer, "reason", appointment.getReason());
+        writeString(writer, "notes", appointment.getNotes());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Appointment decode(BsonReader reader, DecoderContext decoderContext) {
+        Appointment appointment = new Appointment();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> appointment.setId(readObjectId(reader));
+                case "patientId" -> appointment.setPatientId(readObjectId(reader));
+                case "doctorId" -> appointment.setDoctorId(readObjectId(reader));
+                case "dateTime" -> appointment.setDateTime(readLocalDateTime(reader));
+                case "status" -> appointment.setStatus(readString(reader));
+                case "reason" -> appointment.setReason(readString(reader));
+                case "notes" -> appointment.setNotes(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return appointment;
+    }
+
+    @Override
+    public Class<Appointment> getEncoderClass() {
+        return Appointment.class;
+    }
+
+    @Override
+    public Appointment generateIdIfAbsentFromDocument(Appointment appointment) {
+        if (appointment.getId() == null) {
+            appointment.setId(new ObjectId());
+        }
+        return appointment;
+    }
+
+    @Override
+    public boolean documentHasId(Appointment appointment) {
+        return appointment.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Appointment appointment) {
+        return new BsonObjectId(appointment.getId());
+    }
+}
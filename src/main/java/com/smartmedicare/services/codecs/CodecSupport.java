@@ -0,0 +1,186 @@
+package com.smartmedicare.services.codecs;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.utils.BsonDates;
+
+/**
+ * Field readers and writers shared by the domain codecs. Readers accept the
+ * legacy shapes still found in older documents (ISO strings for dates, hex
+ * strings for ids) so codecs and Document mappers agree on every record.
+ * Writers skip {@code null} values instead of storing explicit nulls.
+ */
+final class CodecSupport {
+    private CodecSupport() {
+    }
+
+    static String readString(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.STRING) {
+            return reader.readString();
+        }
+        if (type == BsonType.OBJECT_ID) {
+            return reader.readObjectId().toHexString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static ObjectId readObjectId(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.OBJECT_ID) {
+            return reader.readObjectId();
+        }
+        if (type == BsonType.STRING) {
+            String hex = reader.readString();
+            return ObjectId.isValid(hex) ? new ObjectId(hex) : null;
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static List<ObjectId> readObjectIdList(BsonReader reader) {
+        List<ObjectId> ids = new ArrayList<>();
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return ids;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            ObjectId id = readObjectId(reader);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        reader.readEndArray();
+        return ids;
+    }
+
+    static LocalDateTime readLocalDateTime(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.DATE_TIME) {
+            return BsonDates.toLocalDateTime(new Date(reader.readDateTime()));
+        }
+        if (type == BsonType.STRING) {
+            return BsonDates.toLocalDateTime((Object) reader.readString());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static LocalDate readLocalDate(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.DATE_TIME) {
+            return BsonDates.toLocalDateTime(new Date(reader.readDateTime())).toLocalDate();
+        }
+        if (type == BsonType.STRING) {
+            String text = reader.readString();
+            return text.isEmpty() ? null : LocalDate.parse(text);
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static Map<String, String> readStringMap(BsonReader reader) {
+        Map<String, String> map = new HashMap<>();
+        if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+            reader.skipValue();
+            return map;
+        }
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String key = reader.readName();
+            map.put(key, readString(reader));
+        }
+        reader.readEndDocument();
+        return map;
+    }
+
+    static Map<String, Double> readDoubleMap(BsonReader reader) {
+        Map<String, Double> map = new HashMap<>();
+        if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+            reader.skipValue();
+            return map;
+        }
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String key = reader.readName();
+            switch (reader.getCurrentBsonType()) {
+                case DOUBLE -> map.put(key, reader.readDouble());
+                case INT32 -> map.put(key, (double) reader.readInt32());
+                case INT64 -> map.put(key, (double) reader.readInt64());
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return map;
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeObjectId(BsonWriter writer, String name, ObjectId value) {
+        if (value != null) {
+            writer.writeObjectId(name, value);
+        }
+    }
+
+    static void writeObjectIdList(BsonWriter writer, String name, List<ObjectId> ids) {
+        if (ids == null) {
+            return;
+        }
+        writer.writeStartArray(name);
+        for (ObjectId id : ids) {
+            if (id != null) {
+                writer.writeObjectId(id);
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    static void writeDateTime(BsonWriter writer, String name, LocalDateTime value) {
+        if (value != null) {
+            writer.writeDateTime(name, BsonDates.toDate(value).getTime());
+        }
+    }
+
+    static void writeStringMap(BsonWriter writer, String name, Map<String, String> map) {
+        if (map == null) {
+            return;
+        }
+        writer.writeStartDocument(name);
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writer.writeString(entry.getKey(), entry.getValue());
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    static void writeDoubleMap(BsonWriter writer, String name, Map<String, Double> map) {
+        if (map == null) {
+            return;
+        }
+        writer.writeStartDocument(name);
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writer.writeDouble(entry.getKey(), entry.getValue());
+            }
+        }
+        writer.writeEndDocument();
+    }
+}
@@ -0,0 +1,107 @@
+package com.smartmedicare.services.codecs;
+
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectIdList;
+import static com.smartmedicare.services.codecs.CodecSupport.readString;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectIdList;
+import static com.smartmedicare.services.codecs.CodecSupport.writeString;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.WeeklySchedule;
+import com.smartmedicare.services.DoctorDAO;
+
+/**
+ * Reads and writes {@link Doctor} directly from BSON, matching the layout of
+ * {@code DoctorDAO.entityToDocument}.
+ */
+public class DoctorCodec implements CollectibleCodec<Doctor> {
+    // The schedule is a small nested structure; it shares DoctorDAO's mapping rather than a codec of its own
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    @Override
+    public void encode(BsonWriter writer, Doctor doctor, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", doctor.getId());
+        writeString(writer, "username", doctor.getUsername());
+        writeString(writer, "password", doctor.getPassword());
+        writeString(writer, "name", doctor.getName());
+        writeString(writer, "email", doctor.getEmail());
+        writeString(writer, "contact", doctor.getContact());
+        writeString(writer, "specialization", doctor.getSpecialization());
+        writeString(writer, "schedule", doctor.getSchedule());
+        writeObjectIdList(writer, "assignedPatients", doctor.getAssignedPatients());
+        writeObjectIdList(writer, "appointments", doctor.getAppointments());
+        writer.writeString("userType", "DOCTOR");
+        if (doctor.getWeeklySchedule() != null) {
+            writer.writeName("weeklySchedule");
+            DOCUMENT_CODEC.encode(writer, DoctorDAO.scheduleToDocument(doctor.getWeeklySchedule()), encoderContext);
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Doctor decode(BsonReader reader, DecoderContext decoderContext) {
+        Doctor doctor = new Doctor();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> doctor.setId(readObjectId(reader));
+                case "username" -> doctor.setUsername(readString(reader));
+                case "password" -> doctor.setPassword(readString(reader));
+                case "name" -> doctor.setName(readString(reader));
+                case "email" -> doctor.setEmail(readString(reader));
+                case "contact" -> doctor.setContact(readString(reader));
+                case "specialization" -> doctor.setSpecialization(readString(reader));
+                case "schedule" -> doctor.setSchedule(readString(reader));
+                case "assignedPatients" -> doctor.setAssignedPatients(readObjectIdList(reader));
+                case "appointments" -> doctor.setAppointments(readObjectIdList(reader));
+                case "weeklySchedule" -> doctor.setWeeklySchedule(reader.getCurrentBsonType() == BsonType.DOCUMENT
+                    ? DoctorDAO.documentToSchedule(DOCUMENT_CODEC.decode(reader, decoderContext))
+                    : skip(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return doctor;
+    }
+
+    private static WeeklySchedule skip(BsonReader reader) {
+        reader.skipValue();
+        return null;
+    }
+
+    @Override
+    public Class<Doctor> getEncoderClass() {
+        return Doctor.class;
+    }
+
+    @Override
+    public Doctor generateIdIfAbsentFromDocument(Doctor doctor) {
+        if (doctor.getId() == null) {
+            doctor.setId(new ObjectId());
+        }
+        return doctor;
+    }
+
+    @Override
+    public boolean documentHasId(Doctor doctor) {
+        return doctor.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Doctor doctor) {
+        return new BsonObjectId(doctor.getId());
+    }
+}
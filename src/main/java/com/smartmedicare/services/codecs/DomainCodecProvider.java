@@ -0,0 +1,34 @@
+package com.smartmedicare.services.codecs;
+
+import java.util.Map;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.MedicalRecord;
+import com.smartmedicare.models.Patient;
+import com.smartmedicare.models.Prescription;
+
+/**
+ * Supplies the hand-written codecs for the domain models. Registered ahead of
+ * the reflective POJO provider so typed collections of these classes skip both
+ * reflection and the intermediate {@code Document}.
+ */
+public class DomainCodecProvider implements CodecProvider {
+    private final Map<Class<?>, Codec<?>> codecs = Map.of(
+        Patient.class, new PatientCodec(),
+        Doctor.class, new DoctorCodec(),
+        Appointment.class, new AppointmentCodec(),
+        MedicalRecord.class, new MedicalRecordCodec(),
+        Prescription.class, new PrescriptionCodec()
+    );
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        return (Codec<T>) codecs.get(clazz);
+    }
+}
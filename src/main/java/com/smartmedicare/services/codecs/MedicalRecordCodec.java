@@ -0,0 +1,100 @@
+package com.smartmedicare.services.codecs;
+
+import static com.smartmedicare.services.codecs.CodecSupport.readDoubleMap;
+import static com.smartmedicare.services.codecs.CodecSupport.readLocalDateTime;
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.readString;
+import static com.smartmedicare.services.codecs.CodecSupport.readStringMap;
+import static com.smartmedicare.services.codecs.CodecSupport.writeDoubleMap;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.writeString;
+import static com.smartmedicare.services.codecs.CodecSupport.writeStringMap;
+
+import java.util.HashMap;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.MedicalRecord;
+
+/**
+ * Reads and writes {@link MedicalRecord} directly from BSON, matching the layout
+ * of {@code MedicalRecordDAO.entityToDocument} (record dates stay ISO strings).
+ */
+public class MedicalRecordCodec implements CollectibleCodec<MedicalRecord> {
+
+    @Override
+    public void encode(BsonWriter writer, MedicalRecord record, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", record.getId());
+        writeObjectId(writer, "patientId", record.getPatientId());
+        if (record.getRecordDate() != null) {
+            writer.writeString("recordDate", record.getRecordDate().toString());
+        }
+        writeStringMap(writer, "symptoms", record.getSymptoms());
+        writeDoubleMap(writer, "vitalSigns", record.getVitalSigns());
+        writeString(writer, "diagnosis", record.getDiagnosis());
+        writeString(writer, "confirmedDiagnosis", record.getConfirmedDiagnosis());
+        writeString(writer, "aiPrediction", record.getAiPrediction());
+        writeString(writer, "severity", record.getSeverity());
+        writeString(writer, "treatmentPlan", record.getTreatmentPlan());
+        writeString(writer, "notes", record.getNotes());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public MedicalRecord decode(BsonReader reader, DecoderContext decoderContext) {
+        MedicalRecord record = new MedicalRecord();
+        record.setSymptoms(new HashMap<>());
+        record.setVitalSigns(new HashMap<>());
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> record.setId(readObjectId(reader));
+                case "patientId" -> record.setPatientId(readObjectId(reader));
+                case "recordDate" -> record.setRecordDate(readLocalDateTime(reader));
+                case "symptoms" -> record.setSymptoms(readStringMap(reader));
+                case "vitalSigns" -> record.setVitalSigns(readDoubleMap(reader));
+                case "diagnosis" -> record.setDiagnosis(readString(reader));
+                case "confirmedDiagnosis" -> record.setConfirmedDiagnosis(readString(reader));
+                case "aiPrediction" -> record.setAiPrediction(readString(reader));
+                case "severity" -> record.setSeverity(readString(reader));
+                case "treatmentPlan" -> record.setTreatmentPlan(readString(reader));
+                case "notes" -> record.setNotes(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return record;
+    }
+
+    @Override
+    public Class<MedicalRecord> getEncoderClass() {
+        return MedicalRecord.class;
+    }
+
+    @Override
+    public MedicalRecord generateIdIfAbsentFromDocument(MedicalRecord record) {
+        if (record.getId() == null) {
+            record.setId(new ObjectId());
+        }
+        return record;
+    }
+
+    @Override
+    public boolean documentHasId(MedicalRecord record) {
+        return record.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(MedicalRecord record) {
+        return new BsonObjectId(record.getId());
+    }
+}
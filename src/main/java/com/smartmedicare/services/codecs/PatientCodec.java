@@ -0,0 +1,112 @@
+package com.smartmedicare.services.codecs;
+
+import static com.smartmedicare.services.codecs.CodecSupport.readLocalDate;
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.readObjectIdList;
+import static com.smartmedicare.services.codecs.CodecSupport.readString;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectId;
+import static com.smartmedicare.services.codecs.CodecSupport.writeObjectIdList;
+import static com.smartmedicare.services.codecs.CodecSupport.writeString;
+
+import java.util.ArrayList;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Patient;
+import com.smartmedicare.services.PatientDAO;
+
+/**
+ * Reads and writes {@link Patient} directly from BSON, matching the layout of
+ * {@code PatientDAO.entityToDocument} including the derived {@code searchTokens}.
+ */
+public class PatientCodec implements CollectibleCodec<Patient> {
+
+    @Override
+    public void encode(BsonWriter writer, Patient patient, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", patient.getId());
+        writeString(writer, "username", patient.getUsername());
+        writeString(writer, "password", patient.getPassword());
+        writeString(writer, "name", patient.getName());
+        writeString(writer, "email", patient.getEmail());
+        writeString(writer, "contact", patient.getContact());
+        if (patient.getDateOfBirth() != null) {
+            writer.writeString("dateOfBirth", patient.getDateOfBirth().toString());
+        }
+        writeString(writer, "gender", patient.getGender());
+        writeString(writer, "bloodGroup", patient.getBloodGroup());
+        writeString(writer, "doctorNotes", patient.getDoctorNotes());
+        writeObjectId(writer, "attendingDoctorId", patient.getAttendingDoctorId());
+        writeObjectIdList(writer, "medicalHistory", patient.getMedicalHistory());
+        writeObjectIdList(writer, "appointments", patient.getAppointments());
+        writeObjectIdList(writer, "prescriptions", patient.getPrescriptions());
+        writer.writeString("userType", "PATIENT");
+        writer.writeStartArray("searchTokens");
+        for (String token : PatientDAO.searchTokens(patient)) {
+            writer.writeString(token);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Patient decode(BsonReader reader, DecoderContext decoderContext) {
+        Patient patient = new Patient();
+        patient.setMedicalHistory(new ArrayList<>());
+        patient.setAppointments(new ArrayList<>());
+        patient.setPrescriptions(new ArrayList<>());
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> patient.setId(readObjectId(reader));
+                case "username" -> patient.setUsername(readString(reader));
+                case "password" -> patient.setPassword(readString(reader));
+                case "name" -> patient.setName(readString(reader));
+                case "email" -> patient.setEmail(readString(reader));
+                case "contact" -> patient.setContact(readString(reader));
+                case "dateOfBirth" -> patient.setDateOfBirth(readLocalDate(reader));
+                case "gender" -> patient.setGender(readString(reader));
+                case "bloodGroup" -> patient.setBloodGroup(readString(reader));
+                case "doctorNotes" -> patient.setDoctorNotes(readString(reader));
+                case "attendingDoctorId" -> patient.setAttendingDoctorId(readObjectId(reader));
+                case "medicalHistory" -> patient.setMedicalHistory(readObjectIdList(reader));
+                case "appointments" -> patient.setAppointments(readObjectIdList(reader));
+                case "prescriptions" -> patient.setPrescriptions(readObjectIdList(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return patient;
+    }
+
+    @Override
+    public Class<Patient> getEncoderClass() {
+        return Patient.class;
+    }
+
+    @Override
+    public Patient generateIdIfAbsentFromDocument(Patient patient) {
+        if (patient.getId() == null) {
+            patient.setId(new ObjectId());
+        }
+        return patient;
+    }
+
+    @Override
+    public boolean documentHasId(Patient patient) {
+        return patient.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Patient patient) {
+        return new BsonObjectId(patient.getId());
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartmedicare.services.codecs;
+
+import static com.smartmedicare.services.codecs.CodecSupport.readLocalDate;
+import static com.smartmedicare.services.codecs.CodecSupport.readString;
+import static com.smartmedicare.services.codecs.CodecSupport.writeString;
+
+import java.time.LocalDate;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Prescription;
+import com.smartmedicare.utils.BsonDates;
+
+/**
+ * Reads and writes {@link Prescription} directly from BSON in the typed schema
+ * of {@code PrescriptionDAO}. Reads still accept the string ids and ISO dates of
+ * documents not yet converted by {@code PrescriptionSchemaMigration}.
+ */
+public class PrescriptionCodec implements CollectibleCodec<Prescription> {
+
+    @Override
+    public void encode(BsonWriter writer, Prescription prescription, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeHexId(writer, "_id", prescription.getId());
+        writeHexId(writer, "patientId", prescription.getPatientId());
+        writeHexId(writer, "doctorId", prescription.getDoctorId());
+        writeDate(writer, "dateIssued", prescription.getDateIssued());
+        writeString(writer, "medicines", prescription.getMedicines());
+        writeString(writer, "diagnosis", prescription.getDiagnosis());
+        writeString(writer, "notes", prescription.getNotes());
+        writeString(writer, "doctorName", prescription.getDoctorName());
+        writeDate(writer, "followUpDate", prescription.getFollowUpDate());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Prescription decode(BsonReader reader, DecoderContext decoderContext) {
+        Prescription prescription = new Prescription();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> prescription.setId(readString(reader));
+                case "patientId" -> prescription.setPatientId(readString(reader));
+                case "doctorId" -> prescription.setDoctorId(readString(reader));
+                case "doctorName" -> prescription.setDoctorName(readString(reader));
+                case "dateIssued" -> prescription.setDateIssued(readLocalDate(reader));
+                case "diagnosis" -> prescription.setDiagnosis(readString(reader));
+                case "medicines" -> prescription.setMedicines(readString(reader));
+                case "notes" -> prescription.setNotes(readString(reader));
+                case "followUpDate" -> prescription.setFollowUpDate(readLocalDate(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return prescription;
+    }
+
+    private static void writeHexId(BsonWriter writer, String name, String hex) {
+        if (hex != null && !hex.isEmpty()) {
+            writer.writeObjectId(name, new ObjectId(hex));
+        }
+    }
+
+    private static void writeDate(BsonWriter writer, String name, LocalDate date) {
+        if (date != null) {
+            writer.writeDateTime(name, BsonDates.toDate(date).getTime());
+        }
+    }
+
+    @Override
+    public Class<Prescription> getEncoderClass() {
+        return Prescription.class;
+    }
+
+    @Override
+    public Prescription generateIdIfAbsentFromDocument(Prescription prescription) {
+        if (!documentHasId(prescription)) {
+            prescription.setId(new ObjectId().toHexString());
+        }
+        return prescription;
+    }
+
+    @Override
+    public boolean documentHasId(Prescription prescription) {
+        return prescription.getId() != null && !prescription.getId().isEmpty();
+    }
+
+    @Override
+    public BsonValue getDocumentId(Prescription prescription) {
+        return new BsonObjectId(new ObjectId(prescription.getId()));
+    }
+}
@@ -0,0 +1,182 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import weka.classifiers.AbstractClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * A trained diagnosis classifier together with everything needed to feed it:
+ * the empty dataset header (one 0/1 attribute per symptom, the diagnosis as the
+ * nominal class, last) and the symptom-to-attribute lookup. Built by
+ * {@link DiagnosisTrainer}. Predictions only read the model, so one instance
+ * serves any number of threads.
+ */
+public final class DiagnosisModel implements Serializable {
+    // 2: fields declared with serializable types; older files fail to load and are retrained
+    private static final long serialVersionUID = 2L;
+
+    private final AbstractClassifier classifier;
+    private final Instances header;
+    private final HashMap<String, Integer> attributes;
+    private final String classifierName;
+    private final long version;
+    private final int examples;
+    private final long trainingMillis;
+
+    DiagnosisModel(AbstractClassifier classifier, Instances header, Map<String, Integer> attributes,
+                   String classifierName, long version, int examples, long trainingMillis) {
+        this.classifier = classifier;
+        this.header = header;
+        this.attributes = new HashMap<>(attributes);
+        this.classifierName = classifierName;
+        this.version = version;
+        this.examples = examples;
+        this.trainingMillis = trainingMillis;
+    }
+
+    /** When the model was trained, in epoch milliseconds; newer models have larger versions. */
+    public long version() {
+        return version;
+    }
+
+    public String classifierName() {
+        return classifierName;
+    }
+
+    /** Medical records the model was trained on. */
+    public int examples() {
+        return examples;
+    }
+
+    public long trainingMillis() {
+        return trainingMillis;
+    }
+
+    public int diagnosisCount() {
+        return header.classAttribute().numValues();
+    }
+
+    public String diagnosis(int index) {
+        return header.classAttribute().value(index);
+    }
+
+    public int symptomCount() {
+        return attributes.size();
+    }
+
+    /** How many of {@code symptoms} the model saw during training. */
+    public int knownSymptoms(Collection<String> symptoms) {
+        int known = 0;
+        for (String symptom : symptoms) {
+            if (symptom != null && attributes.containsKey(SymptomKnowledgeBase.normalize(symptom))) {
+                known++;
+            }
+        }
+        return known;
+    }
+
+    /** Probability of every diagnosis for one patient, indexed like {@link #diagnosis(int)}. */
+    public double[] distribution(Collection<String> symptoms) throws Exception {
+        return classifier.distributionForInstance(toInstance(symptoms));
+    }
+
+    /**
+     * Distributions for several patients in one call, letting classifiers with a
+     * faster batch path use it.
+     */
+    public double[][] distributions(List<? extends Collection<String>> batch) throws Exception {
+        if (classifier.implementsMoreEfficientBatchPrediction()) {
+            Instances instances = new Instances(header, batch.size());
+            for (Collection<String> symptoms : batch) {
+                instances.add(toInstance(symptoms));
+            }
+            return classifier.distributionsForInstances(instances);
+        }
+        double[][] distributions = new double[batch.size()][];
+        for (int i = 0; i < batch.size(); i++) {
+            distributions[i] = distribution(batch.get(i));
+        }
+        return distributions;
+    }
+
+    // Sparse 0/1 row: present symptoms are 1, the class is missing
+    private Instance toInstance(Collection<String> symptoms) {
+        int[] indices = new int[symptoms.size() + 1];
+        int n = 0;
+        for (String symptom : symptoms) {
+            Integer index = symptom != null ? attributes.get(SymptomKnowledgeBase.normalize(symptom)) : null;
+            if (index != null) {
+                indices[n++] = index;
+            }
+        }
+        Arrays.sort(indices, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || indices[distinct - 1] != indices[i]) {
+                indices[distinct++] = indices[i];
+            }
+        }
+        double[] values = new double[distinct + 1];
+        Arrays.fill(values, 0, distinct, 1.0);
+        indices[distinct] = header.classIndex();
+        values[distinct] = Utils.missingValue();
+        Instance instance = new SparseInstance(1.0, values, Arrays.copyOf(indices, distinct + 1), header.numAttributes());
+        instance.setDataset(header);
+        return instance;
+    }
+
+    /** Writes the model to {@code target}, replacing it atomically; returns the file size. */
+    public long write(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(file))) {
+            out.writeObject(this);
+        }
+        long size = Files.size(temp);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    /** Reads a model written by {@link #write(Path)}; only load files this application wrote. */
+    public static DiagnosisModel read(Path source) throws IOException {
+        try (InputStream file = Files.newInputStream(source);
+             ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(file))) {
+            Object model = in.readObject();
+            if (!(model instanceof DiagnosisModel diagnosisModel)) {
+                throw new IOException(source + " does not contain a diagnosis model");
+            }
+            return diagnosisModel;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(source + " was written by an incompatible version: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s model version %d: %d diagnoses, %d symptoms, %d records, trained in %d ms",
+            classifierName, version, diagnosisCount(), symptomCount(), examples, trainingMillis);
+    }
+}
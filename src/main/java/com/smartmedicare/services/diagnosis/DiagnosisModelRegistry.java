@@ -0,0 +1,275 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.smartmedicare.services.LatencyHistogram;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Owns the live diagnosis model. The last persisted model is read on a
+ * background thread as soon as the registry is created, and the model is
+ * retrained from medical records every {@code diagnosis.model.retrainHours}
+ * (right after startup when there is no model yet). Loading and training never
+ * run on the caller's thread: until a model is live {@link #current()} returns
+ * null, and during a retrain it keeps returning the previous model. A finished
+ * model replaces the live one in a single swap, and only if its version is
+ * newer.
+ */
+public class DiagnosisModelRegistry implements DiagnosisModelRegistryMBean {
+    public static final String OBJECT_NAME = "com.smartmedicare:type=DiagnosisModel";
+
+    private static DiagnosisModelRegistry instance;
+
+    /** A live model and what was known about it when it was swapped in. */
+    public record Entry(DiagnosisModel model, long sizeBytes, String source) {
+    }
+
+    private final AtomicReference<Entry> current = new AtomicReference<>();
+    private final Path file;
+    private final ScheduledExecutorService worker;
+    private final AtomicBoolean retrainQueued = new AtomicBoolean();
+
+    private final LatencyHistogram predictionLatency = new LatencyHistogram();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder swaps = new LongAdder();
+    private final LongAdder retrains = new LongAdder();
+    private final LongAdder retrainFailures = new LongAdder();
+    private volatile long lastTrainingMillis = -1;
+    private volatile String lastRetrainError;
+
+    private DiagnosisModelRegistry(Path file, int retrainHours) {
+        this.file = file;
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "diagnosis-model");
+            thread.setDaemon(true);
+            // Training must not compete with the UI for CPU
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.execute(() -> {
+            registerMBean();
+            if (!load() && retrainHours > 0) {
+                retrainNow();
+            }
+        });
+        if (retrainHours > 0) {
+            worker.scheduleWithFixedDelay(this::retrainNow, retrainHours, retrainHours, TimeUnit.HOURS);
+        }
+    }
+
+    /** Creates the registry on first use, which starts loading the persisted model in the background. */
+    public static synchronized DiagnosisModelRegistry getInstance() {
+        if (instance == null) {
+            instance = new DiagnosisModelRegistry(DatabaseConfig.getDiagnosisModelPath(),
+                DatabaseConfig.getDiagnosisRetrainHours());
+        }
+        return instance;
+    }
+
+    /** The live model, or null while none is loaded. Never blocks. */
+    public DiagnosisModel current() {
+        Entry entry = current.get();
+        return entry != null ? entry.model() : null;
+    }
+
+    public Entry currentEntry() {
+        return current.get();
+    }
+
+    private boolean load() {
+        long start = System.nanoTime();
+        try {
+            DiagnosisModel model = DiagnosisModel.read(file);
+            long size = Files.size(file);
+            if (swap(new Entry(model, size, "file"))) {
+                System.out.printf("Loaded %s (%d bytes) in %.1f ms%n", model, size,
+                    (System.nanoTime() - start) / 1e6);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            System.out.println("No diagnosis model at " + file + "; using rule engine until one is trained");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not load diagnosis model " + file + "; using rule engine: " + e.getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    public void retrainNow() {
+        if (retrainQueued.compareAndSet(false, true)) {
+            try {
+                worker.execute(this::retrain);
+            } catch (RejectedExecutionException e) {
+                retrainQueued.set(false);
+            }
+        }
+    }
+
+    private void retrain() {
+        retrainQueued.set(false);
+        retrains.increment();
+        long start = System.nanoTime();
+        try {
+            DiagnosisModel model = new DiagnosisTrainer().trainFromMedicalRecords();
+            long size = model.write(file);
+            lastTrainingMillis = (System.nanoTime() - start) / 1_000_000;
+            if (swap(new Entry(model, size, "retrain"))) {
+                System.out.println("Retrained " + model + "; " + size + " bytes written to " + file);
+            }
+        } catch (Exception e) {
+            lastTrainingMillis = (System.nanoTime() - start) / 1_000_000;
+            retrainFailures.increment();
+            lastRetrainError = e.toString();
+            System.err.println("Diagnosis model retrain failed, keeping "
+                + (current() != null ? "version " + current().version() : "the rule engine") + ": " + e.getMessage());
+        }
+    }
+
+    // Versions are training timestamps, so an older model never replaces a newer one
+    private boolean swap(Entry next) {
+        while (true) {
+            Entry previous = current.get();
+            if (previous != null && previous.model().version() >= next.model().version()) {
+                return false;
+            }
+            if (current.compareAndSet(previous, next)) {
+                swaps.increment();
+                return true;
+            }
+        }
+    }
+
+    /** Records one prediction call answered by the model. */
+    public void recordPrediction(long nanos) {
+        predictionLatency.record(nanos);
+    }
+
+    /** Records patients answered by the rule engine instead of the model. */
+    public void recordFallback(int patients) {
+        fallbacks.add(patients);
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Could not register diagnosis model MBean: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        worker.shutdownNow();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not unregister diagnosis model MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getModelVersion() {
+        DiagnosisModel model = current();
+        return model != null ? model.version() : -1;
+    }
+
+    @Override
+    public String getModelClassifier() {
+        DiagnosisModel model = current();
+        return model != null ? model.classifierName() : null;
+    }
+
+    @Override
+    public long getModelSizeBytes() {
+        Entry entry = current.get();
+        return entry != null ? entry.sizeBytes() : 0;
+    }
+
+    @Override
+    public String getModelSource() {
+        Entry entry = current.get();
+        return entry != null ? entry.source() : null;
+    }
+
+    @Override
+    public long getSwapCount() {
+        return swaps.sum();
+    }
+
+    @Override
+    public long getLastTrainingMillis() {
+        return lastTrainingMillis;
+    }
+
+    @Override
+    public long getRetrainCount() {
+        return retrains.sum();
+    }
+
+    @Override
+    public long getRetrainFailures() {
+        return retrainFailures.sum();
+    }
+
+    @Override
+    public String getLastRetrainError() {
+        return lastRetrainError;
+    }
+
+    @Override
+    public long getPredictionCount() {
+        return predictionLatency.getCount();
+    }
+
+    @Override
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public double getPredictionMeanMillis() {
+        return predictionLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getPredictionP99Millis() {
+        return predictionLatency.percentileMillis(0.99);
+    }
+
+    @Override
+    public double getPredictionMaxMillis() {
+        return predictionLatency.getMaxMillis();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("diagnosis model: version=%d (%s, %s, %d bytes), swaps=%d, retrains=%d, failed=%d,"
+                + " lastTraining=%dms, predictions=%d (mean %.2fms, p99 %.2fms, max %.2fms), fallbacks=%d",
+            getModelVersion(), getModelClassifier(), getModelSource(), getModelSizeBytes(), getSwapCount(),
+            getRetrainCount(), getRetrainFailures(), getLastTrainingMillis(), getPredictionCount(),
+            getPredictionMeanMillis(), getPredictionP99Millis(), getPredictionMaxMillis(), getFallbackCount());
+    }
+}
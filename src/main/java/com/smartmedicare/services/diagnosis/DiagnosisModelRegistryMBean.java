@@ -0,0 +1,44 @@
+package com.smartmedicare.services.diagnosis;
+
+/**
+ * JMX view of {@link DiagnosisModelRegistry}, registered as
+ * {@value DiagnosisModelRegistry#OBJECT_NAME}.
+ */
+public interface DiagnosisModelRegistryMBean {
+    /** Version of the live model, -1 while there is none. */
+    long getModelVersion();
+
+    String getModelClassifier();
+
+    /** Serialized size of the live model. */
+    long getModelSizeBytes();
+
+    /** Whether the live model was read from disk or trained by this process. */
+    String getModelSource();
+
+    long getSwapCount();
+
+    /** Wall time of the last training run, successful or not. */
+    long getLastTrainingMillis();
+
+    long getRetrainCount();
+
+    long getRetrainFailures();
+
+    String getLastRetrainError();
+
+    /** Prediction calls the model answered within its budget. */
+    long getPredictionCount();
+
+    /** Patients the rule engine answered instead of the model. */
+    long getFallbackCount();
+
+    double getPredictionMeanMillis();
+
+    double getPredictionP99Millis();
+
+    double getPredictionMaxMillis();
+
+    /** Queues a retrain behind any running one. */
+    void retrainNow();
+}
@@ -0,0 +1,169 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.smartmedicare.models.MedicalRecord;
+import com.smartmedicare.services.DatabaseService;
+import com.smartmedicare.services.MedicalRecordDAO;
+import com.smartmedicare.utils.DatabaseConfig;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.bayes.NaiveBayesMultinomial;
+import weka.classifiers.trees.J48;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Trains a {@link DiagnosisModel} from medical records: the keys of each
+ * record's symptom map become 0/1 attributes and the doctor's confirmed
+ * diagnosis becomes the class. Records without symptoms or a confirmed
+ * diagnosis are skipped, so the model never learns from its own or the rule
+ * engine's suggestions, as are diagnoses seen fewer than
+ * {@code minExamplesPerDiagnosis} times.
+ * <p>
+ * Usage: {@code java com.smartmedicare.services.diagnosis.DiagnosisTrainer [model path]}
+ * trains from the {@code medical_records} collection and writes the model to
+ * {@code diagnosis.model.path} unless a path is given.
+ */
+public class DiagnosisTrainer {
+    public static final String NAIVE_BAYES_MULTINOMIAL = "naiveBayesMultinomial";
+    public static final String J48_TREE = "j48";
+
+    private final String classifierName;
+    private final int minExamplesPerDiagnosis;
+
+    public DiagnosisTrainer(String classifierName, int minExamplesPerDiagnosis) {
+        this.classifierName = classifierName;
+        this.minExamplesPerDiagnosis = Math.max(1, minExamplesPerDiagnosis);
+    }
+
+    public DiagnosisTrainer() {
+        this(DatabaseConfig.getDiagnosisClassifier(), DatabaseConfig.getDiagnosisMinExamples());
+    }
+
+    private record Example(int[] symptoms, String diagnosis) {
+    }
+
+    /** Trains on every confirmed record in the {@code medical_records} collection. */
+    public DiagnosisModel trainFromMedicalRecords() throws Exception {
+        try (Stream<MedicalRecord> records = new MedicalRecordDAO().streamConfirmed(500)) {
+            return train(records);
+        }
+    }
+
+    /**
+     * Trains on {@code records}, which are consumed once. Fails with
+     * {@link IllegalStateException} when fewer than two diagnoses have enough examples.
+     */
+    public DiagnosisModel train(Stream<MedicalRecord> records) throws Exception {
+        long start = System.nanoTime();
+        Map<String, Integer> symptomIds = new LinkedHashMap<>();
+        List<String> symptomNames = new ArrayList<>();
+        Map<String, Integer> diagnosisCounts = new HashMap<>();
+        // Diagnoses are grouped case-insensitively under the first spelling seen
+        Map<String, String> diagnosisNames = new HashMap<>();
+        List<Example> examples = new ArrayList<>();
+
+        Iterator<MedicalRecord> cursor = records.iterator();
+        while (cursor.hasNext()) {
+            MedicalRecord record = cursor.next();
+            String diagnosis = record.getConfirmedDiagnosis();
+            if (diagnosis == null || diagnosis.isBlank() || record.getSymptoms() == null
+                    || record.getSymptoms().isEmpty()) {
+                continue;
+            }
+            int[] ids = record.getSymptoms().keySet().stream()
+                .filter(symptom -> symptom != null && !symptom.isBlank())
+                .mapToInt(symptom -> symptomIds.computeIfAbsent(SymptomKnowledgeBase.normalize(symptom), key -> {
+                    symptomNames.add(symptom.trim());
+                    return symptomNames.size() - 1;
+                }))
+                .distinct()
+                .sorted()
+                .toArray();
+            if (ids.length == 0) {
+                continue;
+            }
+            String label = diagnosisNames.computeIfAbsent(diagnosis.trim().toLowerCase(Locale.ROOT),
+                key -> diagnosis.trim());
+            diagnosisCounts.merge(label, 1, Integer::sum);
+            examples.add(new Example(ids, label));
+        }
+
+        List<String> classes = diagnosisCounts.entrySet().stream()
+            .filter(entry -> entry.getValue() >= minExamplesPerDiagnosis)
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+        if (classes.size() < 2) {
+            throw new IllegalStateException("Need at least two diagnoses with " + minExamplesPerDiagnosis
+                + " or more records each; found " + classes.size() + " in " + examples.size() + " usable records");
+        }
+
+        ArrayList<Attribute> attributes = new ArrayList<>(symptomNames.size() + 1);
+        for (int i = 0; i < symptomNames.size(); i++) {
+            attributes.add(new Attribute("symptom_" + i + "_" + symptomNames.get(i)));
+        }
+        attributes.add(new Attribute("diagnosis", classes));
+        int classIndex = symptomNames.size();
+
+        Instances data = new Instances("medical_records", attributes, examples.size());
+        data.setClassIndex(classIndex);
+        Map<String, Integer> classValues = new HashMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            classValues.put(classes.get(i), i);
+        }
+        int used = 0;
+        for (Example example : examples) {
+            Integer classValue = classValues.get(example.diagnosis());
+            if (classValue == null) {
+                continue;
+            }
+            int[] indices = Arrays.copyOf(example.symptoms(), example.symptoms().length + 1);
+            double[] values = new double[indices.length];
+            Arrays.fill(values, 1.0);
+            indices[indices.length - 1] = classIndex;
+            values[values.length - 1] = classValue;
+            data.add(new SparseInstance(1.0, values, indices, attributes.size()));
+            used++;
+        }
+
+        AbstractClassifier classifier = newClassifier();
+        classifier.buildClassifier(data);
+        long trainingMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Instances header = new Instances(data, 0);
+        return new DiagnosisModel(classifier, header, symptomIds, classifierName,
+            System.currentTimeMillis(), used, trainingMillis);
+    }
+
+    private AbstractClassifier newClassifier() {
+        return switch (classifierName) {
+            case NAIVE_BAYES_MULTINOMIAL -> new NaiveBayesMultinomial();
+            case J48_TREE -> new J48();
+            default -> throw new IllegalArgumentException("Unknown classifier " + classifierName
+                + "; use " + NAIVE_BAYES_MULTINOMIAL + " or " + J48_TREE);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path target = args.length > 0 ? Path.of(args[0]) : DatabaseConfig.getDiagnosisModelPath();
+        try {
+            DiagnosisModel model = new DiagnosisTrainer().trainFromMedicalRecords();
+            model.write(target);
+            System.out.println("Wrote " + model + " to " + target);
+        } finally {
+            DatabaseService.getInstance().close();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the compiled knowledge base format ({@code .smkb}). All
+ * numbers are big-endian:
+ *
+ * <pre>
+ *  0  magic "SMKB"
+ *  4  u16 format version (2), u16 flags (0)
+ *  8  i64 knowledge base version
+ * 16  i32 symptoms S, i32 diseases D, i32 symptom references R, i32 string bytes B
+ * 32  i32[S + 2D] end offset of each string in the string table; symptom names
+ *                 first, so a symptom's id is its string index, then disease
+ *                 names, then disease severities (empty when not rated)
+ *     f64[D]      disease weights
+ *     i32[D + 1]  start of each disease's symptom ids (first 0, last R)
+ *     i32[R]      symptom ids
+ *     u8[B]       string table, UTF-8
+ *     i32         CRC32 of everything before it
+ * </pre>
+ *
+ * The file is read into a heap buffer in one pass, so no mapping outlives the
+ * read and blocks replacing the file, and decoded with bulk copies. Symptom ids are written in
+ * ascending order per disease, so loading only decodes the symptom names and
+ * packs the bitsets; disease names are decoded when first shown. Format 1 files,
+ * written before severities were stored, have {@code S + D} strings and read as
+ * unrated.
+ */
+public final class KnowledgeBaseFile {
+    public static final String EXTENSION = ".smkb";
+
+    private static final int MAGIC = 0x534D4B42; // "SMKB"
+    private static final short FORMAT_VERSION = 2;
+    private static final short FORMAT_WITHOUT_SEVERITIES = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private KnowledgeBaseFile() {
+    }
+
+    public static SymptomKnowledgeBase read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES * 2 || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a knowledge base file (" + size + " bytes)");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(file + " shrank while being read");
+                }
+            }
+            buffer.flip();
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a knowledge base file");
+            }
+            short format = buffer.getShort(4);
+            if (format != FORMAT_VERSION && format != FORMAT_WITHOUT_SEVERITIES) {
+                throw new IOException(file + " uses knowledge base format " + format
+                    + "; this version reads formats " + FORMAT_WITHOUT_SEVERITIES + " and " + FORMAT_VERSION);
+            }
+            boolean rated = format == FORMAT_VERSION;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt((int) size - Integer.BYTES)) {
+                throw new IOException(file + " is corrupt (checksum mismatch)");
+            }
+
+            buffer.position(8);
+            long version = buffer.getLong();
+            int symptoms = buffer.getInt();
+            int diseases = buffer.getInt();
+            int references = buffer.getInt();
+            int stringBytes = buffer.getInt();
+            if (symptoms < 0 || diseases < 0 || references < 0 || stringBytes < 0
+                    || size != expectedSize(symptoms, diseases, rated, references, stringBytes)) {
+                throw new IOException(file + " is corrupt (section sizes do not match the file)");
+            }
+
+            int[] stringEnds = new int[symptoms + (rated ? 2 : 1) * diseases];
+            buffer.asIntBuffer().get(stringEnds);
+            buffer.position(buffer.position() + stringEnds.length * Integer.BYTES);
+            double[] weights = new double[diseases];
+            buffer.asDoubleBuffer().get(weights);
+            buffer.position(buffer.position() + diseases * Double.BYTES);
+            int[] starts = new int[diseases + 1];
+            buffer.asIntBuffer().get(starts);
+            buffer.position(buffer.position() + starts.length * Integer.BYTES);
+            int[] symptomIds = new int[references];
+            buffer.asIntBuffer().get(symptomIds);
+            buffer.position(buffer.position() + references * Integer.BYTES);
+            byte[] strings = new byte[stringBytes];
+            buffer.get(strings);
+
+            int from = 0;
+            for (int end : stringEnds) {
+                if (end < from || end > stringBytes) {
+                    throw new IOException(file + " is corrupt (string table)");
+                }
+                from = end;
+            }
+            // Symptom names are needed to build the lookup; disease names decode on first use
+            String[] symptomNames = new String[symptoms];
+            from = 0;
+            for (int i = 0; i < symptoms; i++) {
+                symptomNames[i] = new String(strings, from, stringEnds[i] - from, StandardCharsets.UTF_8);
+                from = stringEnds[i];
+            }
+            StringTable diseaseNames = new StringTable(strings, stringEnds, symptoms, diseases);
+            StringTable severities;
+            if (rated) {
+                severities = new StringTable(strings, stringEnds, symptoms + diseases, diseases);
+            } else {
+                String[] unrated = new String[diseases];
+                Arrays.fill(unrated, "");
+                severities = StringTable.of(unrated);
+            }
+            for (int d = 0; d < diseases; d++) {
+                if (starts[d] < 0 || starts[d] > starts[d + 1] || starts[d + 1] > references) {
+                    throw new IOException(file + " is corrupt (symptom ranges)");
+                }
+            }
+
+            try {
+                return SymptomKnowledgeBase.compile(version, symptomNames, diseaseNames, weights, severities,
+                    starts, symptomIds);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " is corrupt: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static long expectedSize(long symptoms, long diseases, boolean rated, long references,
+                                     long stringBytes) {
+        return HEADER_BYTES
+            + (symptoms + (rated ? 2 : 1) * diseases) * Integer.BYTES
+            + diseases * Double.BYTES
+            + (diseases + 1) * Integer.BYTES
+            + references * Integer.BYTES
+            + stringBytes
+            + Integer.BYTES;
+    }
+
+    /** Writes {@code knowledgeBase} to {@code target}, replacing it atomically. */
+    public static void write(SymptomKnowledgeBase knowledgeBase, Path target) throws IOException {
+        int symptoms = knowledgeBase.symptomCount();
+        int diseases = knowledgeBase.diseaseCount();
+        byte[][] encoded = new byte[symptoms + 2 * diseases][];
+        int stringBytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            String value;
+            if (i < symptoms) {
+                value = knowledgeBase.symptomName(i);
+            } else if (i < symptoms + diseases) {
+                value = knowledgeBase.disease(i - symptoms);
+            } else {
+                String severity = knowledgeBase.severity(i - symptoms - diseases);
+                value = severity != null ? severity : "";
+            }
+            encoded[i] = value.getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+        }
+        int[][] diseaseSymptoms = new int[diseases][];
+        int references = 0;
+        for (int d = 0; d < diseases; d++) {
+            diseaseSymptoms[d] = knowledgeBase.symptomsOf(d);
+            references += diseaseSymptoms[d].length;
+        }
+
+        long size = expectedSize(symptoms, diseases, true, references, stringBytes);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Knowledge base too large for format " + FORMAT_VERSION);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).putLong(knowledgeBase.version());
+        buffer.putInt(symptoms).putInt(diseases).putInt(references).putInt(stringBytes);
+        int end = 0;
+        for (byte[] value : encoded) {
+            end += value.length;
+            buffer.putInt(end);
+        }
+        for (int d = 0; d < diseases; d++) {
+            buffer.putDouble(knowledgeBase.weight(d));
+        }
+        int start = 0;
+        buffer.putInt(start);
+        for (int[] ids : diseaseSymptoms) {
+            start += ids.length;
+            buffer.putInt(start);
+        }
+        for (int[] ids : diseaseSymptoms) {
+            for (int id : ids) {
+                buffer.putInt(id);
+            }
+        }
+        for (byte[] value : encoded) {
+            buffer.put(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,195 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+
+/**
+ * Converts a disease knowledge base from CSV or JSON into the {@link KnowledgeBaseFile} format.
+ * <p>
+ * CSV has one disease per row, {@code disease,weight,symptoms[,severity]}, with the
+ * symptoms separated by {@code ;}. Fields may be quoted; a header row and lines
+ * starting with {@code #} are skipped. JSON is an object:
+ * {@code {"version": 3, "diseases": [{"name": "...", "weight": 0.4, "severity": "Moderate", "symptoms": ["...", ...]}]}}.
+ * The severity is optional and one of Mild, Moderate or Severe, in any case.
+ * <p>
+ * Usage: {@code java com.smartmedicare.services.diagnosis.KnowledgeBaseImporter source.csv|source.json target.smkb [version]}
+ * <br>The version defaults to the one in the JSON, or else the current time in milliseconds.
+ */
+public final class KnowledgeBaseImporter {
+    private static final List<String> SEVERITIES = List.of("Mild", "Moderate", "Severe");
+
+    private KnowledgeBaseImporter() {
+    }
+
+    /** Reads {@code source}, choosing the parser by its extension; {@code version} 0 means unspecified. */
+    public static SymptomKnowledgeBase importFile(Path source, long version) throws IOException {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return fromJson(Files.readString(source, StandardCharsets.UTF_8), version);
+        }
+        if (name.endsWith(".csv")) {
+            try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                return fromCsv(reader, version);
+            }
+        }
+        throw new IOException("Expected a .csv or .json knowledge base, got " + source);
+    }
+
+    public static SymptomKnowledgeBase fromCsv(Reader source, long version) throws IOException {
+        SymptomKnowledgeBase.Builder builder = SymptomKnowledgeBase.builder()
+            .version(version != 0 ? version : System.currentTimeMillis());
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.stripLeading().startsWith("#")) {
+                continue;
+            }
+            List<String> fields = splitCsv(line, lineNumber);
+            if (fields.size() < 3) {
+                throw new IOException("line " + lineNumber + ": expected disease,weight,symptoms");
+            }
+            Double weight = parseWeight(fields.get(1));
+            if (weight == null) {
+                if (first) {
+                    first = false;
+                    continue; // header row
+                }
+                throw new IOException("line " + lineNumber + ": invalid weight " + fields.get(1));
+            }
+            first = false;
+            String where = "line " + lineNumber;
+            builder.addDisease(requireName(fields.get(0), where), weight,
+                severity(fields.size() > 3 ? fields.get(3) : null, where), Arrays.asList(fields.get(2).split(";")));
+        }
+        return builder.build();
+    }
+
+    // Splits one line, honouring "quoted, fields" and "" escapes
+    private static List<String> splitCsv(String line, int lineNumber) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("line " + lineNumber + ": unterminated quote");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static Double parseWeight(String value) {
+        try {
+            double weight = Double.parseDouble(value);
+            return weight >= 0 && weight <= 1 ? weight : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String severity(String value, String where) throws IOException {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        for (String severity : SEVERITIES) {
+            if (severity.equalsIgnoreCase(value.trim())) {
+                return severity;
+            }
+        }
+        throw new IOException(where + ": severity must be one of " + SEVERITIES + ", got " + value);
+    }
+
+    private static String requireName(String name, String where) throws IOException {
+        if (name == null || name.isBlank()) {
+            throw new IOException(where + ": disease name missing");
+        }
+        return name.trim();
+    }
+
+    public static SymptomKnowledgeBase fromJson(String json, long version) throws IOException {
+        Document root;
+        try {
+            root = Document.parse(json);
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid knowledge base JSON: " + e.getMessage(), e);
+        }
+        if (version == 0 && root.get("version") instanceof Number declared) {
+            version = declared.longValue();
+        }
+        SymptomKnowledgeBase.Builder builder = SymptomKnowledgeBase.builder()
+            .version(version != 0 ? version : System.currentTimeMillis());
+        try {
+            List<Document> diseases = root.getList("diseases", Document.class);
+            if (diseases == null) {
+                throw new IOException("Knowledge base JSON has no \"diseases\" array");
+            }
+            for (int i = 0; i < diseases.size(); i++) {
+                Document disease = diseases.get(i);
+                Double weight = disease.get("weight") instanceof Number number ? parseWeight(number.toString()) : null;
+                List<String> symptoms = disease.getList("symptoms", String.class);
+                if (weight == null || symptoms == null) {
+                    throw new IOException("diseases[" + i + "]: needs a weight between 0 and 1 and a symptoms array");
+                }
+                String where = "diseases[" + i + "]";
+                Object severity = disease.get("severity");
+                if (severity != null && !(severity instanceof String)) {
+                    throw new IOException(where + ": severity must be a string");
+                }
+                builder.addDisease(requireName(disease.getString("name"), where), weight,
+                    severity((String) severity, where), symptoms);
+            }
+        } catch (ClassCastException e) {
+            // A field of the wrong type, e.g. "diseases" not an array of objects
+            throw new IOException("Invalid knowledge base JSON: " + e.getMessage(), e);
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: KnowledgeBaseImporter source.csv|source.json target"
+                + KnowledgeBaseFile.EXTENSION + " [version]");
+            System.exit(2);
+        }
+        long version = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        long start = System.nanoTime();
+        SymptomKnowledgeBase knowledgeBase = importFile(Path.of(args[0]), version);
+        Path target = Path.of(args[1]);
+        KnowledgeBaseFile.write(knowledgeBase, target);
+        System.out.printf("Wrote %d diseases and %d symptoms (version %d) to %s in %d ms%n",
+            knowledgeBase.diseaseCount(), knowledgeBase.symptomCount(), knowledgeBase.version(), target,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+}
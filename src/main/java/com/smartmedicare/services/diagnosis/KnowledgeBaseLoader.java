@@ -0,0 +1,118 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Holds the live disease knowledge base read from
+ * {@code diagnosis.knowledgeBase.path} and swaps in a new one when the file is
+ * replaced. Knowledge bases are immutable, so an analysis keeps the instance it
+ * started with while the next one sees the new version; nothing waits on a
+ * reload, including the first one, which runs in the background as soon as the
+ * loader is created. Each base goes live together with its {@link SymptomIndex},
+ * built on the same background thread. A file that cannot be read leaves the
+ * previous base in place.
+ */
+public class KnowledgeBaseLoader {
+    private static KnowledgeBaseLoader instance;
+
+    private record Live(SymptomKnowledgeBase knowledgeBase, SymptomIndex index) {
+    }
+
+    private final AtomicReference<Live> current = new AtomicReference<>();
+    private final Path file;
+    private ScheduledExecutorService watcher;
+    private FileTime loadedModified;
+    private long loadedSize = -1;
+
+    private KnowledgeBaseLoader(Path file, int reloadSeconds) {
+        this.file = file;
+        if (file == null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "knowledge-base-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.execute(this::reload);
+        if (reloadSeconds > 0) {
+            watcher.scheduleWithFixedDelay(this::reloadIfChanged, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Creates the loader on first use, which starts reading the file in the background. */
+    public static synchronized KnowledgeBaseLoader getInstance() {
+        if (instance == null) {
+            instance = new KnowledgeBaseLoader(DatabaseConfig.getKnowledgeBasePath(),
+                DatabaseConfig.getKnowledgeBaseReloadSeconds());
+        }
+        return instance;
+    }
+
+    /** The live knowledge base, or null when no file is configured or none could be read yet. */
+    public SymptomKnowledgeBase current() {
+        Live live = current.get();
+        return live != null ? live.knowledgeBase() : null;
+    }
+
+    /** Inverted index over {@link #current()}, or null when that is null. */
+    public SymptomIndex currentIndex() {
+        Live live = current.get();
+        return live != null ? live.index() : null;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            synchronized (this) {
+                if (attributes.lastModifiedTime().equals(loadedModified) && attributes.size() == loadedSize) {
+                    return;
+                }
+            }
+            reload();
+        } catch (IOException e) {
+            // Missing while being replaced; the next check picks it up
+        }
+    }
+
+    /** Reads the file and makes it live; returns false, keeping the previous base, when it cannot be read. */
+    public synchronized boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            // Stamp first so a write racing with the read is seen on the next check
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            loadedModified = attributes.lastModifiedTime();
+            loadedSize = attributes.size();
+            SymptomKnowledgeBase loaded = KnowledgeBaseFile.read(file);
+            Live previous = current.getAndSet(new Live(loaded, SymptomIndex.of(loaded)));
+            System.out.printf("Loaded knowledge base %s version %d (%d diseases, %d symptoms) in %.1f ms%s%n",
+                file, loaded.version(), loaded.diseaseCount(), loaded.symptomCount(),
+                (System.nanoTime() - start) / 1e6,
+                previous != null ? ", replacing version " + previous.knowledgeBase().version() : "");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not load knowledge base " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+}
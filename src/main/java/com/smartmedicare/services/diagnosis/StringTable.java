@@ -0,0 +1,50 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strings stored back to back in UTF-8, decoded on first use. Lets a knowledge
+ * base loaded from disk skip decoding thousands of disease names of which a
+ * query only ever shows a handful.
+ */
+final class StringTable {
+    private final byte[] utf8;
+    private final int[] ends;
+    private final int first;
+    // Filled lazily; racing threads decode the same value, so no locking is needed
+    private final String[] decoded;
+
+    /** Entries {@code first .. first + count - 1}; entry {@code i} ends at {@code ends[i]}. */
+    StringTable(byte[] utf8, int[] ends, int first, int count) {
+        this.utf8 = utf8;
+        this.ends = ends;
+        this.first = first;
+        this.decoded = new String[count];
+    }
+
+    private StringTable(String[] values) {
+        this.utf8 = null;
+        this.ends = null;
+        this.first = 0;
+        this.decoded = values;
+    }
+
+    static StringTable of(String[] values) {
+        return new StringTable(values);
+    }
+
+    int size() {
+        return decoded.length;
+    }
+
+    String get(int index) {
+        String value = decoded[index];
+        if (value == null) {
+            int entry = first + index;
+            int from = entry == 0 ? 0 : ends[entry - 1];
+            value = new String(utf8, from, ends[entry] - from, StandardCharsets.UTF_8);
+            decoded[index] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,191 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable inverted index over a disease knowledge base: every symptom maps to
+ * the ids of the diseases listing it. A query walks only the posting lists of
+ * its own symptoms, so its cost depends on how common those symptoms are, not
+ * on how many diseases the knowledge base holds.
+ *
+ * <p>Symptom names match case-insensitively, as in {@link SymptomKnowledgeBase}.
+ */
+public final class SymptomIndex {
+
+    /** Receives each disease sharing at least one symptom with the query. */
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int disease, int matched);
+    }
+
+    private final Map<String, Integer> symptomIds;
+    private final int[][] postings;
+    private final String[] diseases;
+    private final String[] severities;
+    private final int[] symptomCounts;
+    // Per-thread match counters, all zero between queries
+    private final ThreadLocal<Scratch> scratch;
+
+    private SymptomIndex(Map<String, Integer> symptomIds, int[][] postings, String[] diseases,
+                         String[] severities, int[] symptomCounts) {
+        this.symptomIds = symptomIds;
+        this.postings = postings;
+        this.diseases = diseases;
+        this.severities = severities;
+        this.symptomCounts = symptomCounts;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(diseases.length));
+    }
+
+    private static final class Scratch {
+        final int[] counts;
+        int[] touched = new int[16];
+
+        Scratch(int diseases) {
+            counts = new int[diseases];
+        }
+    }
+
+    public int diseaseCount() {
+        return diseases.length;
+    }
+
+    public String disease(int id) {
+        return diseases[id];
+    }
+
+    public String severity(int id) {
+        return severities[id];
+    }
+
+    public int symptomCountOf(int id) {
+        return symptomCounts[id];
+    }
+
+    /**
+     * Calls {@code consumer} once per disease sharing a symptom with
+     * {@code symptoms}, with the number of distinct shared symptoms. Unknown and
+     * repeated symptoms are ignored.
+     */
+    public void match(Collection<String> symptoms, MatchConsumer consumer) {
+        int[] ids = new int[symptoms.size()];
+        int n = 0;
+        for (String symptom : symptoms) {
+            Integer id = symptom != null ? symptomIds.get(SymptomKnowledgeBase.normalize(symptom)) : null;
+            if (id != null && !contains(ids, n, id)) {
+                ids[n++] = id;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+
+        Scratch s = scratch.get();
+        int[] counts = s.counts;
+        int touched = 0;
+        for (int i = 0; i < n; i++) {
+            for (int disease : postings[ids[i]]) {
+                if (counts[disease]++ == 0) {
+                    if (touched == s.touched.length) {
+                        s.touched = Arrays.copyOf(s.touched, touched * 2);
+                    }
+                    s.touched[touched++] = disease;
+                }
+            }
+        }
+        try {
+            for (int i = 0; i < touched; i++) {
+                int disease = s.touched[i];
+                consumer.accept(disease, counts[disease]);
+            }
+        } finally {
+            for (int i = 0; i < touched; i++) {
+                counts[s.touched[i]] = 0;
+            }
+        }
+    }
+
+    private static boolean contains(int[] ids, int n, int id) {
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Indexes every disease of {@code knowledgeBase} under its name and severity. */
+    public static SymptomIndex of(SymptomKnowledgeBase knowledgeBase) {
+        Builder builder = builder();
+        for (int d = 0; d < knowledgeBase.diseaseCount(); d++) {
+            int[] ids = knowledgeBase.symptomsOf(d);
+            List<String> symptoms = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                symptoms.add(knowledgeBase.symptomName(id));
+            }
+            builder.addDisease(knowledgeBase.disease(d), knowledgeBase.severity(d), symptoms);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Collects diseases in insertion order. */
+    public static final class Builder {
+        private final Map<String, Integer> symptomIds = new HashMap<>();
+        private final List<int[]> postings = new ArrayList<>();
+        private final List<Integer> postingSizes = new ArrayList<>();
+        private final List<String> diseases = new ArrayList<>();
+        private final List<String> severities = new ArrayList<>();
+        private final List<Integer> symptomCounts = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder addDisease(String disease, String severity, Collection<String> diseaseSymptoms) {
+            int id = diseases.size();
+            int count = 0;
+            for (String symptom : diseaseSymptoms) {
+                if (symptom == null || symptom.isBlank()) {
+                    continue;
+                }
+                int symptomId = symptomIds.computeIfAbsent(SymptomKnowledgeBase.normalize(symptom), key -> {
+                    postings.add(new int[4]);
+                    postingSizes.add(0);
+                    return postings.size() - 1;
+                });
+                int size = postingSizes.get(symptomId);
+                int[] posting = postings.get(symptomId);
+                if (size > 0 && posting[size - 1] == id) {
+                    continue;
+                }
+                if (size == posting.length) {
+                    posting = Arrays.copyOf(posting, size * 2);
+                    postings.set(symptomId, posting);
+                }
+                posting[size] = id;
+                postingSizes.set(symptomId, size + 1);
+                count++;
+            }
+            diseases.add(disease);
+            severities.add(severity);
+            symptomCounts.add(count);
+            return this;
+        }
+
+        public SymptomIndex build() {
+            int[][] trimmed = new int[postings.size()][];
+            for (int i = 0; i < trimmed.length; i++) {
+                trimmed[i] = Arrays.copyOf(postings.get(i), postingSizes.get(i));
+            }
+            return new SymptomIndex(Map.copyOf(symptomIds), trimmed, diseases.toArray(new String[0]),
+                severities.toArray(new String[0]), symptomCounts.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
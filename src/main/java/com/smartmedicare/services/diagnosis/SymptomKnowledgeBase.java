@@ -0,0 +1,389 @@
+package com.smartmedicare.services.diagnosis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.smartmedicare.models.DiseaseResult;
+
+/**
+ * Immutable, compiled disease knowledge base. Symptom names are interned to
+ * dense ids and every disease is a sparse bitset over those ids: only its
+ * non-zero 64-bit words are kept, each with its word index, all diseases
+ * sharing one {@code int[]} and one {@code long[]}. A query is encoded once as a
+ * dense bitset, so counting a disease's matching symptoms is an AND and a
+ * popcount per stored word, and memory grows with the number of symptom
+ * references rather than diseases times symptoms.
+ *
+ * <p>Each disease also carries the severity shown to patients (Mild, Moderate or
+ * Severe), or none when its source did not rate it. Symptom names match
+ * case-insensitively. Build one with {@link #builder()} or read one with
+ * {@link KnowledgeBaseFile}.
+ */
+public final class SymptomKnowledgeBase {
+
+    /** Turns a disease's match count into the probability reported to the doctor. */
+    @FunctionalInterface
+    public interface ScoreFunction {
+        double score(int matched, int total, double weight);
+    }
+
+    private final long version;
+    private final Map<String, Integer> symptomIds;
+    private final String[] symptomNames;
+    private final StringTable diseases;
+    private final double[] weights;
+    // Empty for a disease without a severity
+    private final StringTable severities;
+    private final int[] symptomCounts;
+    // Disease d owns entries rowStarts[d] .. rowStarts[d + 1] - 1 of wordIndexes/wordBits
+    private final int[] rowStarts;
+    private final int[] wordIndexes;
+    private final long[] wordBits;
+    private final int words;
+
+    private SymptomKnowledgeBase(long version, Map<String, Integer> symptomIds, String[] symptomNames,
+                                 StringTable diseases, double[] weights, StringTable severities, int[] symptomCounts,
+                                 int[] rowStarts, int[] wordIndexes, long[] wordBits) {
+        this.version = version;
+        this.symptomIds = symptomIds;
+        this.symptomNames = symptomNames;
+        this.diseases = diseases;
+        this.weights = weights;
+        this.severities = severities;
+        this.symptomCounts = symptomCounts;
+        this.rowStarts = rowStarts;
+        this.wordIndexes = wordIndexes;
+        this.wordBits = wordBits;
+        this.words = wordsFor(symptomNames.length);
+    }
+
+    /**
+     * Compiles already interned data: disease {@code d} lists the symptom ids
+     * {@code symptoms[symptomStarts[d]] .. symptoms[symptomStarts[d + 1] - 1]},
+     * each an index into {@code symptomNames}, and has severity
+     * {@code severities.get(d)}, empty when it has none.
+     */
+    static SymptomKnowledgeBase compile(long version, String[] symptomNames, StringTable diseases, double[] weights,
+                                        StringTable severities, int[] symptomStarts, int[] symptoms) {
+        Map<String, Integer> symptomIds = new HashMap<>(symptomNames.length * 2);
+        for (int id = 0; id < symptomNames.length; id++) {
+            if (symptomIds.putIfAbsent(normalize(symptomNames[id]), id) != null) {
+                throw new IllegalArgumentException("Symptom listed twice: " + symptomNames[id]);
+            }
+        }
+        int diseaseCount = diseases.size();
+        int[] counts = new int[diseaseCount];
+        int[] rowStarts = new int[diseaseCount + 1];
+        // A disease never has more non-zero words than symptom references
+        int[] wordIndexes = new int[symptoms.length];
+        long[] wordBits = new long[symptoms.length];
+        int n = 0;
+        int[] sorted = new int[16];
+        for (int d = 0; d < diseaseCount; d++) {
+            int from = symptomStarts[d];
+            int length = symptomStarts[d + 1] - from;
+            // KnowledgeBaseFile and the builder write ascending ids; anything else is sorted here
+            int[] ids = symptoms;
+            if (!isAscending(symptoms, from, length)) {
+                if (sorted.length < length) {
+                    sorted = new int[length];
+                }
+                System.arraycopy(symptoms, from, sorted, 0, length);
+                Arrays.sort(sorted, 0, length);
+                ids = sorted;
+                from = 0;
+            }
+            rowStarts[d] = n;
+            for (int i = from; i < from + length; i++) {
+                int id = ids[i];
+                if (id < 0 || id >= symptomNames.length) {
+                    throw new IllegalArgumentException("Unknown symptom id " + id + " in " + diseases.get(d));
+                }
+                int word = id >>> 6;
+                if (n == rowStarts[d] || wordIndexes[n - 1] != word) {
+                    wordIndexes[n] = word;
+                    n++;
+                }
+                long bit = 1L << id;
+                // Counted as set so a repeated id cannot inflate the total
+                if ((wordBits[n - 1] & bit) == 0) {
+                    wordBits[n - 1] |= bit;
+                    counts[d]++;
+                }
+            }
+        }
+        rowStarts[diseaseCount] = n;
+        return new SymptomKnowledgeBase(version, symptomIds, symptomNames, diseases, weights, severities, counts,
+            rowStarts, Arrays.copyOf(wordIndexes, n), Arrays.copyOf(wordBits, n));
+    }
+
+    private static boolean isAscending(int[] values, int from, int length) {
+        for (int i = from + 1; i < from + length; i++) {
+            if (values[i] <= values[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int wordsFor(int symptoms) {
+        return Math.max(1, (symptoms + 63) >>> 6);
+    }
+
+    public static String normalize(String symptom) {
+        return symptom.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Revision of the data, as recorded by whoever built it; 0 for the built-in table. */
+    public long version() {
+        return version;
+    }
+
+    public int diseaseCount() {
+        return diseases.size();
+    }
+
+    public int symptomCount() {
+        return symptomNames.length;
+    }
+
+    public String disease(int id) {
+        return diseases.get(id);
+    }
+
+    public double weight(int id) {
+        return weights[id];
+    }
+
+    /** Severity of disease {@code id}, or null when the knowledge base does not rate it. */
+    public String severity(int id) {
+        String severity = severities.get(id);
+        return severity.isEmpty() ? null : severity;
+    }
+
+    /** Number of symptoms listed for disease {@code id}. */
+    public int symptomCountOf(int id) {
+        return symptomCounts[id];
+    }
+
+    /** Id of {@code symptom}, or -1 when no disease lists it. */
+    public int symptomId(String symptom) {
+        Integer id = symptom != null ? symptomIds.get(normalize(symptom)) : null;
+        return id != null ? id : -1;
+    }
+
+    public String symptomName(int id) {
+        return symptomNames[id];
+    }
+
+    /** Ids of the symptoms of disease {@code id}, ascending. */
+    public int[] symptomsOf(int id) {
+        int[] symptoms = new int[symptomCounts[id]];
+        int n = 0;
+        for (int i = rowStarts[id]; i < rowStarts[id + 1]; i++) {
+            long bits = wordBits[i];
+            while (bits != 0) {
+                symptoms[n++] = (wordIndexes[i] << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return symptoms;
+    }
+
+    /** Bitset of the known symptoms among {@code names}; unknown names are ignored. */
+    public long[] encode(Collection<String> names) {
+        long[] query = new long[words];
+        for (String name : names) {
+            int id = symptomId(name);
+            if (id >= 0) {
+                query[id >>> 6] |= 1L << id;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * The {@code limit} best-scoring diseases sharing at least one symptom with
+     * {@code query}, best first; ties keep knowledge-base order. Selection uses a
+     * bounded heap, so only the winners are ever sorted.
+     */
+    public List<DiseaseResult> topMatches(long[] query, int limit, ScoreFunction scoring) {
+        if (limit <= 0 || isEmpty(query)) {
+            return new ArrayList<>();
+        }
+        int diseaseCount = diseases.size();
+        TopK top = new TopK(Math.min(limit, diseaseCount));
+        for (int d = 0; d < diseaseCount; d++) {
+            int matched = 0;
+            for (int i = rowStarts[d], end = rowStarts[d + 1]; i < end; i++) {
+                matched += Long.bitCount(wordBits[i] & query[wordIndexes[i]]);
+            }
+            if (matched > 0) {
+                top.offer(d, scoring.score(matched, symptomCounts[d], weights[d]));
+            }
+        }
+        return top.results(diseases);
+    }
+
+    private static boolean isEmpty(long[] query) {
+        for (long word : query) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Min-heap of (score, disease) holding the best {@code capacity} seen so far. */
+    private static final class TopK {
+        private final int[] ids;
+        private final double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            ids = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        // Lower score is worse; on equal scores the later disease is worse
+        private boolean worse(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && ids[a] > ids[b]);
+        }
+
+        void offer(int id, double score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(i, parent)) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && worse(child + 1, child)) {
+                    child++;
+                }
+                if (!worse(child, i)) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+
+        // Drains the heap worst first and fills the list from the back
+        List<DiseaseResult> results(StringTable diseases) {
+            DiseaseResult[] ordered = new DiseaseResult[size];
+            while (size > 0) {
+                ordered[size - 1] = new DiseaseResult(diseases.get(ids[0]), scores[0]);
+                size--;
+                if (size > 0) {
+                    ids[0] = ids[size];
+                    scores[0] = scores[size];
+                    siftDown(0);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(ordered));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Collects diseases in insertion order; adding a disease again replaces it. */
+    public static final class Builder {
+        private final Map<String, Integer> symptomIds = new HashMap<>();
+        private final List<String> symptomNames = new ArrayList<>();
+        private final Map<String, Double> weights = new LinkedHashMap<>();
+        private final Map<String, String> severities = new HashMap<>();
+        private final Map<String, int[]> symptoms = new LinkedHashMap<>();
+        private long version;
+
+        private Builder() {
+        }
+
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        /** {@code severity} may be null when the source does not rate the disease. */
+        public Builder addDisease(String disease, double weight, String severity, Collection<String> diseaseSymptoms) {
+            int[] ids = diseaseSymptoms.stream()
+                .filter(s -> s != null && !s.isBlank())
+                .mapToInt(this::intern)
+                .distinct()
+                .toArray();
+            weights.put(disease, weight);
+            severities.put(disease, severity != null ? severity : "");
+            symptoms.put(disease, ids);
+            return this;
+        }
+
+        private int intern(String symptom) {
+            return symptomIds.computeIfAbsent(normalize(symptom), key -> {
+                symptomNames.add(symptom.trim());
+                return symptomNames.size() - 1;
+            });
+        }
+
+        public SymptomKnowledgeBase build() {
+            int count = symptoms.size();
+            String[] diseases = new String[count];
+            double[] weightArray = new double[count];
+            String[] severityArray = new String[count];
+            int[] starts = new int[count + 1];
+            int total = 0;
+            for (int[] ids : symptoms.values()) {
+                total += ids.length;
+            }
+            int[] all = new int[total];
+            int d = 0;
+            for (Map.Entry<String, int[]> entry : symptoms.entrySet()) {
+                diseases[d] = entry.getKey();
+                weightArray[d] = weights.get(entry.getKey());
+                severityArray[d] = severities.get(entry.getKey());
+                System.arraycopy(entry.getValue(), 0, all, starts[d], entry.getValue().length);
+                starts[d + 1] = starts[d] + entry.getValue().length;
+                d++;
+            }
+            return compile(version, symptomNames.toArray(new String[0]), StringTable.of(diseases), weightArray,
+                StringTable.of(severityArray), starts, all);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.smartmedicare.services.storage;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+
+/**
+ * Total order over BSON values following MongoDB's cross-type comparison order
+ * (null &lt; numbers &lt; strings &lt; documents &lt; arrays &lt; binary &lt; ObjectId
+ * &lt; boolean &lt; date &lt; timestamp &lt; regex), with numbers compared by value
+ * regardless of their width.
+ */
+final class BsonValues {
+
+    private BsonValues() {
+    }
+
+    static int typeRank(BsonValue value) {
+        BsonType type = value == null ? BsonType.NULL : value.getBsonType();
+        return switch (type) {
+            case MIN_KEY -> 0;
+            case NULL, UNDEFINED -> 1;
+            case INT32, INT64, DOUBLE, DECIMAL128 -> 2;
+            case STRING, SYMBOL -> 3;
+            case DOCUMENT -> 4;
+            case ARRAY -> 5;
+            case BINARY -> 6;
+            case OBJECT_ID -> 7;
+            case BOOLEAN -> 8;
+            case DATE_TIME -> 9;
+            case TIMESTAMP -> 10;
+            case REGULAR_EXPRESSION -> 11;
+            case JAVASCRIPT, JAVASCRIPT_WITH_SCOPE -> 12;
+            case MAX_KEY -> 14;
+            default -> 13;
+        };
+    }
+
+    /** Whether range operators may compare the two values (same type bracket). */
+    static boolean comparable(BsonValue a, BsonValue b) {
+        return typeRank(a) == typeRank(b);
+    }
+
+    static boolean equal(BsonValue a, BsonValue b) {
+        return comparable(a, b) && compare(a, b) == 0;
+    }
+
+    static int compare(BsonValue a, BsonValue b) {
+        int rankA = typeRank(a);
+        int rankB = typeRank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        switch (rankA) {
+            case 2:
+                return compareNumbers(a, b);
+            case 3:
+                return stringOf(a).compareTo(stringOf(b));
+            case 4:
+                return compareDocuments(a.asDocument(), b.asDocument());
+            case 5:
+                return compareArrays(a.asArray(), b.asArray());
+            case 6:
+                return compareBytes(a.asBinary().getData(), b.asBinary().getData());
+            case 7:
+                return a.asObjectId().getValue().compareTo(b.asObjectId().getValue());
+            case 8:
+                return Boolean.compare(a.asBoolean().getValue(), b.asBoolean().getValue());
+            case 9:
+                return Long.compare(a.asDateTime().getValue(), b.asDateTime().getValue());
+            case 10:
+                return a.asTimestamp().compareTo(b.asTimestamp());
+            case 11:
+                return (a.asRegularExpression().getPattern() + "/" + a.asRegularExpression().getOptions())
+                    .compareTo(b.asRegularExpression().getPattern() + "/" + b.asRegularExpression().getOptions());
+            default:
+                return 0;
+        }
+    }
+
+    private static String stringOf(BsonValue value) {
+        return value.isSymbol() ? value.asSymbol().getSymbol() : value.asString().getValue();
+    }
+
+    private static int compareNumbers(BsonValue a, BsonValue b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.asNumber().longValue(), b.asNumber().longValue());
+        }
+        if (a.isDecimal128() || b.isDecimal128()) {
+            return a.asNumber().decimal128Value().bigDecimalValue()
+                .compareTo(b.asNumber().decimal128Value().bigDecimalValue());
+        }
+        return Double.compare(a.asNumber().doubleValue(), b.asNumber().doubleValue());
+    }
+
+    private static boolean isIntegral(BsonValue value) {
+        return value.isInt32() || value.isInt64();
+    }
+
+    private static int compareDocuments(BsonDocument a, BsonDocument b) {
+        Iterator<Map.Entry<String, BsonValue>> left = a.entrySet().iterator();
+        Iterator<Map.Entry<String, BsonValue>> right = b.entrySet().iterator();
+        while (left.hasNext() && right.hasNext()) {
+            Map.Entry<String, BsonValue> l = left.next();
+            Map.Entry<String, BsonValue> r = right.next();
+            int byValueType = Integer.compare(typeRank(l.getValue()), typeRank(r.getValue()));
+            if (byValueType != 0) {
+                return byValueType;
+            }
+            int byKey = l.getKey().compareTo(r.getKey());
+            if (byKey != 0) {
+                return byKey;
+            }
+            int byValue = compare(l.getValue(), r.getValue());
+            if (byValue != 0) {
+                return byValue;
+            }
+        }
+        return Boolean.compare(left.hasNext(), right.hasNext());
+    }
+
+    private static int compareArrays(BsonArray a, BsonArray b) {
+        int n = Math.min(a.size(), b.size());
+        for (int i = 0; i < n; i++) {
+            int c = compare(a.get(i), b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return Integer.compare(a.length, b.length);
+        }
+        for (int i = 0; i < a.length; i++) {
+            int c = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,336 @@
+package com.smartmedicare.services.storage;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.mongodb.MongoConnectionPoolClearedException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.ReadPreference;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ClusterListener;
+
+/**
+ * Fails MongoDB calls fast while the server cannot be reached, instead of letting
+ * every screen wait out the server selection timeout.
+ *
+ * <p>The breaker opens after {@code failureThreshold} consecutive connection
+ * failures, or at once when the driver's own monitor reports that no server is
+ * reachable (it is registered as a cluster listener). While open, calls throw
+ * {@link DatabaseUnavailableException} without touching the network. A
+ * background health probe, or the monitor seeing a server again, moves it to
+ * half-open, where a single trial call decides between closed and open.
+ * Errors the server answered with (duplicate keys, exceeded {@code maxTimeMS})
+ * count as successes: the server is up.
+ */
+public class CircuitBreaker implements ClusterListener, CircuitBreakerMBean {
+    public static final String OBJECT_NAME = "com.smartmedicare:type=MongoCircuitBreaker";
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong halfOpened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong totalOpenNanos = new AtomicLong();
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long openSinceNanos;
+    private volatile Instant stateSince = Instant.now();
+    private volatile String lastFailure = "";
+    private volatile boolean clusterReachable;
+    private ScheduledExecutorService prober;
+
+    public CircuitBreaker(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    /**
+     * Runs {@code ping} every {@code intervalMs} while the breaker is open and
+     * half-opens it on the first success. State listeners are notified on the
+     * same thread.
+     */
+    public synchronized void startProbe(BooleanSupplier ping, long intervalMs) {
+        if (prober != null) {
+            return;
+        }
+        long interval = Math.max(100, intervalMs);
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mongo-breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> {
+            if (state.get() == State.OPEN && ping.getAsBoolean()) {
+                probeSucceeded("health probe reached the server");
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Called with the new state after every transition. */
+    public void addStateListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /** Lets a trial call through after something outside the breaker reached the server. */
+    public void probeSucceeded(String reason) {
+        transition(State.OPEN, State.HALF_OPEN, reason);
+    }
+
+    /**
+     * Runs {@code action} unless the breaker is open. Connection failures are
+     * counted and rethrown; every other outcome resets the failure count.
+     */
+    public <R> R call(Supplier<R> action) {
+        boolean trial = acquire();
+        boolean reachedServer = false;
+        try {
+            R result = action.get();
+            reachedServer = true;
+            return result;
+        } catch (MongoException e) {
+            if (isUnreachable(e)) {
+                recordFailure(trial, e);
+                trial = false;
+            } else {
+                reachedServer = true;
+            }
+            throw e;
+        } finally {
+            if (reachedServer) {
+                recordSuccess(trial);
+            } else if (trial) {
+                // Failed before reaching the driver (codec, argument); give the next call the trial
+                trialInFlight.set(false);
+            }
+        }
+    }
+
+    private boolean acquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (current == State.HALF_OPEN && trialInFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.increment();
+        throw new DatabaseUnavailableException("MongoDB is unreachable (" + lastFailure
+            + "); retrying in the background");
+    }
+
+    static boolean isUnreachable(MongoException e) {
+        return e instanceof MongoTimeoutException
+            || e instanceof MongoSocketException
+            || e instanceof MongoConnectionPoolClearedException;
+    }
+
+    private void recordSuccess(boolean trial) {
+        consecutiveFailures.set(0);
+        if (trial) {
+            transition(State.HALF_OPEN, State.CLOSED, "trial call succeeded");
+        }
+    }
+
+    private void recordFailure(boolean trial, MongoException e) {
+        failures.increment();
+        lastFailure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (trial) {
+            transition(State.HALF_OPEN, State.OPEN, "trial call failed");
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            transition(State.CLOSED, State.OPEN, failureThreshold + " consecutive connection failures");
+        }
+    }
+
+    @Override
+    public void clusterDescriptionChanged(ClusterDescriptionChangedEvent event) {
+        // Only edges count: the first description after startup has no servers yet
+        boolean wasReachable = clusterReachable;
+        boolean reachable = event.getNewDescription().hasReadableServer(ReadPreference.primaryPreferred());
+        clusterReachable = reachable;
+        if (wasReachable && !reachable) {
+            lastFailure = "no reachable server";
+            transition(State.CLOSED, State.OPEN, "driver lost every server");
+            transition(State.HALF_OPEN, State.OPEN, "driver lost every server");
+        } else if (!wasReachable && reachable) {
+            probeSucceeded("driver reached a server");
+        }
+    }
+
+    private void transition(State from, State to, String reason) {
+        if (!state.compareAndSet(from, to)) {
+            return;
+        }
+        long now = System.nanoTime();
+        stateSince = Instant.now();
+        switch (to) {
+            case OPEN -> {
+                opened.incrementAndGet();
+                if (from == State.CLOSED) {
+                    openSinceNanos = now;
+                }
+            }
+            case HALF_OPEN -> {
+                halfOpened.incrementAndGet();
+                trialInFlight.set(false);
+            }
+            case CLOSED -> {
+                closed.incrementAndGet();
+                consecutiveFailures.set(0);
+                totalOpenNanos.addAndGet(now - openSinceNanos);
+            }
+        }
+        System.out.println("MongoDB circuit breaker " + from + " -> " + to + ": " + reason);
+        notifyListeners(to);
+    }
+
+    // Never on the caller's thread: a listener may take locks the caller holds
+    private void notifyListeners(State to) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Runnable notify = () -> {
+            for (Consumer<State> listener : listeners) {
+                try {
+                    listener.accept(to);
+                } catch (RuntimeException e) {
+                    System.err.println("Circuit breaker listener failed: " + e.getMessage());
+                }
+            }
+        };
+        synchronized (this) {
+            if (prober != null && !prober.isShutdown()) {
+                prober.execute(notify);
+                return;
+            }
+        }
+        notify.run();
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    public boolean isOpen() {
+        return state.get() != State.CLOSED;
+    }
+
+    /** Registers this instance with the platform MBean server; failures are logged, not thrown. */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Could not register MongoDB circuit breaker MBean: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not unregister MongoDB circuit breaker MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getState() {
+        return state.get().name();
+    }
+
+    @Override
+    public String getStateSince() {
+        return stateSince.toString();
+    }
+
+    @Override
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    @Override
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    @Override
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    @Override
+    public long getHalfOpenedCount() {
+        return halfOpened.get();
+    }
+
+    @Override
+    public long getClosedCount() {
+        return closed.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getTotalOpenMillis() {
+        long nanos = totalOpenNanos.get();
+        if (state.get() != State.CLOSED) {
+            nanos += System.nanoTime() - openSinceNanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("circuit breaker: %s since %s, opened=%d, halfOpened=%d, closed=%d, rejected=%d,"
+                + " connectionFailures=%d, openFor=%dms",
+            getState(), getStateSince(), getOpenedCount(), getHalfOpenedCount(), getClosedCount(),
+            getRejectedCount(), getFailureCount(), getTotalOpenMillis());
+    }
+}
@@ -0,0 +1,33 @@
+package com.smartmedicare.services.storage;
+
+/**
+ * JMX view of {@link CircuitBreaker}, registered as
+ * {@value CircuitBreaker#OBJECT_NAME}.
+ */
+public interface CircuitBreakerMBean {
+    String getState();
+
+    /** When the breaker last changed state, ISO-8601. */
+    String getStateSince();
+
+    int getConsecutiveFailures();
+
+    int getFailureThreshold();
+
+    long getOpenedCount();
+
+    long getHalfOpenedCount();
+
+    long getClosedCount();
+
+    /** Calls failed fast without contacting the server. */
+    long getRejectedCount();
+
+    /** Calls that failed because the server could not be reached. */
+    long getFailureCount();
+
+    /** Time spent open or half-open, including the current stretch. */
+    long getTotalOpenMillis();
+
+    String getLastFailure();
+}
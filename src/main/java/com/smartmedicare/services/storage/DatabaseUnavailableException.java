@@ -0,0 +1,15 @@
+package com.smartmedicare.services.storage;
+
+import com.mongodb.MongoException;
+
+/**
+ * Thrown instead of contacting MongoDB while the {@link CircuitBreaker} is open.
+ * The call was never sent, so it is safe to retry or to apply elsewhere.
+ */
+public class DatabaseUnavailableException extends MongoException {
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+}
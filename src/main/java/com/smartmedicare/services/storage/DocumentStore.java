@@ -0,0 +1,30 @@
+package com.smartmedicare.services.storage;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Storage engine behind every DAO. {@link MongoDocumentStore} talks to a MongoDB
+ * server; {@link EmbeddedDocumentStore} keeps the same collections in local files
+ * so the application runs without a server. Both decode through the same codec
+ * registry, so DAOs and models do not know which engine they are on.
+ */
+public interface DocumentStore extends AutoCloseable {
+
+    default StoreCollection<Document> getCollection(String name) {
+        return getCollection(name, Document.class);
+    }
+
+    <T> StoreCollection<T> getCollection(String name, Class<T> documentClass);
+
+    CodecRegistry getCodecRegistry();
+
+    /** Whether {@code watch} is available (MongoDB replica sets only). */
+    boolean supportsChangeStreams();
+
+    /** Short human readable description for logs, e.g. the server or data directory. */
+    String describe();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,343 @@
+package com.smartmedicare.services.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * {@link StoreCollection} view of an {@link EmbeddedTable} that encodes and
+ * decodes {@code T} through the store's codec registry, exactly as the driver
+ * would.
+ */
+final class EmbeddedCollection<T> implements StoreCollection<T> {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final EmbeddedTable table;
+    private final Class<T> documentClass;
+    private final CodecRegistry registry;
+
+    EmbeddedCollection(EmbeddedTable table, Class<T> documentClass, CodecRegistry registry) {
+        this.table = table;
+        this.documentClass = documentClass;
+        this.registry = registry;
+    }
+
+    @Override
+    public String getName() {
+        return table.getName();
+    }
+
+    @Override
+    public Class<T> getDocumentClass() {
+        return documentClass;
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return registry;
+    }
+
+    @Override
+    public <N> StoreCollection<N> withDocumentClass(Class<N> newDocumentClass) {
+        return new EmbeddedCollection<>(table, newDocumentClass, registry);
+    }
+
+    @Override
+    public InsertOneResult insertOne(T document) {
+        BsonDocument encoded = encode(document);
+        table.insert(encoded);
+        return InsertOneResult.acknowledged(encoded.get("_id"));
+    }
+
+    @Override
+    public FindQuery<T> find(Bson filter) {
+        return new EmbeddedFindQuery(toBson(filter));
+    }
+
+    @Override
+    public long countDocuments(Bson filter) {
+        return table.select(toBson(filter), null, 0, 0).size();
+    }
+
+    @Override
+    public <V> List<V> distinct(String field, Bson filter, Class<V> valueClass) {
+        TreeSet<BsonValue> values = new TreeSet<>(BsonValues::compare);
+        for (RawBsonDocument document : table.select(toBson(filter), null, 0, 0)) {
+            for (BsonValue value : QueryMatcher.resolve(document, field)) {
+                // Arrays contribute their elements, not themselves
+                if (!value.isArray()) {
+                    values.add(value);
+                }
+            }
+        }
+        Codec<V> codec = registry.get(valueClass);
+        List<V> result = new ArrayList<>(values.size());
+        for (BsonValue value : values) {
+            try (BsonReader reader = new BsonDocumentReader(new BsonDocument("v", value))) {
+                reader.readStartDocument();
+                reader.readName();
+                result.add(codec.decode(reader, DECODER_CONTEXT));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public UpdateResult updateOne(Bson filter, Bson update) {
+        BsonDocument query = toBson(filter);
+        BsonDocument changes = toBson(update);
+        return table.atomically(() -> {
+            List<RawBsonDocument> match = table.select(query, null, 0, 1);
+            if (match.isEmpty()) {
+                return UpdateResult.acknowledged(0, 0L, null);
+            }
+            RawBsonDocument before = match.get(0);
+            BsonDocument after = UpdateApplier.apply(before, changes, false);
+            boolean modified = !after.equals(before);
+            if (modified) {
+                table.replace(before.get("_id"), after);
+            }
+            return UpdateResult.acknowledged(1, modified ? 1L : 0L, null);
+        });
+    }
+
+    @Override
+    public UpdateResult replaceOne(Bson filter, T replacement, boolean upsert) {
+        BsonDocument query = toBson(filter);
+        BsonDocument encoded = encodeWithoutGeneratedId(replacement);
+        return table.atomically(() -> {
+            List<RawBsonDocument> match = table.select(query, null, 0, 1);
+            if (!match.isEmpty()) {
+                BsonValue id = match.get(0).get("_id");
+                BsonValue newId = encoded.get("_id");
+                if (newId != null && !newId.equals(id)) {
+                    throw new IllegalArgumentException("A replacement must not change _id");
+                }
+                table.replace(id, withId(encoded, id));
+                return UpdateResult.acknowledged(1, 1L, null);
+            }
+            if (!upsert) {
+                return UpdateResult.acknowledged(0, 0L, null);
+            }
+            BsonValue id = encoded.get("_id");
+            if (id == null) {
+                BsonValue filterId = query.get("_id");
+                id = filterId != null && !filterId.isDocument() ? filterId : new BsonObjectId();
+            }
+            table.insert(withId(encoded, id));
+            return UpdateResult.acknowledged(0, 0L, id);
+        });
+    }
+
+    @Override
+    public Document findOneAndUpdate(Bson filter, Bson update, Bson projection) {
+        BsonDocument query = toBson(filter);
+        BsonDocument changes = toBson(update);
+        return table.atomically(() -> {
+            List<RawBsonDocument> match = table.select(query, null, 0, 1);
+            if (match.isEmpty()) {
+                return null;
+            }
+            RawBsonDocument before = match.get(0);
+            table.replace(before.get("_id"), UpdateApplier.apply(before, changes, false));
+            return decode(UpdateApplier.project(before, toBson(projection)), Document.class);
+        });
+    }
+
+    @Override
+    public Document findOneAndDelete(Bson filter, Bson projection) {
+        BsonDocument query = toBson(filter);
+        return table.atomically(() -> {
+            List<RawBsonDocument> match = table.select(query, null, 0, 1);
+            if (match.isEmpty()) {
+                return null;
+            }
+            RawBsonDocument deleted = table.delete(match.get(0).get("_id"));
+            return decode(UpdateApplier.project(deleted, toBson(projection)), Document.class);
+        });
+    }
+
+    @Override
+    public DeleteResult deleteOne(Bson filter) {
+        BsonDocument query = toBson(filter);
+        return table.atomically(() -> {
+            List<RawBsonDocument> match = table.select(query, null, 0, 1);
+            long deleted = !match.isEmpty() && table.delete(match.get(0).get("_id")) != null ? 1 : 0;
+            return DeleteResult.acknowledged(deleted);
+        });
+    }
+
+    @Override
+    public <R> void aggregate(List<? extends Bson> pipeline, Class<R> resultClass, Consumer<? super R> action) {
+        throw new UnsupportedOperationException("The embedded storage engine has no aggregation");
+    }
+
+    @Override
+    public void createIndex(String name, Bson keys, boolean unique, Bson partialFilter) {
+        table.createIndex(name, toBson(keys), unique, partialFilter != null ? toBson(partialFilter) : null);
+    }
+
+    private BsonDocument toBson(Bson bson) {
+        return bson != null ? bson.toBsonDocument(BsonDocument.class, registry) : new BsonDocument();
+    }
+
+    // Same as the driver: the codec may assign an id, otherwise an ObjectId is generated
+    private BsonDocument encode(T document) {
+        Codec<T> codec = registry.get(documentClass);
+        if (codec instanceof CollectibleCodec<T> collectible) {
+            document = collectible.generateIdIfAbsentFromDocument(document);
+        }
+        BsonDocument encoded = encodeWithoutGeneratedId(document);
+        BsonValue id = encoded.get("_id");
+        return id == null || id.isNull() ? withId(encoded, new BsonObjectId()) : encoded;
+    }
+
+    private BsonDocument encodeWithoutGeneratedId(T document) {
+        if (document instanceof BsonDocument bson) {
+            return bson.clone();
+        }
+        BsonDocument encoded = new BsonDocument();
+        registry.get(documentClass).encode(new BsonDocumentWriter(encoded), document,
+            EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        return encoded;
+    }
+
+    // _id first, as the server stores it
+    private static BsonDocument withId(BsonDocument document, BsonValue id) {
+        BsonDocument result = new BsonDocument("_id", id);
+        for (Map.Entry<String, BsonValue> field : document.entrySet()) {
+            if (!"_id".equals(field.getKey())) {
+                result.append(field.getKey(), field.getValue());
+            }
+        }
+        return result;
+    }
+
+    private <D> D decode(BsonDocument document, Class<D> targetClass) {
+        if (targetClass == RawBsonDocument.class && document instanceof RawBsonDocument) {
+            return targetClass.cast(document);
+        }
+        RawBsonDocument raw = document instanceof RawBsonDocument r ? r : new RawBsonDocument(document, new BsonDocumentCodec());
+        try (BsonReader reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+            return registry.get(targetClass).decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+    private static Comparator<BsonDocument> comparator(BsonDocument sort) {
+        Comparator<BsonDocument> order = null;
+        for (Map.Entry<String, BsonValue> key : sort.entrySet()) {
+            String field = key.getKey();
+            Comparator<BsonDocument> byField = (a, b) -> BsonValues.compare(QueryMatcher.first(a, field), QueryMatcher.first(b, field));
+            if (key.getValue().isNumber() && key.getValue().asNumber().intValue() < 0) {
+                byField = byField.reversed();
+            }
+            order = order == null ? byField : order.thenComparing(byField);
+        }
+        return order;
+    }
+
+    private final class EmbeddedFindQuery implements FindQuery<T> {
+        private final BsonDocument filter;
+        private BsonDocument sort;
+        private BsonDocument projection;
+        private int skip;
+        private int limit;
+
+        EmbeddedFindQuery(BsonDocument filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public FindQuery<T> sort(Bson sort) {
+            this.sort = sort != null ? toBson(sort) : null;
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> projection(Bson projection) {
+            this.projection = projection != null ? toBson(projection) : null;
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> skip(int skip) {
+            this.skip = Math.max(0, skip);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> limit(int limit) {
+            // As with the driver, a negative limit means a single batch of that size
+            this.limit = Math.abs(limit);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> batchSize(int batchSize) {
+            return this;
+        }
+
+        private List<RawBsonDocument> run(int maxResults) {
+            Comparator<BsonDocument> order = sort != null && !sort.isEmpty() ? comparator(sort) : null;
+            int effectiveLimit = limit == 0 ? maxResults : maxResults == 0 ? limit : Math.min(limit, maxResults);
+            return table.select(filter, order, skip, effectiveLimit);
+        }
+
+        private T map(RawBsonDocument document) {
+            return decode(projection != null ? UpdateApplier.project(document, projection) : document, documentClass);
+        }
+
+        @Override
+        public T first() {
+            List<RawBsonDocument> result = run(1);
+            return result.isEmpty() ? null : map(result.get(0));
+        }
+
+        @Override
+        public <C extends Collection<? super T>> C into(C target) {
+            for (RawBsonDocument document : run(0)) {
+                target.add(map(document));
+            }
+            return target;
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            for (RawBsonDocument document : run(0)) {
+                action.accept(map(document));
+            }
+        }
+
+        // Matches are snapshotted up front; decoding stays lazy
+        @Override
+        public Stream<T> stream() {
+            return run(0).stream().map(this::map);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.smartmedicare.services.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * {@link DocumentStore} that keeps every collection in memory and persists it
+ * to an append-only log file ({@code <collection>.log}) in a local data
+ * directory, so the application keeps working without a MongoDB server.
+ * Supports the query, update and index features the DAOs use; aggregation and
+ * change streams are MongoDB-only. A lock file keeps a second instance from
+ * opening the same directory.
+ */
+public class EmbeddedDocumentStore implements DocumentStore {
+    private final Path directory;
+    private final CodecRegistry codecRegistry;
+    private final boolean syncWrites;
+    private final Map<String, EmbeddedTable> tables = new ConcurrentHashMap<>();
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    /**
+     * Opens (creating if needed) the store in {@code directory}. With
+     * {@code syncWrites} every write is forced to disk before it returns;
+     * otherwise the OS flushes it, which survives an application crash but not
+     * a power loss.
+     */
+    public EmbeddedDocumentStore(Path directory, CodecRegistry codecRegistry, boolean syncWrites) throws IOException {
+        this.directory = directory;
+        this.codecRegistry = codecRegistry;
+        this.syncWrites = syncWrites;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("store.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Data directory " + directory + " is in use by another instance");
+        }
+    }
+
+    @Override
+    public <T> StoreCollection<T> getCollection(String name, Class<T> documentClass) {
+        return new EmbeddedCollection<>(tables.computeIfAbsent(name, this::openTable), documentClass, codecRegistry);
+    }
+
+    private EmbeddedTable openTable(String name) {
+        if (!name.matches("[A-Za-z0-9_.-]+")) {
+            throw new IllegalArgumentException("Invalid collection name: " + name);
+        }
+        try {
+            return new EmbeddedTable(name, directory.resolve(name + ".log"), syncWrites);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedded collection " + name, e);
+        }
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    @Override
+    public boolean supportsChangeStreams() {
+        return false;
+    }
+
+    @Override
+    public String describe() {
+        return "embedded store at " + directory;
+    }
+
+    @Override
+    public void close() {
+        tables.values().forEach(EmbeddedTable::close);
+        tables.clear();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error releasing embedded store lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.smartmedicare.services.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+/**
+ * Secondary index of the embedded engine. Non-partial indexes keep an ordered
+ * map from the value of their first key field (every element for array fields)
+ * to document ids, which narrows equality, {@code $in}, range and anchored
+ * prefix-regex queries on that field. Unique indexes additionally map the full
+ * key tuple to its owner; partial indexes only enforce uniqueness.
+ */
+final class EmbeddedIndex {
+    private final String name;
+    private final List<String> fields;
+    private final boolean unique;
+    private final BsonDocument partialFilter;
+    private final NavigableMap<BsonValue, Set<BsonValue>> byLeadValue = new TreeMap<>(BsonValues::compare);
+    private final Map<BsonArray, BsonValue> uniqueKeys = new HashMap<>();
+
+    EmbeddedIndex(String name, BsonDocument keys, boolean unique, BsonDocument partialFilter) {
+        this.name = name;
+        this.fields = new ArrayList<>(keys.keySet());
+        this.unique = unique;
+        this.partialFilter = partialFilter;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<String> getFields() {
+        return fields;
+    }
+
+    private boolean covers(BsonDocument document) {
+        return partialFilter == null || QueryMatcher.matches(document, partialFilter);
+    }
+
+    private BsonArray uniqueKey(BsonDocument document) {
+        BsonArray key = new BsonArray();
+        for (String field : fields) {
+            key.add(QueryMatcher.first(document, field));
+        }
+        return key;
+    }
+
+    /** The id already holding {@code document}'s unique key, or null when it may be stored. */
+    BsonValue conflictFor(BsonDocument document, BsonValue id) {
+        if (!unique || !covers(document)) {
+            return null;
+        }
+        BsonValue owner = uniqueKeys.get(uniqueKey(document));
+        return owner != null && !owner.equals(id) ? owner : null;
+    }
+
+    String describeKey(BsonDocument document) {
+        StringBuilder key = new StringBuilder("{ ");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) key.append(", ");
+            key.append(fields.get(i)).append(": ").append(QueryMatcher.first(document, fields.get(i)));
+        }
+        return key.append(" }").toString();
+    }
+
+    void add(BsonValue id, BsonDocument document) {
+        if (unique && covers(document)) {
+            uniqueKeys.put(uniqueKey(document), id);
+        }
+        if (partialFilter == null) {
+            for (BsonValue value : leadValues(document)) {
+                byLeadValue.computeIfAbsent(value, v -> new HashSet<>(2)).add(id);
+            }
+        }
+    }
+
+    void remove(BsonValue id, BsonDocument document) {
+        if (unique && covers(document)) {
+            uniqueKeys.remove(uniqueKey(document), id);
+        }
+        if (partialFilter == null) {
+            for (BsonValue value : leadValues(document)) {
+                Set<BsonValue> ids = byLeadValue.get(value);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    byLeadValue.remove(value);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        byLeadValue.clear();
+        uniqueKeys.clear();
+    }
+
+    private Set<BsonValue> leadValues(BsonDocument document) {
+        List<BsonValue> values = QueryMatcher.resolve(document, fields.get(0));
+        return values.isEmpty() ? Set.of(BsonNull.VALUE) : new LinkedHashSet<>(values);
+    }
+
+    /**
+     * Ids that may match {@code filter}, or null when the filter does not
+     * constrain this index's first field in a way the index can answer. The
+     * result is a superset; callers still evaluate the whole filter.
+     */
+    Set<BsonValue> candidates(BsonDocument filter) {
+        if (partialFilter != null) {
+            return null;
+        }
+        BsonValue condition = findCondition(filter, fields.get(0));
+        if (condition == null) {
+            return null;
+        }
+        if (condition.isRegularExpression()) {
+            return prefixCandidates(condition.asRegularExpression().getPattern(), condition.asRegularExpression().getOptions());
+        }
+        if (!condition.isDocument() || !QueryMatcher.isOperatorDocument(condition.asDocument())) {
+            return lookup(condition);
+        }
+        BsonDocument operators = condition.asDocument();
+        if (operators.containsKey("$eq")) {
+            return lookup(operators.get("$eq"));
+        }
+        if (operators.containsKey("$in")) {
+            Set<BsonValue> ids = new HashSet<>();
+            for (BsonValue value : operators.getArray("$in")) {
+                if (value.isRegularExpression()) {
+                    return null;
+                }
+                ids.addAll(lookup(value));
+            }
+            return ids;
+        }
+        if (operators.containsKey("$regex")) {
+            BsonValue pattern = operators.get("$regex");
+            BsonValue options = operators.get("$options");
+            return pattern.isString()
+                ? prefixCandidates(pattern.asString().getValue(), options != null ? options.asString().getValue() : "")
+                : prefixCandidates(pattern.asRegularExpression().getPattern(), pattern.asRegularExpression().getOptions());
+        }
+        BsonValue lower = firstOf(operators, "$gt", "$gte");
+        BsonValue upper = firstOf(operators, "$lt", "$lte");
+        if (lower == null && upper == null) {
+            return null;
+        }
+        BsonValue anchor = lower != null ? lower : upper;
+        Set<BsonValue> ids = new HashSet<>();
+        NavigableMap<BsonValue, Set<BsonValue>> range = lower != null
+            ? byLeadValue.tailMap(lower, true)
+            : byLeadValue.headMap(upper, true).descendingMap();
+        for (Map.Entry<BsonValue, Set<BsonValue>> entry : range.entrySet()) {
+            // Comparisons only match within the same type bracket
+            if (BsonValues.typeRank(entry.getKey()) != BsonValues.typeRank(anchor)) {
+                break;
+            }
+            if (lower != null && upper != null && BsonValues.compare(entry.getKey(), upper) > 0) {
+                break;
+            }
+            ids.addAll(entry.getValue());
+        }
+        return ids;
+    }
+
+    private Set<BsonValue> lookup(BsonValue value) {
+        Set<BsonValue> ids = byLeadValue.get(value);
+        return ids != null ? ids : Set.of();
+    }
+
+    // Only an anchored, case-sensitive literal prefix can be answered as a key range
+    private Set<BsonValue> prefixCandidates(String pattern, String options) {
+        if (!pattern.startsWith("^") || options.contains("i") || options.contains("m") || options.contains("x")) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 1; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if ("\\.[]{}()*+?^$|".indexOf(c) >= 0) {
+                break;
+            }
+            prefix.append(c);
+        }
+        if (prefix.length() == 0) {
+            return null;
+        }
+        Set<BsonValue> ids = new HashSet<>();
+        String start = prefix.toString();
+        for (Map.Entry<BsonValue, Set<BsonValue>> entry
+                : byLeadValue.tailMap(new BsonString(start), true).entrySet()) {
+            if (!entry.getKey().isString() || !entry.getKey().asString().getValue().startsWith(start)) {
+                break;
+            }
+            ids.addAll(entry.getValue());
+        }
+        return ids;
+    }
+
+    private static BsonValue firstOf(BsonDocument operators, String a, String b) {
+        BsonValue value = operators.get(a);
+        return value != null ? value : operators.get(b);
+    }
+
+    // The condition on field at the top level of filter or inside a top-level $and
+    private static BsonValue findCondition(BsonDocument filter, String field) {
+        BsonValue direct = filter.get(field);
+        if (direct != null) {
+            return direct;
+        }
+        BsonValue and = filter.get("$and");
+        if (and != null && and.isArray()) {
+            for (BsonValue part : and.asArray()) {
+                if (part.isDocument()) {
+                    BsonValue nested = findCondition(part.asDocument(), field);
+                    if (nested != null) {
+                        return nested;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,345 @@
+package com.smartmedicare.services.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+
+/**
+ * One collection of the embedded engine: the live documents in insertion order,
+ * their indexes, and the append-only log file they are recovered from.
+ *
+ * <p>Each log record is one op byte ({@code P} put, {@code D} delete) followed by
+ * a BSON document (the whole document, or just its {@code _id} for deletes).
+ * Replaying the log on open rebuilds the collection; a record cut short by a
+ * crash is dropped. Once the log holds more than twice the live data it is
+ * rewritten to a temporary file that atomically replaces it.
+ */
+final class EmbeddedTable implements AutoCloseable {
+    private static final byte PUT = 'P';
+    private static final byte DELETE = 'D';
+    private static final long COMPACT_MIN_BYTES = 1L << 20;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final ServerAddress ADDRESS = new ServerAddress("embedded");
+
+    private final String name;
+    private final Path logFile;
+    private final boolean syncWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<BsonValue, RawBsonDocument> documents = new LinkedHashMap<>();
+    private final List<EmbeddedIndex> indexes = new ArrayList<>();
+    private FileChannel log;
+    private long logBytes;
+    private long liveBytes;
+
+    EmbeddedTable(String name, Path logFile, boolean syncWrites) throws IOException {
+        this.name = name;
+        this.logFile = logFile;
+        this.syncWrites = syncWrites;
+        long validBytes = replay();
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (log.size() > validBytes) {
+            System.err.println("Embedded store: dropping " + (log.size() - validBytes)
+                + " bytes of incomplete writes at the end of " + logFile.getFileName());
+            log.truncate(validBytes);
+        }
+        log.position(validBytes);
+        logBytes = validBytes;
+        compactIfNeeded();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Returns the length of the intact prefix of the log
+    private long replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+        }
+        buffer.flip().order(ByteOrder.LITTLE_ENDIAN);
+        long valid = 0;
+        while (buffer.remaining() >= 6) {
+            int start = buffer.position();
+            byte op = buffer.get(start);
+            int length = buffer.getInt(start + 1);
+            if ((op != PUT && op != DELETE) || length < 5 || length > buffer.remaining() - 1
+                    || buffer.get(start + length) != 0) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.position(start + 1);
+            buffer.get(bytes);
+            RawBsonDocument document = new RawBsonDocument(bytes);
+            BsonValue id = document.get("_id");
+            RawBsonDocument previous = op == PUT ? documents.put(id, document) : documents.remove(id);
+            if (previous != null) {
+                liveBytes -= previous.getByteBuffer().remaining();
+            }
+            if (op == PUT) {
+                liveBytes += length;
+            }
+            valid = buffer.position();
+        }
+        return valid;
+    }
+
+    void createIndex(String indexName, BsonDocument keys, boolean unique, BsonDocument partialFilter) {
+        lock.writeLock().lock();
+        try {
+            for (EmbeddedIndex existing : indexes) {
+                if (existing.getName().equals(indexName)) {
+                    return;
+                }
+            }
+            EmbeddedIndex index = new EmbeddedIndex(indexName, keys, unique, partialFilter);
+            for (Map.Entry<BsonValue, RawBsonDocument> entry : documents.entrySet()) {
+                BsonValue owner = index.conflictFor(entry.getValue(), entry.getKey());
+                if (owner != null) {
+                    throw duplicateKey(index.getName(), index.describeKey(entry.getValue()));
+                }
+                index.add(entry.getKey(), entry.getValue());
+            }
+            indexes.add(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Matching documents in insertion order (or {@code sort} order), at most
+     * {@code limit} of them after skipping {@code skip}; {@code limit} 0 means all.
+     */
+    List<RawBsonDocument> select(BsonDocument filter, Comparator<BsonDocument> sort, int skip, int limit) {
+        lock.readLock().lock();
+        try {
+            // Without a sort the scan can stop as soon as the page is full
+            int stopAfter = sort == null && limit > 0 ? skip + limit : Integer.MAX_VALUE;
+            List<RawBsonDocument> matches = new ArrayList<>();
+            for (RawBsonDocument document : candidates(filter)) {
+                if (QueryMatcher.matches(document, filter)) {
+                    matches.add(document);
+                    if (matches.size() >= stopAfter) {
+                        break;
+                    }
+                }
+            }
+            if (sort != null) {
+                matches.sort(sort);
+            }
+            int from = Math.min(skip, matches.size());
+            int to = limit > 0 ? Math.min(matches.size(), from + limit) : matches.size();
+            return from == 0 && to == matches.size() ? matches : new ArrayList<>(matches.subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Collection<RawBsonDocument> candidates(BsonDocument filter) {
+        BsonValue idCondition = filter.get("_id");
+        if (idCondition != null && !idCondition.isDocument() && !idCondition.isRegularExpression()) {
+            RawBsonDocument document = documents.get(idCondition);
+            return document != null ? List.of(document) : List.of();
+        }
+        Set<BsonValue> best = null;
+        for (EmbeddedIndex index : indexes) {
+            Set<BsonValue> ids = index.candidates(filter);
+            if (ids != null && (best == null || ids.size() < best.size())) {
+                best = ids;
+            }
+        }
+        if (best == null) {
+            return documents.values();
+        }
+        // Like the server, results come back in no particular order unless sorted
+        List<RawBsonDocument> found = new ArrayList<>(best.size());
+        for (BsonValue id : best) {
+            RawBsonDocument document = documents.get(id);
+            if (document != null) {
+                found.add(document);
+            }
+        }
+        return found;
+    }
+
+    void insert(BsonDocument document) {
+        lock.writeLock().lock();
+        try {
+            BsonValue id = document.get("_id");
+            if (documents.containsKey(id)) {
+                throw duplicateKey("_id_", "{ _id: " + id + " }");
+            }
+            checkUnique(document, id);
+            store(id, null, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Replaces the document stored under {@code id}; returns false when it no longer exists. */
+    boolean replace(BsonValue id, BsonDocument document) {
+        lock.writeLock().lock();
+        try {
+            RawBsonDocument previous = documents.get(id);
+            if (previous == null) {
+                return false;
+            }
+            checkUnique(document, id);
+            store(id, previous, document);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    RawBsonDocument delete(BsonValue id) {
+        lock.writeLock().lock();
+        try {
+            RawBsonDocument previous = documents.get(id);
+            if (previous == null) {
+                return null;
+            }
+            append(DELETE, new RawBsonDocument(new BsonDocument("_id", id), new BsonDocumentCodec()));
+            documents.remove(id);
+            liveBytes -= previous.getByteBuffer().remaining();
+            for (EmbeddedIndex index : indexes) {
+                index.remove(id, previous);
+            }
+            compactIfNeeded();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Runs {@code action} under the write lock so read-modify-write sequences are atomic. */
+    <R> R atomically(Supplier<R> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkUnique(BsonDocument document, BsonValue id) {
+        for (EmbeddedIndex index : indexes) {
+            if (index.conflictFor(document, id) != null) {
+                throw duplicateKey(index.getName(), index.describeKey(document));
+            }
+        }
+    }
+
+    private void store(BsonValue id, RawBsonDocument previous, BsonDocument document) {
+        RawBsonDocument raw = document instanceof RawBsonDocument r ? r : new RawBsonDocument(document, new BsonDocumentCodec());
+        append(PUT, raw);
+        documents.put(id, raw);
+        liveBytes += raw.getByteBuffer().remaining();
+        if (previous != null) {
+            liveBytes -= previous.getByteBuffer().remaining();
+        }
+        for (EmbeddedIndex index : indexes) {
+            if (previous != null) {
+                index.remove(id, previous);
+            }
+            index.add(id, raw);
+        }
+        compactIfNeeded();
+    }
+
+    private void append(byte op, RawBsonDocument document) {
+        try {
+            logBytes += writeRecord(log, op, document);
+            if (syncWrites) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new MongoException("Embedded store could not write " + logFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int writeRecord(FileChannel channel, byte op, RawBsonDocument document) throws IOException {
+        ByteBuffer bson = document.getByteBuffer().asNIO();
+        ByteBuffer record = ByteBuffer.allocate(1 + bson.remaining());
+        record.put(op).put(bson).flip();
+        int written = record.remaining();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        return written;
+    }
+
+    private void compactIfNeeded() {
+        if (logBytes <= 2 * liveBytes + COMPACT_MIN_BYTES) {
+            return;
+        }
+        Path temp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try {
+            long written = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (RawBsonDocument document : documents.values()) {
+                    written += writeRecord(out, PUT, document);
+                }
+                out.force(true);
+            }
+            log.close();
+            Files.move(temp, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log = FileChannel.open(logFile, StandardOpenOption.WRITE);
+            log.position(written);
+            logBytes = written;
+        } catch (IOException e) {
+            throw new MongoException("Embedded store could not compact " + logFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    static MongoWriteException duplicateKey(String indexName, String key) {
+        return new MongoWriteException(new WriteError(DUPLICATE_KEY,
+            "E11000 duplicate key error index: " + indexName + " dup key: " + key, new BsonDocument()), ADDRESS);
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (log.isOpen()) {
+                log.force(true);
+                log.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing embedded collection " + name + ": " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
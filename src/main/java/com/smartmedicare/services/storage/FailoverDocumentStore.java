@@ -0,0 +1,310 @@
+package com.smartmedicare.services.storage;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Routes every collection to MongoDB while it is reachable and to an
+ * {@link EmbeddedDocumentStore} while it is not. Offline, reads are served
+ * from the local store and each write is applied locally and recorded in the
+ * {@link WriteJournal}, so screens see their own changes and nothing waits on
+ * server selection. {@link #reconnect} replays the journal and switches back.
+ * While online, {@link #refreshLocalCopy} keeps the local store an
+ * {@link OfflineCopy} of the server, so going offline again starts from
+ * current data.
+ */
+public class FailoverDocumentStore implements DocumentStore {
+    private final MongoDocumentStore remote;
+    private final EmbeddedDocumentStore local;
+    private final WriteJournal journal;
+    // Writes hold the read side, so switching modes waits for in-flight writes
+    private final ReentrantReadWriteLock modeLock = new ReentrantReadWriteLock();
+    private volatile boolean offline;
+
+    public FailoverDocumentStore(MongoDocumentStore remote, EmbeddedDocumentStore local, WriteJournal journal,
+                                 boolean offline) {
+        this.remote = remote;
+        this.local = local;
+        this.journal = journal;
+        this.offline = offline;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public WriteJournal getJournal() {
+        return journal;
+    }
+
+    /** Sends further reads and writes to the local store and journal. */
+    public void goOffline() {
+        modeLock.writeLock().lock();
+        try {
+            offline = true;
+        } finally {
+            modeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replays the journal and, once it is drained, switches back to MongoDB. The
+     * final pass runs with writes paused so none slips in between the replay and
+     * the switch. Throws when the server is unreachable.
+     */
+    public JournalReplayer.Report reconnect(JournalReplayer replayer) {
+        JournalReplayer.Report report = replayer.replay(journal);
+        if (!report.complete()) {
+            return report;
+        }
+        modeLock.writeLock().lock();
+        try {
+            report = report.plus(replayer.replay(journal));
+            if (report.complete()) {
+                offline = false;
+            }
+            return report;
+        } finally {
+            modeLock.writeLock().unlock();
+        }
+    }
+
+    /** Copies the server into the local store; stops without harm if the session goes offline meanwhile. */
+    public OfflineCopy.Report refreshLocalCopy() {
+        return OfflineCopy.refresh(remote, local, write -> {
+            // Held per write, so an offline edit is never overwritten by the server's older copy
+            modeLock.readLock().lock();
+            try {
+                if (offline) {
+                    return false;
+                }
+                write.run();
+                return true;
+            } finally {
+                modeLock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public <T> StoreCollection<T> getCollection(String name, Class<T> documentClass) {
+        return new FailoverCollection<>(remote.getCollection(name, documentClass), local.getCollection(name, documentClass));
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return local.getCodecRegistry();
+    }
+
+    @Override
+    public boolean supportsChangeStreams() {
+        return !offline;
+    }
+
+    @Override
+    public String describe() {
+        return offline
+            ? local.describe() + " (offline, " + journal.pendingCount() + " writes waiting for MongoDB)"
+            : remote.describe();
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+        local.close();
+    }
+
+    private final class FailoverCollection<T> implements StoreCollection<T> {
+        private final StoreCollection<T> remoteCollection;
+        private final StoreCollection<T> localCollection;
+
+        FailoverCollection(StoreCollection<T> remoteCollection, StoreCollection<T> localCollection) {
+            this.remoteCollection = remoteCollection;
+            this.localCollection = localCollection;
+        }
+
+        private StoreCollection<T> reads() {
+            return offline ? localCollection : remoteCollection;
+        }
+
+        // Runs a write against MongoDB, or locally plus the journal entry it returns
+        private <R> R write(Supplier<R> online, Supplier<R> offlineWrite) {
+            modeLock.readLock().lock();
+            try {
+                return offline ? offlineWrite.get() : online.get();
+            } finally {
+                modeLock.readLock().unlock();
+            }
+        }
+
+        private BsonDocument toBson(Bson bson) {
+            return bson.toBsonDocument(BsonDocument.class, getCodecRegistry());
+        }
+
+        private BsonDocument encode(T document) {
+            BsonDocument encoded = new BsonDocument();
+            getCodecRegistry().get(getDocumentClass()).encode(new BsonDocumentWriter(encoded), document,
+                EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+            return encoded;
+        }
+
+        @Override
+        public String getName() {
+            return localCollection.getName();
+        }
+
+        @Override
+        public Class<T> getDocumentClass() {
+            return localCollection.getDocumentClass();
+        }
+
+        @Override
+        public CodecRegistry getCodecRegistry() {
+            return localCollection.getCodecRegistry();
+        }
+
+        @Override
+        public <N> StoreCollection<N> withDocumentClass(Class<N> documentClass) {
+            return new FailoverCollection<>(remoteCollection.withDocumentClass(documentClass),
+                localCollection.withDocumentClass(documentClass));
+        }
+
+        @Override
+        public InsertOneResult insertOne(T document) {
+            return write(() -> remoteCollection.insertOne(document), () -> {
+                InsertOneResult result = localCollection.insertOne(document);
+                // Journal the stored form so the server gets the same _id and fields
+                BsonDocument stored = localCollection.withDocumentClass(BsonDocument.class)
+                    .find(Filters.eq("_id", result.getInsertedId())).first();
+                journal.append(getName(), WriteJournal.Op.INSERT, null, null, stored, false);
+                return result;
+            });
+        }
+
+        @Override
+        public FindQuery<T> find(Bson filter) {
+            return reads().find(filter);
+        }
+
+        @Override
+        public long countDocuments(Bson filter) {
+            return reads().countDocuments(filter);
+        }
+
+        @Override
+        public <V> List<V> distinct(String field, Bson filter, Class<V> valueClass) {
+            return reads().distinct(field, filter, valueClass);
+        }
+
+        // Plain updates and deletes are journaled even without a local match, since the
+        // document may exist only on the server. The find-and-modify variants report
+        // what they changed to the caller, so they only journal what they found locally;
+        // the offline copy holds every document the server had at the last refresh, and
+        // a miss is reported to the caller as "not found" rather than dropped silently.
+        // They journal the _id of the document they changed, not the caller's filter,
+        // which could pick a different document, or none, on the server.
+        @Override
+        public UpdateResult updateOne(Bson filter, Bson update) {
+            return write(() -> remoteCollection.updateOne(filter, update), () -> {
+                UpdateResult result = localCollection.updateOne(filter, update);
+                journal.append(getName(), WriteJournal.Op.UPDATE, toBson(filter), toBson(update), null, false);
+                return result;
+            });
+        }
+
+        @Override
+        public UpdateResult replaceOne(Bson filter, T replacement, boolean upsert) {
+            return write(() -> remoteCollection.replaceOne(filter, replacement, upsert), () -> {
+                UpdateResult result = localCollection.replaceOne(filter, replacement, upsert);
+                journal.append(getName(), WriteJournal.Op.REPLACE, toBson(filter), null, encode(replacement), upsert);
+                return result;
+            });
+        }
+
+        @Override
+        public Document findOneAndUpdate(Bson filter, Bson update, Bson projection) {
+            return write(() -> remoteCollection.findOneAndUpdate(filter, update, projection), () -> {
+                Document before = localCollection.findOneAndUpdate(filter, update, keepingId(projection));
+                if (before != null) {
+                    journal.append(getName(), WriteJournal.Op.UPDATE, idFilter(before), toBson(update), null, false);
+                }
+                return asProjected(before, projection);
+            });
+        }
+
+        @Override
+        public Document findOneAndDelete(Bson filter, Bson projection) {
+            return write(() -> remoteCollection.findOneAndDelete(filter, projection), () -> {
+                Document deleted = localCollection.findOneAndDelete(filter, keepingId(projection));
+                if (deleted != null) {
+                    journal.append(getName(), WriteJournal.Op.DELETE, idFilter(deleted), null, null, false);
+                }
+                return asProjected(deleted, projection);
+            });
+        }
+
+        private BsonDocument idFilter(Document changed) {
+            return toBson(Filters.eq("_id", changed.get("_id")));
+        }
+
+        // The caller's projection without an _id exclusion, so the journal can name the document
+        private Bson keepingId(Bson projection) {
+            if (projection == null || !excludesId(projection)) {
+                return projection;
+            }
+            BsonDocument withId = toBson(projection).clone();
+            withId.remove("_id");
+            return withId;
+        }
+
+        private Document asProjected(Document document, Bson projection) {
+            if (document != null && projection != null && excludesId(projection)) {
+                document.remove("_id");
+            }
+            return document;
+        }
+
+        private boolean excludesId(Bson projection) {
+            BsonValue id = toBson(projection).get("_id");
+            return id != null && ((id.isBoolean() && !id.asBoolean().getValue())
+                || (id.isNumber() && id.asNumber().doubleValue() == 0));
+        }
+
+        @Override
+        public DeleteResult deleteOne(Bson filter) {
+            return write(() -> remoteCollection.deleteOne(filter), () -> {
+                DeleteResult result = localCollection.deleteOne(filter);
+                journal.append(getName(), WriteJournal.Op.DELETE, toBson(filter), null, null, false);
+                return result;
+            });
+        }
+
+        @Override
+        public <R> void aggregate(List<? extends Bson> pipeline, Class<R> resultClass, Consumer<? super R> action) {
+            reads().aggregate(pipeline, resultClass, action);
+        }
+
+        @Override
+        public void createIndex(String name, Bson keys, boolean unique, Bson partialFilter) {
+            localCollection.createIndex(name, keys, unique, partialFilter);
+            if (!offline) {
+                remoteCollection.createIndex(name, keys, unique, partialFilter);
+            }
+        }
+    }
+}
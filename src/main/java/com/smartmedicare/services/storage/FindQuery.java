@@ -0,0 +1,34 @@
+package com.smartmedicare.services.storage;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.bson.conversions.Bson;
+
+/**
+ * A find that is configured fluently and runs when a terminal method
+ * ({@link #first()}, {@link #into}, {@link #forEach}, {@link #stream()}) is called.
+ */
+public interface FindQuery<T> {
+
+    FindQuery<T> sort(Bson sort);
+
+    FindQuery<T> projection(Bson projection);
+
+    FindQuery<T> skip(int skip);
+
+    FindQuery<T> limit(int limit);
+
+    /** Hint for how many documents to fetch per round trip; ignored by local engines. */
+    FindQuery<T> batchSize(int batchSize);
+
+    T first();
+
+    <C extends Collection<? super T>> C into(C target);
+
+    void forEach(Consumer<? super T> action);
+
+    /** Lazily streams the results; the stream may hold a server cursor and must be closed. */
+    Stream<T> stream();
+}
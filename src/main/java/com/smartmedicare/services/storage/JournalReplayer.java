@@ -0,0 +1,331 @@
+package com.smartmedicare.services.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Replays a {@link WriteJournal} into MongoDB. Consecutive entries for the same
+ * collection go out as one ordered bulk write. Every entry's idempotency key is
+ * recorded in {@code journal_applied} after its batch is on the server, so a
+ * retried replay skips it; the records expire after {@value #APPLIED_TTL_DAYS}
+ * days. A replay interrupted between the two steps runs the batch again, which
+ * is harmless for inserts, replaces and deletes. Updates are not idempotent
+ * ({@code $inc}, {@code $push}), so each one runs on its own in a transaction
+ * that also records its key, and a key already recorded aborts it. Domain
+ * documents never carry replay bookkeeping. A server without transactions (a
+ * standalone {@code mongod}) gets each update followed by its record, which
+ * can repeat an update only if the replay dies between the two.
+ *
+ * <p>An entry the server rejects (typically a slot booked by another clinic
+ * while this one was offline) is a conflict: it is reported, written to
+ * {@code journal-conflicts.log} and skipped so it does not block the entries
+ * after it. A network error stops the replay; the rest stays journaled.
+ */
+public class JournalReplayer {
+    public static final String APPLIED_COLLECTION = "journal_applied";
+    static final long APPLIED_TTL_DAYS = 30;
+    private static final int MAX_BATCH = 500;
+    // Returned by a server that cannot run a transaction
+    private static final int ILLEGAL_OPERATION = 20;
+
+    private enum UpdateOutcome {
+        APPLIED,
+        UNMATCHED,
+        ALREADY_APPLIED,
+        CONFLICT
+    }
+
+    public record Conflict(String key, String collection, WriteJournal.Op op, Date recordedAt, String reason) {
+    }
+
+    /**
+     * Outcome of a replay. {@code unmatched} counts updates and deletes that found
+     * nothing on the server; {@code complete} is false when the replay stopped on
+     * an error and entries are still pending.
+     */
+    public record Report(int replayed, int alreadyApplied, int unmatched, List<Conflict> conflicts, boolean complete) {
+
+        public Report plus(Report next) {
+            List<Conflict> all = new ArrayList<>(conflicts);
+            all.addAll(next.conflicts);
+            return new Report(replayed + next.replayed, alreadyApplied + next.alreadyApplied,
+                unmatched + next.unmatched, all, next.complete);
+        }
+
+        @Override
+        public String toString() {
+            return "replayed=" + replayed + ", alreadyApplied=" + alreadyApplied + ", unmatched=" + unmatched
+                + ", conflicts=" + conflicts.size() + (complete ? "" : ", incomplete");
+        }
+    }
+
+    private final MongoClient client;
+    private final MongoDatabase database;
+    private final Path conflictLog;
+    private boolean transactions = true;
+
+    public JournalReplayer(MongoClient client, MongoDatabase database, Path conflictLog) {
+        this.client = client;
+        this.database = database;
+        this.conflictLog = conflictLog;
+    }
+
+    public Report replay(WriteJournal journal) {
+        List<WriteJournal.Entry> entries = journal.pendingEntries();
+        MongoCollection<Document> applied = database.getCollection(APPLIED_COLLECTION);
+        int replayed = 0;
+        int alreadyApplied = 0;
+        int unmatched = 0;
+        List<Conflict> conflicts = new ArrayList<>();
+        try {
+            applied.createIndex(Indexes.ascending("appliedAt"),
+                new IndexOptions().name("appliedAt_ttl").expireAfter(APPLIED_TTL_DAYS, TimeUnit.DAYS));
+        } catch (MongoException e) {
+            System.err.println("Could not create the " + APPLIED_COLLECTION + " expiry index: " + e.getMessage());
+        }
+
+        int start = 0;
+        while (start < entries.size()) {
+            int end = start + 1;
+            String collection = entries.get(start).collection();
+            while (end < entries.size() && end - start < MAX_BATCH && entries.get(end).collection().equals(collection)) {
+                end++;
+            }
+            List<WriteJournal.Entry> batch = entries.subList(start, end);
+            try {
+                Set<String> done = appliedKeys(applied, batch);
+                List<WriteJournal.Entry> todo = new ArrayList<>(batch.size());
+                for (WriteJournal.Entry entry : batch) {
+                    if (done.contains(entry.key())) {
+                        alreadyApplied++;
+                    } else {
+                        todo.add(entry);
+                    }
+                }
+                MongoCollection<BsonDocument> target = database.getCollection(collection, BsonDocument.class);
+                int offset = 0;
+                while (offset < todo.size()) {
+                    if (todo.get(offset).op() == WriteJournal.Op.UPDATE) {
+                        switch (applyUpdate(target, applied, todo.get(offset), conflicts)) {
+                            case APPLIED -> replayed++;
+                            case UNMATCHED -> {
+                                replayed++;
+                                unmatched++;
+                            }
+                            case ALREADY_APPLIED -> alreadyApplied++;
+                            case CONFLICT -> { }
+                        }
+                        offset++;
+                        continue;
+                    }
+                    // Everything up to the next update goes out as one ordered bulk write
+                    int runEnd = offset + 1;
+                    while (runEnd < todo.size() && todo.get(runEnd).op() != WriteJournal.Op.UPDATE) {
+                        runEnd++;
+                    }
+                    List<WriteJournal.Entry> segment = todo.subList(offset, runEnd);
+                    try {
+                        BulkWriteResult result = target.bulkWrite(toModels(segment), new BulkWriteOptions().ordered(true));
+                        unmatched += unmatched(segment, result);
+                        replayed += segment.size();
+                        markApplied(applied, segment);
+                        offset = runEnd;
+                    } catch (MongoBulkWriteException e) {
+                        // Ordered: everything before the failing entry was applied, nothing after it
+                        BulkWriteError error = e.getWriteErrors().get(0);
+                        List<WriteJournal.Entry> succeeded = segment.subList(0, error.getIndex());
+                        replayed += succeeded.size();
+                        unmatched += unmatched(succeeded, e.getWriteResult());
+                        WriteJournal.Entry failed = segment.get(error.getIndex());
+                        if (isOwnEarlierInsert(target, failed, error)) {
+                            alreadyApplied++;
+                        } else {
+                            conflicts.add(reportConflict(failed, error.getMessage()));
+                        }
+                        List<WriteJournal.Entry> settled = new ArrayList<>(succeeded);
+                        settled.add(failed);
+                        markApplied(applied, settled);
+                        offset += error.getIndex() + 1;
+                    }
+                }
+                journal.checkpoint(batch.get(batch.size() - 1).sequence());
+            } catch (MongoException e) {
+                System.err.println("Journal replay stopped: " + e.getMessage());
+                return new Report(replayed, alreadyApplied, unmatched, conflicts, false);
+            }
+            start = end;
+        }
+        return new Report(replayed, alreadyApplied, unmatched, conflicts, true);
+    }
+
+    private static Set<String> appliedKeys(MongoCollection<Document> applied, List<WriteJournal.Entry> batch) {
+        List<String> keys = new ArrayList<>(batch.size());
+        for (WriteJournal.Entry entry : batch) {
+            keys.add(entry.key());
+        }
+        Set<String> done = new HashSet<>();
+        applied.find(Filters.in("_id", keys)).forEach(doc -> done.add(doc.getString("_id")));
+        return done;
+    }
+
+    /**
+     * Applies one update together with its key: both land or, when the key is
+     * already recorded, neither does. A rejected update is a conflict and is
+     * recorded on its own so the next replay skips it.
+     */
+    private UpdateOutcome applyUpdate(MongoCollection<BsonDocument> target, MongoCollection<Document> applied,
+                                      WriteJournal.Entry entry, List<Conflict> conflicts) {
+        try {
+            UpdateResult result;
+            if (transactions) {
+                try (ClientSession session = client.startSession()) {
+                    result = session.withTransaction(() -> {
+                        applied.insertOne(session, appliedRecord(entry, new Date()));
+                        return target.updateOne(session, entry.filter(), entry.update());
+                    });
+                } catch (MongoException e) {
+                    if (!transactionsUnsupported(e)) {
+                        throw e;
+                    }
+                    transactions = false;
+                    System.err.println("Server has no transactions; offline updates replay at least once: "
+                        + e.getMessage());
+                    return applyUpdate(target, applied, entry, conflicts);
+                }
+            } else {
+                result = target.updateOne(entry.filter(), entry.update());
+                markApplied(applied, List.of(entry));
+            }
+            return result.getMatchedCount() > 0 ? UpdateOutcome.APPLIED : UpdateOutcome.UNMATCHED;
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY
+                    && applied.find(Filters.eq("_id", entry.key())).first() != null) {
+                return UpdateOutcome.ALREADY_APPLIED;
+            }
+            conflicts.add(reportConflict(entry, e.getMessage()));
+            markApplied(applied, List.of(entry));
+            return UpdateOutcome.CONFLICT;
+        }
+    }
+
+    // The driver refuses up front on a standalone; older servers answer IllegalOperation
+    private static boolean transactionsUnsupported(MongoException e) {
+        return e.getCode() == ILLEGAL_OPERATION
+            || (e.getMessage() != null && e.getMessage().startsWith("Transactions are not supported"));
+    }
+
+    private static Document appliedRecord(WriteJournal.Entry entry, Date appliedAt) {
+        return new Document("_id", entry.key())
+            .append("collection", entry.collection())
+            .append("op", entry.op().name())
+            .append("recordedAt", entry.recordedAt())
+            .append("appliedAt", appliedAt);
+    }
+
+    private static void markApplied(MongoCollection<Document> applied, List<WriteJournal.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Document> docs = new ArrayList<>(entries.size());
+        Date now = new Date();
+        for (WriteJournal.Entry entry : entries) {
+            docs.add(appliedRecord(entry, now));
+        }
+        try {
+            applied.insertMany(docs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Keys recorded by an earlier, interrupted replay are already there
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static List<WriteModel<BsonDocument>> toModels(List<WriteJournal.Entry> entries) {
+        List<WriteModel<BsonDocument>> models = new ArrayList<>(entries.size());
+        for (WriteJournal.Entry entry : entries) {
+            models.add(switch (entry.op()) {
+                case INSERT -> new InsertOneModel<>(entry.document());
+                case UPDATE -> throw new IllegalArgumentException("updates replay one at a time");
+                case REPLACE -> new ReplaceOneModel<>(entry.filter(), entry.document(),
+                    new ReplaceOptions().upsert(entry.upsert()));
+                case DELETE -> new DeleteOneModel<>(entry.filter());
+            });
+        }
+        return models;
+    }
+
+    private static int unmatched(List<WriteJournal.Entry> entries, BulkWriteResult result) {
+        int expected = 0;
+        for (WriteJournal.Entry entry : entries) {
+            if (entry.op() == WriteJournal.Op.UPDATE || entry.op() == WriteJournal.Op.DELETE
+                    || (entry.op() == WriteJournal.Op.REPLACE && !entry.upsert())) {
+                expected++;
+            }
+        }
+        int found = result.getMatchedCount() + result.getDeletedCount();
+        return Math.max(0, expected - found);
+    }
+
+    // A document with the entry's own _id can only come from a previous, interrupted replay
+    private static boolean isOwnEarlierInsert(MongoCollection<BsonDocument> target, WriteJournal.Entry entry,
+                                              BulkWriteError error) {
+        if (entry.op() != WriteJournal.Op.INSERT
+                || ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+            return false;
+        }
+        return target.find(Filters.eq("_id", entry.document().get("_id"))).first() != null;
+    }
+
+    private Conflict reportConflict(WriteJournal.Entry entry, String reason) {
+        Conflict conflict = new Conflict(entry.key(), entry.collection(), entry.op(), entry.recordedAt(), reason);
+        System.err.println("Offline write conflict on " + entry.collection() + " (" + entry.op() + " recorded "
+            + entry.recordedAt() + "): " + reason);
+        BsonDocument target = entry.document() != null ? entry.document() : entry.filter();
+        String line = Instant.now() + "\t" + entry.key() + "\t" + entry.collection() + "\t" + entry.op()
+            + "\t" + entry.recordedAt().toInstant() + "\t" + reason + "\t" + (target != null ? target.toJson() : "")
+            + System.lineSeparator();
+        try {
+            Files.writeString(conflictLog, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write " + conflictLog + ": " + e.getMessage());
+        }
+        return conflict;
+    }
+}
@@ -0,0 +1,278 @@
+package com.smartmedicare.services.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * {@link DocumentStore} over a MongoDB database; every call maps one to one onto
+ * the driver.
+ *
+ * <p>Calls go through the {@link CircuitBreaker}, when there is one, so they fail
+ * fast while the server is down. Reads, aggregations and find-and-modify
+ * commands carry a server-side {@code maxTimeMS} deadline; plain writes have
+ * none in this driver and are bounded by the server selection and socket
+ * timeouts. Streams are left without a deadline because exports legitimately
+ * run long.
+ */
+public class MongoDocumentStore implements DocumentStore {
+    private final MongoDatabase database;
+    private final CircuitBreaker breaker;
+    private final long readDeadlineMs;
+    private final long writeDeadlineMs;
+
+    public MongoDocumentStore(MongoDatabase database) {
+        this(database, null, 0, 0);
+    }
+
+    /** {@code breaker} may be null; a deadline of 0 leaves that kind of call unbounded. */
+    public MongoDocumentStore(MongoDatabase database, CircuitBreaker breaker, long readDeadlineMs,
+                              long writeDeadlineMs) {
+        this.database = database;
+        this.breaker = breaker;
+        this.readDeadlineMs = Math.max(0, readDeadlineMs);
+        this.writeDeadlineMs = Math.max(0, writeDeadlineMs);
+    }
+
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    private <R> R guarded(Supplier<R> action) {
+        return breaker != null ? breaker.call(action) : action.get();
+    }
+
+    @Override
+    public <T> StoreCollection<T> getCollection(String name, Class<T> documentClass) {
+        return new MongoStoreCollection<>(this, database.getCollection(name, documentClass));
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return database.getCodecRegistry();
+    }
+
+    @Override
+    public boolean supportsChangeStreams() {
+        return true;
+    }
+
+    @Override
+    public String describe() {
+        return "MongoDB database " + database.getName();
+    }
+
+    @Override
+    public void close() {
+        // The client is owned and closed by DatabaseService
+    }
+
+    static final class MongoStoreCollection<T> implements StoreCollection<T> {
+        private final MongoDocumentStore store;
+        private final MongoCollection<T> collection;
+
+        MongoStoreCollection(MongoDocumentStore store, MongoCollection<T> collection) {
+            this.store = store;
+            this.collection = collection;
+        }
+
+        /** The underlying driver collection, for MongoDB-only features such as change streams. */
+        MongoCollection<T> unwrap() {
+            return collection;
+        }
+
+        @Override
+        public String getName() {
+            return collection.getNamespace().getCollectionName();
+        }
+
+        @Override
+        public Class<T> getDocumentClass() {
+            return collection.getDocumentClass();
+        }
+
+        @Override
+        public CodecRegistry getCodecRegistry() {
+            return collection.getCodecRegistry();
+        }
+
+        @Override
+        public <N> StoreCollection<N> withDocumentClass(Class<N> documentClass) {
+            return new MongoStoreCollection<>(store, collection.withDocumentClass(documentClass));
+        }
+
+        @Override
+        public InsertOneResult insertOne(T document) {
+            return store.guarded(() -> collection.insertOne(document));
+        }
+
+        @Override
+        public FindQuery<T> find(Bson filter) {
+            return new MongoFindQuery<>(store, filter != null ? collection.find(filter) : collection.find());
+        }
+
+        @Override
+        public long countDocuments(Bson filter) {
+            CountOptions options = new CountOptions().maxTime(store.readDeadlineMs, TimeUnit.MILLISECONDS);
+            return store.guarded(() -> collection.countDocuments(filter != null ? filter : new Document(), options));
+        }
+
+        @Override
+        public <V> List<V> distinct(String field, Bson filter, Class<V> valueClass) {
+            return store.guarded(() -> collection.distinct(field, filter != null ? filter : new Document(), valueClass)
+                .maxTime(store.readDeadlineMs, TimeUnit.MILLISECONDS)
+                .into(new ArrayList<>()));
+        }
+
+        @Override
+        public UpdateResult updateOne(Bson filter, Bson update) {
+            return store.guarded(() -> collection.updateOne(filter, update));
+        }
+
+        @Override
+        public UpdateResult replaceOne(Bson filter, T replacement, boolean upsert) {
+            return store.guarded(() -> collection.replaceOne(filter, replacement, new ReplaceOptions().upsert(upsert)));
+        }
+
+        @Override
+        public Document findOneAndUpdate(Bson filter, Bson update, Bson projection) {
+            FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().projection(projection)
+                .maxTime(store.writeDeadlineMs, TimeUnit.MILLISECONDS);
+            return store.guarded(() -> collection.withDocumentClass(Document.class)
+                .findOneAndUpdate(filter, update, options));
+        }
+
+        @Override
+        public Document findOneAndDelete(Bson filter, Bson projection) {
+            FindOneAndDeleteOptions options = new FindOneAndDeleteOptions().projection(projection)
+                .maxTime(store.writeDeadlineMs, TimeUnit.MILLISECONDS);
+            return store.guarded(() -> collection.withDocumentClass(Document.class)
+                .findOneAndDelete(filter, options));
+        }
+
+        @Override
+        public DeleteResult deleteOne(Bson filter) {
+            return store.guarded(() -> collection.deleteOne(filter));
+        }
+
+        @Override
+        public <R> void aggregate(List<? extends Bson> pipeline, Class<R> resultClass, Consumer<? super R> action) {
+            store.guarded(() -> {
+                collection.aggregate(pipeline, resultClass)
+                    .maxTime(store.readDeadlineMs, TimeUnit.MILLISECONDS)
+                    .forEach(action);
+                return null;
+            });
+        }
+
+        @Override
+        public void createIndex(String name, Bson keys, boolean unique, Bson partialFilter) {
+            IndexOptions options = new IndexOptions().name(name).unique(unique).background(true);
+            if (partialFilter != null) {
+                options.partialFilterExpression(partialFilter);
+            }
+            store.guarded(() -> collection.createIndex(keys, options));
+        }
+    }
+
+    static final class MongoFindQuery<T> implements FindQuery<T> {
+        private final MongoDocumentStore store;
+        private FindIterable<T> find;
+
+        MongoFindQuery(MongoDocumentStore store, FindIterable<T> find) {
+            this.store = store;
+            this.find = find;
+        }
+
+        @Override
+        public FindQuery<T> sort(Bson sort) {
+            find = find.sort(sort);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> projection(Bson projection) {
+            find = find.projection(projection);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> skip(int skip) {
+            find = find.skip(skip);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> limit(int limit) {
+            find = find.limit(limit);
+            return this;
+        }
+
+        @Override
+        public FindQuery<T> batchSize(int batchSize) {
+            if (batchSize > 0) {
+                find = find.batchSize(batchSize);
+            }
+            return this;
+        }
+
+        @Override
+        public T first() {
+            return store.guarded(() -> bounded().first());
+        }
+
+        @Override
+        public <C extends Collection<? super T>> C into(C target) {
+            return store.guarded(() -> bounded().into(target));
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            store.guarded(() -> {
+                bounded().forEach(action);
+                return null;
+            });
+        }
+
+        private FindIterable<T> bounded() {
+            return find.maxTime(store.readDeadlineMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public Stream<T> stream() {
+            // Only opening the cursor is guarded; later batches fail through the stream
+            MongoCursor<T> cursor = store.guarded(find::iterator);
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.smartmedicare.services.storage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.smartmedicare.utils.DatabaseConfig;
+
+/**
+ * Keeps the embedded store a copy of the MongoDB collections an offline
+ * session needs, so signing in, rosters and existing appointments keep working
+ * when the server goes away and writes against them find their documents. A
+ * refresh upserts every server document that differs locally, removes local
+ * documents the server no longer has, and then stamps the copy in
+ * {@value #META_COLLECTION}. An offline session only starts on a stamped copy.
+ */
+public final class OfflineCopy {
+    public static final String META_COLLECTION = "offline_copy";
+
+    /** Everything a signed-in user can read or change. */
+    public static final List<String> COLLECTIONS = List.of(
+        DatabaseConfig.USERS_COLLECTION, DatabaseConfig.PATIENTS_COLLECTION, DatabaseConfig.DOCTORS_COLLECTION,
+        DatabaseConfig.APPOINTMENTS_COLLECTION, DatabaseConfig.MEDICAL_RECORDS_COLLECTION,
+        DatabaseConfig.PRESCRIPTIONS_COLLECTION);
+
+    private static final String STAMP_ID = "copy";
+    private static final int BATCH_SIZE = 500;
+
+    /** Runs one local write of a refresh; returns false, skipping it, to stop the refresh. */
+    public interface Gate {
+        boolean run(Runnable write);
+    }
+
+    public record Report(int upserted, int deleted, int unchanged, long millis) {
+        @Override
+        public String toString() {
+            return String.format("%d updated, %d removed, %d unchanged in %d ms", upserted, deleted, unchanged, millis);
+        }
+    }
+
+    private OfflineCopy() {
+    }
+
+    /** When the last complete refresh finished, or null if {@code local} never held a copy. */
+    public static Instant completedAt(DocumentStore local) {
+        BsonDocument stamp = local.getCollection(META_COLLECTION, BsonDocument.class)
+            .find(Filters.eq("_id", STAMP_ID)).first();
+        return stamp != null && stamp.isDateTime("completedAt")
+            ? Instant.ofEpochMilli(stamp.getDateTime("completedAt").getValue()) : null;
+    }
+
+    /**
+     * Brings {@code local} up to date with {@code remote}. Every local write goes
+     * through {@code gate}; the refresh stops, leaving the previous stamp, when
+     * the gate refuses one or the server fails.
+     */
+    public static Report refresh(DocumentStore remote, DocumentStore local, Gate gate) {
+        long start = System.nanoTime();
+        int upserted = 0;
+        int deleted = 0;
+        int unchanged = 0;
+        long documents = 0;
+        for (String name : COLLECTIONS) {
+            StoreCollection<BsonDocument> source = remote.getCollection(name, BsonDocument.class);
+            StoreCollection<BsonDocument> target = local.getCollection(name, BsonDocument.class);
+            Set<BsonValue> serverIds = new HashSet<>();
+            // A unique key can move between documents, even swap between two of them
+            List<BsonDocument> conflicts = new ArrayList<>();
+            try (Stream<BsonDocument> cursor = source.find().batchSize(BATCH_SIZE).stream()) {
+                for (BsonDocument document : (Iterable<BsonDocument>) cursor::iterator) {
+                    BsonValue id = document.get("_id");
+                    serverIds.add(id);
+                    BsonDocument current = target.find(Filters.eq("_id", id)).first();
+                    if (document.equals(current)) {
+                        unchanged++;
+                    } else if (upsert(target, document, gate, conflicts)) {
+                        upserted++;
+                    }
+                }
+            }
+            List<BsonValue> stale = new ArrayList<>();
+            target.find().projection(Projections.include("_id"))
+                .forEach(document -> {
+                    if (!serverIds.contains(document.get("_id"))) {
+                        stale.add(document.get("_id"));
+                    }
+                });
+            for (BsonValue id : stale) {
+                runOrStop(gate, () -> target.deleteOne(Filters.eq("_id", id)));
+                deleted++;
+            }
+            // Every key they need is now held by one of them or by nobody, so clear them all before rewriting
+            for (BsonDocument document : conflicts) {
+                runOrStop(gate, () -> target.deleteOne(Filters.eq("_id", document.get("_id"))));
+            }
+            for (BsonDocument document : conflicts) {
+                runOrStop(gate, () -> target.insertOne(document));
+                upserted++;
+            }
+            documents += serverIds.size();
+        }
+        long total = documents;
+        runOrStop(gate, () -> local.getCollection(META_COLLECTION, BsonDocument.class).replaceOne(
+            Filters.eq("_id", STAMP_ID),
+            new BsonDocument("_id", new BsonString(STAMP_ID))
+                .append("completedAt", new BsonDateTime(new Date().getTime()))
+                .append("documents", new BsonInt64(total)),
+            true));
+        return new Report(upserted, deleted, unchanged, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean upsert(StoreCollection<BsonDocument> target, BsonDocument document, Gate gate,
+                                  List<BsonDocument> conflicts) {
+        try {
+            runOrStop(gate, () -> target.replaceOne(Filters.eq("_id", document.get("_id")), document, true));
+            return true;
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            conflicts.add(document);
+            return false;
+        }
+    }
+
+    private static void runOrStop(Gate gate, Runnable write) {
+        if (!gate.run(write)) {
+            throw new IllegalStateException("offline copy refresh stopped: the session went offline");
+        }
+    }
+}
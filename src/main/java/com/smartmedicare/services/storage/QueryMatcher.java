@@ -0,0 +1,343 @@
+package com.smartmedicare.services.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonValue;
+
+/**
+ * Evaluates MongoDB query documents against documents held by the embedded
+ * engine. Covers the query language the DAOs use: implicit and explicit
+ * equality, comparisons, {@code $in}/{@code $nin}, {@code $exists},
+ * {@code $regex}, {@code $not}, {@code $size}, {@code $all}, {@code $elemMatch},
+ * the logical operators and simple {@code $expr} comparisons. Anything else is
+ * rejected rather than silently mismatched.
+ */
+final class QueryMatcher {
+
+    private QueryMatcher() {
+    }
+
+    static boolean matches(BsonDocument document, BsonDocument filter) {
+        for (Map.Entry<String, BsonValue> clause : filter.entrySet()) {
+            if (!matchesClause(document, clause.getKey(), clause.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesClause(BsonDocument document, String key, BsonValue condition) {
+        switch (key) {
+            case "$and":
+                for (BsonValue part : condition.asArray()) {
+                    if (!matches(document, part.asDocument())) {
+                        return false;
+                    }
+                }
+                return true;
+            case "$or":
+                for (BsonValue part : condition.asArray()) {
+                    if (matches(document, part.asDocument())) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$nor":
+                for (BsonValue part : condition.asArray()) {
+                    if (matches(document, part.asDocument())) {
+                        return false;
+                    }
+                }
+                return true;
+            case "$expr":
+                return truthy(evaluate(document, condition));
+            case "$comment":
+                return true;
+            default:
+                if (key.startsWith("$")) {
+                    throw new UnsupportedOperationException("Query operator " + key + " is not supported by the embedded engine");
+                }
+                return matchesField(resolve(document, key), condition);
+        }
+    }
+
+    private static boolean matchesField(List<BsonValue> values, BsonValue condition) {
+        if (condition.isDocument() && isOperatorDocument(condition.asDocument())) {
+            BsonDocument operators = condition.asDocument();
+            for (Map.Entry<String, BsonValue> operator : operators.entrySet()) {
+                if (!matchesOperator(values, operator.getKey(), operator.getValue(), operators)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition.isRegularExpression()) {
+            return anyMatchesRegex(values, toPattern(condition.asRegularExpression()));
+        }
+        return anyEqual(values, condition);
+    }
+
+    private static boolean matchesOperator(List<BsonValue> values, String operator, BsonValue argument,
+                                           BsonDocument operators) {
+        switch (operator) {
+            case "$eq":
+                return anyEqual(values, argument);
+            case "$ne":
+                return !anyEqual(values, argument);
+            case "$gt":
+                return anyCompares(values, argument, c -> c > 0);
+            case "$gte":
+                return anyCompares(values, argument, c -> c >= 0);
+            case "$lt":
+                return anyCompares(values, argument, c -> c < 0);
+            case "$lte":
+                return anyCompares(values, argument, c -> c <= 0);
+            case "$in":
+                return anyIn(values, argument.asArray());
+            case "$nin":
+                return !anyIn(values, argument.asArray());
+            case "$exists":
+                return !values.isEmpty() == truthy(argument);
+            case "$regex":
+                return anyMatchesRegex(values, toPattern(argument, operators.get("$options")));
+            case "$options":
+                return true;
+            case "$not":
+                return !matchesField(values, argument);
+            case "$size":
+                for (BsonValue value : values) {
+                    if (value.isArray() && value.asArray().size() == argument.asNumber().intValue()) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$all":
+                for (BsonValue required : argument.asArray()) {
+                    if (!anyEqual(values, required)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "$elemMatch":
+                for (BsonValue value : values) {
+                    if (value.isArray()) {
+                        for (BsonValue element : value.asArray()) {
+                            boolean match = isOperatorDocument(argument.asDocument())
+                                ? matchesField(List.of(element), argument)
+                                : element.isDocument() && matches(element.asDocument(), argument.asDocument());
+                            if (match) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                return false;
+            default:
+                throw new UnsupportedOperationException("Query operator " + operator + " is not supported by the embedded engine");
+        }
+    }
+
+    private interface ComparisonTest {
+        boolean test(int comparison);
+    }
+
+    private static boolean anyCompares(List<BsonValue> values, BsonValue argument, ComparisonTest test) {
+        for (BsonValue value : values) {
+            if (!value.isArray() && BsonValues.comparable(value, argument) && test.test(BsonValues.compare(value, argument))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Null in a query also matches a missing field, as on the server
+    private static boolean anyEqual(List<BsonValue> values, BsonValue target) {
+        if (target.isNull() && values.isEmpty()) {
+            return true;
+        }
+        for (BsonValue value : values) {
+            if (BsonValues.equal(value, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyIn(List<BsonValue> values, BsonArray candidates) {
+        for (BsonValue candidate : candidates) {
+            if (candidate.isRegularExpression()
+                    ? anyMatchesRegex(values, toPattern(candidate.asRegularExpression()))
+                    : anyEqual(values, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyMatchesRegex(List<BsonValue> values, Pattern pattern) {
+        for (BsonValue value : values) {
+            if (value.isString() && pattern.matcher(value.asString().getValue()).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Pattern toPattern(BsonRegularExpression regex) {
+        return compile(regex.getPattern(), regex.getOptions());
+    }
+
+    private static Pattern toPattern(BsonValue pattern, BsonValue options) {
+        if (pattern.isRegularExpression()) {
+            return toPattern(pattern.asRegularExpression());
+        }
+        return compile(pattern.asString().getValue(), options != null ? options.asString().getValue() : "");
+    }
+
+    private static Pattern compile(String pattern, String options) {
+        int flags = 0;
+        for (char option : options.toCharArray()) {
+            switch (option) {
+                case 'i' -> flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                case 'm' -> flags |= Pattern.MULTILINE;
+                case 's' -> flags |= Pattern.DOTALL;
+                case 'x' -> flags |= Pattern.COMMENTS;
+                default -> { }
+            }
+        }
+        return Pattern.compile(pattern, flags);
+    }
+
+    static boolean isOperatorDocument(BsonDocument document) {
+        return !document.isEmpty() && document.getFirstKey().startsWith("$");
+    }
+
+    /**
+     * Values at a dotted {@code path}. Arrays along the way are traversed, and an
+     * array at the end contributes both its elements and itself, which gives the
+     * server's "any element matches" semantics. Missing paths yield no values.
+     */
+    static List<BsonValue> resolve(BsonValue root, String path) {
+        List<BsonValue> out = new ArrayList<>(1);
+        collect(root, path.split("\\."), 0, out);
+        return out;
+    }
+
+    private static void collect(BsonValue current, String[] parts, int index, List<BsonValue> out) {
+        if (index == parts.length) {
+            if (current.isArray()) {
+                out.addAll(current.asArray());
+            }
+            out.add(current);
+            return;
+        }
+        if (current.isDocument()) {
+            BsonValue next = current.asDocument().get(parts[index]);
+            if (next != null) {
+                collect(next, parts, index + 1, out);
+            }
+        } else if (current.isArray()) {
+            BsonArray array = current.asArray();
+            if (isIndex(parts[index])) {
+                int position = Integer.parseInt(parts[index]);
+                if (position < array.size()) {
+                    collect(array.get(position), parts, index + 1, out);
+                }
+            } else {
+                for (BsonValue element : array) {
+                    if (element.isDocument()) {
+                        collect(element, parts, index, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isIndex(String part) {
+        if (part.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if (!Character.isDigit(part.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** First value at {@code path}, or null; used for sorting and index keys. */
+    static BsonValue first(BsonDocument document, String path) {
+        List<BsonValue> values = resolve(document, path);
+        return values.isEmpty() ? BsonNull.VALUE : values.get(0);
+    }
+
+    // Aggregation-expression subset for $expr: field refs, literals and comparisons
+    private static BsonValue evaluate(BsonDocument document, BsonValue expression) {
+        if (expression.isString() && expression.asString().getValue().startsWith("$")) {
+            List<BsonValue> values = resolve(document, expression.asString().getValue().substring(1));
+            return values.isEmpty() ? BsonNull.VALUE : values.get(values.size() - 1);
+        }
+        if (!expression.isDocument() || !isOperatorDocument(expression.asDocument())) {
+            return expression;
+        }
+        BsonDocument operator = expression.asDocument();
+        String name = operator.getFirstKey();
+        BsonValue argument = operator.get(name);
+        List<BsonValue> operands = argument.isArray() ? argument.asArray() : Collections.singletonList(argument);
+        switch (name) {
+            case "$and": {
+                for (BsonValue operand : operands) {
+                    if (!truthy(evaluate(document, operand))) {
+                        return org.bson.BsonBoolean.FALSE;
+                    }
+                }
+                return org.bson.BsonBoolean.TRUE;
+            }
+            case "$or": {
+                for (BsonValue operand : operands) {
+                    if (truthy(evaluate(document, operand))) {
+                        return org.bson.BsonBoolean.TRUE;
+                    }
+                }
+                return org.bson.BsonBoolean.FALSE;
+            }
+            case "$eq", "$ne", "$gt", "$gte", "$lt", "$lte": {
+                int c = BsonValues.compare(evaluate(document, operands.get(0)), evaluate(document, operands.get(1)));
+                boolean result = switch (name) {
+                    case "$eq" -> c == 0;
+                    case "$ne" -> c != 0;
+                    case "$gt" -> c > 0;
+                    case "$gte" -> c >= 0;
+                    case "$lt" -> c < 0;
+                    default -> c <= 0;
+                };
+                return org.bson.BsonBoolean.valueOf(result);
+            }
+            case "$literal":
+                return argument;
+            default:
+                throw new UnsupportedOperationException("Expression " + name + " is not supported by the embedded engine");
+        }
+    }
+
+    private static boolean truthy(BsonValue value) {
+        if (value == null || value.isNull()) {
+            return false;
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean().getValue();
+        }
+        if (value.isNumber()) {
+            return value.asNumber().doubleValue() != 0;
+        }
+        return true;
+    }
+}
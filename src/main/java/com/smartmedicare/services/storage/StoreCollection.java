@@ -0,0 +1,65 @@
+package com.smartmedicare.services.storage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * The collection operations the DAOs use, with the same filter, update, sort and
+ * projection {@link Bson} arguments as the MongoDB driver. A unique index
+ * violation surfaces as a {@link com.mongodb.MongoWriteException} with a
+ * duplicate-key code on every engine.
+ */
+public interface StoreCollection<T> {
+
+    String getName();
+
+    Class<T> getDocumentClass();
+
+    CodecRegistry getCodecRegistry();
+
+    <N> StoreCollection<N> withDocumentClass(Class<N> documentClass);
+
+    /** Inserts {@code document}; a missing {@code _id} is generated (and set on it when its codec allows). */
+    InsertOneResult insertOne(T document);
+
+    default FindQuery<T> find() {
+        return find(null);
+    }
+
+    /** Documents matching {@code filter}; {@code null} matches everything. */
+    FindQuery<T> find(Bson filter);
+
+    long countDocuments(Bson filter);
+
+    <V> List<V> distinct(String field, Bson filter, Class<V> valueClass);
+
+    UpdateResult updateOne(Bson filter, Bson update);
+
+    UpdateResult replaceOne(Bson filter, T replacement, boolean upsert);
+
+    /** Applies {@code update} to the first match and returns it as it was before, restricted to {@code projection}. */
+    Document findOneAndUpdate(Bson filter, Bson update, Bson projection);
+
+    Document findOneAndDelete(Bson filter, Bson projection);
+
+    DeleteResult deleteOne(Bson filter);
+
+    /**
+     * Streams the results of an aggregation pipeline to {@code action}. MongoDB
+     * only: the embedded engine, and a failover store while offline, throw
+     * {@link UnsupportedOperationException}, so callers check
+     * {@code DatabaseService.isEmbedded()} first.
+     */
+    <R> void aggregate(List<? extends Bson> pipeline, Class<R> resultClass, Consumer<? super R> action);
+
+    /** Creates the index if it does not exist; {@code partialFilter} may be null. */
+    void createIndex(String name, Bson keys, boolean unique, Bson partialFilter);
+}
@@ -0,0 +1,154 @@
+package com.smartmedicare.services.storage;
+
+import java.util.Map;
+
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.Decimal128;
+
+/**
+ * Applies MongoDB update documents ({@code $set}, {@code $unset}, {@code $inc},
+ * {@code $setOnInsert}) and top-level projections to documents held by the
+ * embedded engine.
+ */
+final class UpdateApplier {
+
+    private UpdateApplier() {
+    }
+
+    /** Returns an updated copy of {@code document}; {@code inserting} enables {@code $setOnInsert}. */
+    static BsonDocument apply(BsonDocument document, BsonDocument update, boolean inserting) {
+        // RawBsonDocument.clone() is still immutable, so decode into a mutable tree
+        BsonDocument result = document instanceof RawBsonDocument raw
+            ? raw.decode(new BsonDocumentCodec())
+            : document.clone();
+        for (Map.Entry<String, BsonValue> operator : update.entrySet()) {
+            BsonDocument fields = operator.getValue().asDocument();
+            switch (operator.getKey()) {
+                case "$set" -> fields.forEach((path, value) -> set(result, path, value));
+                case "$setOnInsert" -> {
+                    if (inserting) {
+                        fields.forEach((path, value) -> set(result, path, value));
+                    }
+                }
+                case "$unset" -> fields.keySet().forEach(path -> unset(result, path));
+                case "$inc" -> fields.forEach((path, value) -> {
+                    BsonValue current = get(result, path);
+                    set(result, path, current == null ? value : add(current, value, path));
+                });
+                default -> throw new UnsupportedOperationException(
+                    "Update operator " + operator.getKey() + " is not supported by the embedded engine");
+            }
+        }
+        BsonValue id = document.get("_id");
+        if (id != null && !id.equals(result.get("_id"))) {
+            throw new IllegalArgumentException("Updates must not change _id");
+        }
+        return result;
+    }
+
+    /** Keeps (or drops, for an exclusion projection) the listed top-level fields; {@code _id} is kept unless excluded. */
+    static BsonDocument project(BsonDocument document, BsonDocument projection) {
+        if (projection == null || projection.isEmpty()) {
+            return document;
+        }
+        boolean inclusion = false;
+        for (Map.Entry<String, BsonValue> field : projection.entrySet()) {
+            if (!"_id".equals(field.getKey()) && isIncluded(field.getValue())) {
+                inclusion = true;
+                break;
+            }
+        }
+        BsonValue idSpec = projection.get("_id");
+        boolean keepId = idSpec == null || isIncluded(idSpec);
+        BsonDocument projected = new BsonDocument();
+        for (Map.Entry<String, BsonValue> field : document.entrySet()) {
+            String name = field.getKey();
+            boolean keep;
+            if ("_id".equals(name)) {
+                keep = keepId;
+            } else if (inclusion) {
+                keep = projection.containsKey(name) && isIncluded(projection.get(name));
+            } else {
+                keep = !projection.containsKey(name);
+            }
+            if (keep) {
+                projected.append(name, field.getValue());
+            }
+        }
+        return projected;
+    }
+
+    private static boolean isIncluded(BsonValue spec) {
+        if (spec.isBoolean()) {
+            return spec.asBoolean().getValue();
+        }
+        return !spec.isNumber() || spec.asNumber().intValue() != 0;
+    }
+
+    private static BsonValue get(BsonDocument document, String path) {
+        String[] parts = path.split("\\.");
+        BsonDocument current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            BsonValue next = current.get(parts[i]);
+            if (next == null || !next.isDocument()) {
+                return null;
+            }
+            current = next.asDocument();
+        }
+        return current.get(parts[parts.length - 1]);
+    }
+
+    private static void set(BsonDocument document, String path, BsonValue value) {
+        String[] parts = path.split("\\.");
+        BsonDocument current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            BsonValue next = current.get(parts[i]);
+            if (next == null) {
+                next = new BsonDocument();
+                current.put(parts[i], next);
+            } else if (!next.isDocument()) {
+                throw new IllegalArgumentException("Cannot set '" + path + "': '" + parts[i] + "' is not a document");
+            }
+            current = next.asDocument();
+        }
+        current.put(parts[parts.length - 1], value);
+    }
+
+    private static void unset(BsonDocument document, String path) {
+        String[] parts = path.split("\\.");
+        BsonDocument current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            BsonValue next = current.get(parts[i]);
+            if (next == null || !next.isDocument()) {
+                return;
+            }
+            current = next.asDocument();
+        }
+        current.remove(parts[parts.length - 1]);
+    }
+
+    private static BsonValue add(BsonValue current, BsonValue delta, String path) {
+        if (!current.isNumber() && !current.isDecimal128() || !delta.isNumber() && !delta.isDecimal128()) {
+            throw new IllegalArgumentException("Cannot $inc non-numeric field '" + path + "'");
+        }
+        if (current.isDecimal128() || delta.isDecimal128()) {
+            return new BsonDecimal128(new Decimal128(current.asNumber().decimal128Value().bigDecimalValue()
+                .add(delta.asNumber().decimal128Value().bigDecimalValue())));
+        }
+        if (current.isDouble() || delta.isDouble()) {
+            return new BsonDouble(current.asNumber().doubleValue() + delta.asNumber().doubleValue());
+        }
+        long sum = Math.addExact(current.asNumber().longValue(), delta.asNumber().longValue());
+        if (current.isInt32() && delta.isInt32() && sum == (int) sum) {
+            return new BsonInt32((int) sum);
+        }
+        return new BsonInt64(sum);
+    }
+}
@@ -0,0 +1,267 @@
+package com.smartmedicare.services.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoException;
+
+/**
+ * Append-only journal of the writes made while MongoDB was unreachable
+ * ({@code journal.log} in the embedded data directory), replayed by
+ * {@link JournalReplayer} once the server is back. Records are BSON documents
+ * written back to back; each carries a sequence number and an idempotency key.
+ *
+ * <p>Appends go to the OS right away and are forced to disk in batches by a
+ * background flusher every {@code syncIntervalMs}, so a write never waits for
+ * an fsync. Progress of a partial replay is kept in {@code journal.checkpoint}.
+ */
+public final class WriteJournal implements AutoCloseable {
+
+    public enum Op { INSERT, UPDATE, REPLACE, DELETE }
+
+    /**
+     * One journaled mutation. {@code filter}, {@code update} and {@code document}
+     * are already encoded; the fields an op does not use are null.
+     */
+    public record Entry(long sequence, String key, String collection, Op op, BsonDocument filter,
+                        BsonDocument update, BsonDocument document, boolean upsert, Date recordedAt) {
+
+        BsonDocument toBson() {
+            BsonDocument bson = new BsonDocument("seq", new BsonInt64(sequence))
+                .append("key", new BsonString(key))
+                .append("coll", new BsonString(collection))
+                .append("op", new BsonString(op.name()))
+                .append("at", new BsonDateTime(recordedAt.getTime()));
+            if (filter != null) bson.append("filter", filter);
+            if (update != null) bson.append("update", update);
+            if (document != null) bson.append("doc", document);
+            if (upsert) bson.append("upsert", BsonBoolean.TRUE);
+            return bson;
+        }
+
+        static Entry fromBson(BsonDocument bson) {
+            return new Entry(
+                bson.getInt64("seq").getValue(),
+                bson.getString("key").getValue(),
+                bson.getString("coll").getValue(),
+                Op.valueOf(bson.getString("op").getValue()),
+                bson.containsKey("filter") ? bson.getDocument("filter") : null,
+                bson.containsKey("update") ? bson.getDocument("update") : null,
+                bson.containsKey("doc") ? bson.getDocument("doc") : null,
+                bson.getBoolean("upsert", BsonBoolean.FALSE).getValue(),
+                new Date(bson.getDateTime("at").getValue()));
+        }
+    }
+
+    public static final String FILE_NAME = "journal.log";
+    private static final String CHECKPOINT_FILE_NAME = "journal.checkpoint";
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final ScheduledExecutorService flusher;
+    private long nextSequence = 1;
+    private long pending;
+    private boolean dirty;
+    private long validLength;
+
+    /** Opens (creating if needed) the journal in {@code directory}; {@code syncIntervalMs} 0 forces every append. */
+    public WriteJournal(Path directory, long syncIntervalMs) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve(FILE_NAME);
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE_NAME);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lock = channel.tryLock();
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Write journal " + file + " is in use by another instance");
+        }
+        long checkpoint = readCheckpoint();
+        for (Entry entry : scan()) {
+            nextSequence = entry.sequence() + 1;
+            if (entry.sequence() > checkpoint) {
+                pending++;
+            }
+        }
+        long valid = validLength;
+        if (channel.size() > valid) {
+            System.err.println("Write journal: dropping " + (channel.size() - valid) + " bytes of incomplete writes");
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        if (syncIntervalMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /** Whether {@code directory} holds a journal with anything in it, without opening it. */
+    public static boolean hasEntries(Path directory) {
+        try {
+            Path journal = directory.resolve(FILE_NAME);
+            return Files.exists(journal) && Files.size(journal) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Every intact entry in file order; also records where the intact prefix ends
+    private synchronized List<Entry> scan() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading
+        }
+        buffer.flip();
+        List<Entry> entries = new ArrayList<>();
+        int position = 0;
+        while (buffer.limit() - position >= 5) {
+            int length = buffer.getInt(position);
+            if (length < 5 || length > buffer.limit() - position || buffer.get(position + length - 1) != 0) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            try {
+                entries.add(Entry.fromBson(new RawBsonDocument(bytes)));
+            } catch (RuntimeException e) {
+                break;
+            }
+            position += length;
+        }
+        validLength = position;
+        return entries;
+    }
+
+    /** Appends a mutation and returns it with its sequence number and idempotency key. */
+    public synchronized Entry append(String collection, Op op, BsonDocument filter, BsonDocument update,
+                                     BsonDocument document, boolean upsert) {
+        Entry entry = new Entry(nextSequence, new ObjectId().toHexString(), collection, op,
+            filter, update, document, upsert, new Date());
+        ByteBuffer bytes = new RawBsonDocument(entry.toBson(), new BsonDocumentCodec()).getByteBuffer().asNIO();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (flusher == null) {
+                channel.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            throw new MongoException("Could not write to the offline journal: " + e.getMessage(), e);
+        }
+        nextSequence++;
+        pending++;
+        return entry;
+    }
+
+    /** Entries not yet replayed, oldest first. */
+    public synchronized List<Entry> pendingEntries() {
+        try {
+            long checkpoint = readCheckpoint();
+            List<Entry> entries = scan();
+            entries.removeIf(entry -> entry.sequence() <= checkpoint);
+            return entries;
+        } catch (IOException e) {
+            throw new MongoException("Could not read the offline journal: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized long pendingCount() {
+        return pending;
+    }
+
+    /**
+     * Records that every entry up to {@code sequence} reached the server. Once
+     * nothing is left the journal is emptied.
+     */
+    public synchronized void checkpoint(long sequence) {
+        try {
+            if (sequence >= nextSequence - 1) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                Files.deleteIfExists(checkpointFile);
+                pending = 0;
+                return;
+            }
+            Path temp = checkpointFile.resolveSibling(CHECKPOINT_FILE_NAME + ".tmp");
+            Files.writeString(temp, Long.toString(sequence));
+            Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            pending = pendingEntries().size();
+        } catch (IOException e) {
+            throw new MongoException("Could not update the offline journal checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpointFile).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Forces appended entries to disk; runs on the flusher thread. */
+    public synchronized void flush() {
+        if (!dirty || !channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Could not sync the offline journal: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            try {
+                if (channel.isOpen()) {
+                    channel.force(true);
+                    lock.release();
+                    channel.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing the offline journal: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.smartmedicare.utils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * Conversions between {@code java.time} values and BSON dates.
+ * Local date-times are stored as UTC wall-clock instants, the same convention
+ * the driver's {@code LocalDateTimeCodec} uses, so Document-based and POJO-based
+ * DAOs read each other's values unchanged.
+ */
+public final class BsonDates {
+    private BsonDates() {
+    }
+
+    public static Date toDate(LocalDateTime dateTime) {
+        return dateTime != null ? Date.from(dateTime.toInstant(ZoneOffset.UTC)) : null;
+    }
+
+    public static Date toDate(LocalDate date) {
+        return date != null ? toDate(date.atStartOfDay()) : null;
+    }
+
+    public static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC) : null;
+    }
+
+    /** Reads a field that may still hold a legacy ISO string instead of a BSON date. */
+    public static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Date date) {
+            return toLocalDateTime(date);
+        }
+        if (value instanceof String text && !text.isEmpty()) {
+            return LocalDateTime.parse(text);
+        }
+        return null;
+    }
+
+    public static Date startOfDay(LocalDate date) {
+        return toDate(date.atStartOfDay());
+    }
+
+    public static Date startOfNextDay(LocalDate date) {
+        return toDate(date.plusDays(1).atStartOfDay());
+    }
+}
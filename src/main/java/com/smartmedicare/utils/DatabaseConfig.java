@@ -1,9 +1,27 @@
 package com.smartmedicare.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Connection settings for the shared MongoDB client.
+ * Values are read from {@code /database.properties} on the classpath and can be
+ * overridden by an external file ({@code -Dsmartmedicare.db.config=path}) or by
+ * individual system properties with the same keys.
+ */
 public class DatabaseConfig {
-    private static final String DATABASE_NAME = "smart_medicare";
-    private static final String CONNECTION_STRING = "mongodb://localhost:27017";
-    
+    private static final String CONFIG_RESOURCE = "/database.properties";
+    private static final String CONFIG_FILE_PROPERTY = "smartmedicare.db.config";
+
+    private static final String DEFAULT_DATABASE_NAME = "smart_medicare";
+    private static final String DEFAULT_CONNECTION_STRING = "mongodb://localhost:27017";
+
     // Collection names
     public static final String USERS_COLLECTION = "users";
     public static final String PATIENTS_COLLECTION = "patients";
@@ -11,12 +29,244 @@ public class DatabaseConfig {
     public static final String APPOINTMENTS_COLLECTION = "appointments";
     public static final String MEDICAL_RECORDS_COLLECTION = "medical_records";
     public static final String PRESCRIPTIONS_COLLECTION = "prescriptions";
-    
+
+    private static final Properties PROPERTIES = load();
+
+    private DatabaseConfig() {
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + CONFIG_RESOURCE + ": " + e.getMessage());
+        }
+
+        String external = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (external != null && !external.isBlank()) {
+            try (Reader reader = Files.newBufferedReader(Path.of(external))) {
+                properties.load(reader);
+            } catch (IOException e) {
+                System.err.println("Could not read database config " + external + ": " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    private static String get(String key, String defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     public static String getDatabaseName() {
-        return DATABASE_NAME;
+        return get("mongodb.database", DEFAULT_DATABASE_NAME);
     }
-    
+
     public static String getConnectionString() {
-        return CONNECTION_STRING;
+        return get("mongodb.uri", DEFAULT_CONNECTION_STRING);
+    }
+
+    public static int getMaxPoolSize() {
+        return getInt("mongodb.pool.maxSize", 20);
+    }
+
+    public static int getMinPoolSize() {
+        return getInt("mongodb.pool.minSize", 2);
+    }
+
+    public static int getMaxWaitTimeMs() {
+        return getInt("mongodb.pool.maxWaitTimeMs", 2000);
+    }
+
+    public static int getMaxConnectionIdleTimeMs() {
+        return getInt("mongodb.pool.maxIdleTimeMs", 60000);
+    }
+
+    public static int getConnectTimeoutMs() {
+        return getInt("mongodb.socket.connectTimeoutMs", 5000);
+    }
+
+    public static int getSocketReadTimeoutMs() {
+        return getInt("mongodb.socket.readTimeoutMs", 15000);
+    }
+
+    public static int getServerSelectionTimeoutMs() {
+        return getInt("mongodb.serverSelectionTimeoutMs", 5000);
+    }
+
+    public static int getHeartbeatFrequencyMs() {
+        return getInt("mongodb.heartbeatFrequencyMs", 10000);
+    }
+
+    /** Whether DAO calls fail fast through a circuit breaker while MongoDB is unreachable. */
+    public static boolean isCircuitBreakerEnabled() {
+        return Boolean.parseBoolean(get("mongodb.breaker.enabled", "true"));
+    }
+
+    /** Consecutive connection failures that open the circuit breaker. */
+    public static int getCircuitBreakerFailureThreshold() {
+        return getInt("mongodb.breaker.failureThreshold", 3);
+    }
+
+    /** How often an open circuit breaker pings the server. */
+    public static int getCircuitBreakerProbeIntervalMs() {
+        return getInt("mongodb.breaker.probeIntervalMs", 2000);
+    }
+
+    /** Server-side time limit for DAO reads; 0 disables it. */
+    public static int getReadDeadlineMs() {
+        return getInt("mongodb.deadline.readMs", 3000);
+    }
+
+    /** Server-side time limit for find-and-modify writes such as cancelling an appointment; 0 disables it. */
+    public static int getWriteDeadlineMs() {
+        return getInt("mongodb.deadline.writeMs", 5000);
+    }
+
+    /** Wire compressors in preference order, e.g. {@code zstd,snappy,zlib}. */
+    public static List<String> getCompressors() {
+        List<String> compressors = new ArrayList<>();
+        for (String name : get("mongodb.compressors", "zlib").split(",")) {
+            if (!name.isBlank()) {
+                compressors.add(name.trim().toLowerCase());
+            }
+        }
+        return compressors;
+    }
+
+    public static String getReadPreference() {
+        return get("mongodb.readPreference", "primaryPreferred");
+    }
+
+    /** Interval for the periodic pool statistics log line; 0 disables it. */
+    public static int getPoolStatsLogIntervalSeconds() {
+        return getInt("mongodb.pool.statsLogIntervalSeconds", 0);
+    }
+
+    /** Whether the command listener behind {@code com.smartmedicare.services.CommandStats} is registered. */
+    public static boolean isCommandMetricsEnabled() {
+        return Boolean.parseBoolean(get("mongodb.metrics.enabled", "true"));
+    }
+
+    /** Commands at least this slow are logged with their filter shape; 0 disables the log. */
+    public static int getSlowQueryThresholdMs() {
+        return getInt("mongodb.metrics.slowQueryMs", 200);
+    }
+
+    /** Attribute each command to the DAO method that issued it (one short stack walk per command). */
+    public static boolean isCommandCallerTrackingEnabled() {
+        return Boolean.parseBoolean(get("mongodb.metrics.callerTracking", "true"));
+    }
+
+    /** Interval for the periodic command statistics dump; 0 disables it. */
+    public static int getCommandStatsDumpIntervalSeconds() {
+        return getInt("mongodb.metrics.dumpIntervalSeconds", 0);
+    }
+
+    /** Whether doctor screens follow appointment changes live (needs a replica set). */
+    public static boolean isChangeStreamsEnabled() {
+        return Boolean.parseBoolean(get("mongodb.changeStreams.enabled", "true"));
+    }
+
+    /** How often doctor screens re-read appointments when change streams are unavailable. */
+    public static int getChangePollIntervalMs() {
+        return getInt("mongodb.changeStreams.pollIntervalMs", 5000);
+    }
+
+    /** {@code mongodb} or {@code embedded} (local files, no server needed). */
+    public static String getStorageEngine() {
+        return get("storage.engine", "mongodb").toLowerCase();
+    }
+
+    /** Data directory of the embedded storage engine. */
+    public static Path getEmbeddedStoragePath() {
+        return Path.of(get("storage.embedded.path",
+            Path.of(System.getProperty("user.home"), ".smartmedicare", "data").toString()));
+    }
+
+    /** Whether to switch to the embedded engine when MongoDB cannot be reached at startup. */
+    public static boolean isEmbeddedFallbackEnabled() {
+        return Boolean.parseBoolean(get("storage.embedded.fallback", "true"));
+    }
+
+    /** Force every embedded write to disk before returning (slower, survives power loss). */
+    public static boolean isEmbeddedSyncWrites() {
+        return Boolean.parseBoolean(get("storage.embedded.syncWrites", "false"));
+    }
+
+    /**
+     * Whether writes made while MongoDB is unreachable are journaled and replayed
+     * on reconnect (otherwise the embedded fallback keeps a separate local data set).
+     */
+    public static boolean isWriteJournalEnabled() {
+        return Boolean.parseBoolean(get("storage.journal.enabled", "true"));
+    }
+
+    /** How often journaled writes are forced to disk; 0 forces each one. */
+    public static int getJournalSyncIntervalMs() {
+        return getInt("storage.journal.syncIntervalMs", 100);
+    }
+
+    /** How often an offline session probes MongoDB to replay the journal. */
+    public static int getReconnectIntervalSeconds() {
+        return getInt("storage.journal.reconnectIntervalSeconds", 15);
+    }
+
+    /** How often an online session refreshes the local copy an offline session starts from. */
+    public static int getOfflineCopyRefreshMinutes() {
+        return getInt("storage.journal.offlineCopyRefreshMinutes", 10);
+    }
+
+    /** Compiled disease knowledge base ({@code .smkb}); null keeps the built-in table. */
+    public static Path getKnowledgeBasePath() {
+        String path = get("diagnosis.knowledgeBase.path", null);
+        return path != null ? Path.of(path) : null;
+    }
+
+    /** How often the knowledge base file is checked for a new version; 0 loads it once. */
+    public static int getKnowledgeBaseReloadSeconds() {
+        return getInt("diagnosis.knowledgeBase.reloadSeconds", 10);
+    }
+
+    /** Trained diagnosis model, written by {@code DiagnosisTrainer}. */
+    public static Path getDiagnosisModelPath() {
+        return Path.of(get("diagnosis.model.path",
+            Path.of(System.getProperty("user.home"), ".smartmedicare", "models", "diagnosis.model").toString()));
+    }
+
+    /** {@code naiveBayesMultinomial} or {@code j48}. */
+    public static String getDiagnosisClassifier() {
+        return get("diagnosis.model.classifier", "naiveBayesMultinomial");
+    }
+
+    /** Diagnoses with fewer medical records than this are left out of training. */
+    public static int getDiagnosisMinExamples() {
+        return getInt("diagnosis.model.minExamplesPerDiagnosis", 3);
+    }
+
+    /** Longest a doctor waits for the trained model before the rule engine answers instead. */
+    public static int getDiagnosisLatencyBudgetMs() {
+        return getInt("diagnosis.model.latencyBudgetMs", 250);
+    }
+
+    /** How often the diagnosis model is retrained from medical records; 0 only loads the saved model. */
+    public static int getDiagnosisRetrainHours() {
+        return getInt("diagnosis.model.retrainHours", 24);
     }
-}
\ No newline at end of file
+}
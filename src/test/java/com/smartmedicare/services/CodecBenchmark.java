@@ -0,0 +1,214 @@
+package com.smartmedicare.services;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import com.smartmedicare.models.Appointment;
+import com.smartmedicare.models.Doctor;
+import com.smartmedicare.models.MedicalRecord;
+import com.smartmedicare.models.Patient;
+import com.smartmedicare.models.Prescription;
+import com.smartmedicare.services.codecs.DomainCodecProvider;
+
+/**
+ * Compares the Document round trip ({@code entityToDocument}/{@code documentToEntity})
+ * with the hand-written codecs, reporting time and heap allocation per operation.
+ * Runs in memory; the DAOs sit on a throwaway embedded store, so no MongoDB
+ * server is needed. Allocation is only reported on JVMs that can measure it
+ * per thread.
+ * <p>
+ * Usage: {@code mvn -Pbench test-compile exec:java [-Dbench.iterations=N]}
+ */
+public class CodecBenchmark {
+    private static final DecoderContext DECODE = DecoderContext.builder().build();
+    private static final EncoderContext ENCODE = EncoderContext.builder().build();
+
+    private final com.sun.management.ThreadMXBean threads =
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() ? bean : null;
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final DomainCodecProvider codecs = new DomainCodecProvider();
+    private final int iterations;
+    private long sink;
+
+    public CodecBenchmark(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("bench.iterations", 200_000);
+        Path storage = Files.createTempDirectory("codec-benchmark");
+        System.setProperty("storage.engine", "embedded");
+        System.setProperty("storage.embedded.path", storage.toString());
+        CodecBenchmark benchmark = new CodecBenchmark(iterations);
+        try {
+            benchmark.runAll();
+        } finally {
+            DatabaseService.getInstance().close();
+            try (Stream<Path> files = Files.walk(storage)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    public void runAll() {
+        System.out.printf("%-14s %-7s %12s %12s %12s %12s%n",
+            "model", "op", "doc ns/op", "codec ns/op", "doc B/op", "codec B/op");
+        compare("Appointment", new AppointmentDAO(), sampleAppointment());
+        compare("Patient", new PatientDAO(), samplePatient());
+        compare("Doctor", new DoctorDAO(), sampleDoctor());
+        compare("MedicalRecord", new MedicalRecordDAO(), sampleRecord());
+        compare("Prescription", new PrescriptionDAO(), samplePrescription());
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void compare(String name, BaseDAO<T> dao, T sample) {
+        Codec<T> codec = codecs.get((Class<T>) sample.getClass(), null);
+        RawBsonDocument raw = new RawBsonDocument(dao.entityToDocument(sample), documentCodec);
+
+        Runnable docDecode = () -> sink += dao.documentToEntity(
+            documentCodec.decode(raw.asBsonReader(), DECODE)).hashCode();
+        Runnable codecDecode = () -> {
+            try (BsonReader reader = raw.asBsonReader()) {
+                sink += codec.decode(reader, DECODE).hashCode();
+            }
+        };
+        Runnable docEncode = () -> {
+            BasicOutputBuffer buffer = new BasicOutputBuffer(512);
+            documentCodec.encode(new BsonBinaryWriter(buffer), dao.entityToDocument(sample), ENCODE);
+            sink += buffer.getPosition();
+        };
+        Runnable codecEncode = () -> {
+            BasicOutputBuffer buffer = new BasicOutputBuffer(512);
+            codec.encode(new BsonBinaryWriter(buffer), sample, ENCODE);
+            sink += buffer.getPosition();
+        };
+
+        report(name, "decode", docDecode, codecDecode);
+        report(name, "encode", docEncode, codecEncode);
+    }
+
+    private void report(String name, String op, Runnable baseline, Runnable candidate) {
+        long[] base = measure(baseline);
+        long[] cand = measure(candidate);
+        System.out.printf("%-14s %-7s %12d %12d %12d %12d%n", name, op, base[0], cand[0], base[1], cand[1]);
+    }
+
+    /** Returns {nanos per op, bytes allocated per op or -1} after a warm-up pass. */
+    private long[] measure(Runnable op) {
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads != null ? threads.getThreadAllocatedBytes(threadId) - bytesBefore : -iterations;
+        return new long[] { elapsed / iterations, allocated / iterations };
+    }
+
+    private static Appointment sampleAppointment() {
+        Appointment appointment = new Appointment();
+        appointment.setId(new ObjectId());
+        appointment.setPatientId(new ObjectId());
+        appointment.setDoctorId(new ObjectId());
+        appointment.setDateTime(LocalDateTime.of(2024, 5, 14, 10, 30));
+        appointment.setStatus("SCHEDULED");
+        appointment.setReason("Follow-up for persistent cough");
+        appointment.setNotes("Bring previous X-ray");
+        return appointment;
+    }
+
+    private static Patient samplePatient() {
+        Patient patient = new Patient();
+        patient.setId(new ObjectId());
+        patient.setUsername("jdoe");
+        patient.setPassword("$2a$10$abcdefghijklmnopqrstuv");
+        patient.setName("Jane Doe");
+        patient.setEmail("jane.doe@example.com");
+        patient.setContact("+1 555 0100");
+        patient.setDateOfBirth(LocalDate.of(1985, 3, 2));
+        patient.setGender("Female");
+        patient.setBloodGroup("O+");
+        patient.setMedicalHistory(ids(4));
+        patient.setAppointments(ids(6));
+        patient.setPrescriptions(ids(3));
+        return patient;
+    }
+
+    private static Doctor sampleDoctor() {
+        Doctor doctor = new Doctor();
+        doctor.setId(new ObjectId());
+        doctor.setUsername("drsmith");
+        doctor.setPassword("$2a$10$abcdefghijklmnopqrstuv");
+        doctor.setName("Dr. Alan Smith");
+        doctor.setEmail("alan.smith@example.com");
+        doctor.setContact("+1 555 0199");
+        doctor.setSpecialization("Cardiology");
+        doctor.setSchedule("Mon-Fri 09:00-17:00");
+        doctor.setAssignedPatients(ids(20));
+        doctor.setAppointments(ids(10));
+        return doctor;
+    }
+
+    private static MedicalRecord sampleRecord() {
+        MedicalRecord record = new MedicalRecord();
+        record.setId(new ObjectId());
+        record.setPatientId(new ObjectId());
+        record.setRecordDate(LocalDateTime.of(2024, 5, 14, 10, 45));
+        record.setSymptoms(Map.of("fever", "high", "cough", "dry", "fatigue", "moderate"));
+        record.setVitalSigns(Map.of("temperature", 38.6, "heartRate", 92.0, "systolic", 128.0));
+        record.setDiagnosis("Influenza");
+        record.setAiPrediction("Influenza (0.82)");
+        record.setSeverity("MODERATE");
+        record.setTreatmentPlan("Rest, fluids, antipyretics");
+        record.setNotes("Re-check in one week");
+        return record;
+    }
+
+    private static Prescription samplePrescription() {
+        Prescription prescription = new Prescription();
+        prescription.setId(new ObjectId().toHexString());
+        prescription.setPatientId(new ObjectId().toHexString());
+        prescription.setDoctorId(new ObjectId().toHexString());
+        prescription.setDateIssued(LocalDate.of(2024, 5, 14));
+        prescription.setDiagnosis("Influenza");
+        prescription.setMedicines("Paracetamol 500mg, 3x daily");
+        prescription.setNotes("After meals");
+        prescription.setFollowUpDate(LocalDate.of(2024, 5, 21));
+        return prescription;
+    }
+
+    private static List<ObjectId> ids(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new ObjectId());
+        }
+        return ids;
+    }
+}